@@ -125,6 +125,10 @@ public class DefaultGrailsControllerClass extends AbstractInjectableGrailsClass
         configureURIsForCurrentState();
     }
 
+    public String getScope() {
+        return (String)getPropertyOrStaticPropertyOrFieldValue(SCOPE, String.class);
+    }
+
     private void configureURIsForCurrentState() {
         this.uris  = (String[])this.uri2closureMap.keySet().toArray(new String[this.uri2closureMap.keySet().size()]);
     }
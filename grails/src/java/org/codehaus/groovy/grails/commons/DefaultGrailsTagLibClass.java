@@ -16,6 +16,7 @@ package org.codehaus.groovy.grails.commons;
 
 import groovy.lang.Closure;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Set;
@@ -34,6 +35,7 @@ public class DefaultGrailsTagLibClass extends AbstractInjectableGrailsClass impl
 
     private List supportedControllers;
     private Set tags = new HashSet();
+    private Set threadSafeTags = new HashSet();
     private String namespace = GrailsTagLibClass.DEFAULT_NAMESPACE;
     
     /**
@@ -64,6 +66,14 @@ public class DefaultGrailsTagLibClass extends AbstractInjectableGrailsClass impl
             }
         }
         
+        Object threadSafe = getPropertyOrStaticPropertyOrFieldValue(THREAD_SAFE_TAGS, Object.class);
+        if (Boolean.TRUE.equals(threadSafe)) {
+            threadSafeTags.addAll(tags);
+        }
+        else if (threadSafe instanceof Collection) {
+            threadSafeTags.addAll((Collection) threadSafe);
+        }
+
         String ns = (String) getPropertyOrStaticPropertyOrFieldValue(NAMESPACE_FIELD_NAME, String.class);
         if (ns != null && !"".equals(ns.trim())) {
         	namespace = ns.trim();
@@ -92,6 +102,10 @@ public class DefaultGrailsTagLibClass extends AbstractInjectableGrailsClass impl
         return tags;
     }
 
+    public boolean isThreadSafeTag(String tagName) {
+        return threadSafeTags.contains(tagName);
+    }
+
 	public String getNamespace() {
 		return namespace;
 	}
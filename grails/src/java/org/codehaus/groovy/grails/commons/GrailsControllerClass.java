@@ -58,6 +58,21 @@ public interface GrailsControllerClass extends InjectableGrailsClass {
      */
     public String VIEW = "view";
 
+    /**
+     * The name of the static property that sets the scope of the controller bean
+     */
+    public String SCOPE = "scope";
+
+    /**
+     * The scope of a controller that is created for every request, the default
+     */
+    public String SCOPE_PROTOTYPE = "prototype";
+
+    /**
+     * The scope of a stateless controller that is created once and shared by all requests
+     */
+    public String SCOPE_SINGLETON = "singleton";
+
     /**
      * Checks to see if an action is accessible via a particular
      * http method
@@ -193,4 +208,12 @@ public interface GrailsControllerClass extends InjectableGrailsClass {
      * @param defaultActionName The default action name
      */
     void setDefaultActionName(String defaultActionName);
+
+    /**
+     * Returns the scope declared by the static scope property of the controller, for example
+     * <code>static scope = "singleton"</code>
+     *
+     * @return The declared scope or null if the controller doesn't declare one
+     */
+    String getScope();
 }
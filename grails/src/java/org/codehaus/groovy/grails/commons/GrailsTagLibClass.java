@@ -33,6 +33,12 @@ public interface GrailsTagLibClass extends InjectableGrailsClass {
     
     String NAMESPACE_FIELD_NAME = "namespace";
 
+    /**
+     * The name of the static property listing the tags that can be invoked without cloning their closure,
+     * or true if all tags of the library can
+     */
+    String THREAD_SAFE_TAGS = "threadSafeTags";
+
     /**
      * Whether this tag library supports the specified controller
      * @param controllerClass The controllerClass to check
@@ -52,6 +58,15 @@ public interface GrailsTagLibClass extends InjectableGrailsClass {
      * @return The tag names in this library
      */
     Set<String> getTagNames();
+
+    /**
+     * Whether the given tag is declared thread-safe, in which case its closure is invoked directly instead of
+     * a clone of it
+     *
+     * @param tagName The name of the tag
+     * @return True if the tag is thread-safe
+     */
+    boolean isThreadSafeTag(String tagName);
     
     /**
      * 
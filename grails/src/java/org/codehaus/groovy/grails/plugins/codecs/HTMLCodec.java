@@ -14,25 +14,127 @@
  */
 package org.codehaus.groovy.grails.plugins.codecs;
 
+import java.io.IOException;
+import java.io.Writer;
+
 import org.springframework.web.util.HtmlUtils;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.RequestAttributes;
 
 /**
  * A codecs that encodes and decodes strings to and from HTML
+ *
+ * Encoding escapes the same characters with the same entity references as HtmlUtils.htmlEscape, but only
+ * allocates when the text contains characters to escape. {@link #encodeTo(Object, Writer)} writes the encoded
+ * text straight to a Writer.
  * 
  * @author Graeme Rocher
  * @since 1.1
  */
 public class HTMLCodec {
+    private static final String[] ESCAPES = createEscapes();
+
+    /**
+     * Escapes every character once with HtmlUtils, which replaces a character either by itself or by a reference
+     * that starts with '&' and ends with ';', to get the reference of each character it escapes
+     */
+    private static String[] createEscapes() {
+        StringBuilder chars = new StringBuilder(Character.MAX_VALUE + 1);
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            chars.append((char) c);
+        }
+        String escaped = HtmlUtils.htmlEscape(chars.toString());
+
+        String[] escapes = new String[Character.MAX_VALUE + 1];
+        int length = 0;
+        int pos = 0;
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (escaped.charAt(pos) == '&') {
+                int end = escaped.indexOf(';', pos) + 1;
+                escapes[c] = escaped.substring(pos, end);
+                length = c + 1;
+                pos = end;
+            }
+            else {
+                pos++;
+            }
+        }
+        String[] result = new String[length];
+        System.arraycopy(escapes, 0, result, 0, length);
+        return result;
+    }
+
+    private static String escape(char c) {
+        return c < ESCAPES.length ? ESCAPES[c] : null;
+    }
 
     public static String encode(Object target) {
         if(target != null) {
-            return HtmlUtils.htmlEscape(target.toString());
+            String str = target.toString();
+            int length = str.length();
+            int i = 0;
+            while (i < length && escape(str.charAt(i)) == null) {
+                i++;
+            }
+            if (i == length) {
+                return str;
+            }
+
+            StringBuilder escaped = new StringBuilder(length + 16);
+            escaped.append(str, 0, i);
+            for (; i < length; i++) {
+                char c = str.charAt(i);
+                String reference = escape(c);
+                if (reference != null) {
+                    escaped.append(reference);
+                }
+                else {
+                    escaped.append(c);
+                }
+            }
+            return escaped.toString();
         }
         return null;
     }
 
+    /**
+     * Writes the HTML encoded text of the target to a Writer. Text that doesn't need escaping is written as is,
+     * without being copied.
+     *
+     * @param target The object to encode, nothing is written for null
+     * @param out The Writer to write to
+     * @return The number of characters written
+     * @throws IOException When writing fails
+     */
+    public static int encodeTo(Object target, Writer out) throws IOException {
+        if(target == null) {
+            return 0;
+        }
+        String str = target.toString();
+        int length = str.length();
+        int written = 0;
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            String reference = escape(str.charAt(i));
+            if (reference != null) {
+                if (i > start) {
+                    out.write(str, start, i - start);
+                    written += i - start;
+                }
+                out.write(reference);
+                written += reference.length();
+                start = i + 1;
+            }
+        }
+        if (start == 0) {
+            out.write(str);
+        }
+        else if (start < length) {
+            out.write(str, start, length - start);
+        }
+        return written + length - start;
+    }
+
     
     public static boolean shouldEncode() {
         final RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
@@ -31,6 +31,8 @@ import org.codehaus.groovy.grails.web.converters.configuration.ConvertersConfigu
 import org.codehaus.groovy.grails.web.converters.configuration.ObjectMarshallerRegisterer
 import org.codehaus.groovy.grails.web.servlet.mvc.GrailsWebRequest
 import org.springframework.web.context.request.RequestContextHolder
+import org.codehaus.groovy.grails.web.util.ETagResponseWrapper
+import org.codehaus.groovy.grails.web.util.ETagSupport
 
 /**
  * A plug-in that allows the obj as XML syntax
@@ -84,7 +86,14 @@ class ConvertersGrailsPlugin {
     }
 
     def renderMethod = {Converter converter ->
-        converter.render(delegate.response)
+        if (ETagSupport.isETagRequest(delegate.request)) {
+            def response = new ETagResponseWrapper(delegate.request, delegate.response)
+            converter.render(response)
+            response.close()
+        }
+        else {
+            converter.render(delegate.response)
+        }
 
         // Prevent Grails from looking for a view if this method is used.
         def webRequest = RequestContextHolder.currentRequestAttributes()
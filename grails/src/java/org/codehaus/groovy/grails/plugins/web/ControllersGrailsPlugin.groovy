@@ -37,6 +37,7 @@ import org.codehaus.groovy.grails.web.plugins.support.WebMetaUtils
 import org.codehaus.groovy.grails.web.servlet.GrailsApplicationAttributes
 import org.codehaus.groovy.grails.web.servlet.mvc.GrailsUrlHandlerMapping
 import org.codehaus.groovy.grails.web.servlet.mvc.SimpleGrailsController
+import org.codehaus.groovy.grails.web.servlet.mvc.SingletonControllerValidator
 import org.codehaus.groovy.grails.web.servlet.mvc.exceptions.ControllerExecutionException
 import org.springframework.aop.framework.ProxyFactoryBean
 import org.springframework.aop.target.HotSwappableTargetSource
@@ -48,6 +49,9 @@ import org.springframework.web.servlet.ModelAndView
 import org.springframework.web.servlet.mvc.SimpleControllerHandlerAdapter
 import org.codehaus.groovy.grails.web.metaclass.WithFormMethod
 import org.codehaus.groovy.grails.web.metaclass.ForwardMethod
+import org.codehaus.groovy.grails.web.metaclass.CheckNotModifiedMethod
+import org.codehaus.groovy.grails.web.util.CompressionSupport
+import org.codehaus.groovy.grails.web.util.ETagSupport
 import org.springframework.beans.BeanUtils
 import org.codehaus.groovy.grails.plugins.DomainClassPluginSupport
 import org.springframework.validation.BeanPropertyBindingResult
@@ -75,6 +79,19 @@ class ControllersGrailsPlugin {
         if (!application.config.grails.disableCommonsMultipart) {
             multipartResolver(ContentLengthAwareCommonsMultipartResolver)
         }
+        def etagConfig = application.config.grails.web.etag
+        ETagSupport.enabled = etagConfig.enabled == true
+        if (etagConfig.maxsize instanceof Number) {
+            ETagSupport.maxBufferSize = etagConfig.maxsize.intValue()
+        }
+        def compressionConfig = application.config.grails.web.compression
+        CompressionSupport.enabled = compressionConfig.enabled == true
+        if (compressionConfig.level instanceof Number) {
+            CompressionSupport.level = compressionConfig.level.intValue()
+        }
+        if (compressionConfig.minsize instanceof Number) {
+            CompressionSupport.minSize = compressionConfig.minsize.intValue()
+        }
         def urlMappings = [:]
         grailsUrlMappings(UrlMappingFactoryBean) {
             mappings = urlMappings
@@ -97,9 +114,14 @@ class ControllersGrailsPlugin {
         for(controller in application.controllerClasses) {
             log.debug "Configuring controller $controller.fullName"
             if (controller.available) {
+                def scope = controllerScope(controller, application)
                 "${controller.fullName}"(controller.clazz) { bean ->
-                    bean.scope = "prototype"
+                    bean.scope = scope
                     bean.autowire = "byName"
+                    if (scope == GrailsControllerClass.SCOPE_SINGLETON) {
+                        // created on the first request, once the dynamic methods are registered
+                        bean.lazyInit = true
+                    }
                 }
 
             }
@@ -108,6 +130,26 @@ class ControllersGrailsPlugin {
     }
 
 
+    /**
+     * Checks that the singleton controllers hold no request state
+     */
+    def doWithApplicationContext = { ApplicationContext ctx ->
+        for (controller in application.controllerClasses) {
+            if (controller.available && controllerScope(controller, application) == GrailsControllerClass.SCOPE_SINGLETON) {
+                SingletonControllerValidator.validate(controller, ctx)
+            }
+        }
+    }
+
+    /**
+     * The scope of a controller bean is set by the static scope property of the controller, otherwise by
+     * grails.controllers.defaultScope, which defaults to prototype
+     */
+    static String controllerScope(GrailsControllerClass controller, GrailsApplication application) {
+        def defaultScope = application.config.grails.controllers.defaultScope
+        return (controller.scope ?: defaultScope ?: GrailsControllerClass.SCOPE_PROTOTYPE).toString()
+    }
+
     def doWithWebDescriptor = {webXml ->
 
         def basedir = System.getProperty("base.dir")
@@ -404,6 +446,12 @@ class ControllersGrailsPlugin {
            withFormMethod.withForm(delegate.request, callable)
         }
 
+        // the checkNotModified method
+        def checkNotModifiedMethod = new CheckNotModifiedMethod()
+        mc.checkNotModified = { Map args ->
+            checkNotModifiedMethod.checkNotModified(delegate.request, delegate.response, args)
+        }
+
         def forwardMethod = new ForwardMethod(ctx.getBean("grailsUrlMappingsHolder"))
         mc.forward = { Map params ->
             forwardMethod.forward(delegate.request,delegate.response, params)
@@ -421,10 +469,17 @@ class ControllersGrailsPlugin {
                 return
             }
             def controllerClass = application.addArtefact(ControllerArtefactHandler.TYPE, event.source)
+            def scope = controllerScope(controllerClass, application)
+            if (scope == GrailsControllerClass.SCOPE_SINGLETON) {
+                SingletonControllerValidator.validate(controllerClass, context)
+            }
             def beanDefinitions = beans {
                 "${controllerClass.fullName}"(controllerClass.clazz) { bean ->
-                    bean.scope = "prototype"
+                    bean.scope = scope
                     bean.autowire = true
+                    if (scope == GrailsControllerClass.SCOPE_SINGLETON) {
+                        bean.lazyInit = true
+                    }
                 }
             }
             // now that we have a BeanBuilder calling registerBeans and passing the app ctx will
@@ -23,6 +23,10 @@ import org.codehaus.groovy.grails.commons.GrailsClassUtils as GCU
 import org.codehaus.groovy.grails.plugins.web.taglib.*
 import org.springframework.context.ApplicationContext
 import org.codehaus.groovy.grails.web.pages.GroovyPagesTemplateEngine
+import org.codehaus.groovy.grails.web.pages.GroovyPageClassCache
+import org.codehaus.groovy.grails.web.pages.GroovyPageFragmentCache
+import org.codehaus.groovy.grails.web.pages.GroovyPageProfiler
+import grails.util.GrailsUtil
 import org.codehaus.groovy.grails.web.pages.ext.jsp.TagLibraryResolver
 import org.codehaus.groovy.grails.web.pages.TagLibraryLookup
 import org.springframework.core.io.FileSystemResource
@@ -41,6 +45,8 @@ import org.springframework.web.context.request.RequestContextHolder
 import org.codehaus.groovy.grails.commons.GrailsApplication
 import java.lang.reflect.Modifier
 import org.springframework.beans.factory.config.PropertiesFactoryBean
+import org.springframework.web.context.WebApplicationContext
+import org.springframework.web.util.WebUtils
 
 /**
  * A Plugin that sets up and configures the GSP and GSP tag library support in Grails 
@@ -72,17 +78,52 @@ public class GroovyPagesGrailsPlugin {
             JavascriptTagLib,
             RenderTagLib,
             ValidationTagLib,
-            PluginTagLib
+            PluginTagLib,
+            SitemeshTagLib
     ]
 
 
 
     /**
-     * Clear the page cache with the ApplicationContext is loaded
+     * Clear the page cache with the ApplicationContext is loaded, set up the cache of compiled GSP classes and
+     * compile the views if grails.gsp.precompile.startup is enabled
      */
     def doWithApplicationContext = {ApplicationContext ctx ->
         GroovyPagesTemplateEngine templateEngine = ctx.getBean("groovyPagesTemplateEngine")
         templateEngine.clearPageCache()
+
+        if (application.config.grails.gsp.cache.jmx != false) {
+            templateEngine.registerMBeans()
+            ctx.getBean(GroovyPageFragmentCache.BEAN_ID).registerMBean()
+        }
+
+        def profileConfig = application.config.grails.gsp.profile
+        GroovyPageProfiler profiler = GroovyPageProfiler.instance
+        profiler.enabled = profileConfig.enabled == true
+        profiler.reportEnabled = profileConfig.report == true && Environment.current == Environment.DEVELOPMENT
+        if (profileConfig.jmx != false) {
+            profiler.registerMBean()
+        }
+
+        // Compiled GSP classes are kept on disk if a cache directory is configured or views are compiled at startup.
+        // The classes are loaded from there, so by default they are kept in the private temporary directory that
+        // the container provides to the application rather than in a directory shared with other users
+        def precompileConfig = application.config.grails.gsp.precompile
+        def compiledPageCacheDir = precompileConfig.cache.dir
+        if (!compiledPageCacheDir && precompileConfig.startup == true && ctx instanceof WebApplicationContext) {
+            def tempDir = ctx.servletContext?.getAttribute(WebUtils.TEMP_DIR_CONTEXT_ATTRIBUTE)
+            if (tempDir) {
+                compiledPageCacheDir = new File(tempDir.toString(), "gspcache")
+            }
+        }
+        if (compiledPageCacheDir) {
+            templateEngine.compiledPageCache = new GroovyPageClassCache(new File(compiledPageCacheDir.toString()),
+                    "${GrailsUtil.grailsVersion}-${application.metadata['app.version']}".toString())
+        }
+        if (precompileConfig.startup == true) {
+            int threads = precompileConfig.threads instanceof Number ? precompileConfig.threads : Runtime.runtime.availableProcessors()
+            templateEngine.precompileViews(threads)
+        }
     }
 
     /**
@@ -126,13 +167,31 @@ public class GroovyPagesGrailsPlugin {
         }
 
         // Setup the main templateEngine used to render GSPs
+        def cacheConfig = application.config.grails.gsp.cache
+
+        // Holds the output of <g:cache> tags
+        def fragmentCacheConfig = cacheConfig.fragments
+        "${GroovyPageFragmentCache.BEAN_ID}"(GroovyPageFragmentCache,
+                fragmentCacheConfig.maxSize instanceof Number ? fragmentCacheConfig.maxSize : GroovyPageFragmentCache.DEFAULT_MAX_SIZE,
+                fragmentCacheConfig.maxWeight instanceof Number ? fragmentCacheConfig.maxWeight : GroovyPageFragmentCache.DEFAULT_MAX_WEIGHT)
+
         groovyPagesTemplateEngine(org.codehaus.groovy.grails.web.pages.GroovyPagesTemplateEngine) {
+            if (cacheConfig.maxSize instanceof Number) {
+                maxCacheSize = cacheConfig.maxSize
+            }
+            if (cacheConfig.maxWeight instanceof Number) {
+                maxCacheWeight = cacheConfig.maxWeight
+            }
             classLoader = ref("classLoader")
             if (developmentMode || warDeployedWithReload) {
                 resourceLoader = groovyPageResourceLoader
             }
             if (enableReload) {
                 reloadEnabled = enableReload
+                def reloadConfig = application.config.grails.gsp.reload
+                if (reloadConfig.interval instanceof Number) {
+                    reloadInterval = reloadConfig.interval
+                }
             }
             tagLibraryLookup = gspTagLibraryLookup
             jspTagLibraryResolver = jspTagLibraryResolver
@@ -163,6 +222,14 @@ public class GroovyPagesGrailsPlugin {
 
     }
 
+    /**
+     * Unregisters the GSP profiler from the MBeanServer, the MBeans of the caches are unregistered when their
+     * beans are destroyed
+     */
+    def onShutdown = { event ->
+        GroovyPageProfiler.instance.unregisterMBean()
+    }
+
     /**
      * Modifies the web.xml when in development mode to allow viewing of sources
      */
@@ -53,6 +53,8 @@ class ApplicationTagLib implements ApplicationContextAware, InitializingBean {
 						   session:'session',
 						   flash:'flash']
 
+    static threadSafeTags = ['link', 'createLink']
+
 
     private boolean useJsessionId = false
 
@@ -26,17 +26,19 @@ import org.springframework.web.servlet.support.RequestContextUtils as RCU;
 import org.codehaus.groovy.grails.commons.GrailsClassUtils as GCU
 import com.opensymphony.module.sitemesh.PageParserSelector
 import com.opensymphony.module.sitemesh.Factory
+import org.codehaus.groovy.grails.web.pages.GroovyPageProfiler
 import org.codehaus.groovy.grails.web.pages.GroovyPagesTemplateEngine
+import org.codehaus.groovy.grails.web.pages.GroovyPageFragmentCache
 import org.springframework.web.context.ServletConfigAware
 import javax.servlet.ServletConfig
 import org.springframework.beans.factory.InitializingBean;
 import org.codehaus.groovy.grails.web.sitemesh.FactoryHolder
+import org.codehaus.groovy.grails.web.sitemesh.GrailsPageFilter
 import org.codehaus.groovy.grails.plugins.PluginManagerHolder
 import org.codehaus.groovy.grails.plugins.GrailsPluginManager
 import grails.util.GrailsNameUtils
 import org.codehaus.groovy.grails.web.mapping.ForwardUrlMappingInfo
 import org.codehaus.groovy.grails.web.util.WebUtils
-import java.util.concurrent.ConcurrentHashMap
 import groovy.text.Template
 
 class RenderTagLib implements com.opensymphony.module.sitemesh.RequestConstants {
@@ -44,6 +46,7 @@ class RenderTagLib implements com.opensymphony.module.sitemesh.RequestConstants
 
     ServletConfig servletConfig
     GroovyPagesTemplateEngine groovyPagesTemplateEngine
+    GroovyPageFragmentCache groovyPageFragmentCache
     GrailsPluginManager pluginManager
 
 
@@ -90,43 +93,51 @@ class RenderTagLib implements com.opensymphony.module.sitemesh.RequestConstants
      * @param params Optiona. The params to pass onto the page object
      */
     def applyLayout = { attrs, body ->
-        if(!groovyPagesTemplateEngine) throw new IllegalStateException("Property [groovyPagesTemplateEngine] must be set!")
-        def oldPage = getPage()
-        def contentType = attrs.contentType ? attrs.contentType : "text/html"
-
-        def content = ""
-        if(attrs.view || attrs.template) {
-            content = render(attrs)
-        }
-        else if(attrs.url) {
-            content = new URL(attrs.url).text
-        }
-        else {
-            content = body()
-        }
+        // the content and layout are rendered into the view, the regions of the view mustn't capture them
+        def gspSitemeshPage = request.getAttribute(GrailsPageFilter.GSP_SITEMESH_PAGE)
+        request.removeAttribute(GrailsPageFilter.GSP_SITEMESH_PAGE)
+        try {
+            if(!groovyPagesTemplateEngine) throw new IllegalStateException("Property [groovyPagesTemplateEngine] must be set!")
+            def oldPage = getPage()
+            def contentType = attrs.contentType ? attrs.contentType : "text/html"
+
+            def content = ""
+            if(attrs.view || attrs.template) {
+                content = render(attrs)
+            }
+            else if(attrs.url) {
+                content = new URL(attrs.url).text
+            }
+            else {
+                content = body()
+            }
 
-        def parser = getFactory().getPageParser(contentType)
+            def parser = getFactory().getPageParser(contentType)
 
-        def page = parser.parse(content.toCharArray())
-        attrs.params?.each { k,v->
-            page.addProperty(k,v)
-        }
-        def decoratorMapper = getFactory().getDecoratorMapper()
-
-        if(decoratorMapper) {
-            def d = decoratorMapper.getNamedDecorator(request, attrs.name)
-            if(d && d.page) {
-                try {
-                    request[PAGE] = page
-                  	def t = groovyPagesTemplateEngine.createTemplate(d.getPage())
-                    def w = t.make()
-                    w.writeTo(out)
-
-                } finally {
-                    request[PAGE] = oldPage
+            def page = parser.parse(content.toCharArray())
+            attrs.params?.each { k,v->
+                page.addProperty(k,v)
+            }
+            def decoratorMapper = getFactory().getDecoratorMapper()
+
+            if(decoratorMapper) {
+                def d = decoratorMapper.getNamedDecorator(request, attrs.name)
+                if(d && d.page) {
+                    try {
+                        request[PAGE] = page
+                      	def t = groovyPagesTemplateEngine.createTemplate(d.getPage())
+                        def w = t.make()
+                        w.writeTo(out)
+
+                    } finally {
+                        request[PAGE] = oldPage
+                    }
                 }
             }
         }
+        finally {
+            if(gspSitemeshPage != null) request.setAttribute(GrailsPageFilter.GSP_SITEMESH_PAGE, gspSitemeshPage)
+        }
     }
 
     private Factory getFactory() {
@@ -425,7 +436,6 @@ class RenderTagLib implements com.opensymphony.module.sitemesh.RequestConstants
      *  <g:render template="atemplate" model="[user:user,company:company]" />
      *  <g:render template="atemplate" bean="${user}" />
      */
-    static Map TEMPLATE_CACHE = new ConcurrentHashMap()
     def render = { attrs, body ->
         if(!groovyPagesTemplateEngine) throw new IllegalStateException("Property [groovyPagesTemplateEngine] must be set!")
         if(!attrs.template)
@@ -441,14 +451,11 @@ class RenderTagLib implements com.opensymphony.module.sitemesh.RequestConstants
             if(plugin && !plugin.isBasePlugin()) contextPath = plugin.getPluginPath()
         }
 
-        Template t
-        if(TEMPLATE_CACHE.containsKey(uri) && !engine.isReloadEnabled()) {
-           t = TEMPLATE_CACHE[uri]
-        }
-        else {
-          t = engine.createTemplateForUri(["${contextPath}${uri}", "${contextPath}/grails-app/views/${uri}"] as String[])
-          TEMPLATE_CACHE[uri] = t
-        }
+        def profiler = GroovyPageProfiler.instance
+        long startTime = profiler.enabled ? System.nanoTime() : 0
+        long startChars = startTime ? GroovyPageProfiler.getCharsWritten(out) : 0
+
+        Template t = engine.createTemplateForUri(["${contextPath}${uri}", "${contextPath}/grails-app/views/${uri}"] as String[])
 
         if(attrs.containsKey('bean')) {
         	def b = [body: body]
@@ -470,11 +477,13 @@ class RenderTagLib implements com.opensymphony.module.sitemesh.RequestConstants
                 def first = collection.iterator().next()
                 key = first ? GrailsNameUtils.getPropertyName(first.getClass()) : 'it'
             }
+            // the template is reused for all the items, each of which gets its own copy of the binding
+            def base = [body:body]
+            if (attrs.model instanceof Map) {
+                base += attrs.model
+            }
             collection.each {
-            	def b = [body:body]
-                if (attrs.model instanceof Map) {
-                    b += attrs.model
-                }
+                def b = new HashMap(base)
             	if (var) {
             		b.put(var, it)
             	}
@@ -491,6 +500,58 @@ class RenderTagLib implements com.opensymphony.module.sitemesh.RequestConstants
 		else if(attrs.template) {
 			t.make([body:body]).writeTo(out)
 		}
+
+        if(startTime) {
+            profiler.recordTemplate(contextPath + uri, startTime, GroovyPageProfiler.getCharsWritten(out) - startChars, request)
+        }
     }
 
-}
\ No newline at end of file
+    /**
+     * Renders its body once and writes the stored output on subsequent requests, until it expires or is
+     * invalidated through the groovyPageFragmentCache bean. Examples:
+     *
+     * <g:cache key="menu">...</g:cache>
+     * <g:cache key="categories" ttl="600" varyBy="locale">...</g:cache>
+     * <g:cache key="basket" varyBy="user" vary="${basket.version}">...</g:cache>
+     *
+     * @param key The key of the fragment
+     * @param ttl The number of seconds the output is used for, defaults to no expiry
+     * @param varyBy A comma separated list of "locale", "user" or "session", which store a variation of the output per value
+     * @param vary Any other value that a variation of the output is stored for
+     */
+    def cache = { attrs, body ->
+        if(!attrs.key)
+            throwTagError("Tag [cache] is missing required attribute [key]")
+        if(attrs.ttl && !(attrs.ttl.toString() ==~ /\d+/))
+            throwTagError("Tag [cache] attribute [ttl] must be a number of seconds, but was [${attrs.ttl}]")
+        if(!groovyPageFragmentCache) throw new IllegalStateException("Property [groovyPageFragmentCache] must be set!")
+
+        def key = attrs.key.toString()
+        def variation = getFragmentVariation(attrs)
+        def content = groovyPageFragmentCache.get(key, variation)
+        if(content == null) {
+            content = body()?.toString() ?: ""
+            long ttl = attrs.ttl ? attrs.ttl.toString().toLong() * 1000 : 0
+            groovyPageFragmentCache.put(key, variation, content, ttl)
+        }
+        out << content
+    }
+
+    private String getFragmentVariation(attrs) {
+        def variation = []
+        if(attrs.varyBy) {
+            for(by in attrs.varyBy.toString().split(",")*.trim()) {
+                switch(by) {
+                    case "locale": variation << RCU.getLocale(request).toString(); break
+                    case "user": variation << (request.remoteUser ?: ""); break
+                    case "session": variation << request.session.id; break
+                    default: throwTagError("Tag [cache] does not support varyBy value [$by], use locale, user or session")
+                }
+            }
+        }
+        if(attrs.vary != null) {
+            variation << attrs.vary.toString()
+        }
+        return variation ? variation.join("|") : null
+    }
+}
@@ -0,0 +1,158 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.plugins.web.taglib
+
+import org.codehaus.groovy.grails.web.sitemesh.GSPSitemeshPage
+import org.codehaus.groovy.grails.web.sitemesh.GrailsPageFilter
+import org.codehaus.groovy.grails.web.sitemesh.SitemeshPreprocessor
+import org.codehaus.groovy.grails.web.taglib.GroovyPageTagBody
+import org.codehaus.groovy.grails.web.util.StreamCharBuffer
+import org.springframework.web.util.WebUtils
+
+/**
+ * The tags that {@link SitemeshPreprocessor} wraps the head, title, body, meta and content elements of a GSP in.
+ * The markup of the elements is written as it is in the GSP, while their content and attributes are captured into
+ * the {@link GSPSitemeshPage} of the request so that the layout doesn't parse the rendered page. Outside of a page
+ * that is being decorated, such as in a layout or an included view, the elements are only written.
+ *
+ * @since 1.2
+ */
+class SitemeshTagLib {
+    static namespace = 'sitemesh'
+
+    def captureHead = { attrs, body ->
+        GSPSitemeshPage page = getCapturingPage()
+        if (!page) {
+            out << body()
+            return
+        }
+        StreamCharBuffer content
+        page.capturingHead = true
+        try {
+            content = bufferOf(body)
+        }
+        finally {
+            page.capturingHead = false
+        }
+        if (page.titleTag) {
+            // a layout writes the title and the head separately, so the head it writes leaves out the title
+            String head = content.toString()
+            page.headBuffer = bufferWithout(head, page.titleTag)
+            out << head
+        }
+        else {
+            page.headBuffer = content
+            content.copyTo(out)
+        }
+    }
+
+    def captureTitle = { attrs, body ->
+        GSPSitemeshPage page = getCapturingPage()
+        if (!page) {
+            out << body()
+            return
+        }
+        String titleTag = bufferOf(body).toString()
+        page.addProperty('title', contentOf(titleTag))
+        if (page.capturingHead) {
+            page.titleTag = titleTag
+        }
+        out << titleTag
+    }
+
+    def captureBody = { attrs, body ->
+        GSPSitemeshPage page = getCapturingPage()
+        if (!page) {
+            out << body()
+            return
+        }
+        StreamCharBuffer content = bufferOf(body)
+        page.bodyBuffer = content
+        attrs.each { name, value ->
+            page.addProperty("body.${name}".toString(), value?.toString())
+        }
+        content.copyTo(out)
+    }
+
+    def captureMeta = { attrs ->
+        // the meta element itself is written before the tag
+        GSPSitemeshPage page = getCapturingPage()
+        if (page) {
+            def content = attributeValue(attrs, 'content')
+            def name = attributeValue(attrs, 'name')
+            def httpEquiv = attributeValue(attrs, 'http-equiv')
+            if (name) {
+                page.addProperty("meta.${name}".toString(), content)
+            }
+            else if (httpEquiv) {
+                page.addProperty("meta.http-equiv.${httpEquiv}".toString(), content)
+            }
+        }
+    }
+
+    def captureContent = { attrs, body ->
+        GSPSitemeshPage page = getCapturingPage()
+        def tag = attributeValue(attrs, 'tag')
+        if (!page || !tag) {
+            out << body()
+            return
+        }
+        // a content block is a property of the page, it isn't written
+        page.addProperty("page.${tag}".toString(), contentOf(bufferOf(body).toString()))
+    }
+
+    private GSPSitemeshPage getCapturingPage() {
+        if (request.getAttribute(WebUtils.INCLUDE_REQUEST_URI_ATTRIBUTE) != null) return null
+        return request.getAttribute(GrailsPageFilter.GSP_SITEMESH_PAGE)
+    }
+
+    private StreamCharBuffer bufferOf(body) {
+        if (body instanceof GroovyPageTagBody) {
+            return body.captureBuffer()
+        }
+        StreamCharBuffer buffer = new StreamCharBuffer()
+        if (body) {
+            buffer.writer.write(body()?.toString() ?: '')
+        }
+        return buffer
+    }
+
+    private StreamCharBuffer bufferWithout(String text, String element) {
+        StreamCharBuffer buffer = new StreamCharBuffer()
+        int index = text.indexOf(element)
+        if (index == -1) {
+            buffer.writer.write(text)
+        }
+        else {
+            buffer.writer.write(text, 0, index)
+            buffer.writer.write(text, index + element.length(), text.length() - index - element.length())
+        }
+        return buffer
+    }
+
+    /**
+     * The content of an element that is written as it is in the GSP, between its start and end tags
+     */
+    private String contentOf(String element) {
+        int start = element.indexOf('>') + 1
+        int end = element.lastIndexOf('<')
+        return end >= start ? element.substring(start, end) : element
+    }
+
+    private String attributeValue(Map attrs, String name) {
+        def entry = attrs.find { it.key.toString().equalsIgnoreCase(name) }
+        return entry?.value?.toString()
+    }
+}
@@ -35,6 +35,8 @@ import org.springframework.web.context.request.RequestContextHolder
 
 class ValidationTagLib {
 
+    static threadSafeTags = ['message']
+
     /**
      * Renders an error message for the given bean and field
      *
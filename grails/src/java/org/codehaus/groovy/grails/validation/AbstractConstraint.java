@@ -74,6 +74,13 @@ public abstract class AbstractConstraint implements Constraint {
         this.constraintParameter = constraintParameter;
     }
 
+    /**
+     * @return The parameter the constraint was configured with
+     */
+    public Object getParameter() {
+        return this.constraintParameter;
+    }
+
     protected void checkState() {
         if(StringUtils.isBlank(this.constraintPropertyName))
             throw new IllegalStateException("Property 'propertyName' must be set on the constraint");
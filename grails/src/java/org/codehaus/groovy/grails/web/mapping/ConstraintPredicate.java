@@ -0,0 +1,106 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.mapping;
+
+import groovy.lang.Range;
+import org.apache.commons.lang.StringUtils;
+import org.codehaus.groovy.grails.validation.AbstractConstraint;
+import org.codehaus.groovy.grails.validation.ConstrainedProperty;
+import org.codehaus.groovy.grails.validation.Constraint;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * <p>The constraints of a URL mapping variable compiled into a plain check against the captured value. It
+ * accepts exactly the values that {@link ConstrainedProperty#validate(Object, Object, org.springframework.validation.Errors)}
+ * accepts, but without creating an Errors instance or resolving message codes for rejected values.</p>
+ *
+ * <p>Only the nullable, blank, matches, inList and size constraints can be compiled. Variables with any other
+ * constraint, such as a custom validator, have to be checked with the general validation mechanism.</p>
+ *
+ * @since 1.2
+ */
+public class ConstraintPredicate {
+
+    private static final Set<String> SUPPORTED_CONSTRAINTS = new HashSet<String>(Arrays.asList(
+            ConstrainedProperty.NULLABLE_CONSTRAINT,
+            ConstrainedProperty.BLANK_CONSTRAINT,
+            ConstrainedProperty.MATCHES_CONSTRAINT,
+            ConstrainedProperty.IN_LIST_CONSTRAINT,
+            ConstrainedProperty.SIZE_CONSTRAINT));
+
+    private final boolean nullable;
+    private final boolean blank;
+    private final Pattern pattern;
+    private final List inList;
+    private final Range size;
+
+    private ConstraintPredicate(ConstrainedProperty property, Pattern pattern) {
+        this.nullable = property.isNullable();
+        this.blank = property.isBlank();
+        this.pattern = pattern;
+        this.inList = property.getInList();
+        this.size = property.getSize();
+    }
+
+    /**
+     * Compiles the constraints of the given property
+     *
+     * @param property The ConstrainedProperty instance
+     * @return A ConstraintPredicate or null if the property has constraints that can't be compiled
+     */
+    public static ConstraintPredicate compile(ConstrainedProperty property) {
+        for (Object o : property.getAppliedConstraints()) {
+            Constraint constraint = (Constraint) o;
+            if (!SUPPORTED_CONSTRAINTS.contains(constraint.getName())) return null;
+        }
+
+        Pattern pattern = null;
+        Constraint matches = property.getAppliedConstraint(ConstrainedProperty.MATCHES_CONSTRAINT);
+        if (matches != null) {
+            if (!(matches instanceof AbstractConstraint)) return null;
+            pattern = Pattern.compile((String) ((AbstractConstraint) matches).getParameter());
+        }
+        return new ConstraintPredicate(property, pattern);
+    }
+
+    /**
+     * @return True if every captured value is accepted, so that only whether a value was captured at all matters
+     */
+    public boolean acceptsAnyValue() {
+        return blank && pattern == null && inList == null && size == null;
+    }
+
+    /**
+     * Checks the given value against the compiled constraints
+     *
+     * @param value The captured value
+     * @return True if the value satisfies the constraints
+     */
+    public boolean accepts(String value) {
+        // like the vetoing nullable and blank constraints, other constraints aren't checked for null or blank values
+        if (value == null) return nullable;
+        if (StringUtils.isBlank(value)) return blank;
+
+        if (pattern != null && !pattern.matcher(value).matches()) return false;
+        if (inList != null && !inList.contains(value)) return false;
+        if (size != null && !size.contains(value.length())) return false;
+        return true;
+    }
+}
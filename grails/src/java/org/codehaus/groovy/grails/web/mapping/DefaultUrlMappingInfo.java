@@ -78,6 +78,17 @@ public class DefaultUrlMappingInfo implements UrlMappingInfo {
             this.viewName = viewName;
     }
 
+    private DefaultUrlMappingInfo(DefaultUrlMappingInfo info, Object actionName) {
+        this.params = info.params;
+        this.id = info.id;
+        this.urlData = info.urlData;
+        this.servletContext = info.servletContext;
+        this.controllerName = info.controllerName;
+        this.actionName = actionName;
+        this.viewName = info.viewName;
+        this.parsingRequest = info.parsingRequest;
+    }
+
     public DefaultUrlMappingInfo(Object viewName, Map params, UrlMappingData urlData, ServletContext servletContext) {
         this(params, urlData, servletContext);
         this.viewName = viewName;
@@ -181,6 +192,21 @@ public class DefaultUrlMappingInfo implements UrlMappingInfo {
         return name;
     }
 
+    /**
+     * Returns the UrlMappingInfo for a request with the given HTTP method. If the action is a map of HTTP
+     * method to action name, as defined by RESTful mappings, the returned instance has the action name for
+     * the method already resolved, otherwise this instance is returned.
+     *
+     * @param httpMethod The HTTP method (GET,POST,PUT,DELETE etc.)
+     * @return A UrlMappingInfo instance
+     */
+    public DefaultUrlMappingInfo forHttpMethod(String httpMethod) {
+        if (httpMethod == null || !(this.actionName instanceof Map)) {
+            return this;
+        }
+        return new DefaultUrlMappingInfo(this, ((Map) this.actionName).get(httpMethod));
+    }
+
     public String getViewName() {
         return evaluateNameForValue(this.viewName);
     }
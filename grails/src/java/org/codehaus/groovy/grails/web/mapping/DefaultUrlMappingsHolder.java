@@ -18,12 +18,13 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.codehaus.groovy.grails.validation.ConstrainedProperty;
 import org.codehaus.groovy.grails.commons.GrailsControllerClass;
+import org.codehaus.groovy.grails.web.util.BoundedCache;
+import org.codehaus.groovy.grails.web.util.BoundedCacheMBean;
 import org.springframework.core.style.ToStringCreator;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <p>The default implementation of the UrlMappingsHolder interface that takes a list of mappings and
@@ -41,12 +42,25 @@ import java.util.concurrent.ConcurrentHashMap;
 public class DefaultUrlMappingsHolder implements UrlMappingsHolder {
     private static final transient Log LOG = LogFactory.getLog(DefaultUrlMappingsHolder.class);
 
-    private Map<String, UrlMappingInfo> cachedMatches = new ConcurrentHashMap<String, UrlMappingInfo>();
-    private Map<String, List<UrlMappingInfo>> cachedListMatches = new ConcurrentHashMap<String, List<UrlMappingInfo>>();
+    /**
+     * The default maximum number of entries held by each of the match caches
+     */
+    public static final int DEFAULT_MAX_CACHE_SIZE = 5000;
+
+    private BoundedCache<String, UrlMappingInfo> cachedMatches;
+    private BoundedCache<String, List<UrlMappingInfo>> cachedListMatches;
+    private BoundedCache<String, BitSet> cachedCandidates;
+    private BoundedCache<String, Integer> cachedShapeMatches;
+    private BoundedCache<String, int[]> cachedShapeListMatches;
+    private BoundedCache<ReverseMappingKey, UrlCreator> cachedReverseMappings;
 
     private List<UrlMapping> urlMappings = new ArrayList<UrlMapping>();
     private UrlMapping[] mappings;
+    private boolean[] parameterised;
+    private boolean hasRestfulMappings;
+    private UrlMappingTrie mappingTrie;
     private List excludePatterns;
+    private UriExclusionMatcher exclusionMatcher;
     private Map<UrlMappingKey, UrlMapping> mappingsLookup = new HashMap<UrlMappingKey, UrlMapping>();
     private Map<String, UrlMapping> namedMappings = new HashMap<String, UrlMapping>();
     private UrlMappingsList mappingsListLookup = new UrlMappingsList();
@@ -60,13 +74,30 @@ public class DefaultUrlMappingsHolder implements UrlMappingsHolder {
 
 
     public DefaultUrlMappingsHolder(List<UrlMapping> mappings) {
-        this.urlMappings = mappings;
-        initialize();
+        this(mappings, null);
     }
 
     public DefaultUrlMappingsHolder(List<UrlMapping> mappings, List excludePatterns) {
+        this(mappings, excludePatterns, DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a holder whose match caches hold at most maxCacheSize entries each
+     *
+     * @param mappings The mappings
+     * @param excludePatterns URI patterns excluded from mapping
+     * @param maxCacheSize The maximum size of each of the match caches
+     */
+    public DefaultUrlMappingsHolder(List<UrlMapping> mappings, List excludePatterns, int maxCacheSize) {
         this.urlMappings = mappings;
         this.excludePatterns = excludePatterns;
+        this.exclusionMatcher = new UriExclusionMatcher(excludePatterns);
+        this.cachedMatches = new BoundedCache<String, UrlMappingInfo>(maxCacheSize);
+        this.cachedListMatches = new BoundedCache<String, List<UrlMappingInfo>>(maxCacheSize);
+        this.cachedCandidates = new BoundedCache<String, BitSet>(maxCacheSize);
+        this.cachedShapeMatches = new BoundedCache<String, Integer>(maxCacheSize);
+        this.cachedShapeListMatches = new BoundedCache<String, int[]>(maxCacheSize);
+        this.cachedReverseMappings = new BoundedCache<ReverseMappingKey, UrlCreator>(maxCacheSize);
         initialize();
     }
 
@@ -75,8 +106,15 @@ public class DefaultUrlMappingsHolder implements UrlMappingsHolder {
         Collections.reverse(this.urlMappings);
         
         this.mappings = this.urlMappings.toArray(new UrlMapping[this.urlMappings.size()]);
-
-        for (UrlMapping mapping : mappings) {
+        this.mappingTrie = new UrlMappingTrie(this.mappings);
+        this.parameterised = new boolean[this.mappings.length];
+
+        for (int i = 0; i < mappings.length; i++) {
+            UrlMapping mapping = mappings[i];
+            parameterised[i] = mapping.getConstraints().length > 0 || mapping.getUrlData().getUrlPattern().indexOf('*') > -1;
+            if (mapping.getActionName() instanceof Map) {
+                hasRestfulMappings = true;
+            }
             String mappingName = mapping.getMappingName();
             if(mappingName != null) {
                 namedMappings.put(mappingName, mapping);
@@ -128,22 +166,101 @@ public class DefaultUrlMappingsHolder implements UrlMappingsHolder {
     public UrlMapping[] getUrlMappings() {
         return this.mappings;
     }
+
+    /**
+     * @return The cache of URI to UrlMappingInfo matches of mappings without variables
+     */
+    public BoundedCache<String, UrlMappingInfo> getMatchCache() {
+        return cachedMatches;
+    }
+
+    /**
+     * @return The cache of URI to UrlMappingInfo list matches of mappings without variables
+     */
+    public BoundedCache<String, List<UrlMappingInfo>> getListMatchCache() {
+        return cachedListMatches;
+    }
+
+    /**
+     * @return The cache of the index of the mapping that matches the URIs of each shape, for mappings with
+     * variables whose match only depends on the shape of the URI
+     * @see UrlMappingTrie#isMatchedByShape(int)
+     */
+    public BoundedCache<String, Integer> getShapeMatchCache() {
+        return cachedShapeMatches;
+    }
+
+    /**
+     * @return The cache of the indices of the mappings that match the URIs of each shape
+     * @see #getShapeMatchCache()
+     */
+    public BoundedCache<String, int[]> getShapeListMatchCache() {
+        return cachedShapeListMatches;
+    }
+
+    /**
+     * @return The cache of the candidate mappings of each URI shape
+     * @see UrlMappingTrie#getShapeKey(String)
+     */
+    public BoundedCache<String, BitSet> getCandidateCache() {
+        return cachedCandidates;
+    }
+
+    /**
+     * @return The cache of reverse mappings keyed by controller, action and parameter names
+     */
+    public BoundedCacheMBean getReverseMappingCache() {
+        return cachedReverseMappings;
+    }
     
     public List getExcludePatterns() {
         return this.excludePatterns;
     }
+
+    /**
+     * Checks whether the given URI is excluded from URL mapping, either by an exclude pattern or because it
+     * refers to a static resource
+     *
+     * @param uri The URI within the application
+     * @return True if the URI should be passed straight through to the filter chain
+     * @see UriExclusionMatcher#isExcluded(UrlMappingsHolder, String)
+     */
+    public boolean isExcluded(String uri) {
+        return exclusionMatcher.matches(uri);
+    }
+
+    /**
+     * Sets the matcher that decides which URIs are excluded from mapping. By default only the exclude
+     * patterns are taken into account
+     *
+     * @param exclusionMatcher The UriExclusionMatcher instance
+     */
+    public void setExclusionMatcher(UriExclusionMatcher exclusionMatcher) {
+        this.exclusionMatcher = exclusionMatcher;
+    }
     /**
      * @see UrlMappingsHolder#getReverseMapping(String, String, java.util.Map)  
      */
     public UrlCreator getReverseMapping(final String controller, final String action, Map params) {
         if(params == null) params = Collections.EMPTY_MAP;
 
-        UrlMapping mapping = null;
+        UrlMapping namedMapping = namedMappings.get(params.remove("mappingName"));
+        if(namedMapping != null && !(namedMapping instanceof ResponseCodeUrlMapping)) {
+            return namedMapping;
+        }
 
-        mapping = namedMappings.get(params.remove("mappingName"));
-        if(mapping == null) {
-            mapping = lookupMapping(controller, action, params);
+        // the resolved mapping only depends on the parameter names, so the live key set is used for
+        // the lookup and only copied when a new entry is stored
+        UrlCreator creator = cachedReverseMappings.get(new ReverseMappingKey(controller, action, params.keySet()));
+        if(creator == null) {
+            creator = resolveReverseMapping(controller, action, params);
+            cachedReverseMappings.put(new ReverseMappingKey(controller, action, new HashSet(params.keySet())), creator);
         }
+        return creator;
+    }
+
+    private UrlCreator resolveReverseMapping(final String controller, final String action, Map params) {
+        UrlMapping mapping = lookupMapping(controller, action, params);
         if(mapping == null || (mapping instanceof ResponseCodeUrlMapping)) {
             mapping = mappingsLookup.get(new UrlMappingKey(controller, action, Collections.EMPTY_SET));
         }
@@ -225,22 +342,39 @@ public class DefaultUrlMappingsHolder implements UrlMappingsHolder {
      * @see org.codehaus.groovy.grails.web.mapping.UrlMappingsHolder#match(String)
      */
     public UrlMappingInfo match(String uri) {
-        UrlMappingInfo info = null;
-        if(cachedMatches.containsKey(uri)) {
-            return cachedMatches.get(uri);
+        UrlMappingInfo info = cachedMatches.get(uri);
+        if (info != null) {
+            return info;
         }
-        else {
-            for (UrlMapping mapping : mappings) {
 
-                if (LOG.isDebugEnabled())
-                    LOG.debug("Attempting to match URI [" + uri + "] with pattern [" + mapping.getUrlData().getUrlPattern() + "]");
+        // matches that capture variables are cached per URI shape, so that URIs like /book/show/1 don't each
+        // take an entry and evict the others
+        String shape = mappingTrie.getShapeKey(uri);
+        Integer matchedIndex = cachedShapeMatches.get(shape);
+        if (matchedIndex != null) {
+            return mappings[matchedIndex].match(uri);
+        }
+
+        boolean matchedByShape = true;
+        BitSet candidates = getCandidates(uri, shape);
+        for (int i = candidates.nextSetBit(0); i > -1; i = candidates.nextSetBit(i + 1)) {
+            UrlMapping mapping = mappings[i];
+            matchedByShape &= mappingTrie.isMatchedByShape(i);
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("Attempting to match URI [" + uri + "] with pattern [" + mapping.getUrlData().getUrlPattern() + "]");
 
-                info = mapping.match(uri);
+            info = mapping.match(uri);
 
-                if (info != null) {
+            if (info != null) {
+                if (!parameterised[i]) {
                     cachedMatches.put(uri, info);
-                    break;
                 }
+                else if (matchedByShape) {
+                    // neither this match nor the failed matches before it depend on the values of the variables
+                    cachedShapeMatches.put(shape, i);
+                }
+                break;
             }
         }
 
@@ -248,30 +382,82 @@ public class DefaultUrlMappingsHolder implements UrlMappingsHolder {
     }
 
     public UrlMappingInfo[] matchAll(String uri) {
-        List<UrlMappingInfo> matchingUrls = new ArrayList<UrlMappingInfo>();
-        if(cachedListMatches.containsKey(uri)) {
-             matchingUrls = cachedListMatches.get(uri);
+        List<UrlMappingInfo> matchingUrls = cachedListMatches.get(uri);
+        if (matchingUrls != null) {
+            return matchingUrls.toArray(new UrlMappingInfo[matchingUrls.size()]);
+        }
+
+        String shape = mappingTrie.getShapeKey(uri);
+        int[] matchedIndices = cachedShapeListMatches.get(shape);
+        if (matchedIndices != null) {
+            UrlMappingInfo[] infos = new UrlMappingInfo[matchedIndices.length];
+            for (int i = 0; i < matchedIndices.length; i++) {
+                infos[i] = mappings[matchedIndices[i]].match(uri);
+            }
+            return infos;
         }
-        else {
-            for (UrlMapping mapping : mappings) {
-                if (LOG.isDebugEnabled())
-                    LOG.debug("Attempting to match URI [" + uri + "] with pattern [" + mapping.getUrlData().getUrlPattern() + "]");
 
-                UrlMappingInfo current = mapping.match(uri);
-                if (current != null) {
-                    if (LOG.isDebugEnabled())
-                        LOG.debug("Matched URI [" + uri + "] with pattern [" + mapping.getUrlData().getUrlPattern() + "], adding to posibilities");
+        matchingUrls = new ArrayList<UrlMappingInfo>();
+        boolean cacheable = true;
+        boolean matchedByShape = true;
+        BitSet matched = new BitSet();
+        BitSet candidates = getCandidates(uri, shape);
+        for (int i = candidates.nextSetBit(0); i > -1; i = candidates.nextSetBit(i + 1)) {
+            UrlMapping mapping = mappings[i];
+            matchedByShape &= mappingTrie.isMatchedByShape(i);
+            if (LOG.isDebugEnabled())
+                LOG.debug("Attempting to match URI [" + uri + "] with pattern [" + mapping.getUrlData().getUrlPattern() + "]");
+
+            UrlMappingInfo current = mapping.match(uri);
+            if (current != null) {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Matched URI [" + uri + "] with pattern [" + mapping.getUrlData().getUrlPattern() + "], adding to posibilities");
 
-                    matchingUrls.add(current);
-                }
+                matchingUrls.add(current);
+                matched.set(i);
+                if (parameterised[i]) cacheable = false;
             }
+        }
+        // misses are only cached per shape, so that crawlers requesting unmapped URIs don't flood the cache
+        if (cacheable && !matchingUrls.isEmpty()) {
             cachedListMatches.put(uri, matchingUrls);
         }
+        else if (matchedByShape) {
+            cachedShapeListMatches.put(shape, toIndices(matched));
+        }
         return matchingUrls.toArray(new UrlMappingInfo[matchingUrls.size()]);
     }
 
+    private static int[] toIndices(BitSet bits) {
+        int[] indices = new int[bits.cardinality()];
+        int n = 0;
+        for (int i = bits.nextSetBit(0); i > -1; i = bits.nextSetBit(i + 1)) {
+            indices[n++] = i;
+        }
+        return indices;
+    }
+
+    private BitSet getCandidates(String uri, String shape) {
+        BitSet candidates = cachedCandidates.get(shape);
+        if (candidates == null) {
+            candidates = mappingTrie.getCandidates(uri);
+            cachedCandidates.put(shape, candidates);
+        }
+        return candidates;
+    }
+
     public UrlMappingInfo[] matchAll(String uri, String httpMethod) {
-        return matchAll(uri); 
+        UrlMappingInfo[] infos = matchAll(uri);
+        if (hasRestfulMappings && httpMethod != null) {
+            // resolve the actions of RESTful mappings from their HTTP method tables up front, so that the
+            // returned infos don't look up the method of the current request each time the action is requested
+            for (int i = 0; i < infos.length; i++) {
+                if (infos[i] instanceof DefaultUrlMappingInfo) {
+                    infos[i] = ((DefaultUrlMappingInfo) infos[i]).forHttpMethod(httpMethod);
+                }
+            }
+        }
+        return infos;
     }
 
     public UrlMappingInfo matchStatusCode(int responseCode) {
@@ -380,6 +566,45 @@ public class DefaultUrlMappingsHolder implements UrlMappingsHolder {
 		}
     }
     
+    /**
+     * A key for the reverse mapping cache made of the controller, action and parameter names of a request
+     * to create a URL
+     */
+    static class ReverseMappingKey {
+        private final String controller;
+        private final String action;
+        private final Set paramNames;
+        private final int hashCode;
+
+        ReverseMappingKey(String controller, String action, Set paramNames) {
+            this.controller = controller;
+            this.action = action;
+            this.paramNames = paramNames;
+            int result = (controller != null ? controller.hashCode() : 0);
+            result = 31 * result + (action != null ? action.hashCode() : 0);
+            this.hashCode = 31 * result + paramNames.hashCode();
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ReverseMappingKey)) return false;
+
+            ReverseMappingKey that = (ReverseMappingKey) o;
+            return hashCode == that.hashCode &&
+                    (controller != null ? controller.equals(that.controller) : that.controller == null) &&
+                    (action != null ? action.equals(that.action) : that.action == null) &&
+                    paramNames.equals(that.paramNames);
+        }
+
+        public int hashCode() {
+            return hashCode;
+        }
+
+        public String toString() {
+            return new ToStringCreator(this).append( "controller", controller ).append("action",action ).append( "params", paramNames ).toString();
+        }
+    }
+
     /**
      * A class used as a key to lookup a all UrlMappings based on only controller and action.
      */
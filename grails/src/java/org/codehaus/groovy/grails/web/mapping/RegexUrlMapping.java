@@ -28,6 +28,7 @@ import org.springframework.validation.MapBindingResult;
 import org.springframework.web.context.request.RequestContextHolder;
 
 import javax.servlet.ServletContext;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.*;
@@ -59,6 +60,8 @@ public class RegexUrlMapping extends AbstractUrlMapping implements UrlMapping {
 
     private Pattern[] patterns;
     private UrlMappingData urlData;
+    private UrlTemplate urlTemplate;
+    private ConstraintPredicate[] constraintPredicates;
 
     private static final String WILDCARD = "*";
     private static final String CAPTURED_WILDCARD = "(*)";
@@ -71,7 +74,6 @@ public class RegexUrlMapping extends AbstractUrlMapping implements UrlMapping {
 
     private static final String CAPTURED_DOUBLE_WILDCARD = "(**)";
     private static final Log LOG = LogFactory.getLog(RegexUrlMapping.class);
-    private static final Pattern DOUBLE_WILDCARD_PATTERN = Pattern.compile("\\(\\*\\*?\\)");
 
 
     /**
@@ -87,7 +89,37 @@ public class RegexUrlMapping extends AbstractUrlMapping implements UrlMapping {
      */
     public RegexUrlMapping(UrlMappingData data, Object controllerName, Object actionName, Object viewName, ConstrainedProperty[] constraints, ServletContext servletContext) {
         super(controllerName, actionName, viewName, constraints != null ? constraints : new ConstrainedProperty[0], servletContext);
+        if (actionName instanceof Map) {
+            this.actionName = compileHttpMethodActions((Map) actionName);
+        }
         parse(data, constraints);
+        compileConstraints();
+    }
+
+    /**
+     * Compiles a RESTful action map such as <code>[GET:'show', PUT:'update']</code> into a table of HTTP
+     * method to trimmed action name, so that resolving the action of a request is a single lookup
+     */
+    private static Map<String, String> compileHttpMethodActions(Map actions) {
+        Map<String, String> table = new HashMap<String, String>();
+        for (Object o : actions.entrySet()) {
+            Map.Entry entry = (Map.Entry) o;
+            if (entry.getKey() != null && entry.getValue() != null) {
+                table.put(entry.getKey().toString(), entry.getValue().toString().trim());
+            }
+        }
+        return Collections.unmodifiableMap(table);
+    }
+
+    /**
+     * Compiles the constraints of the mapping into predicates, once their nullability is known, so that matching
+     * doesn't need to go through the general validation mechanism
+     */
+    private void compileConstraints() {
+        this.constraintPredicates = new ConstraintPredicate[this.constraints.length];
+        for (int i = 0; i < this.constraints.length; i++) {
+            this.constraintPredicates[i] = ConstraintPredicate.compile(this.constraints[i]);
+        }
     }
 
     private void parse(UrlMappingData data, ConstrainedProperty[] constraints) {
@@ -95,6 +127,7 @@ public class RegexUrlMapping extends AbstractUrlMapping implements UrlMapping {
 
         String[] urls = data.getLogicalUrls();
         this.urlData = data;
+        this.urlTemplate = new UrlTemplate(data);
         this.patterns = new Pattern[urls.length];
 
         for (int i = 0; i < urls.length; i++) {
@@ -196,68 +229,15 @@ public class RegexUrlMapping extends AbstractUrlMapping implements UrlMapping {
         }
         if (parameterValues == null) parameterValues = Collections.EMPTY_MAP;
         StringBuilder uri = new StringBuilder(contextPath);
-        Set usedParams = new HashSet();
-
-        Pattern p = DOUBLE_WILDCARD_PATTERN;
-
-        String[] tokens = urlData.getTokens();
-        int paramIndex = 0;
-        for (String token : tokens) {
-            Matcher m = p.matcher(token);
-            if (m.find()) {
-                StringBuffer buf = new StringBuffer();
-                do {
-                    ConstrainedProperty prop = this.constraints[paramIndex++];
-                    String propName = prop.getPropertyName();
-                    Object value = parameterValues.get(propName);
-                    usedParams.add(propName);
-                    if (value == null && !prop.isNullable()) {
-                        throw new UrlMappingException("Unable to create URL for mapping [" + this + "] and parameters [" + parameterValues + "]. Parameter [" + prop.getPropertyName() + "] is required, but was not specified!");
-                    }
-                    else if (value == null) {
-                        m.appendReplacement(buf, "");
-                    }
-                    else {
-                        m.appendReplacement(buf, Matcher.quoteReplacement(value.toString()));
-                    }
-                }
-                while (m.find());
-
-                m.appendTail(buf);
-
-                try {
-                    String v = buf.toString();
-                    if (v.indexOf(SLASH) > -1
-                            && CAPTURED_DOUBLE_WILDCARD.equals(token)) {
-                        // individually URL encode path segments
-                        if (v.startsWith(SLASH)) {
-                            // get rid of leading slash
-                            v = v.substring(SLASH.length());
-                        }
-                        String[] segs = v.split(SLASH);
-                        for (String segment : segs) {
-                            uri.append(SLASH).append(URLEncoder.encode(segment, encoding));
-                        }
-                    }
-                    else if (v.length() > 0) {
-                        // original behavior
-                        uri.append(SLASH).append(URLEncoder.encode(v, encoding));
-                    }
-                    else {
-                        // Stop processing tokens once we hit an empty one.
-                        break;
-                    }
-                }
-                catch (UnsupportedEncodingException e) {
-                    throw new ControllerExecutionException("Error creating URL for parameters [" + parameterValues + "], problem encoding URL part [" + buf + "]: " + e.getMessage(), e);
-                }
-            }
-            else {
-                uri.append(SLASH).append(token);
-            }
 
+        int usedParamCount;
+        try {
+            usedParamCount = urlTemplate.appendPath(uri, this.constraints, parameterValues, encoding);
         }
-        populateParameterList(parameterValues, encoding, uri, usedParams);
+        catch (IOException e) {
+            throw new ControllerExecutionException("Error creating URL for parameters [" + parameterValues + "], problem encoding URL: " + e.getMessage(), e);
+        }
+        populateParameterList(parameterValues, encoding, uri, usedParamCount);
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("Created reverse URL mapping [" + uri.toString() + "] for parameters [" + parameterValues + "]");
@@ -329,10 +309,8 @@ public class RegexUrlMapping extends AbstractUrlMapping implements UrlMapping {
     }
 
 
-    private void populateParameterList(Map parameterValues, String encoding, StringBuilder uri, Set usedParams) {
+    private void populateParameterList(Map parameterValues, String encoding, StringBuilder uri, int usedParamCount) {
         boolean addedParams = false;
-        usedParams.add("controller");
-        usedParams.add("action");
 
         // A 'null' encoding will cause an exception, so default to 'UTF-8'.
         if (encoding == null) {
@@ -341,7 +319,7 @@ public class RegexUrlMapping extends AbstractUrlMapping implements UrlMapping {
 
         for (Object o1 : parameterValues.keySet()) {
             String name = o1.toString();
-            if (!usedParams.contains(name)) {
+            if (!isUsedParameter(name, usedParamCount)) {
                 if (!addedParams) {
                     uri.append(QUESTION_MARK);
                     addedParams = true;
@@ -378,11 +356,20 @@ public class RegexUrlMapping extends AbstractUrlMapping implements UrlMapping {
         }
     }
 
+    private boolean isUsedParameter(String name, int usedParamCount) {
+        if (CONTROLLER.equals(name) || ACTION.equals(name)) return true;
+        for (int i = 0; i < usedParamCount; i++) {
+            if (constraints[i].getPropertyName().equals(name)) return true;
+        }
+        return false;
+    }
+
     private void appendValueToURI(String encoding, StringBuilder uri, String name, Object value) {
         try {
-            uri.append(URLEncoder.encode(name, encoding)).append('=')
-                    .append(URLEncoder.encode(value != null ? value.toString() : "", encoding));
-        } catch (UnsupportedEncodingException e) {
+            UrlTemplate.appendEncoded(uri, name, encoding);
+            uri.append('=');
+            UrlTemplate.appendEncoded(uri, value != null ? value.toString() : "", encoding);
+        } catch (IOException e) {
             throw new ControllerExecutionException("Error redirecting request for url [" + name + ":" + value + "]: " + e.getMessage(), e);
         }
     }
@@ -393,7 +380,7 @@ public class RegexUrlMapping extends AbstractUrlMapping implements UrlMapping {
 
     private UrlMappingInfo createUrlMappingInfo(String uri, Matcher m) {
         Map params = new HashMap();
-        Errors errors = new MapBindingResult(params, "urlMapping");
+        Errors errors = null;
         String lastGroup = null;
         for (int i = 0; i < m.groupCount(); i++) {
             lastGroup = m.group(i + 1);
@@ -403,12 +390,16 @@ public class RegexUrlMapping extends AbstractUrlMapping implements UrlMapping {
             }
             if (constraints.length > i) {
                 ConstrainedProperty cp = constraints[i];
-                cp.validate(this, lastGroup, errors);
-
-                if (errors.hasErrors()) return null;
+                ConstraintPredicate predicate = constraintPredicates[i];
+                if (predicate != null) {
+                    if (!predicate.accepts(lastGroup)) return null;
+                }
                 else {
-                    params.put(cp.getPropertyName(), lastGroup);
+                    if (errors == null) errors = new MapBindingResult(params, "urlMapping");
+                    cp.validate(this, lastGroup, errors);
+                    if (errors.hasErrors()) return null;
                 }
+                params.put(cp.getPropertyName(), lastGroup);
             }
         }
 
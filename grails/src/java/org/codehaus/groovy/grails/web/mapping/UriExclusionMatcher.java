@@ -0,0 +1,205 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.mapping;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.aop.TargetSource;
+import org.springframework.aop.framework.Advised;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Decides whether a URI is excluded from URL mapping, for example because it refers to a static resource
+ * such as <code>/images/logo.png</code> or <code>/css/main.css</code>.</p>
+ *
+ * <p>The exclude patterns of the UrlMappings classes are either exact URIs or prefixes ending with
+ * <code>*</code>. Exact URIs are held in a set, and prefixes in a character trie, so a URI is checked in a
+ * single pass over its characters regardless of the number of patterns. Static resource prefixes and file
+ * extensions can be added as well.</p>
+ *
+ * @since 1.2
+ */
+public class UriExclusionMatcher {
+    private static final Log LOG = LogFactory.getLog(UriExclusionMatcher.class);
+
+    private static final String WILDCARD = "*";
+    private static final char SLASH = '/';
+    private static final char DOT = '.';
+
+    private final Set<String> uris = new HashSet<String>();
+    private final Set<String> extensions = new HashSet<String>();
+    private final Node prefixes = new Node();
+    private boolean empty = true;
+
+    /**
+     * Creates a matcher for the given exclude patterns
+     *
+     * @param excludePatterns A list of URIs or URI prefixes ending with *, can be null
+     */
+    public UriExclusionMatcher(Collection excludePatterns) {
+        this(excludePatterns, null, null);
+    }
+
+    /**
+     * Creates a matcher for the given exclude patterns, static resource prefixes and file extensions
+     *
+     * @param excludePatterns A list of URIs or URI prefixes ending with *, can be null
+     * @param staticPrefixes URI prefixes of static resources such as /images/, can be null
+     * @param staticExtensions File extensions of static resources such as png, without the dot, can be null
+     */
+    public UriExclusionMatcher(Collection excludePatterns, Collection staticPrefixes, Collection staticExtensions) {
+        if (excludePatterns != null) {
+            for (Object o : excludePatterns) {
+                String pattern = o.toString();
+                if (pattern.endsWith(WILDCARD)) {
+                    addPrefix(pattern.substring(0, pattern.length() - 1));
+                }
+                else {
+                    uris.add(pattern);
+                    empty = false;
+                }
+            }
+        }
+        if (staticPrefixes != null) {
+            for (Object o : staticPrefixes) {
+                addPrefix(o.toString());
+            }
+        }
+        if (staticExtensions != null) {
+            for (Object o : staticExtensions) {
+                String extension = o.toString();
+                if (extension.length() > 0 && extension.charAt(0) == DOT) {
+                    extension = extension.substring(1);
+                }
+                extensions.add(extension);
+                empty = false;
+            }
+        }
+    }
+
+    private void addPrefix(String prefix) {
+        Node node = prefixes;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = node.getOrCreateChild(prefix.charAt(i));
+        }
+        node.terminal = true;
+        empty = false;
+    }
+
+    /**
+     * @return True if no URI is excluded
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Checks whether the given URI is excluded from URL mapping by the given holder. The matcher of a
+     * {@link DefaultUrlMappingsHolder} is used, also when the holder is the target of a proxy such as the
+     * {@link UrlMappingsHolder#BEAN_ID} bean that is swapped when the mappings are reloaded. Other holders are
+     * checked against their exclude patterns.
+     *
+     * @param holder The UrlMappingsHolder instance
+     * @param uri The URI within the application
+     * @return True if the URI is excluded
+     */
+    public static boolean isExcluded(UrlMappingsHolder holder, String uri) {
+        UrlMappingsHolder target = getTarget(holder);
+        if (target instanceof DefaultUrlMappingsHolder) {
+            return ((DefaultUrlMappingsHolder) target).isExcluded(uri);
+        }
+        List excludePatterns = holder.getExcludePatterns();
+        if (excludePatterns == null) return false;
+        for (Object o : excludePatterns) {
+            String pattern = o.toString();
+            if (uri.equals(pattern) || (pattern.endsWith(WILDCARD) && uri.startsWith(pattern.substring(0, pattern.length() - 1)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static UrlMappingsHolder getTarget(UrlMappingsHolder holder) {
+        if (!(holder instanceof Advised)) return holder;
+        TargetSource targetSource = ((Advised) holder).getTargetSource();
+        try {
+            Object target = targetSource.getTarget();
+            try {
+                return target instanceof UrlMappingsHolder ? (UrlMappingsHolder) target : holder;
+            }
+            finally {
+                targetSource.releaseTarget(target);
+            }
+        }
+        catch (Exception e) {
+            LOG.debug("Unable to obtain the target of UrlMappingsHolder proxy: " + e.getMessage(), e);
+            return holder;
+        }
+    }
+
+    /**
+     * Checks whether the given URI is excluded from URL mapping
+     *
+     * @param uri The URI within the application
+     * @return True if the URI is excluded
+     */
+    public boolean matches(String uri) {
+        if (empty || uri == null) return false;
+
+        Node node = prefixes;
+        int length = uri.length();
+        for (int i = 0; node != null; i++) {
+            if (node.terminal) return true;
+            if (i == length) break;
+            node = node.getChild(uri.charAt(i));
+        }
+
+        if (!extensions.isEmpty()) {
+            int dot = uri.lastIndexOf(DOT);
+            if (dot > uri.lastIndexOf(SLASH) && extensions.contains(uri.substring(dot + 1))) {
+                return true;
+            }
+        }
+
+        return uris.contains(uri);
+    }
+
+    private static class Node {
+        Map<Character, Node> children;
+        boolean terminal;
+
+        Node getChild(char c) {
+            return children == null ? null : children.get(c);
+        }
+
+        Node getOrCreateChild(char c) {
+            if (children == null) {
+                children = new HashMap<Character, Node>();
+            }
+            Node child = children.get(c);
+            if (child == null) {
+                child = new Node();
+                children.put(c, child);
+            }
+            return child;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.mapping;
+
+import org.codehaus.groovy.grails.validation.ConstrainedProperty;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>A path segment trie compiled from the logical URLs of a set of UrlMapping instances. Given a URI the trie
+ * returns the (small) set of mappings that could possibly match it, so that only those need to go through
+ * the full regular expression and constraint evaluation of {@link UrlMapping#match(String)}.</p>
+ *
+ * <p>The trie is deliberately conservative: static tokens must match a URI segment exactly, any other
+ * single segment token such as <code>(*)</code> or <code>(*).xml</code> matches any segment and a token
+ * containing <code>**</code> matches the remainder of the URI. Mappings whose tokens can't be safely
+ * indexed (for example tokens containing regex character classes) or that aren't regex based are returned as
+ * candidates for every URI.</p>
+ *
+ * <p>Candidates are identified by their index in the array passed to the constructor and are always returned
+ * in ascending order, which means that iterating over them preserves the precedence order of that array.</p>
+ *
+ * <p>Whether some mappings match a URI only depends on its shape, see {@link #isMatchedByShape(int)}, so their
+ * matches can be cached per shape rather than per URI.</p>
+ *
+ * @since 1.2
+ */
+public class UrlMappingTrie {
+
+    private static final char SLASH = '/';
+    private static final String WILDCARD = "*";
+    private static final String DOUBLE_WILDCARD = "**";
+    private static final String NON_LITERAL_CHARS = "*()[]{}\\^$|?";
+    private static final String UNINDEXABLE_CHARS = "[]\\";
+    private static final String CAPTURED_WILDCARD = "(*)";
+
+    private final Node root = new Node();
+    private final BitSet alwaysMatch = new BitSet();
+    private final BitSet matchedByShape = new BitSet();
+    private final Set<String> literals = new HashSet<String>();
+    private final int size;
+
+    /**
+     * Compiles a trie for the given mappings
+     *
+     * @param mappings The mappings, in the order they should be evaluated
+     */
+    public UrlMappingTrie(UrlMapping[] mappings) {
+        this.size = mappings.length;
+        for (int i = 0; i < mappings.length; i++) {
+            UrlMapping mapping = mappings[i];
+            if (mapping instanceof ResponseCodeUrlMapping) continue;
+
+            if (!(mapping instanceof RegexUrlMapping) || !isIndexable(mapping.getUrlData())) {
+                alwaysMatch.set(i);
+                continue;
+            }
+            String[] logicalUrls = mapping.getUrlData().getLogicalUrls();
+            for (String logicalUrl : logicalUrls) {
+                insert(tokenize(logicalUrl), i);
+            }
+            if (isMatchedByShape(mapping)) {
+                matchedByShape.set(i);
+            }
+        }
+    }
+
+    /**
+     * Whether the mapping at the given index matches either all or none of the URIs with a given shape, see
+     * {@link #getShapeKey(String)}. That's the case for mappings whose tokens are static or plain variables like
+     * <code>$id</code>, and whose variables have no constraints other than whether they're optional.
+     *
+     * @param index The index of the mapping
+     * @return True if the shape of a URI decides whether the mapping matches it
+     */
+    public boolean isMatchedByShape(int index) {
+        return matchedByShape.get(index);
+    }
+
+    private static boolean isMatchedByShape(UrlMapping mapping) {
+        for (String token : mapping.getUrlData().getTokens()) {
+            if (!isLiteral(token) && !CAPTURED_WILDCARD.equals(token)) return false;
+        }
+        for (ConstrainedProperty constraint : mapping.getConstraints()) {
+            ConstraintPredicate predicate = ConstraintPredicate.compile(constraint);
+            if (predicate == null || !predicate.acceptsAnyValue()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the indices of all the mappings that may match the given URI. The returned set is a
+     * superset of the mappings that actually match.
+     *
+     * @param uri The URI to match
+     * @return A BitSet of candidate mapping indices
+     */
+    public BitSet getCandidates(String uri) {
+        BitSet candidates = new BitSet(size);
+        candidates.or(alwaysMatch);
+        collect(root, tokenize(uri), 0, candidates);
+        return candidates;
+    }
+
+    /**
+     * <p>Returns a key describing the shape of the given URI, in which every segment that doesn't equal a static
+     * token of one of the mappings is replaced by a wildcard. For example with the mapping
+     * <code>/book/$action/$id</code> the URIs <code>/book/show/1</code> and <code>/book/show/2</code> both have the
+     * shape <code>/book/*&#47;*</code>. Empty segments are kept, since no variable matches them.</p>
+     *
+     * <p>All URIs with the same shape have the same candidates, so the key can be used to cache the result
+     * of {@link #getCandidates(String)} per mapping template rather than per URI.</p>
+     *
+     * @param uri The URI
+     * @return The shape key
+     */
+    public String getShapeKey(String uri) {
+        String[] segments = tokenize(uri);
+        StringBuilder key = new StringBuilder(uri.length() + 1);
+        for (String segment : segments) {
+            key.append(SLASH).append(segment.length() == 0 || literals.contains(segment) ? segment : WILDCARD);
+        }
+        return key.toString();
+    }
+
+    private void insert(String[] segments, int index) {
+        Node current = root;
+        for (String segment : segments) {
+            if (segment.indexOf(DOUBLE_WILDCARD) > -1) {
+                current.remainder.set(index);
+                return;
+            }
+            else if (isLiteral(segment)) {
+                literals.add(segment);
+                Node child = current.children.get(segment);
+                if (child == null) {
+                    child = new Node();
+                    current.children.put(segment, child);
+                }
+                current = child;
+            }
+            else {
+                if (current.wildcard == null) {
+                    current.wildcard = new Node();
+                }
+                current = current.wildcard;
+            }
+        }
+        current.terminal.set(index);
+    }
+
+    private void collect(Node node, String[] segments, int position, BitSet candidates) {
+        candidates.or(node.remainder);
+        if (position == segments.length) {
+            candidates.or(node.terminal);
+            return;
+        }
+        Node child = node.children.get(segments[position]);
+        if (child != null) {
+            collect(child, segments, position + 1, candidates);
+        }
+        if (node.wildcard != null) {
+            collect(node.wildcard, segments, position + 1, candidates);
+        }
+    }
+
+    /**
+     * Splits a URI or logical URL into its path segments, ignoring the leading slash and a single trailing
+     * slash (which the generated regular expressions treat as optional)
+     */
+    static String[] tokenize(String uri) {
+        int start = 0;
+        int end = uri.length();
+        if (end > 0 && uri.charAt(0) == SLASH) start++;
+        if (end > start && uri.charAt(end - 1) == SLASH) end--;
+        if (start >= end) return new String[0];
+
+        List<String> segments = new ArrayList<String>();
+        int pos = start;
+        for (int i = start; i < end; i++) {
+            if (uri.charAt(i) == SLASH) {
+                segments.add(uri.substring(pos, i));
+                pos = i + 1;
+            }
+        }
+        segments.add(uri.substring(pos, end));
+        return segments.toArray(new String[segments.size()]);
+    }
+
+    private static boolean isIndexable(UrlMappingData urlData) {
+        for (String token : urlData.getTokens()) {
+            if (containsAny(token, UNINDEXABLE_CHARS)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isLiteral(String segment) {
+        return !containsAny(segment, NON_LITERAL_CHARS);
+    }
+
+    private static boolean containsAny(String str, String chars) {
+        for (int i = 0; i < str.length(); i++) {
+            if (chars.indexOf(str.charAt(i)) > -1) return true;
+        }
+        return false;
+    }
+
+    private static class Node {
+        final Map<String, Node> children = new HashMap<String, Node>();
+        Node wildcard;
+        final BitSet terminal = new BitSet();
+        final BitSet remainder = new BitSet();
+    }
+}
@@ -20,13 +20,22 @@ import org.codehaus.groovy.grails.commons.GrailsClass;
 import org.codehaus.groovy.grails.commons.GrailsUrlMappingsClass;
 import org.codehaus.groovy.grails.commons.UrlMappingsArtefactHandler;
 import org.codehaus.groovy.grails.plugins.support.aware.GrailsApplicationAware;
+import org.codehaus.groovy.grails.web.util.BoundedCache;
+import org.codehaus.groovy.grails.web.util.BoundedCacheMBean;
+import org.codehaus.groovy.grails.web.util.JmxSupport;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.StringUtils;
 import org.springframework.web.context.ServletContextAware;
 
+import javax.management.ObjectName;
 import javax.servlet.ServletContext;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A FactoryBean for constructing the UrlMappingsHolder from the registered UrlMappings class within a
@@ -40,12 +49,19 @@ import java.util.List;
  *        Created: Mar 6, 2007
  *        Time: 6:48:57 PM
  */
-public class UrlMappingsHolderFactoryBean implements FactoryBean, InitializingBean, GrailsApplicationAware, ServletContextAware {
+public class UrlMappingsHolderFactoryBean implements FactoryBean, InitializingBean, DisposableBean, GrailsApplicationAware, ServletContextAware {
+    public static final String CONFIG_OPTION_CACHE_MAX_SIZE = "grails.urlmapping.cache.maxsize";
+    public static final String CONFIG_OPTION_CACHE_JMX = "grails.urlmapping.cache.jmx";
+    public static final String CONFIG_OPTION_STATIC_PREFIXES = "grails.urlmapping.static.prefixes";
+    public static final String CONFIG_OPTION_STATIC_EXTENSIONS = "grails.urlmapping.static.extensions";
+    private static final String MBEAN_TYPE = "UrlMappingsCache";
+
     private GrailsApplication grailsApplication;
     private UrlMappingsHolder urlMappingsHolder;
     private UrlMappingEvaluator mappingEvaluator;
     private UrlMappingParser urlParser = new DefaultUrlMappingParser();
     private ServletContext servletContext;
+    private List<ObjectName> mbeanNames = new ArrayList<ObjectName>();
 
     public Object getObject() throws Exception {
         return this.urlMappingsHolder;
@@ -85,8 +101,52 @@ public class UrlMappingsHolderFactoryBean implements FactoryBean, InitializingBe
 
 
 
-        this.urlMappingsHolder = new DefaultUrlMappingsHolder(urlMappings, excludePatterns);
+        Map config = grailsApplication.getFlatConfig();
+        int maxCacheSize = DefaultUrlMappingsHolder.DEFAULT_MAX_CACHE_SIZE;
+        Object maxCacheSizeValue = config.get(CONFIG_OPTION_CACHE_MAX_SIZE);
+        if (maxCacheSizeValue instanceof Number) {
+            maxCacheSize = ((Number) maxCacheSizeValue).intValue();
+        }
+
+        DefaultUrlMappingsHolder holder = new DefaultUrlMappingsHolder(urlMappings, excludePatterns, maxCacheSize);
+        holder.setExclusionMatcher(new UriExclusionMatcher(excludePatterns,
+                getConfiguredList(config, CONFIG_OPTION_STATIC_PREFIXES),
+                getConfiguredList(config, CONFIG_OPTION_STATIC_EXTENSIONS)));
+        if (!Boolean.FALSE.equals(config.get(CONFIG_OPTION_CACHE_JMX))) {
+            registerMBean(holder.getMatchCache(), "matches");
+            registerMBean(holder.getListMatchCache(), "listMatches");
+            registerMBean(holder.getCandidateCache(), "candidates");
+            registerMBean(holder.getShapeMatchCache(), "shapeMatches");
+            registerMBean(holder.getShapeListMatchCache(), "shapeListMatches");
+            registerMBean(holder.getReverseMappingCache(), "reverseMappings");
+        }
+        this.urlMappingsHolder = holder;
+    }
+
+    private void registerMBean(BoundedCacheMBean cache, String name) {
+        ObjectName mbeanName = BoundedCache.registerMBean(cache, MBEAN_TYPE, name);
+        if (mbeanName != null) {
+            mbeanNames.add(mbeanName);
+        }
+    }
+
+    /**
+     * Unregisters the statistics MBeans of the caches, when the application is shut down or the mappings are
+     * reloaded
+     */
+    public void destroy() {
+        JmxSupport.unregisterMBeans(mbeanNames);
+    }
 
+    private Collection getConfiguredList(Map config, String name) {
+        Object value = config.get(name);
+        if (value instanceof Collection) {
+            return (Collection) value;
+        }
+        if (value instanceof String) {
+            return Arrays.asList(StringUtils.commaDelimitedListToStringArray(StringUtils.trimAllWhitespace((String) value)));
+        }
+        return null;
     }
 
     public void setGrailsApplication(GrailsApplication grailsApplication) {
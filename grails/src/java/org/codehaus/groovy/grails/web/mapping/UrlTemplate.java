@@ -0,0 +1,203 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.mapping;
+
+import org.codehaus.groovy.grails.validation.ConstrainedProperty;
+import org.codehaus.groovy.grails.web.mapping.exceptions.UrlMappingException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>The tokens of a URL mapping pattern such as <code>/blog/(*)/(*)?</code> compiled for reverse URL creation.
+ * The static parts of the pattern are prepared once, so creating a URL only appends the static parts and the
+ * URL encoded parameter values to the target, without regex replacement or intermediate strings.</p>
+ *
+ * <p>URL encoding is performed by {@link #appendEncoded(Appendable, String, String)}, which produces the same
+ * output as {@link java.net.URLEncoder#encode(String, String)}.</p>
+ *
+ * @since 1.2
+ */
+public class UrlTemplate {
+
+    private static final char SLASH = '/';
+    private static final String CAPTURED_WILDCARD = "(*)";
+    private static final String CAPTURED_DOUBLE_WILDCARD = "(**)";
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final BitSet DONT_NEED_ENCODING = new BitSet(128);
+
+    static {
+        for (int i = 'a'; i <= 'z'; i++) DONT_NEED_ENCODING.set(i);
+        for (int i = 'A'; i <= 'Z'; i++) DONT_NEED_ENCODING.set(i);
+        for (int i = '0'; i <= '9'; i++) DONT_NEED_ENCODING.set(i);
+        DONT_NEED_ENCODING.set(' ');
+        DONT_NEED_ENCODING.set('-');
+        DONT_NEED_ENCODING.set('_');
+        DONT_NEED_ENCODING.set('.');
+        DONT_NEED_ENCODING.set('*');
+    }
+
+    private final String urlPattern;
+    private final Token[] tokens;
+
+    /**
+     * Compiles the tokens of the given mapping data
+     *
+     * @param urlData The UrlMappingData instance
+     */
+    public UrlTemplate(UrlMappingData urlData) {
+        this.urlPattern = urlData.getUrlPattern();
+        String[] urlTokens = urlData.getTokens();
+        this.tokens = new Token[urlTokens.length];
+        for (int i = 0; i < urlTokens.length; i++) {
+            tokens[i] = new Token(urlTokens[i]);
+        }
+    }
+
+    /**
+     * Appends the path of the URL for the given parameter values to the target. Processing stops at the first
+     * variable that has no value.
+     *
+     * @param target The target to append to
+     * @param constraints The constraints of the mapping, one per variable in the pattern
+     * @param parameterValues The parameter values
+     * @param encoding The encoding to URL encode values with
+     * @return The number of variables that were consumed, the remaining parameters belong in the query string
+     * @throws IOException If the target or the encoding throw an exception
+     */
+    public int appendPath(Appendable target, ConstrainedProperty[] constraints, Map parameterValues, String encoding) throws IOException {
+        int paramIndex = 0;
+        for (Token token : tokens) {
+            if (token.paramCount == 0) {
+                target.append(token.literal);
+                continue;
+            }
+
+            String value;
+            if (token.fragments == null) {
+                value = lookupValue(constraints[paramIndex++], parameterValues);
+            }
+            else {
+                StringBuilder buf = new StringBuilder();
+                for (int i = 0; i < token.paramCount; i++) {
+                    buf.append(token.fragments[i]).append(lookupValue(constraints[paramIndex++], parameterValues));
+                }
+                buf.append(token.fragments[token.paramCount]);
+                value = buf.toString();
+            }
+
+            if (token.doubleWildcard && value.indexOf(SLASH) > -1) {
+                // individually URL encode path segments
+                if (value.charAt(0) == SLASH) {
+                    value = value.substring(1);
+                }
+                for (String segment : value.split(String.valueOf(SLASH))) {
+                    target.append(SLASH);
+                    appendEncoded(target, segment, encoding);
+                }
+            }
+            else if (value.length() > 0) {
+                target.append(SLASH);
+                appendEncoded(target, value, encoding);
+            }
+            else {
+                // Stop processing tokens once we hit an empty one.
+                break;
+            }
+        }
+        return paramIndex;
+    }
+
+    private String lookupValue(ConstrainedProperty prop, Map parameterValues) {
+        Object value = parameterValues.get(prop.getPropertyName());
+        if (value == null && !prop.isNullable()) {
+            throw new UrlMappingException("Unable to create URL for mapping [" + urlPattern + "] and parameters [" + parameterValues + "]. Parameter [" + prop.getPropertyName() + "] is required, but was not specified!");
+        }
+        return value == null ? "" : value.toString();
+    }
+
+    /**
+     * Appends the application/x-www-form-urlencoded form of the given string to the target. Strings that don't
+     * require encoding are appended as is.
+     *
+     * @param target The target to append to
+     * @param str The string to encode
+     * @param encoding The character encoding
+     * @throws IOException If the target throws an exception or the encoding isn't supported
+     */
+    public static void appendEncoded(Appendable target, String str, String encoding) throws IOException {
+        int length = str.length();
+        int start = 0;
+        int i = 0;
+        while (i < length) {
+            char c = str.charAt(i);
+            if (c < 128 && DONT_NEED_ENCODING.get(c)) {
+                if (c == ' ') {
+                    target.append(str, start, i).append('+');
+                    start = i + 1;
+                }
+                i++;
+                continue;
+            }
+
+            target.append(str, start, i);
+            int runStart = i;
+            do {
+                i++;
+            }
+            while (i < length && !(str.charAt(i) < 128 && DONT_NEED_ENCODING.get(str.charAt(i))));
+
+            byte[] bytes = str.substring(runStart, i).getBytes(encoding);
+            for (byte b : bytes) {
+                target.append('%').append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+            }
+            start = i;
+        }
+        target.append(str, start, length);
+    }
+
+    private static class Token {
+        final String literal;
+        final String[] fragments;
+        final int paramCount;
+        final boolean doubleWildcard;
+
+        Token(String token) {
+            List<String> parts = new ArrayList<String>();
+            int pos = 0;
+            int count = 0;
+            while (true) {
+                int single = token.indexOf(CAPTURED_WILDCARD, pos);
+                int dbl = token.indexOf(CAPTURED_DOUBLE_WILDCARD, pos);
+                int next = single == -1 ? dbl : (dbl == -1 ? single : Math.min(single, dbl));
+                if (next == -1) break;
+
+                int groupLength = next == dbl ? CAPTURED_DOUBLE_WILDCARD.length() : CAPTURED_WILDCARD.length();
+                parts.add(token.substring(pos, next));
+                pos = next + groupLength;
+                count++;
+            }
+            parts.add(token.substring(pos));
+
+            this.paramCount = count;
+            this.doubleWildcard = CAPTURED_DOUBLE_WILDCARD.equals(token);
+            this.literal = count == 0 ? SLASH + token : null;
+            this.fragments = count == 1 && parts.get(0).length() == 0 && parts.get(1).length() == 0 ? null : parts.toArray(new String[parts.size()]);
+        }
+    }
+}
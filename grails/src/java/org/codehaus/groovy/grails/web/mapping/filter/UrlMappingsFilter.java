@@ -20,6 +20,7 @@ import org.apache.commons.logging.LogFactory;
 import org.codehaus.groovy.grails.commons.ControllerArtefactHandler;
 import org.codehaus.groovy.grails.commons.GrailsApplication;
 import org.codehaus.groovy.grails.commons.GrailsClass;
+import org.codehaus.groovy.grails.web.mapping.UriExclusionMatcher;
 import org.codehaus.groovy.grails.web.mapping.UrlMappingInfo;
 import org.codehaus.groovy.grails.web.mapping.UrlMappingsHolder;
 import org.codehaus.groovy.grails.web.mapping.exceptions.UrlMappingException;
@@ -45,7 +46,6 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -82,26 +82,18 @@ public class UrlMappingsFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         UrlMappingsHolder holder = WebUtils.lookupUrlMappings(getServletContext());
 
-        GrailsWebRequest webRequest = (GrailsWebRequest)request.getAttribute(GrailsApplicationAttributes.WEB_REQUEST);
+        String uri = urlHelper.getPathWithinApplication(request);
+        if (holder != null && UriExclusionMatcher.isExcluded(holder, uri)) {
+            processFilterChain(request, response, filterChain);
+            return;
+        }
 
-        List<String> excludePatterns = holder.getExcludePatterns();
+        GrailsWebRequest webRequest = (GrailsWebRequest)request.getAttribute(GrailsApplicationAttributes.WEB_REQUEST);
 
-        String uri = urlHelper.getPathWithinApplication(request);
-        
         GrailsClass[] controllers = application.getArtefacts(ControllerArtefactHandler.TYPE);
         if((controllers == null || controllers.length == 0 || holder == null) && !"/".equals(uri)) {
             processFilterChain(request, response, filterChain);
             return;
-        }else if (excludePatterns!=null && excludePatterns.size()>0){
-            for (String excludePattern:excludePatterns){
-                if (uri.equals(excludePattern)||
-                        (excludePattern.endsWith("*")&&
-                                excludePattern.substring(0,excludePattern.length()-1).
-                                        regionMatches(0,uri,0,excludePattern.length()-1))){
-                    processFilterChain(request, response, filterChain);
-                    return;
-                }
-            }
         }
 
         if(LOG.isDebugEnabled()) {
@@ -126,7 +118,7 @@ public class UrlMappingsFilter extends OncePerRequestFilter {
             }
         }
 
-        UrlMappingInfo[] urlInfos = holder.matchAll(uri);
+        UrlMappingInfo[] urlInfos = holder.matchAll(uri, request.getMethod());
         WrappedResponseHolder.setWrappedResponse(response);
         boolean dispatched = false;
         try {
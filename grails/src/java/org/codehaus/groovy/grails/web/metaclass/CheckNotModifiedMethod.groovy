@@ -0,0 +1,76 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.metaclass
+
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+import org.codehaus.groovy.grails.web.servlet.HttpHeaders
+import org.codehaus.groovy.grails.web.util.ETagSupport
+import org.springframework.web.context.request.RequestContextHolder
+
+/**
+ * Implementation of the checkNotModified method of controllers, which lets an action declare the last
+ * modification time and ETag of its response before doing the work of rendering it
+ *
+ * @since 1.2
+ */
+class CheckNotModifiedMethod {
+
+    /**
+     * <p>Sets the Last-Modified and ETag headers of the response. If the conditional headers of a GET or HEAD
+     * request show that the client already has the response, 304 Not Modified is returned and the view isn't
+     * rendered. This allows code like:
+     *
+     * <pre><code>
+     * def show = {
+     *     def book = Book.get(params.id)
+     *     if (checkNotModified(lastModified: book.lastUpdated, etag: book.version)) return
+     *     [book: book]
+     * }
+     * </code></pre>
+     *
+     * <p>An ETag declared by the action takes the place of the ETag computed from the content.
+     *
+     * @param args The lastModified date (a Date or milliseconds) and the etag, which is quoted if it isn't already
+     * @return True if 304 Not Modified has been returned
+     */
+    boolean checkNotModified(HttpServletRequest request, HttpServletResponse response, Map args) {
+        long lastModified = -1
+        def modified = args?.lastModified
+        if (modified instanceof Date) {
+            lastModified = modified.time
+        }
+        else if (modified instanceof Number) {
+            lastModified = modified.longValue()
+        }
+        String etag = args?.etag != null ? quote(args.etag.toString()) : null
+
+        if (lastModified >= 0) response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified)
+        if (etag) response.setHeader(HttpHeaders.ETAG, etag)
+
+        if (!(request.method in ['GET', 'HEAD'])) return false
+        if (ETagSupport.isNotModified(request, etag, lastModified)) {
+            response.status = HttpServletResponse.SC_NOT_MODIFIED
+            RequestContextHolder.currentRequestAttributes().renderView = false
+            return true
+        }
+        return false
+    }
+
+    private String quote(String etag) {
+        if (etag.startsWith('"') || etag.startsWith('W/"')) return etag
+        return '"' + etag.replace('"', '') + '"'
+    }
+}
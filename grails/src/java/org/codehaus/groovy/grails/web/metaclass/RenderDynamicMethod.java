@@ -35,7 +35,6 @@ import org.codehaus.groovy.grails.web.servlet.mvc.GrailsWebRequest;
 import org.codehaus.groovy.grails.web.servlet.mvc.exceptions.ControllerExecutionException;
 import org.codehaus.groovy.runtime.DefaultGroovyMethods;
 import org.springframework.context.ApplicationContext;
-import org.springframework.core.io.Resource;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.servlet.ModelAndView;
 
@@ -176,7 +175,8 @@ public class RenderDynamicMethod extends AbstractDynamicMethodInvocation {
             }
             try {
                 if (!renderView) {
-                    out.flush();
+                    // closed rather than flushed, so that compressed output is ended and the ETag is computed
+                    out.close();
                 }
             } catch (IOException e) {
                 throw new ControllerExecutionException("I/O error executing render method for arguments [" + argMap + "]: " + e.getMessage(), e);
@@ -200,12 +200,7 @@ public class RenderDynamicMethod extends AbstractDynamicMethodInvocation {
         // retrieve gsp engine
         GroovyPagesTemplateEngine engine = (GroovyPagesTemplateEngine) webRequest.getApplicationContext().getBean(GroovyPagesTemplateEngine.BEAN_ID);
         try {
-            Resource r = engine.getResourceForUri(contextPath + templateUri);
-            if (!r.exists()) {
-                r = engine.getResourceForUri(contextPath + "/grails-app/views/"  + templateUri);
-            }
-
-            Template t = engine.createTemplate(r); //templateUri);
+            Template t = engine.createTemplateForUri(new String[] { contextPath + templateUri, contextPath + "/grails-app/views/" + templateUri });
 
             if (t == null) {
                 throw new ControllerExecutionException("Unable to load template for uri [" + templateUri + "]. Template not found.");
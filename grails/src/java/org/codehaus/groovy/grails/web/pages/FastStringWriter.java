@@ -50,4 +50,19 @@ public class FastStringWriter extends GrailsPrintWriter {
     public Reader getReader() {
     	return streamBuffer.getReader();
     }
+
+    /**
+     * @return The buffer that holds the written content, which can be written elsewhere without copying it to a String
+     */
+    public StreamCharBuffer getBuffer() {
+        return streamBuffer;
+    }
+
+    /**
+     * Returns the chunks of the underlying buffer to the chunk pool once its content has been read with
+     * {@link #toString()}, which keeps returning the same value
+     */
+    public void recycle() {
+        streamBuffer.recycle();
+    }
 }
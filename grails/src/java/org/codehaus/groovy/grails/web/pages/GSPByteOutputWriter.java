@@ -0,0 +1,430 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.pages;
+
+import org.codehaus.groovy.grails.web.servlet.HttpHeaders;
+import org.codehaus.groovy.grails.web.util.CompressedOutput;
+import org.codehaus.groovy.grails.web.util.CompressionSupport;
+import org.codehaus.groovy.grails.web.util.ETagSupport;
+import org.codehaus.groovy.grails.web.util.StreamByteBuffer;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.security.MessageDigest;
+
+/**
+ * <p>A Writer that encodes characters into a StreamByteBuffer using the character encoding of the response and
+ * writes the buffered bytes to the servlet OutputStream. Content that has already been encoded, such as the
+ * static html parts of a GSP, is appended to the buffer as is with {@link #writeEncoded(byte[])}.</p>
+ *
+ * <p>Characters are encoded once, straight into the chunks of the buffer, by a CharsetEncoder that is reused by
+ * the writers of the same thread. The chunks are then written to the OutputStream without further copying, with a
+ * gathering write if the OutputStream of the container is also a {@link WritableByteChannel}.</p>
+ *
+ * <p>The buffered bytes are written to the response when the writer is closed. A page that streams its output
+ * opts in by flushing the writer, for example before rendering the body of a layout; from then on the buffered
+ * bytes are also written once they exceed the flush threshold. Until then the response isn't committed, so that an
+ * error in the page can still be rendered as an error page.</p>
+ *
+ * <p>The character encoding is resolved on first use, so that the content type can still be set after the writer
+ * has been created. If nothing has been written to the response when the writer is closed, the size of the buffer
+ * is the exact Content-Length of the response, see {@link #close(boolean)}. In that case the ETag of the response
+ * can also be computed from the buffer, see {@link #enableETag(HttpServletRequest)}.</p>
+ *
+ * <p>The output can be compressed on its way to the OutputStream, see {@link #enableCompression(HttpServletRequest)}.
+ * Whether the response is compressed is decided when its first bytes are written, once the content type is
+ * known.</p>
+ *
+ * <p>If the Writer of the response has already been obtained when the first bytes are written, so that its
+ * OutputStream can't be used, the buffered bytes are decoded and the output is written to the Writer of the
+ * response from then on, without compression.</p>
+ *
+ * @author Graeme Rocher
+ * @since 1.2
+ */
+public class GSPByteOutputWriter extends Writer {
+    private static final String DEFAULT_ENCODING = "ISO-8859-1";
+    private static final ThreadLocal<CharsetEncoder> ENCODER = new ThreadLocal<CharsetEncoder>();
+
+    private final ServletResponse response;
+    private final int flushThreshold;
+    private final StreamByteBuffer buffer;
+    private String encoding;
+    private CharsetEncoder encoder;
+    private final char[] singleChar = new char[1];
+    private char pendingHighSurrogate;
+    private boolean hasPendingHighSurrogate;
+    private boolean written;
+    private HttpServletRequest etagRequest;
+    private HttpServletRequest compressionRequest;
+    private CompressedOutput compressedOutput;
+    private String contentEncoding;
+    private boolean streaming;
+    private Writer charOutput;
+
+    /**
+     * @param response The response to write to
+     * @param flushThreshold The number of buffered bytes after which they are written to the response
+     */
+    public GSPByteOutputWriter(ServletResponse response, int flushThreshold) {
+        this.response = response;
+        this.flushThreshold = flushThreshold;
+        this.buffer = new StreamByteBuffer();
+    }
+
+    /**
+     * Digests the content as it fills the chunks of the buffer and computes the ETag of the response when it's
+     * closed, if the whole response is still in the buffer. 304 Not Modified is answered without the body if the
+     * ETag matches the If-None-Match header of the request. No ETag is computed if the response already has one or
+     * if its status isn't 2xx, see {@link ETagSupport#isSuccessful(HttpServletRequest)}.
+     *
+     * @param request The request the response is for
+     */
+    public void enableETag(HttpServletRequest request) {
+        this.etagRequest = request;
+        // the chunks are digested as they fill up, until the response is written
+        buffer.setDigest(ETagSupport.createDigest());
+    }
+
+    /**
+     * Compresses the response with the content encoding accepted by the request, if its content type is textual,
+     * it has no content encoding yet and it's either streamed or at least
+     * {@link CompressionSupport#getMinSize()} bytes long
+     *
+     * @param request The request the response is for
+     */
+    public void enableCompression(HttpServletRequest request) {
+        this.compressionRequest = request;
+    }
+
+    /**
+     * @return The character encoding that characters are encoded with
+     */
+    public String getEncoding() {
+        if (encoding == null) {
+            encoding = response.getCharacterEncoding();
+            if (encoding == null) encoding = DEFAULT_ENCODING;
+        }
+        return encoding;
+    }
+
+    /**
+     * Takes the encoder of the current thread if it's for the same charset, so that a writer nested in another
+     * on the same thread, for example for an include, never shares an encoder that is in use
+     */
+    private CharsetEncoder getEncoder() {
+        if (encoder == null) {
+            Charset charset = Charset.forName(getEncoding());
+            CharsetEncoder threadEncoder = ENCODER.get();
+            if (threadEncoder != null && threadEncoder.charset().equals(charset)) {
+                ENCODER.set(null);
+                encoder = threadEncoder.reset();
+            }
+            else {
+                // the same replacement of unmappable characters as an OutputStreamWriter
+                encoder = charset.newEncoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            }
+        }
+        return encoder;
+    }
+
+    private void encode(CharBuffer in) throws IOException {
+        if (charOutput != null) {
+            writePendingHighSurrogate();
+            charOutput.append(in);
+            return;
+        }
+        if (hasPendingHighSurrogate) {
+            if (!in.hasRemaining()) return;
+            hasPendingHighSurrogate = false;
+            encode(CharBuffer.wrap(new char[] { pendingHighSurrogate, in.get() }));
+        }
+        buffer.encode(in, getEncoder(), false);
+        if (in.hasRemaining()) {
+            // the high surrogate of a pair whose low surrogate hasn't been written yet
+            pendingHighSurrogate = in.get();
+            hasPendingHighSurrogate = true;
+        }
+    }
+
+    private void writePendingHighSurrogate() throws IOException {
+        if (hasPendingHighSurrogate) {
+            hasPendingHighSurrogate = false;
+            charOutput.write(pendingHighSurrogate);
+        }
+    }
+
+    private void endEncoding() throws IOException {
+        if (charOutput != null) {
+            writePendingHighSurrogate();
+        }
+        if (encoder == null) return;
+        if (charOutput == null) {
+            CharBuffer in = CharBuffer.wrap(hasPendingHighSurrogate ? new char[] { pendingHighSurrogate } : new char[0]);
+            hasPendingHighSurrogate = false;
+            buffer.encode(in, encoder, true);
+        }
+        ENCODER.set(encoder);
+        encoder = null;
+    }
+
+    /**
+     * Appends bytes that have already been encoded with the encoding returned by {@link #getEncoding()}
+     *
+     * @param bytes The encoded bytes
+     * @throws IOException When the bytes can't be written to the response
+     */
+    public void writeEncoded(byte[] bytes) throws IOException {
+        if (charOutput != null) {
+            encode(CharBuffer.wrap(new String(bytes, getEncoding())));
+            return;
+        }
+        buffer.getOutputStream().write(bytes);
+        checkFlushThreshold();
+    }
+
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        encode(CharBuffer.wrap(cbuf, off, len));
+        checkFlushThreshold();
+    }
+
+    public void write(String str, int off, int len) throws IOException {
+        encode(CharBuffer.wrap(str, off, off + len));
+        checkFlushThreshold();
+    }
+
+    public void write(int c) throws IOException {
+        singleChar[0] = (char) c;
+        encode(CharBuffer.wrap(singleChar));
+        checkFlushThreshold();
+    }
+
+    private void checkFlushThreshold() throws IOException {
+        if (streaming && buffer.totalBytesUnread() >= flushThreshold) {
+            writeBuffer();
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        if (buffer.totalBytesUnread() == 0) return;
+        if (!written) startCompression(selectContentEncoding(false));
+        writeBuffers(buffer.readAsNioBuffers());
+    }
+
+    /**
+     * Decides whether the response is compressed, before its first bytes are written. The response varies by the
+     * Accept-Encoding header of the request from then on.
+     *
+     * @param complete Whether the buffer holds the whole response
+     * @return The content encoding to compress the response with, or null if it isn't compressed
+     */
+    private String selectContentEncoding(boolean complete) throws IOException {
+        if (compressionRequest == null || !(response instanceof HttpServletResponse)) return null;
+        HttpServletRequest request = compressionRequest;
+        compressionRequest = null;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        if (httpResponse.isCommitted() || httpResponse.containsHeader(HttpHeaders.CONTENT_ENCODING) ||
+                !CompressionSupport.isCompressible(httpResponse.getContentType()) || getOutputStream() == null) {
+            return null;
+        }
+        httpResponse.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String encoding = CompressionSupport.getContentEncoding(request);
+        if (encoding == null || (complete && buffer.totalBytesUnread() < CompressionSupport.getMinSize())) {
+            return null;
+        }
+        return encoding;
+    }
+
+    /**
+     * Sets the Content-Encoding of the response and compresses its output from now on
+     *
+     * @param encoding The content encoding, or null if the response isn't compressed
+     */
+    private void startCompression(String encoding) throws IOException {
+        if (encoding == null) return;
+        contentEncoding = encoding;
+        ((HttpServletResponse) response).setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+        compressedOutput = new CompressedOutput(getOutputStream(), encoding, CompressionSupport.getLevel());
+    }
+
+    private void writeBuffers(ByteBuffer[] buffers) throws IOException {
+        if (!written) {
+            // no ETag is computed once the response has been written
+            buffer.setDigest(null);
+        }
+        written = true;
+        if (compressedOutput != null) {
+            compressedOutput.write(buffers);
+            return;
+        }
+        ServletOutputStream out = getOutputStream();
+        if (out == null) {
+            writeDecoded(buffers);
+        }
+        else if (out instanceof WritableByteChannel) {
+            StreamByteBuffer.write(buffers, (WritableByteChannel) out);
+        }
+        else {
+            for (ByteBuffer chunk : buffers) {
+                out.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+            }
+        }
+    }
+
+    /**
+     * @return The OutputStream of the response, or null if the output is written to the Writer of the response
+     * because its Writer had already been obtained
+     */
+    private ServletOutputStream getOutputStream() throws IOException {
+        if (charOutput != null) return null;
+        try {
+            return response.getOutputStream();
+        }
+        catch (IllegalStateException e) {
+            // the response is written through its Writer, for example by an including page
+            charOutput = response.getWriter();
+            return null;
+        }
+    }
+
+    private void writeDecoded(ByteBuffer[] buffers) throws IOException {
+        int size = 0;
+        for (ByteBuffer chunk : buffers) {
+            size += chunk.remaining();
+        }
+        if (size == 0) return;
+        // a character may span two chunks, while the buffers as a whole end with a whole character
+        byte[] bytes = new byte[size];
+        int offset = 0;
+        for (ByteBuffer chunk : buffers) {
+            int length = chunk.remaining();
+            System.arraycopy(chunk.array(), chunk.arrayOffset() + chunk.position(), bytes, offset, length);
+            offset += length;
+        }
+        charOutput.write(new String(bytes, getEncoding()));
+    }
+
+    /**
+     * Writes the buffered bytes to the response and flushes it. The page opts in to streaming its output, so
+     * the buffered bytes are also written from now on once they exceed the flush threshold.
+     *
+     * @throws IOException When the buffer can't be written to the response
+     */
+    public void flush() throws IOException {
+        streaming = true;
+        writeBuffer();
+        // the response may have been written through its Writer instead, such as by a markup builder
+        if (!written) return;
+        if (compressedOutput != null) {
+            compressedOutput.flush();
+        }
+        flushOutput();
+    }
+
+    private void flushOutput() throws IOException {
+        ServletOutputStream out = getOutputStream();
+        if (out != null) {
+            out.flush();
+        }
+        else {
+            charOutput.flush();
+        }
+    }
+
+    /**
+     * @return Whether any content has been written to the response yet
+     */
+    public boolean isWritten() {
+        return written;
+    }
+
+    public void close() throws IOException {
+        close(false);
+    }
+
+    /**
+     * Encodes the remaining characters, writes the buffer to the response and ends the compressed output
+     *
+     * @param setContentLength Whether to set the Content-Length of the response to the size of the buffer when
+     * nothing has been written to the response before
+     * @throws IOException When the buffer can't be written to the response
+     */
+    public void close(boolean setContentLength) throws IOException {
+        try {
+            closeBuffer(setContentLength);
+        }
+        finally {
+            // gives the Deflater back to the thread when the content couldn't be written
+            if (compressedOutput != null) {
+                compressedOutput.release();
+            }
+        }
+    }
+
+    private void closeBuffer(boolean setContentLength) throws IOException {
+        endEncoding();
+        int size = buffer.totalBytesUnread();
+        if (!written && size == 0) return;
+        // content written through the Writer of the response isn't in the buffer
+        boolean buffered = !written && !response.isCommitted() && getOutputStream() != null;
+        String encoding = buffered ? selectContentEncoding(true) : null;
+        // an error or a redirect is never answered with 304 Not Modified
+        if (buffered && etagRequest != null && response instanceof HttpServletResponse &&
+                ETagSupport.isSuccessful(etagRequest)) {
+            HttpServletResponse httpResponse = (HttpServletResponse) response;
+            MessageDigest digest = buffer.completeDigest();
+            if (digest != null && !httpResponse.containsHeader(HttpHeaders.ETAG)) {
+                String etag = ETagSupport.createETag(digest);
+                if (encoding != null) {
+                    etag = CompressionSupport.getETag(etag, encoding);
+                }
+                httpResponse.setHeader(HttpHeaders.ETAG, etag);
+                // decided before the response is compressed, so that no Content-Encoding is sent without a body
+                if (ETagSupport.matches(etagRequest.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+                    httpResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return;
+                }
+            }
+        }
+        if (buffered) {
+            startCompression(encoding);
+        }
+        // the size of the compressed output isn't known until it has been written
+        if (setContentLength && buffered && compressedOutput == null && size > 0) {
+            response.setContentLength(size);
+        }
+        writeBuffer();
+        finishOutput();
+    }
+
+    private void finishOutput() throws IOException {
+        if (compressedOutput != null) {
+            compressedOutput.finish();
+        }
+        flushOutput();
+    }
+}
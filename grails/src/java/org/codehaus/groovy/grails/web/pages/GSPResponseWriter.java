@@ -19,13 +19,21 @@ import java.io.IOException;
 import java.io.Writer;
 
 import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.codehaus.groovy.grails.web.sitemesh.GrailsContentBufferingResponse;
 import org.codehaus.groovy.grails.web.util.BoundedCharsAsEncodedBytesCounter;
+import org.codehaus.groovy.grails.web.util.CompressionSupport;
+import org.codehaus.groovy.grails.web.util.ETagSupport;
 import org.codehaus.groovy.grails.web.util.GrailsPrintWriter;
 import org.codehaus.groovy.grails.web.util.StreamCharBuffer;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.util.WebUtils;
 
 /**
  * NOTE: Based on work done by on the GSP standalone project (https://gsp.dev.java.net/)
@@ -38,6 +46,16 @@ import org.codehaus.groovy.grails.web.util.StreamCharBuffer;
  * Calculating the Content-Length has been disabled by default since Jetty ignores it (uses Chunked mode anyways).
  * Content-Length mode can be enabled with -DGSPResponseWriter.enableContentLength=true system property.
  *
+ * Byte output mode can be enabled with -DGSPResponseWriter.enableByteOutput=true system property. In this mode the
+ * output is encoded into bytes by the writer itself and written to the response OutputStream, which allows the static
+ * html parts of pages to be written as bytes that have been encoded once. The Content-Length is then taken from the
+ * size of the encoded output instead of being counted separately. Included pages are written to the Writer of the
+ * response, which the including page has already obtained.
+ *
+ * When ETags are enabled (see {@link ETagSupport}) the responses to GET and HEAD requests are written in byte
+ * output mode, so that the ETag can be computed from the encoded output. The same goes for the responses that may be
+ * compressed when compression is enabled (see {@link CompressionSupport}).
+ *
  *
  * @author Troy Heninger
  * @author Graeme Rocher
@@ -51,6 +69,9 @@ public class GSPResponseWriter extends GrailsPrintWriter {
 	private ServletResponse response;
 	private BoundedCharsAsEncodedBytesCounter bytesCounter;
 	private static final boolean CONTENT_LENGTH_COUNTING_ENABLED = Boolean.getBoolean("GSPResponseWriter.enableContentLength");
+	private static final boolean BYTE_OUTPUT_ENABLED = Boolean.getBoolean("GSPResponseWriter.enableByteOutput");
+	private GSPByteOutputWriter byteOutput;
+	private StreamCharBuffer streamBuffer;
 
 	/**
 	 * Static factory methdirectWritingod to create the writer.
@@ -59,11 +80,44 @@ public class GSPResponseWriter extends GrailsPrintWriter {
 	 * @return  A GSPResponseWriter instance
 	 */
 	public static GSPResponseWriter getInstance(final ServletResponse response, int max) {
+		return getInstance(getCurrentRequest(response), response, max);
+	}
+
+	/**
+	 * Static factory method to create the writer for the response to a request that may not be bound to the
+	 * current thread.
+	 * @param request The request, used for ETags and compression, can be null
+	 * @param response
+	 * @param max
+	 * @return  A GSPResponseWriter instance
+	 */
+	public static GSPResponseWriter getInstance(HttpServletRequest request, final ServletResponse response, int max) {
 		Writer target=null;
 		StreamCharBuffer streamBuffer=null;
 		BoundedCharsAsEncodedBytesCounter bytesCounter=null;
 
-		if(!(response instanceof GrailsContentBufferingResponse)) {
+		boolean httpResponse = response instanceof HttpServletResponse;
+		boolean etag = httpResponse && ETagSupport.isETagRequest(request);
+		boolean compression = httpResponse && CompressionSupport.isCompressionRequest(request);
+		// an included page writes to the Writer that the including page has already obtained
+		boolean include = request != null && request.getAttribute(WebUtils.INCLUDE_REQUEST_URI_ATTRIBUTE) != null;
+		if(((BYTE_OUTPUT_ENABLED && !include) || etag || compression) && !(response instanceof GrailsContentBufferingResponse)) {
+			GSPByteOutputWriter byteOutput;
+			if(etag) {
+				byteOutput = new GSPByteOutputWriter(response, Math.max(max, ETagSupport.getMaxBufferSize()));
+				byteOutput.enableETag(request);
+			}
+			else {
+				byteOutput = new GSPByteOutputWriter(response, max);
+			}
+			if(compression) {
+				byteOutput.enableCompression(request);
+			}
+			GSPResponseWriter writer = new GSPResponseWriter(byteOutput, response, null);
+			writer.byteOutput = byteOutput;
+			return writer;
+		}
+		else if(!(response instanceof GrailsContentBufferingResponse)) {
 			streamBuffer=new StreamCharBuffer(max, 0, max);
 			target=streamBuffer.getWriter();
 			if(CONTENT_LENGTH_COUNTING_ENABLED) {
@@ -79,9 +133,20 @@ public class GSPResponseWriter extends GrailsPrintWriter {
 				throw new RuntimeException("Problem getting writer from response",e);
 			}
 		}
-		return new GSPResponseWriter(target, response, bytesCounter);
+		GSPResponseWriter writer = new GSPResponseWriter(target, response, bytesCounter);
+		writer.streamBuffer = streamBuffer;
+		return writer;
 	} // getInstance()
 
+	private static HttpServletRequest getCurrentRequest(ServletResponse response) {
+		if(!(BYTE_OUTPUT_ENABLED || ETagSupport.isEnabled() || CompressionSupport.isEnabled()) || !(response instanceof HttpServletResponse)) return null;
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if(attributes instanceof ServletRequestAttributes) {
+			return ((ServletRequestAttributes) attributes).getRequest();
+		}
+		return null;
+	}
+
 	/**
 	 * Static factory method to create the writer.
 	 * @param target The target writer to write too
@@ -92,7 +157,9 @@ public class GSPResponseWriter extends GrailsPrintWriter {
 		StreamCharBuffer streamBuffer=new StreamCharBuffer(max, 0, max);
 		streamBuffer.connectTo(target);
 		Writer writer=streamBuffer.getWriter();
-		return new GSPResponseWriter(writer);
+		GSPResponseWriter responseWriter = new GSPResponseWriter(writer);
+		responseWriter.streamBuffer = streamBuffer;
+		return responseWriter;
 	} // getInstance()
 
     /**
@@ -116,11 +183,46 @@ public class GSPResponseWriter extends GrailsPrintWriter {
 		super(activeWriter);
 	}
 
+	/**
+	 * Returns the character encoding of the response if this writer encodes its output into bytes itself, in
+	 * which case content that has already been encoded can be written with {@link #writeEncoded(byte[], int)}
+	 *
+	 * @return The encoding or null if this writer isn't in byte output mode
+	 */
+	public String getByteOutputEncoding() {
+		return byteOutput != null ? byteOutput.getEncoding() : null;
+	}
+
+	/**
+	 * Writes bytes that have been encoded with the encoding returned by {@link #getByteOutputEncoding()}
+	 *
+	 * @param bytes The encoded bytes
+	 * @param chars The number of characters that were encoded, which are counted as written
+	 */
+	public void writeEncoded(byte[] bytes, int chars) {
+		if (trouble) return;
+		try {
+			charsWritten += chars;
+			byteOutput.writeEncoded(bytes);
+		} catch (IOException e) {
+			handleIOException(e);
+		}
+	}
+
 	/**
 	 * Close the stream.
 	 * @see #checkError()
 	 */
 	public void close() {
+		if(byteOutput != null) {
+			try {
+				// the buffered bytes are the exact Content-Length if nothing has been written yet
+				byteOutput.close(CONTENT_LENGTH_COUNTING_ENABLED);
+			} catch (IOException e) {
+				handleIOException(e);
+			}
+			return;
+		}
 		flush();
 		if(CONTENT_LENGTH_COUNTING_ENABLED && bytesCounter != null && response != null && !response.isCommitted()) {
 			int size = bytesCounter.size();
@@ -133,5 +235,9 @@ public class GSPResponseWriter extends GrailsPrintWriter {
 				handleIOException(e);
 			}
 		}
+		if(streamBuffer != null) {
+			// all the content has been flushed to the response, return the chunks to the pool
+			streamBuffer.recycle();
+		}
 	} // close()
 } // GSPResponseWriter
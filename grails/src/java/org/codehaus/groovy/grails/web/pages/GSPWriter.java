@@ -48,6 +48,21 @@ public class GSPWriter extends PrintWriter {
         println();
     }
 
+    public void printlnHtmlPart(int partNumber) {
+        super.print("printHtmlPart(");
+        super.print(partNumber);
+        super.print(")");
+        println();
+    }
+
+    public void printlnHtmlEncoded(String s) {
+        if(s == null) s = "''";
+        super.print("printHtmlEncoded(");
+        super.print(s);
+        super.print(")");
+        println();
+    }
+
     public void printlnToBuffer(String s, int index) {
         if(s == null) s = "''";
         super.print("buf"+index+" << ");
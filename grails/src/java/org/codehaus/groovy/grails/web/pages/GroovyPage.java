@@ -21,15 +21,20 @@ import groovy.lang.MetaProperty;
 import groovy.lang.Script;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.codehaus.groovy.grails.plugins.codecs.HTMLCodec;
 import org.codehaus.groovy.grails.web.pages.exceptions.GroovyPagesException;
 import org.codehaus.groovy.grails.web.pages.ext.jsp.TagLibraryResolver;
 import org.codehaus.groovy.grails.web.servlet.mvc.GrailsWebRequest;
 import org.codehaus.groovy.grails.web.taglib.GroovyPageTagWriter;
 import org.codehaus.groovy.grails.web.taglib.GroovyPageTagBody;
 import org.codehaus.groovy.grails.web.taglib.exceptions.GrailsTagException;
+import org.codehaus.groovy.grails.web.util.GrailsPrintWriter;
 import org.codehaus.groovy.grails.web.errors.GrailsExceptionResolver;
+import org.codehaus.groovy.runtime.InvokerHelper;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.util.*;
 
@@ -89,6 +94,7 @@ public abstract class GroovyPage extends Script {
     private TagLibraryResolver jspTagLibraryResolver;
     private TagLibraryLookup gspTagLibraryLookup;
     private String[] htmlParts;
+    private GroovyPageMetaInfo metaInfo;
     
     private static final Closure EMPTY_BODY_CLOSURE = new Closure(null) {
 		public Object doCall(Object obj) {
@@ -140,7 +146,8 @@ public abstract class GroovyPage extends Script {
     }
 
     /**
-     * In the development environment this method is used to evaluate expressions and improve error reporting
+     * Evaluates an expression and reports errors with the line number of the GSP. Only called by pages generated
+     * by previous versions, expressions are now evaluated inline and errors mapped by the page level handler
      *
      * @param exprText The expression text
      * @param lineNumber The line number
@@ -211,59 +218,35 @@ public abstract class GroovyPage extends Script {
     public void invokeTag(String tagName, String tagNamespace, int lineNumber, Map attrs, Closure body) {
         // TODO custom namespace stuff needs to be generalized and pluggable
         if(tagNamespace.equals(TEMPLATE_NAMESPACE)) {
-            final String tmpTagName = tagName;
-            final Map tmpAttrs = attrs;
+            Map renderAttrs = new HashMap();
+            renderAttrs.put("model", attrs);
+            renderAttrs.put("template", tagName);
             tagName = "render";
             tagNamespace = DEFAULT_NAMESPACE;
-            attrs = new HashMap() {{
-                put("model", tmpAttrs);
-                put("template", tmpTagName);
-            }};
+            attrs = renderAttrs;
         } else if(tagNamespace.equals(LINK_NAMESPACE)) {
-            final String tmpTagName = tagName;
-            final Map tmpAttrs = attrs;
+            Map linkAttrs = new HashMap();
+            if(attrs.size() > 0) {
+                linkAttrs.put("params", attrs);
+            }
+            linkAttrs.put("mapping", tagName);
             tagName = "link";
             tagNamespace = DEFAULT_NAMESPACE;
-            attrs = new HashMap() {{
-                if(tmpAttrs.size() > 0) {
-                    put("params", tmpAttrs);
-                }
-                put("mapping", tmpTagName);
-            }};
+            attrs = linkAttrs;
         }
 
         final GrailsWebRequest webRequest = (GrailsWebRequest)getBinding().getVariable(WEB_REQUEST);
         final Writer out = webRequest.getOut();
+        final GroovyPageProfiler profiler = GroovyPageProfiler.getInstance();
+        final long startTime = profiler.isEnabled() ? System.nanoTime() : 0;
+        final long startChars = startTime != 0 ? GroovyPageProfiler.getCharsWritten(out) : 0;
 
         try {
 
             if( gspTagLibraryLookup.hasNamespace(tagNamespace) ) {
-                GroovyObject tagLib = getTagLib(tagName,tagNamespace);
-                if(tagLib != null) {
-                    Object tagLibProp = tagLib.getProperty(tagName);
-                    if(tagLibProp instanceof Closure) {
-                        Closure tag = (Closure) ((Closure)tagLibProp).clone();
-
-                        switch(tag.getParameterTypes().length) {
-                            case 1:
-
-                                tag.call( new Object[]{ attrs });
-                                if(body != null) {
-                                    body.call();
-                                }
-
-                            break;
-
-                            case 2:
-                                if(tag.getParameterTypes().length == 2) {
-                                    tag.call( new Object[] { attrs, (body!=null)?body:EMPTY_BODY_CLOSURE });
-                                }
-                            break;
-                        }
-
-                    }else {
-                       throw new GrailsTagException("Tag ["+tagName+"] does not exist in tag library ["+tagLib.getClass().getName()+"]", getGroovyPageFileName(),lineNumber);
-                    }
+                TagInvoker tagInvoker = gspTagLibraryLookup.lookupTagInvoker(tagNamespace, tagName);
+                if(tagInvoker != null) {
+                    tagInvoker.invoke(attrs, body != null ? body : EMPTY_BODY_CLOSURE);
                 }
                 else {
                     throw new GrailsTagException("Tag ["+tagName+"] does not exist. No tag library found for namespace: " + tagNamespace, getGroovyPageFileName(),lineNumber);
@@ -302,6 +285,10 @@ public abstract class GroovyPage extends Script {
 		finally {
 			getBinding().setVariable(OUT,out);
 			webRequest.setOut(out);
+			if(startTime != 0) {
+				profiler.recordTag(tagNamespace + ":" + tagName, startTime,
+						GroovyPageProfiler.getCharsWritten(out) - startChars, webRequest.getCurrentRequest());
+			}
 		}
     }
 
@@ -472,5 +459,63 @@ public abstract class GroovyPage extends Script {
 	public void setHtmlParts(String[] htmlParts) {
 		this.htmlParts = htmlParts;
 	}
+
+    /**
+     * Sets the meta info of the page, which provides the html parts already encoded for writers that
+     * write bytes
+     *
+     * @param metaInfo The GroovyPageMetaInfo instance
+     */
+    void setMetaInfo(GroovyPageMetaInfo metaInfo) {
+        this.metaInfo = metaInfo;
+    }
+
+    /**
+     * Writes a static html part of the page to the current output. If the output is a GSPResponseWriter in
+     * byte output mode, the part is written as bytes that have been encoded once for the page.
+     *
+     * @param partNumber The index of the html part
+     */
+    public void printHtmlPart(int partNumber) {
+        Object out = getBinding().getVariables().get(OUT);
+        if (metaInfo != null && out instanceof GSPResponseWriter) {
+            GSPResponseWriter responseWriter = (GSPResponseWriter) out;
+            String encoding = responseWriter.getByteOutputEncoding();
+            if (encoding != null) {
+                try {
+                    responseWriter.writeEncoded(metaInfo.getEncodedHtmlParts(encoding)[partNumber],
+                            htmlParts[partNumber].length());
+                    return;
+                }
+                catch (UnsupportedEncodingException e) {
+                    LOG.debug("Unable to encode html part with encoding [" + encoding + "]: " + e.getMessage(), e);
+                }
+            }
+        }
+
+        if (out instanceof PrintWriter) {
+            ((PrintWriter) out).print(htmlParts[partNumber]);
+        }
+        else {
+            InvokerHelper.invokeMethod(out, "print", htmlParts[partNumber]);
+        }
+    }
+
+    /**
+     * Writes the value of an expression HTML encoded to the current output. Used instead of the Codec of the
+     * page when the page is encoded with the HTMLCodec, so that the escaped text is written to the output as it
+     * is produced.
+     *
+     * @param value The value of the expression
+     */
+    public void printHtmlEncoded(Object value) {
+        Object out = getBinding().getVariables().get(OUT);
+        if (out instanceof GrailsPrintWriter) {
+            ((GrailsPrintWriter) out).printHtmlEncoded(value);
+        }
+        else if (value != null) {
+            InvokerHelper.invokeMethod(out, "print", HTMLCodec.encode(value));
+        }
+    }
 } // GroovyPage
 
@@ -0,0 +1,215 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.pages;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.io.Resource;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Watches the resources of compiled GSPs for modifications from a background thread, so that checking whether
+ * a page has to be reloaded is an in-memory lookup rather than a file system access on every request.</p>
+ *
+ * <p>The last modified dates of the watched resources are polled at a fixed interval. A page is marked as
+ * changed when the last modified date of its resource is later than the one it was compiled from, and stays
+ * marked until it's watched again after being recompiled.</p>
+ *
+ * @since 1.2
+ */
+public class GroovyPageChangeMonitor {
+    private static final Log LOG = LogFactory.getLog(GroovyPageChangeMonitor.class);
+    /**
+     * The default number of milliseconds between two checks for modified resources
+     */
+    public static final long DEFAULT_INTERVAL = 1000;
+
+    private final long interval;
+    private final Map<String, WatchedResource> resources = new ConcurrentHashMap<String, WatchedResource>();
+    private volatile Thread monitorThread;
+
+    public GroovyPageChangeMonitor() {
+        this(DEFAULT_INTERVAL);
+    }
+
+    /**
+     * @param interval The number of milliseconds between two checks for modified resources
+     */
+    public GroovyPageChangeMonitor(long interval) {
+        if (interval <= 0) throw new IllegalArgumentException("Argument [interval] must be greater than 0");
+        this.interval = interval;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Watches the resource of a page, replacing the resource previously watched for the page if any. Starts the
+     * monitor thread if it isn't running yet.
+     *
+     * @param name The name of the page
+     * @param resource The resource the page was compiled from
+     * @param lastModified The last modified date of the resource when the page was compiled
+     */
+    public void watch(String name, Resource resource, long lastModified) {
+        resources.put(name, new WatchedResource(resource, lastModified));
+        start();
+    }
+
+    /**
+     * Stops watching the resource of a page
+     *
+     * @param name The name of the page
+     */
+    public void unwatch(String name) {
+        resources.remove(name);
+    }
+
+    /**
+     * Stops watching the resources of all pages, for example when the compiled pages have been discarded
+     */
+    public void clear() {
+        resources.clear();
+    }
+
+    /**
+     * @param name The name of the page
+     * @return True if the resource of the page has been modified since it was watched
+     */
+    public boolean isChanged(String name) {
+        WatchedResource resource = resources.get(name);
+        return resource != null && resource.changed;
+    }
+
+    /**
+     * @return The number of watched resources
+     */
+    public int getWatchedCount() {
+        return resources.size();
+    }
+
+    /**
+     * Checks the watched resources for modifications. Called by the monitor thread at each interval.
+     */
+    public void checkForChanges() {
+        for (Map.Entry<String, WatchedResource> entry : resources.entrySet()) {
+            WatchedResource resource = entry.getValue();
+            if (!resource.changed && getLastModified(resource.resource) > resource.lastModified) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("GSP [" + entry.getKey() + "] has been modified, it will be reloaded on next access");
+                }
+                resource.changed = true;
+            }
+        }
+    }
+
+    /**
+     * Starts the monitor thread
+     */
+    public synchronized void start() {
+        if (monitorThread != null) return;
+
+        monitorThread = new Thread("GSP change monitor") {
+            public void run() {
+                while (monitorThread == this) {
+                    try {
+                        checkForChanges();
+                    }
+                    catch (RuntimeException e) {
+                        LOG.error("Error checking GSPs for changes: " + e.getMessage(), e);
+                    }
+                    try {
+                        sleep(interval);
+                    }
+                    catch (InterruptedException e) {
+                        // stopped or woken up, the loop condition decides
+                    }
+                }
+            }
+        };
+        monitorThread.setDaemon(true);
+        monitorThread.start();
+    }
+
+    /**
+     * Stops the monitor thread
+     */
+    public synchronized void stop() {
+        Thread thread = monitorThread;
+        monitorThread = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Attempts to establish what the last modified date of the given resource is. If the last modified date cannot
+     * be established -1 is returned
+     *
+     * @param resource The Resource to evaluate
+     * @return The last modified date or -1
+     */
+    public static long getLastModified(Resource resource) {
+        if (resource == null) return -1;
+        long lastModified;
+        URLConnection urlc = null;
+
+        try {
+            urlc = resource.getURL().openConnection();
+
+            urlc.setDoInput(false);
+            urlc.setDoOutput(false);
+
+            lastModified = urlc.getLastModified();
+        } catch (FileNotFoundException fnfe) {
+            lastModified = -1;
+        } catch (IOException e) {
+            lastModified = -1;
+        }
+        finally {
+            if (urlc != null) {
+                try {
+                    InputStream is = urlc.getInputStream();
+                    if (is != null) {
+                        is.close();
+                    }
+                }
+                catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+
+        return lastModified;
+    }
+
+    private static class WatchedResource {
+        final Resource resource;
+        final long lastModified;
+        volatile boolean changed;
+
+        WatchedResource(Resource resource, long lastModified) {
+            this.resource = resource;
+            this.lastModified = lastModified;
+        }
+    }
+}
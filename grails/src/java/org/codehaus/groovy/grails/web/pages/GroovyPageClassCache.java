@@ -0,0 +1,262 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.pages;
+
+import groovy.lang.GroovyClassLoader;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.grails.web.pages.exceptions.GroovyPagesException;
+import org.codehaus.groovy.tools.GroovyClass;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Compiles the Groovy source generated for GSPs into class files that are stored on disk, in a directory
+ * named after the page class and a SHA-1 hash of the source. When the same source is compiled again, for example
+ * after a restart with unchanged views, the class files are loaded from that directory instead of being
+ * compiled. The first time a page is loaded, the directories of its other hashes, which were compiled from
+ * previous versions of the page, are deleted.</p>
+ *
+ * <p>Each page is compiled with its own CompilationUnit, unlike GroovyClassLoader.parseClass which compiles
+ * one script at a time, so that several pages can be compiled in parallel. The classes of a page are loaded
+ * by a class loader of their own, whose parent is the class loader of the application.</p>
+ *
+ * <p>The version passed to the constructor, typically the Grails and application version, is part of the hash,
+ * so that class files compiled against other versions of the application classes aren't reused. So is a
+ * fingerprint of the classpath of the parent class loader, made of the names, sizes and modification times of its
+ * jars and class files, which changes when the application is rebuilt without changing its version.</p>
+ *
+ * @since 1.2
+ */
+public class GroovyPageClassCache {
+    private static final Log LOG = LogFactory.getLog(GroovyPageClassCache.class);
+    private static final String CLASS_FILE_EXTENSION = ".class";
+
+    private final File cacheDir;
+    private final String version;
+    private final Map<ClassLoader, String> fingerprints = new WeakHashMap<ClassLoader, String>();
+    private final ConcurrentMap<String, Boolean> prunedPages = new ConcurrentHashMap<String, Boolean>();
+
+    /**
+     * @param cacheDir The directory to store the compiled classes in
+     * @param version A version string that is part of the hash of each page
+     */
+    public GroovyPageClassCache(File cacheDir, String version) {
+        if (cacheDir == null) throw new IllegalArgumentException("Argument [cacheDir] cannot be null");
+        this.cacheDir = cacheDir;
+        this.version = version != null ? version : "";
+    }
+
+    public File getCacheDir() {
+        return cacheDir;
+    }
+
+    /**
+     * Loads the page class compiled from the given source, compiling it first if it isn't in the cache
+     *
+     * @param groovySource The Groovy source generated by the GroovyPageParser, encoded in UTF-8
+     * @param className The fully qualified name of the page class declared by the source
+     * @param name The name of the page, used for error reporting
+     * @param parent The class loader that resolves the classes referenced by the page
+     * @return The page class
+     * @throws CompilationFailedException When the source can't be compiled
+     */
+    public Class loadPageClass(byte[] groovySource, String className, String name, GroovyClassLoader parent) {
+        File pageDir = new File(cacheDir, className);
+        String key = createKey(groovySource, getFingerprint(parent));
+        File classesDir = new File(pageDir, key);
+        if (!classesDir.isDirectory()) {
+            compile(groovySource, name, parent, classesDir);
+        }
+        else if (LOG.isDebugEnabled()) {
+            LOG.debug("Loading compiled GSP [" + name + "] from " + classesDir);
+        }
+        if (prunedPages.putIfAbsent(className, Boolean.TRUE) == null) {
+            pruneSupersededClasses(pageDir, key);
+        }
+
+        try {
+            ClassLoader loader = new URLClassLoader(new URL[]{classesDir.toURI().toURL()}, parent);
+            return loader.loadClass(className);
+        }
+        catch (MalformedURLException e) {
+            throw new GroovyPagesException("Cannot load compiled GSP [" + name + "] from " + classesDir, e);
+        }
+        catch (ClassNotFoundException e) {
+            throw new GroovyPagesException("Cannot load compiled GSP [" + name + "] from " + classesDir, e);
+        }
+    }
+
+    /**
+     * Creates the key of the given source, which is also the name of the directory holding its classes
+     *
+     * @param groovySource The Groovy source
+     * @param fingerprint The fingerprint of the classpath the source is compiled against
+     * @return A hex encoded SHA-1 hash of the version, the fingerprint and the source
+     */
+    String createKey(byte[] groovySource, String fingerprint) {
+        MessageDigest digest = createDigest();
+        try {
+            digest.update(version.getBytes(GroovyPageParser.GROOVY_SOURCE_CHAR_ENCODING));
+            digest.update(fingerprint.getBytes(GroovyPageParser.GROOVY_SOURCE_CHAR_ENCODING));
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new GroovyPagesException("Grails cannot run unless your environment supports UTF-8!", e);
+        }
+        digest.update(groovySource);
+        return new String(Hex.encodeHex(digest.digest()));
+    }
+
+    /**
+     * Creates a fingerprint of the jars and class files of the given class loader and its parents, which is
+     * computed once for each class loader
+     *
+     * @param classLoader The class loader
+     * @return A hex encoded SHA-1 hash of the names, sizes and modification times of the files
+     */
+    String getFingerprint(ClassLoader classLoader) {
+        synchronized (fingerprints) {
+            String fingerprint = fingerprints.get(classLoader);
+            if (fingerprint == null) {
+                MessageDigest digest = createDigest();
+                for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+                    if (!(loader instanceof URLClassLoader)) continue;
+                    URL[] urls = ((URLClassLoader) loader).getURLs();
+                    for (int i = 0; i < urls.length; i++) {
+                        if ("file".equals(urls[i].getProtocol())) {
+                            updateFingerprint(digest, new File(urls[i].getPath()));
+                        }
+                    }
+                }
+                fingerprint = new String(Hex.encodeHex(digest.digest()));
+                fingerprints.put(classLoader, fingerprint);
+            }
+            return fingerprint;
+        }
+    }
+
+    private void updateFingerprint(MessageDigest digest, File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            // the order of listFiles() depends on the file system
+            Arrays.sort(files);
+            for (int i = 0; i < files.length; i++) {
+                updateFingerprint(digest, files[i]);
+            }
+        }
+        else if (file.isFile()) {
+            String entry = file.getPath() + ":" + file.length() + ":" + file.lastModified() + ";";
+            try {
+                digest.update(entry.getBytes(GroovyPageParser.GROOVY_SOURCE_CHAR_ENCODING));
+            }
+            catch (UnsupportedEncodingException e) {
+                throw new GroovyPagesException("Grails cannot run unless your environment supports UTF-8!", e);
+            }
+        }
+    }
+
+    private MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new GroovyPagesException("SHA-1 is not supported by this environment", e);
+        }
+    }
+
+    /**
+     * Deletes the classes compiled from other versions of a page. Directories that are being written by other
+     * threads or processes have a dot in their name and are left alone.
+     */
+    private void pruneSupersededClasses(File pageDir, String key) {
+        File[] dirs = pageDir.listFiles();
+        if (dirs == null) return;
+        for (int i = 0; i < dirs.length; i++) {
+            String dirName = dirs[i].getName();
+            if (!dirName.equals(key) && dirName.indexOf('.') == -1) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Deleting superseded compiled GSP " + dirs[i]);
+                }
+                FileUtils.deleteQuietly(dirs[i]);
+            }
+        }
+    }
+
+    private void compile(byte[] groovySource, String name, GroovyClassLoader parent, File classesDir) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Compiling GSP [" + name + "] into " + classesDir);
+        }
+        CompilerConfiguration config = new CompilerConfiguration();
+        config.setSourceEncoding(GroovyPageParser.GROOVY_SOURCE_CHAR_ENCODING);
+        CompilationUnit unit = new CompilationUnit(config, null, parent);
+        unit.addSource(name, new ByteArrayInputStream(groovySource));
+        unit.compile(Phases.CLASS_GENERATION);
+
+        // write to a directory of our own and rename it, so that other threads or processes compiling the
+        // same page never see an incomplete directory
+        File tempDir = new File(classesDir.getParentFile(), classesDir.getName() + "." + Thread.currentThread().getId() + "." + System.nanoTime());
+        try {
+            for (Object o : unit.getClasses()) {
+                GroovyClass groovyClass = (GroovyClass) o;
+                File classFile = new File(tempDir, groovyClass.getName().replace('.', '/') + CLASS_FILE_EXTENSION);
+                writeClassFile(classFile, groovyClass.getBytes());
+            }
+            if (!tempDir.renameTo(classesDir) && !classesDir.isDirectory()) {
+                throw new IOException("Cannot rename " + tempDir + " to " + classesDir);
+            }
+        }
+        catch (IOException e) {
+            throw new GroovyPagesException("Cannot write compiled GSP [" + name + "] to " + classesDir, e);
+        }
+        finally {
+            if (tempDir.exists()) {
+                FileUtils.deleteQuietly(tempDir);
+            }
+        }
+    }
+
+    private void writeClassFile(File classFile, byte[] bytes) throws IOException {
+        classFile.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(classFile);
+        try {
+            out.write(bytes);
+        }
+        finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+}
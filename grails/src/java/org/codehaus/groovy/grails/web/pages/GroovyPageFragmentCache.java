@@ -0,0 +1,165 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.pages;
+
+import org.codehaus.groovy.grails.web.util.BoundedCache;
+import org.codehaus.groovy.grails.web.util.BoundedCacheMBean;
+import org.codehaus.groovy.grails.web.util.JmxSupport;
+import org.springframework.beans.factory.DisposableBean;
+
+import javax.management.ObjectName;
+
+/**
+ * <p>Holds the rendered output of page fragments, such as the body of the <code>&lt;g:cache&gt;</code> tag, so
+ * that they can be written again without rendering them. A fragment is identified by a key and a variation, for
+ * example the locale or the user the fragment was rendered for, and can have a time to live.</p>
+ *
+ * <p>The cache is bounded by the number of fragments and by their total number of characters. Services can
+ * invalidate all variations of a fragment with {@link #invalidate(String)}, for example after updating the data
+ * the fragment shows.</p>
+ *
+ * @since 1.2
+ */
+public class GroovyPageFragmentCache implements DisposableBean {
+    public static final String BEAN_ID = "groovyPageFragmentCache";
+    public static final int DEFAULT_MAX_SIZE = 1000;
+    public static final long DEFAULT_MAX_WEIGHT = 4 * 1024 * 1024;
+
+    private final BoundedCache<FragmentKey, Fragment> cache;
+    private volatile ObjectName mbeanName;
+
+    public GroovyPageFragmentCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_MAX_WEIGHT);
+    }
+
+    /**
+     * @param maxSize The maximum number of fragments
+     * @param maxWeight The maximum total number of characters of the fragments
+     */
+    public GroovyPageFragmentCache(int maxSize, long maxWeight) {
+        this.cache = new BoundedCache<FragmentKey, Fragment>(maxSize, maxWeight);
+    }
+
+    /**
+     * Retrieves the output of a fragment
+     *
+     * @param key The key of the fragment
+     * @param variation The variation of the fragment, can be null
+     * @return The output or null if the fragment isn't cached or has expired
+     */
+    public String get(String key, String variation) {
+        FragmentKey fragmentKey = new FragmentKey(key, variation);
+        Fragment fragment = cache.get(fragmentKey);
+        if (fragment == null) return null;
+        if (fragment.isExpired()) {
+            cache.remove(fragmentKey);
+            return null;
+        }
+        return fragment.content;
+    }
+
+    /**
+     * Stores the output of a fragment
+     *
+     * @param key The key of the fragment
+     * @param variation The variation of the fragment, can be null
+     * @param content The output of the fragment
+     * @param timeToLive The number of milliseconds the output can be used for, or 0 if it doesn't expire
+     */
+    public void put(String key, String variation, String content, long timeToLive) {
+        long expires = timeToLive > 0 ? System.currentTimeMillis() + timeToLive : 0;
+        cache.put(new FragmentKey(key, variation), new Fragment(content, expires), content.length() + 1);
+    }
+
+    /**
+     * Removes all variations of the fragment with the given key
+     *
+     * @param key The key of the fragment
+     */
+    public void invalidate(String key) {
+        for (FragmentKey fragmentKey : cache.keys()) {
+            if (fragmentKey.key.equals(key)) {
+                cache.remove(fragmentKey);
+            }
+        }
+    }
+
+    /**
+     * Removes all fragments
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * @return The statistics of the cache
+     */
+    public BoundedCacheMBean getCache() {
+        return cache;
+    }
+
+    /**
+     * Registers the statistics MBean of the cache, which is unregistered by {@link #destroy()}
+     */
+    public void registerMBean() {
+        if (mbeanName == null) {
+            mbeanName = BoundedCache.registerMBean(cache, GroovyPagesTemplateEngine.CACHE_MBEAN_TYPE, "fragments");
+        }
+    }
+
+    /**
+     * Unregisters the statistics MBean of the cache when the application is shut down
+     */
+    public void destroy() {
+        JmxSupport.unregisterMBean(mbeanName);
+        mbeanName = null;
+    }
+
+    private static class Fragment {
+        final String content;
+        final long expires;
+
+        Fragment(String content, long expires) {
+            this.content = content;
+            this.expires = expires;
+        }
+
+        boolean isExpired() {
+            return expires != 0 && System.currentTimeMillis() > expires;
+        }
+    }
+
+    private static class FragmentKey {
+        final String key;
+        final String variation;
+
+        FragmentKey(String key, String variation) {
+            if (key == null) throw new IllegalArgumentException("Argument [key] cannot be null");
+            this.key = key;
+            this.variation = variation;
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof FragmentKey)) return false;
+            FragmentKey that = (FragmentKey) o;
+            return key.equals(that.key) && (variation == null ? that.variation == null : variation.equals(that.variation));
+        }
+
+        public int hashCode() {
+            return 31 * key.hashCode() + (variation != null ? variation.hashCode() : 0);
+        }
+    }
+}
@@ -24,8 +24,11 @@ import org.springframework.util.ReflectionUtils;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Field;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A class that encapsulates the information necessary to describe a GSP
@@ -48,8 +51,10 @@ class GroovyPageMetaInfo {
     private long lastModified;
     private InputStream groovySource;
     private String contentType;
+    private String layout;
     private int[] lineNumbers;
     private String[] htmlParts;
+    private Map<String, byte[][]> encodedHtmlParts = new ConcurrentHashMap<String, byte[][]>();
     private Map jspTags = Collections.EMPTY_MAP;
     private GroovyPagesException compilationException;
 
@@ -66,6 +71,9 @@ class GroovyPageMetaInfo {
     	this.contentType = (String)ReflectionUtils.getField(ReflectionUtils.findField(pageClass, GroovyPageParser.CONSTANT_NAME_CONTENT_TYPE), null);
     	this.jspTags = (Map)ReflectionUtils.getField(ReflectionUtils.findField(pageClass, GroovyPageParser.CONSTANT_NAME_JSP_TAGS), null);
     	this.lastModified = (Long)ReflectionUtils.getField(ReflectionUtils.findField(pageClass, GroovyPageParser.CONSTANT_NAME_LAST_MODIFIED), null);
+    	// pages precompiled by earlier versions don't record their layout, which is then treated as unknown
+    	Field layoutField = ReflectionUtils.findField(pageClass, GroovyPageParser.CONSTANT_NAME_LAYOUT);
+    	this.layout = layoutField != null ? (String)ReflectionUtils.getField(layoutField, null) : "";
     	try {
 			readHtmlData();
 		} catch (IOException e) {
@@ -181,6 +189,18 @@ class GroovyPageMetaInfo {
         this.contentType = contentType;
     }
 
+    /**
+     * @return The layout the page declares with a meta tag, an empty string if it is chosen with an expression,
+     * or null if the page doesn't declare a layout
+     */
+    public String getLayout() {
+        return layout;
+    }
+
+    public void setLayout(String layout) {
+        this.layout = layout;
+    }
+
     public int[] getLineNumbers() {
     	if(precompiledMode) {
     		return getPrecompiledLineNumbers();
@@ -226,6 +246,27 @@ class GroovyPageMetaInfo {
 
 	public void setHtmlParts(String[] htmlParts) {
 		this.htmlParts = htmlParts;
+		this.encodedHtmlParts.clear();
+	}
+
+	/**
+	 * Returns the static html parts encoded with the given character encoding. The parts are encoded on first
+	 * use and then kept for the lifetime of the page.
+	 *
+	 * @param encoding The character encoding
+	 * @return The encoded html parts
+	 * @throws UnsupportedEncodingException When the encoding isn't supported
+	 */
+	public byte[][] getEncodedHtmlParts(String encoding) throws UnsupportedEncodingException {
+		byte[][] encoded = encodedHtmlParts.get(encoding);
+		if (encoded == null) {
+			encoded = new byte[htmlParts.length][];
+			for (int i = 0; i < htmlParts.length; i++) {
+				encoded[i] = htmlParts[i].getBytes(encoding);
+			}
+			encodedHtmlParts.put(encoding, encoded);
+		}
+		return encoded;
 	}
 }
 
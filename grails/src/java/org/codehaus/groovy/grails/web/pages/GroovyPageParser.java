@@ -15,12 +15,13 @@
  */
 package org.codehaus.groovy.grails.web.pages;
 
-import grails.util.Environment;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.codehaus.groovy.grails.commons.*;
+import org.codehaus.groovy.grails.plugins.codecs.HTMLCodec;
+import org.codehaus.groovy.grails.web.sitemesh.SitemeshPreprocessor;
 import org.codehaus.groovy.grails.web.taglib.GrailsTagRegistry;
 import org.codehaus.groovy.grails.web.taglib.GroovySyntaxTag;
 import org.codehaus.groovy.grails.web.taglib.exceptions.GrailsTagException;
@@ -54,16 +55,18 @@ public class GroovyPageParser implements Tokens {
 	private static final Pattern ROW_BREAK = Pattern.compile(
 			"((/td>\\s*</tr>\\s*<)?tr[^>]*>\\s*<)?td[^>]*>",
 			Pattern.CASE_INSENSITIVE);
-	private static final Pattern PARSE_TAG_FIRST_PASS = Pattern
-			.compile("(\\s*(\\S+)\\s*=\\s*[\"]([^\"]*)[\"][\\s|>]{1}){1}");
-	private static final Pattern PARSE_TAG_SECOND_PASS = Pattern
-			.compile("(\\s*(\\S+)\\s*=\\s*[']([^']*)['][\\s|>]{1}){1}");
 	private static final Pattern PAGE_DIRECTIVE_PATTERN = Pattern
 			.compile("(\\w+)\\s*=\\s*\"([^\"]*)\"");
+	private static final Pattern IMPORT_SEPARATOR_PATTERN = Pattern.compile(";");
+	private static final Pattern META_TAG_PATTERN = Pattern.compile(
+			"<meta\\s[^>]*>", Pattern.CASE_INSENSITIVE);
+	private static final Pattern META_ATTRIBUTE_PATTERN = Pattern.compile(
+			"([\\w:-]+)\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)')");
 
 	public static final String CONSTANT_NAME_JSP_TAGS = "JSP_TAGS";
 	public static final String CONSTANT_NAME_CONTENT_TYPE = "CONTENT_TYPE";
 	public static final String CONSTANT_NAME_LAST_MODIFIED = "LAST_MODIFIED";
+	public static final String CONSTANT_NAME_LAYOUT = "LAYOUT";
 
 	private GroovyPageScanner scan;
 	private GSPWriter out;
@@ -74,7 +77,6 @@ public class GroovyPageParser implements Tokens {
 	private Map tagContext;
 	private List tagMetaStack = new ArrayList();
 	private GrailsTagRegistry tagRegistry = GrailsTagRegistry.getInstance();
-	private Environment environment;
 	private List<String> htmlParts = new ArrayList<String>();
 
 	/*
@@ -89,14 +91,15 @@ public class GroovyPageParser implements Tokens {
 	 */
 	private boolean previousContentWasNonWhitespace;
 
-	private StringBuffer whitespaceBuffer = new StringBuffer();
+	private List<Integer> whitespaceBuffer = new ArrayList<Integer>();
 
 	private String contentType = DEFAULT_CONTENT_TYPE;
+	private String layout;
 	private boolean doNextScan = true;
 	private int state;
 	private static final String DEFAULT_CONTENT_TYPE = "text/html;charset=UTF-8";
 	private int constantCount = 0;
-	private Map constantsToNames = new HashMap();
+	private Map<String, Integer> constantsToNumbers = new HashMap<String, Integer>();
 
 	private final String pageName;
 	public static final String[] DEFAULT_IMPORTS = new String[] {
@@ -113,6 +116,7 @@ public class GroovyPageParser implements Tokens {
 	private static final String IMPORT_DIRECTIVE = "import";
 	private static final String CONTENT_TYPE_DIRECTIVE = "contentType";
 	private static final String DEFAULT_CODEC_DIRECTIVE = "defaultCodec";
+	private static final String HTML_CODEC_CLASS_NAME = HTMLCodec.class.getName();
 	private static final String PAGE_DIRECTIVE = "page";
 
 	private static final String TAGLIB_DIRECTIVE = "taglib";
@@ -126,6 +130,16 @@ public class GroovyPageParser implements Tokens {
 		return this.contentType;
 	}
 
+	/**
+	 * Returns the layout the page declares with <code>&lt;meta name="layout" content="..."&gt;</code>
+	 *
+	 * @return The name of the layout, an empty string if the page chooses its layout with an expression, or
+	 * null if the page doesn't declare a layout
+	 */
+	public String getLayout() {
+		return this.layout;
+	}
+
 	public int getCurrentOutputLineNumber() {
 		return scan.getLineNumberForToken();
 	}
@@ -165,15 +179,39 @@ public class GroovyPageParser implements Tokens {
 			LOG.debug("GSP file encoding set to: " + gspEncoding);
 		}
 
-		scan = new GroovyPageScanner(readStream(in));
+		String gspSource = readStream(in);
+		layout = findDeclaredLayout(gspSource);
+		if (SitemeshPreprocessor.isEnabled()) {
+			gspSource = new SitemeshPreprocessor().process(gspSource);
+		}
+		scan = new GroovyPageScanner(gspSource);
 		this.pageName = filename;
-		this.environment = Environment.getCurrent();
 		makeName(name);
 		Object o = config.get(CONFIG_PROPERTY_DEFAULT_CODEC);
 		lookupCodec(o);
 
 	} // Parse()
 
+	private static String findDeclaredLayout(String gspSource) {
+		String declaredLayout = null;
+		Matcher meta = META_TAG_PATTERN.matcher(gspSource);
+		while (meta.find()) {
+			String name = null;
+			String content = null;
+			Matcher attribute = META_ATTRIBUTE_PATTERN.matcher(meta.group());
+			while (attribute.find()) {
+				String value = attribute.group(2) != null ? attribute.group(2) : attribute.group(3);
+				if ("name".equalsIgnoreCase(attribute.group(1))) name = value;
+				else if ("content".equalsIgnoreCase(attribute.group(1))) content = value;
+			}
+			if (!"layout".equals(name)) continue;
+			// like SiteMesh, the last declaration wins
+			boolean dynamic = content == null || content.indexOf('$') > -1 || content.indexOf("<%") > -1;
+			declaredLayout = dynamic ? "" : content;
+		}
+		return declaredLayout;
+	}
+
 	private void lookupCodec(Object o) {
 		if (o != null) {
 			this.codecName = o.toString();
@@ -427,10 +465,9 @@ public class GroovyPageParser implements Tokens {
 
 		String text = scan.getToken().trim();
 		text = getExpressionText(text);
-		if (environment == Environment.DEVELOPMENT) {
-
-		}
-		if (codecClassName != null) {
+		if (HTML_CODEC_CLASS_NAME.equals(codecClassName)) {
+			out.printlnHtmlEncoded(text);
+		} else if (codecClassName != null) {
 			out.printlnToResponse("Codec.encode(" + text + ")");
 		} else {
 			out.printlnToResponse(text);
@@ -438,7 +475,9 @@ public class GroovyPageParser implements Tokens {
 	} // expr()
 
 	/**
-	 * Returns an expression text for the given expression
+	 * Returns an expression text for the given expression. The expression is
+	 * evaluated inline by the page, errors are mapped back to the line of the
+	 * GSP by the page level handler in GroovyPageWritable
 	 * 
 	 * @param text
 	 *            The text
@@ -450,19 +489,9 @@ public class GroovyPageParser implements Tokens {
             text = text.substring(0, text.length() - 1);
             safeDereference = true;
         }
-        if (!precompileMode
-				&& (environment == Environment.DEVELOPMENT || environment == Environment.TEST)) {
-			String escaped = escapeGroovy(text);
-			text = "evaluate('" + escaped + "', "
-					+ getCurrentOutputLineNumber() + ", it) { return " + text
-					+ " }" + (safeDereference ? "?" : "");
-		} else {
-			// add extra parenthesis, see http://jira.codehaus.org/browse/GRAILS-4351 
-			// or GroovyPagesTemplateEngineTests.testForEachInProductionMode
-
-			text = "(" + text + ")"+ (safeDereference ? "?" : "");
-		}
-		return text;
+		// add extra parenthesis, see http://jira.codehaus.org/browse/GRAILS-4351 
+		// or GroovyPagesTemplateEngineTests.testForEachInProductionMode
+		return "(" + text + ")"+ (safeDereference ? "?" : "");
 	}
 
 	private String escapeGroovy(String text) {
@@ -474,11 +503,11 @@ public class GroovyPageParser implements Tokens {
 	 * Write to the outputstream ONLY if the string is not blank, else we hold
 	 * it back in case it is to be swallowed between tags
 	 */
-	private void bufferedPrintlnToResponse(String s) {
+	private void bufferedPrintlnHtmlPart(int partNumber) {
 		if (currentlyBufferingWhitespace) {
-			whitespaceBuffer.append(s);
+			whitespaceBuffer.add(partNumber);
 		} else {
-			out.printlnToResponse(s);
+			out.printlnHtmlPart(partNumber);
 		}
 	}
 
@@ -493,8 +522,7 @@ public class GroovyPageParser implements Tokens {
 
 		// If we detect it is all whitespace, we need to keep it for later
 		// If it is not whitespace, we need to flush any whitespace we do have
-		boolean contentIsWhitespace = !Pattern.compile("\\S").matcher(text)
-				.find();
+		boolean contentIsWhitespace = isWhitespace(text);
 		if (!contentIsWhitespace && currentlyBufferingWhitespace) {
 			flushBufferedWhiteSpace();
 		} else {
@@ -505,15 +533,30 @@ public class GroovyPageParser implements Tokens {
 		previousContentWasNonWhitespace = !contentIsWhitespace;
 
 		// de-dupe constants
-		String constantName = (String) constantsToNames.get(text);
-		if (constantName == null) {
-			constantName = "htmlParts[" + (constantCount++) + "]";
-			constantsToNames.put(text, constantName);
+		Integer partNumber = constantsToNumbers.get(text);
+		if (partNumber == null) {
+			partNumber = constantCount++;
+			constantsToNumbers.put(text, partNumber);
 			htmlParts.add(text);
 		}
-		bufferedPrintlnToResponse(constantName);
+		bufferedPrintlnHtmlPart(partNumber);
 	} // html()
 
+	private static boolean isWhitespace(String text) {
+		for (int i = 0, n = text.length(); i < n; i++) {
+			if (!isWhitespace(text.charAt(i)))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether the character is one of the whitespace characters matched by \s in regular expressions
+	 */
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
 	private void makeName(String uri) {
 		String name;
 		int slash = uri.lastIndexOf('/');
@@ -576,7 +619,7 @@ public class GroovyPageParser implements Tokens {
 			out.println(" extends GroovyPage {");
 
 			out.println("public String getGroovyPageFileName() { \""
-					+ pageName.replaceAll("\\\\", "/") + "\" }");
+					+ pageName.replace('\\', '/') + "\" }");
 			out.println("public Object run() {");
 			out.println("def params = binding.params");
 			out.println("def request = binding.request");
@@ -681,6 +724,9 @@ public class GroovyPageParser implements Tokens {
 			out.println("public static final long "
 					+ CONSTANT_NAME_LAST_MODIFIED + " = " + lastModified + "L");
 
+			out.println("public static final String " + CONSTANT_NAME_LAYOUT
+					+ " = " + (layout != null ? "'" + escapeGroovy(layout) + "'" : "null"));
+
 			out.println("}");
 		} else {
 			for (int i = 0; i < DEFAULT_IMPORTS.length; i++) {
@@ -796,8 +842,7 @@ public class GroovyPageParser implements Tokens {
 
 		String tagName;
 		Map attrs = new TreeMap();
-		text = text.replaceAll("[\r\n\t]", " "); // this line added TODO query
-													// this
+		text = text.replace('\r', ' ').replace('\n', ' ').replace('\t', ' ');
 
 		if (text.indexOf(' ') > -1) { // ignores carriage returns and new lines
 			int i = text.indexOf(' ');
@@ -878,47 +923,87 @@ public class GroovyPageParser implements Tokens {
 	}
 
 	private void clearBufferedWhiteSpace() {
-		whitespaceBuffer.delete(0, whitespaceBuffer.length());
+		whitespaceBuffer.clear();
 		currentlyBufferingWhitespace = false;
 	}
 
 	// Write out any whitespace we saved between tags
 	private void flushBufferedWhiteSpace() {
 		if (currentlyBufferingWhitespace) {
-			out.printlnToResponse(whitespaceBuffer.toString());
+			for (Integer partNumber : whitespaceBuffer) {
+				out.printlnHtmlPart(partNumber);
+			}
 			clearBufferedWhiteSpace();
 		}
 		currentlyBufferingWhitespace = false;
 	}
 
 	private void populateMapWithAttributes(Map attrs, String attrTokens) {
-		// do first pass parse which retrieves double quoted attributes
-		Matcher m = PARSE_TAG_FIRST_PASS.matcher(attrTokens);
-		populateAttributesFromMatcher(m, attrs);
-
-		// do second pass parse which retrieves single quoted attributes
-		m = PARSE_TAG_SECOND_PASS.matcher(attrTokens);
-		populateAttributesFromMatcher(m, attrs);
-	}
-
-	private void populateAttributesFromMatcher(Matcher m, Map attrs) {
-		while (m.find()) {
-			String name = m.group(2);
-			String val = m.group(3);
-			name = '\"' + name + '\"';
-			if (val.startsWith("${") && val.endsWith("}")) {
-				val = val.substring(2, val.length() - 1);
-			} else if (!(val.startsWith("[") && val.endsWith("]"))) {
-				val = '\"' + val + '\"';
+		// first retrieve the double quoted attributes
+		populateAttributes(attrs, attrTokens, '"');
+
+		// then the single quoted attributes
+		populateAttributes(attrs, attrTokens, '\'');
+	}
+
+	/**
+	 * Finds the attributes whose values are quoted with the given character. Finds the same attributes as the
+	 * regular expression <code>\s*(\S+)\s*=\s*"([^"]*)"[\s|>]</code> but scans the text once instead of
+	 * backtracking over each run of non-whitespace characters.
+	 */
+	private void populateAttributes(Map attrs, String text, char quote) {
+		int len = text.length();
+		int pos = 0;
+		while (pos < len) {
+			int nameStart = skipWhitespace(text, pos);
+			int runEnd = nameStart;
+			while (runEnd < len && !isWhitespace(text.charAt(runEnd)))
+				runEnd++;
+			if (nameStart == runEnd)
+				return;
+
+			// the name is the longest prefix of the run that is followed by a quoted value
+			int matchEnd = -1;
+			for (int nameEnd = runEnd; nameEnd > nameStart && matchEnd < 0; nameEnd--) {
+				int equals = nameEnd == runEnd ? skipWhitespace(text, nameEnd) : nameEnd;
+				if (equals >= len || text.charAt(equals) != '=')
+					continue;
+				int open = skipWhitespace(text, equals + 1);
+				if (open >= len || text.charAt(open) != quote)
+					continue;
+				int close = text.indexOf(quote, open + 1);
+				if (close < 0 || close + 1 >= len)
+					continue;
+				char next = text.charAt(close + 1);
+				if (!isWhitespace(next) && next != '|' && next != '>')
+					continue;
+
+				addAttribute(attrs, text.substring(nameStart, nameEnd), text.substring(open + 1, close));
+				matchEnd = close + 2;
 			}
-			attrs.put(name, val);
+			pos = matchEnd > -1 ? matchEnd : runEnd;
 		}
 	}
 
+	private void addAttribute(Map attrs, String name, String val) {
+		name = '\"' + name + '\"';
+		if (val.startsWith("${") && val.endsWith("}")) {
+			val = val.substring(2, val.length() - 1);
+		} else if (!(val.startsWith("[") && val.endsWith("]"))) {
+			val = '\"' + val + '\"';
+		}
+		attrs.put(name, val);
+	}
+
+	private static int skipWhitespace(String text, int pos) {
+		while (pos < text.length() && isWhitespace(text.charAt(pos)))
+			pos++;
+		return pos;
+	}
+
 	private void pageImport(String value) {
 		// LOG.debug("pageImport(" + value + ')');
-		String[] imports = Pattern.compile(";").split(
-				value.subSequence(0, value.length()));
+		String[] imports = IMPORT_SEPARATOR_PATTERN.split(value);
 		for (int ix = 0; ix < imports.length; ix++) {
 			out.print("import ");
 			out.print(imports[ix]);
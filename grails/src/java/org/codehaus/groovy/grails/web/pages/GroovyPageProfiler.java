@@ -0,0 +1,313 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.pages;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.codehaus.groovy.grails.web.util.GrailsPrintWriter;
+import org.codehaus.groovy.grails.web.util.JmxSupport;
+
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Records the number of invocations, the cumulative time and the size of the output of GSP tags, templates and
+ * pages. Profiling is off by default and can be switched on and off at runtime, through JMX or with the
+ * <code>grails.gsp.profile.enabled</code> setting. While it's off the cost for each tag is a single field read.</p>
+ *
+ * <p>Times are inclusive: the time of a tag includes the tags and templates it invokes. Output sizes are only
+ * measured when the output is written to a {@link GrailsPrintWriter}.</p>
+ *
+ * <p>In development the statistics of a request can also be written as an HTML comment at the end of each page,
+ * see {@link #setReportEnabled(boolean)}.</p>
+ *
+ * @since 1.2
+ */
+public class GroovyPageProfiler implements GroovyPageProfilerMBean {
+    private static final Log LOG = LogFactory.getLog(GroovyPageProfiler.class);
+    private static final GroovyPageProfiler INSTANCE = new GroovyPageProfiler();
+
+    public static final String MBEAN_TYPE = "GroovyPagesProfiler";
+    public static final String REQUEST_STATISTICS_ATTRIBUTE = "org.codehaus.groovy.grails.GSP_PROFILE";
+
+    private static final String TAG = "tag ";
+    private static final String TEMPLATE = "template ";
+    private static final String PAGE = "page ";
+
+    private volatile boolean enabled;
+    private volatile boolean reportEnabled;
+    private volatile ObjectName mbeanName;
+    private final ConcurrentMap<String, Statistics> tags = new ConcurrentHashMap<String, Statistics>();
+    private final ConcurrentMap<String, Statistics> templates = new ConcurrentHashMap<String, Statistics>();
+    private final ConcurrentMap<String, Statistics> pages = new ConcurrentHashMap<String, Statistics>();
+
+    /**
+     * @return The profiler of the GSP tags, templates and pages of the application
+     */
+    public static GroovyPageProfiler getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return Whether the statistics of the request are written at the end of each page while profiling is enabled
+     */
+    public boolean isReportEnabled() {
+        return reportEnabled;
+    }
+
+    /**
+     * Sets whether the statistics of the request are written as an HTML comment at the end of each page while
+     * profiling is enabled. Meant for development, as the comment discloses the tags and templates of the page.
+     *
+     * @param reportEnabled True to write the statistics into the pages
+     */
+    public void setReportEnabled(boolean reportEnabled) {
+        this.reportEnabled = reportEnabled;
+    }
+
+    /**
+     * Records an invocation of a tag
+     *
+     * @param tagName The name of the tag, including its namespace
+     * @param startTime The value of System.nanoTime() when the tag was invoked
+     * @param chars The number of characters written by the tag
+     * @param request The current request, can be null
+     */
+    public void recordTag(String tagName, long startTime, long chars, HttpServletRequest request) {
+        record(tags, TAG, tagName, startTime, chars, request);
+    }
+
+    /**
+     * Records the rendering of a template
+     *
+     * @param uri The URI of the template
+     * @param startTime The value of System.nanoTime() when the rendering started
+     * @param chars The number of characters written by the template
+     * @param request The current request, can be null
+     */
+    public void recordTemplate(String uri, long startTime, long chars, HttpServletRequest request) {
+        record(templates, TEMPLATE, uri, startTime, chars, request);
+    }
+
+    /**
+     * Records the rendering of a page
+     *
+     * @param pageName The name of the page
+     * @param startTime The value of System.nanoTime() when the rendering started
+     * @param chars The number of characters written by the page
+     * @param request The current request, can be null
+     */
+    public void recordPage(String pageName, long startTime, long chars, HttpServletRequest request) {
+        record(pages, PAGE, pageName, startTime, chars, request);
+    }
+
+    private void record(ConcurrentMap<String, Statistics> statistics, String type, String name, long startTime,
+                        long chars, HttpServletRequest request) {
+        long time = System.nanoTime() - startTime;
+        getStatistics(statistics, name).add(time, chars);
+
+        if (reportEnabled && request != null) {
+            Map<String, Statistics> requestStatistics = getRequestStatistics(request);
+            String key = type + name;
+            Statistics stats = requestStatistics.get(key);
+            if (stats == null) {
+                stats = new Statistics();
+                requestStatistics.put(key, stats);
+            }
+            stats.add(time, chars);
+        }
+    }
+
+    private Statistics getStatistics(ConcurrentMap<String, Statistics> statistics, String name) {
+        Statistics stats = statistics.get(name);
+        if (stats == null) {
+            Statistics created = new Statistics();
+            stats = statistics.putIfAbsent(name, created);
+            if (stats == null) stats = created;
+        }
+        return stats;
+    }
+
+    private Map<String, Statistics> getRequestStatistics(HttpServletRequest request) {
+        Map<String, Statistics> requestStatistics = (Map<String, Statistics>) request.getAttribute(REQUEST_STATISTICS_ATTRIBUTE);
+        if (requestStatistics == null) {
+            requestStatistics = new LinkedHashMap<String, Statistics>();
+            request.setAttribute(REQUEST_STATISTICS_ATTRIBUTE, requestStatistics);
+        }
+        return requestStatistics;
+    }
+
+    /**
+     * Returns the statistics recorded for the request since the last call, as an HTML comment, and discards them
+     *
+     * @param request The current request
+     * @return The HTML comment or null if nothing has been recorded
+     */
+    public String createRequestReport(HttpServletRequest request) {
+        Map<String, Statistics> requestStatistics = (Map<String, Statistics>) request.getAttribute(REQUEST_STATISTICS_ATTRIBUTE);
+        if (requestStatistics == null || requestStatistics.isEmpty()) return null;
+        request.removeAttribute(REQUEST_STATISTICS_ATTRIBUTE);
+
+        StringBuilder report = new StringBuilder("\n<!-- GSP profile\n");
+        for (String line : format(requestStatistics)) {
+            // a comment can't contain two consecutive hyphens
+            report.append(line.replace("--", "- -")).append('\n');
+        }
+        return report.append("-->\n").toString();
+    }
+
+    /**
+     * @param out The writer a tag or page writes to
+     * @return The number of characters written to it so far, or 0 if it doesn't count them
+     */
+    public static long getCharsWritten(Object out) {
+        return out instanceof GrailsPrintWriter ? ((GrailsPrintWriter) out).getCharsWritten() : 0;
+    }
+
+    public String[] getTagStatistics() {
+        return format(tags);
+    }
+
+    public String[] getTemplateStatistics() {
+        return format(templates);
+    }
+
+    public String[] getPageStatistics() {
+        return format(pages);
+    }
+
+    /**
+     * @return The statistics of each tag by name
+     */
+    public Map<String, Statistics> getTags() {
+        return Collections.unmodifiableMap(tags);
+    }
+
+    /**
+     * @return The statistics of each template by URI
+     */
+    public Map<String, Statistics> getTemplates() {
+        return Collections.unmodifiableMap(templates);
+    }
+
+    /**
+     * @return The statistics of each page by name
+     */
+    public Map<String, Statistics> getPages() {
+        return Collections.unmodifiableMap(pages);
+    }
+
+    public void reset() {
+        tags.clear();
+        templates.clear();
+        pages.clear();
+    }
+
+    private String[] format(Map<String, Statistics> statistics) {
+        List<Map.Entry<String, Statistics>> entries = new ArrayList<Map.Entry<String, Statistics>>(statistics.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Statistics>>() {
+            public int compare(Map.Entry<String, Statistics> e1, Map.Entry<String, Statistics> e2) {
+                long t1 = e1.getValue().getTotalTime();
+                long t2 = e2.getValue().getTotalTime();
+                return t1 > t2 ? -1 : (t1 == t2 ? 0 : 1);
+            }
+        });
+
+        String[] lines = new String[entries.size()];
+        for (int i = 0; i < lines.length; i++) {
+            Map.Entry<String, Statistics> entry = entries.get(i);
+            Statistics stats = entry.getValue();
+            lines[i] = String.format("%s: %d invocations, %.3f ms, %d chars", entry.getKey(), stats.getCount(),
+                    stats.getTotalTime() / 1e6, stats.getChars());
+        }
+        return lines;
+    }
+
+    /**
+     * Registers the profiler with the MBeanServer, see {@link JmxSupport}. Failures are logged rather than
+     * propagated. The MBean is unregistered by {@link #unregisterMBean()}.
+     */
+    public synchronized void registerMBean() {
+        if (mbeanName != null) return;
+        try {
+            mbeanName = JmxSupport.registerMBean(new StandardMBean(this, GroovyPageProfilerMBean.class), MBEAN_TYPE, null);
+        }
+        catch (Exception e) {
+            LOG.warn("Unable to register GSP profiler MBean [" + MBEAN_TYPE + "]: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Unregisters the profiler from the MBeanServer when the application is shut down
+     */
+    public synchronized void unregisterMBean() {
+        JmxSupport.unregisterMBean(mbeanName);
+        mbeanName = null;
+    }
+
+    /**
+     * The statistics of a tag, template or page
+     */
+    public static class Statistics {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalTime = new AtomicLong();
+        private final AtomicLong chars = new AtomicLong();
+
+        void add(long time, long written) {
+            count.incrementAndGet();
+            totalTime.addAndGet(time);
+            chars.addAndGet(written);
+        }
+
+        /**
+         * @return The number of invocations
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * @return The cumulative time of the invocations in nanoseconds
+         */
+        public long getTotalTime() {
+            return totalTime.get();
+        }
+
+        /**
+         * @return The cumulative number of characters written by the invocations
+         */
+        public long getChars() {
+            return chars.get();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.pages;
+
+/**
+ * The JMX management interface of the {@link GroovyPageProfiler}
+ *
+ * @since 1.2
+ */
+public interface GroovyPageProfilerMBean {
+
+    /**
+     * @return Whether tags, templates and pages are being profiled
+     */
+    boolean isEnabled();
+
+    /**
+     * Switches profiling on or off
+     *
+     * @param enabled True to profile tags, templates and pages
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return The statistics of the invoked tags, slowest first
+     */
+    String[] getTagStatistics();
+
+    /**
+     * @return The statistics of the templates rendered with g:render, slowest first
+     */
+    String[] getTemplateStatistics();
+
+    /**
+     * @return The statistics of the rendered pages, slowest first
+     */
+    String[] getPageStatistics();
+
+    /**
+     * Discards the statistics collected so far
+     */
+    void reset();
+}
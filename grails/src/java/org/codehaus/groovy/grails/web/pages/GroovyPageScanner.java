@@ -39,9 +39,13 @@ class GroovyPageScanner implements Tokens {
     private int lastLineNumberIndex=-1;
 
     GroovyPageScanner(String text) {
-		Strip strip = new Strip(text);
-		strip.strip(0);
-		this.text = strip.toString();
+		if (text.indexOf('^') > -1) {
+			// only pages using the ^tag%{ }% syntax have to be stripped
+			Strip strip = new Strip(text);
+			strip.strip(0);
+			text = strip.toString();
+		}
+		this.text = text;
 		len = this.text.length();
 		this.lastNamespace = null;
 		resolveLineNumberPositions();		
@@ -108,17 +112,6 @@ class GroovyPageScanner implements Tokens {
 			char c = text.charAt(end1++);
 			char c1 = left > 1 ? text.charAt(end1) : 0;
 			char c2 = left > 2 ? text.charAt(end1 + 1) : 0;
-            char c3 = left > 3 ? text.charAt(end1 + 2) : 0;
-            
-            StringBuffer chars = new StringBuffer()
-                                       .append(c)
-                                       .append(c1)
-                                       .append(c2);
-            String startTag = chars.toString();
-
-            String endTag =    chars
-                                 .append(c3)
-                                 .toString();
 
             if (str1) {
 				if (c == '\\') end1++;
@@ -156,16 +149,14 @@ class GroovyPageScanner implements Tokens {
 								fromIndex = end1 + 1; // well it should be an end tag.
 							}
 							
-							int foundColonIdx = text.indexOf(":", fromIndex);
+							int foundColonIdx = findNamespaceEnd(fromIndex);
 							if (foundColonIdx > -1) {
 								String tagNameSpace = text.substring(fromIndex,foundColonIdx);
-								if (tagNameSpace.matches("^\\p{Alpha}\\w*$")) {
-									if (bStartTag) {
-										return foundStartOrEndTag(GSTART_TAG,tagNameSpace.length() + 2,tagNameSpace);
-									}
-									else {
-										return foundStartOrEndTag(GEND_TAG,tagNameSpace.length() + 3,tagNameSpace);
-									}
+								if (bStartTag) {
+									return foundStartOrEndTag(GSTART_TAG,tagNameSpace.length() + 2,tagNameSpace);
+								}
+								else {
+									return foundStartOrEndTag(GEND_TAG,tagNameSpace.length() + 3,tagNameSpace);
 								}
 							}
 						}
@@ -238,6 +229,28 @@ class GroovyPageScanner implements Tokens {
 		}
 	} // nextToken()
 
+	/**
+	 * Finds the colon that ends the namespace of a tag starting at the given index. The namespace has to start
+	 * with a letter followed by letters, digits or underscores, so only the characters of the namespace are
+	 * looked at rather than everything up to the next colon in the page.
+	 *
+	 * @param fromIndex The index of the first character of the namespace
+	 * @return The index of the colon or -1 if there is no namespace at the given index
+	 */
+	private int findNamespaceEnd(int fromIndex) {
+		if (fromIndex >= len || !isAsciiLetter(text.charAt(fromIndex))) return -1;
+		for (int i = fromIndex + 1; i < len; i++) {
+			char c = text.charAt(i);
+			if (c == ':') return i;
+			if (!isAsciiLetter(c) && !(c >= '0' && c <= '9') && c != '_') return -1;
+		}
+		return -1;
+	}
+
+	private static boolean isAsciiLetter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
 	private boolean skipComment(char c3, char c4) {
 		int ix = end1 + 3;
 		for (int ixz = len - 4; ; ix++) {
@@ -49,4 +49,14 @@ public class GroovyPageTemplate implements Template {
 	public GroovyPageMetaInfo getMetaInfo() {
 		return metaInfo;
 	}
+
+	/**
+	 * Returns the layout the page declares with <code>&lt;meta name="layout" content="..."&gt;</code>
+	 *
+	 * @return The name of the layout, an empty string if the page chooses its layout with an expression, or
+	 * null if the page doesn't declare a layout
+	 */
+	public String getDeclaredLayout() {
+		return metaInfo.getLayout();
+	}
 }
\ No newline at end of file
@@ -14,6 +14,7 @@
  */
 package org.codehaus.groovy.grails.web.pages;
 
+import grails.util.Environment;
 import grails.util.GrailsUtil;
 import groovy.lang.Binding;
 import groovy.lang.GroovyObject;
@@ -23,9 +24,12 @@ import org.apache.commons.logging.LogFactory;
 import org.codehaus.groovy.grails.commons.DomainClassArtefactHandler;
 import org.codehaus.groovy.grails.commons.GrailsApplication;
 import org.codehaus.groovy.grails.commons.GrailsClass;
+import org.codehaus.groovy.grails.web.errors.GrailsExceptionResolver;
+import org.codehaus.groovy.grails.web.pages.exceptions.GroovyPagesException;
 import org.codehaus.groovy.grails.web.servlet.GrailsApplicationAttributes;
 import org.codehaus.groovy.grails.web.servlet.WrappedResponseHolder;
 import org.codehaus.groovy.grails.web.servlet.mvc.GrailsWebRequest;
+import org.codehaus.groovy.grails.web.taglib.exceptions.GrailsTagException;
 import org.codehaus.groovy.runtime.InvokerHelper;
 import org.springframework.context.ApplicationContext;
 import org.springframework.web.context.request.RequestContextHolder;
@@ -136,13 +140,84 @@ class GroovyPageWritable implements Writable {
             page.setJspTagLibraryResolver(metaInfo.getJspTagLibraryResolver());
             page.setGspTagLibraryLookup(metaInfo.getTagLibraryLookup());
             page.setHtmlParts(metaInfo.getHtmlParts());
+            page.setMetaInfo(metaInfo);
 
-            page.run();
+            GroovyPageProfiler profiler = GroovyPageProfiler.getInstance();
+            long startTime = profiler.isEnabled() ? System.nanoTime() : 0;
+            long startChars = startTime != 0 ? GroovyPageProfiler.getCharsWritten(out) : 0;
+            try {
+                page.run();
+            }
+            catch (RuntimeException e) {
+                throw createPageException(page, e);
+            }
+            if(startTime != 0) {
+                profiler.recordPage(page.getGroovyPageFileName(), startTime, GroovyPageProfiler.getCharsWritten(out) - startChars, request);
+                if(oldBinding == null && profiler.isReportEnabled() && isHtml()) {
+                    String report = profiler.createRequestReport(request);
+                    if(report != null) out.write(report);
+                }
+            }
             request.setAttribute(GrailsApplicationAttributes.PAGE_SCOPE, oldBinding);        
         }
         return out;
     }
 
+    private boolean isHtml() {
+        String contentType = metaInfo.getContentType();
+        return contentType != null && contentType.startsWith("text/html");
+    }
+
+    /**
+     * In the development and test environments maps an error thrown while executing the page, for example by the
+     * evaluation of an expression, to the line of the GSP it occurred on. Exceptions that already carry the location
+     * in the GSP, such as those thrown by tags or by nested templates, are returned as they are. An error thrown
+     * within the body of a tag is wrapped by the tag with the line of the tag, so it is mapped to the line of the
+     * body it occurred on instead.
+     *
+     * @param page The page that was executing
+     * @param e The error
+     * @return The exception to throw
+     */
+    protected RuntimeException createPageException(GroovyPage page, RuntimeException e) {
+        if (e instanceof GroovyPagesException) return e;
+        Throwable cause = e;
+        if (e instanceof GrailsTagException) {
+            cause = GrailsExceptionResolver.getRootCause(e);
+            if (cause == e || cause instanceof GrailsTagException || containsPageException(e)) return e;
+        }
+        Environment env = Environment.getCurrent();
+        if (env != Environment.DEVELOPMENT && env != Environment.TEST) return e;
+
+        int lineNumber = findPageLineNumber(page.getClass().getName(), cause);
+        if (lineNumber <= 0) return e;
+        return new GroovyPagesException("Error executing page [" + page.getGroovyPageFileName() + "] on line [" +
+                lineNumber + "]: " + cause.getMessage(), e, lineNumber, page.getGroovyPageFileName());
+    }
+
+    private boolean containsPageException(Throwable e) {
+        for (Throwable t = e; t != null && t.getCause() != t; t = t.getCause()) {
+            if (t instanceof GroovyPagesException) return true;
+        }
+        return false;
+    }
+
+    private int findPageLineNumber(String pageClassName, Throwable e) {
+        String closurePrefix = pageClassName + "$";
+        for (StackTraceElement element : e.getStackTrace()) {
+            String className = element.getClassName();
+            if (className.equals(pageClassName) || className.startsWith(closurePrefix)) {
+                int lineNumber = element.getLineNumber();
+                final int[] lineMappings = metaInfo.getLineNumbers();
+                if (lineNumber > 0 && lineMappings != null && lineNumber <= lineMappings.length) {
+                    return lineMappings[lineNumber - 1];
+                }
+                return -1;
+            }
+        }
+        return -1;
+    }
+
     protected void copyBinding(Binding binding, Binding oldBinding, Writer out) throws IOException {
     	formulateBindingFromWebRequest(binding, request, response, out, (GroovyObject) request.getAttribute(GrailsApplicationAttributes.CONTROLLER));
         binding.getVariables().putAll(oldBinding.getVariables());
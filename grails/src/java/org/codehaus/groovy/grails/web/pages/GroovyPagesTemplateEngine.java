@@ -19,6 +19,8 @@ import grails.util.GrailsUtil;
 import grails.util.Metadata;
 import groovy.lang.GroovyClassLoader;
 import groovy.text.Template;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -30,24 +32,35 @@ import org.codehaus.groovy.grails.web.pages.exceptions.GroovyPagesException;
 import org.codehaus.groovy.grails.web.pages.ext.jsp.TagLibraryResolver;
 import org.codehaus.groovy.grails.web.servlet.GrailsApplicationAttributes;
 import org.codehaus.groovy.grails.web.servlet.mvc.GrailsWebRequest;
+import org.codehaus.groovy.grails.web.util.BoundedCache;
+import org.codehaus.groovy.grails.web.util.BoundedCacheMBean;
+import org.codehaus.groovy.grails.web.util.JmxSupport;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.core.io.*;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.web.context.ServletContextAware;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.support.ServletContextResourceLoader;
 
+import javax.management.ObjectName;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
-import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A GroovyPagesTemplateEngine based on (but not extending) the existing TemplateEngine implementations
@@ -67,27 +80,56 @@ import java.util.concurrent.ConcurrentHashMap;
  * 
  * Created: 12-Jan-2006
  */
-public class GroovyPagesTemplateEngine  extends ResourceAwareTemplateEngine implements ApplicationContextAware, ServletContextAware{
+public class GroovyPagesTemplateEngine  extends ResourceAwareTemplateEngine implements ApplicationContextAware, ServletContextAware, DisposableBean {
     private static final Log LOG = LogFactory.getLog(GroovyPagesTemplateEngine.class);
-    private Map<String, GroovyPageMetaInfo> pageCache = new ConcurrentHashMap<String, GroovyPageMetaInfo>();
+    /**
+     * The default maximum number of pages held by the page caches
+     */
+    public static final int DEFAULT_MAX_CACHE_SIZE = 2000;
+    /**
+     * The default maximum total length of the static html parts of the pages held by the page caches
+     */
+    public static final long DEFAULT_MAX_CACHE_WEIGHT = 16 * 1024 * 1024;
+    /**
+     * The type of the statistics MBeans of the caches of GSP
+     */
+    public static final String CACHE_MBEAN_TYPE = "GroovyPagesCache";
+    private static final String SOURCE_CACHE_KEY_PREFIX = "gsp_source_";
+
+    private BoundedCache<String, GroovyPageMetaInfo> pageCache;
     private GroovyClassLoader classLoader = new GroovyClassLoader();
-    private int scriptNameCount;
+    private AtomicInteger scriptNameCount = new AtomicInteger();
     private ResourceLoader resourceLoader;
     
     public static final String BEAN_ID = "groovyPagesTemplateEngine";
     public static final String RESOURCE_LOADER_BEAN_ID = "groovyPagesResourceLoader";
+    /**
+     * The locations of the views of the application and its plugins within a deployed application
+     */
+    public static final String[] VIEW_LOCATION_PATTERNS = new String[] {
+            GrailsApplicationAttributes.PATH_TO_VIEWS + "/**/*" + GroovyPage.EXTENSION,
+            GrailsResourceUtils.WEB_INF + "/plugins/*/grails-app/views/**/*" + GroovyPage.EXTENSION };
     private boolean reloadEnabled;
+    private long reloadInterval = GroovyPageChangeMonitor.DEFAULT_INTERVAL;
+    private volatile GroovyPageChangeMonitor changeMonitor;
     private ServletContextResourceLoader servletContextLoader;
     private TagLibraryLookup tagLibraryLookup;
     private TagLibraryResolver jspTagLibraryResolver;
     private Map<String, String> precompiledGspMap;
-    private Map<String, GroovyPageMetaInfo> precompiledCache = new ConcurrentHashMap<String, GroovyPageMetaInfo>();
+    private BoundedCache<String, GroovyPageMetaInfo> precompiledCache;
+    private BoundedCache<String, ResolvedTemplate> templateCache;
+    private GroovyPageClassCache compiledPageCache;
+    private int maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+    private long maxCacheWeight = DEFAULT_MAX_CACHE_WEIGHT;
+    private final List<ObjectName> mbeanNames = new ArrayList<ObjectName>();
 
     public GroovyPagesTemplateEngine() {
+        createCaches();
     }
 
     public GroovyPagesTemplateEngine(ServletContext servletContext) {
         if(servletContext == null) throw new IllegalArgumentException("Argument [servletContext] cannot be null");
+        createCaches();
         this.resourceLoader = new ServletContextResourceLoader(servletContext);
         this.servletContextLoader = new ServletContextResourceLoader(servletContext);
 
@@ -109,6 +151,91 @@ public class GroovyPagesTemplateEngine  extends ResourceAwareTemplateEngine impl
         this.classLoader = classLoader;
     }
 
+    /**
+     * Sets the maximum number of pages held by the page caches. Pages evicted from the cache are compiled again
+     * when they are next requested.
+     *
+     * @param maxCacheSize The maximum number of pages
+     */
+    public void setMaxCacheSize(int maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+        createCaches();
+    }
+
+    /**
+     * Sets the maximum total length of the static html parts of the pages held by the page caches
+     *
+     * @param maxCacheWeight The maximum number of characters
+     */
+    public void setMaxCacheWeight(long maxCacheWeight) {
+        this.maxCacheWeight = maxCacheWeight;
+        createCaches();
+    }
+
+    private void createCaches() {
+        this.pageCache = new BoundedCache<String, GroovyPageMetaInfo>(maxCacheSize, maxCacheWeight) {
+            protected void evicted(String name, GroovyPageMetaInfo metaInfo) {
+                // an evicted page is compiled again when it's next requested, and watched from then on
+                GroovyPageChangeMonitor monitor = changeMonitor;
+                if(monitor != null) {
+                    monitor.unwatch(name);
+                }
+            }
+        };
+        this.precompiledCache = new BoundedCache<String, GroovyPageMetaInfo>(maxCacheSize, maxCacheWeight);
+        this.templateCache = new BoundedCache<String, ResolvedTemplate>(maxCacheSize);
+    }
+
+    /**
+     * @return The cache of pages compiled by this engine
+     */
+    public BoundedCacheMBean getPageCache() {
+        return pageCache;
+    }
+
+    /**
+     * @return The cache of pages that have been precompiled into the application
+     */
+    public BoundedCacheMBean getPrecompiledPageCache() {
+        return precompiledCache;
+    }
+
+    /**
+     * @return The cache of the pages resolved by {@link #createTemplateForUri(String[])}, such as templates
+     */
+    public BoundedCacheMBean getTemplateCache() {
+        return templateCache;
+    }
+
+    /**
+     * Registers the statistics MBeans of the page caches, which are unregistered by {@link #destroy()}
+     */
+    public void registerMBeans() {
+        registerMBean(pageCache, "pages");
+        registerMBean(precompiledCache, "precompiledPages");
+        registerMBean(templateCache, "templates");
+    }
+
+    private void registerMBean(BoundedCacheMBean cache, String name) {
+        ObjectName mbeanName = BoundedCache.registerMBean(cache, CACHE_MBEAN_TYPE, name);
+        if (mbeanName != null) {
+            synchronized (mbeanNames) {
+                mbeanNames.add(mbeanName);
+            }
+        }
+    }
+
+    /**
+     * Sets the cache that stores the compiled classes of GSPs on disk, so that GSPs that haven't changed aren't
+     * compiled again when the application is restarted. The classes are loaded from the cache directory, so it
+     * must only be writable by the application
+     *
+     * @param compiledPageCache The GroovyPageClassCache instance
+     */
+    public void setCompiledPageCache(GroovyPageClassCache compiledPageCache) {
+        this.compiledPageCache = compiledPageCache;
+    }
+
     /**
      * Sets a custom ResourceLoader that will be used to load GSPs for URIs
      * 
@@ -153,10 +280,9 @@ public class GroovyPagesTemplateEngine  extends ResourceAwareTemplateEngine impl
             throw new GroovyPagesException("No Groovy page found for URI: " + getCurrentRequestUri(webRequest.getCurrentRequest()));
         }
         String name = establishPageName(resource, null);
-        if(pageCache.containsKey(name)) {
-            GroovyPageMetaInfo meta = pageCache.get(name);
-
-            if(isGroovyPageReloadable(resource, meta)) {
+        GroovyPageMetaInfo meta = pageCache.get(name);
+        if(meta != null) {
+            if(isGroovyPageReloadable(name)) {
                 try {
                     return createTemplateWithResource(resource);
                 } catch (IOException e) {
@@ -226,8 +352,8 @@ public class GroovyPagesTemplateEngine  extends ResourceAwareTemplateEngine impl
 	    			if(LOG.isDebugEnabled()) {
 	    				LOG.debug("Adding GSP class GroovyPageMetaInfo in cache for uri " + uri + " classname is " + gspClassName);
 	    			}    			
-					precompiledCache.put(uri, meta);
-					precompiledCache.put(originalUri, meta);
+					precompiledCache.put(uri, meta, getCacheWeight(meta));
+					precompiledCache.put(originalUri, meta, getCacheWeight(meta));
 					return new GroovyPageTemplate(meta);
 				}
     		}
@@ -242,34 +368,61 @@ public class GroovyPagesTemplateEngine  extends ResourceAwareTemplateEngine impl
 		return createTemplateForUri(new String[]{uri});
 	}
     
+    /**
+     * Creates a Template for the first of the given URIs a page exists for. The location of the page resolved for the
+     * URIs is cached, so the locations aren't probed again. The compiled page is looked up in the page caches, which
+     * bound it by its weight, and compiled again if it has been evicted. When reloading is enabled the locations are
+     * probed on each call instead, since a page may have been added for one of the URIs or deleted since.
+     *
+     * @param uri The URIs to try in order
+     * @return The Template instance or null if no page exists for any of the URIs
+     */
     public Template createTemplateForUri(String[] uri)  {
-    	Template t=null;
+        String key = StringUtils.join(uri, ',');
+        ResolvedTemplate resolved = isReloadEnabled() ? null : templateCache.get(key);
+        if(resolved != null) {
+            GroovyPageTemplate t = resolved.resource != null ? createTemplateForResolvedPage(resolved) :
+                    createTemplateFromPrecompiled(resolved.name);
+            if(t != null) {
+                return t;
+            }
+        }
+
     	if(!isReloadEnabled()) {
 	    	for(int i=0;i < uri.length;i++) {
-	    		t = createTemplateFromPrecompiled(uri[i]);
+	    		GroovyPageTemplate t = createTemplateFromPrecompiled(uri[i]);
 	    		if (t != null) {
+                    templateCache.put(key, new ResolvedTemplate(null, uri[i]));
 	    			return t;
 	    		}
 	    	}
     	}
-    	Resource resource=null;
     	for(int i=0;i < uri.length;i++) {
             Resource r = getResourceForUri(uri[i]);
             if(r.exists()) {
-            	resource = r;
-            	break;
+                Template t = createTemplate(r);
+                if(!isReloadEnabled()) {
+                    templateCache.put(key, new ResolvedTemplate(r, establishPageName(r, null)));
+                }
+                return t;
             }
     	}
-    	if(resource != null) {
-    		return createTemplate(resource);
-    	} else {
-    		return null;
-    	}
+        return null;
+    }
+
+    private GroovyPageTemplate createTemplateForResolvedPage(ResolvedTemplate resolved) {
+        GroovyPageMetaInfo meta = pageCache.get(resolved.name);
+        if(meta != null) {
+            return new GroovyPageTemplate(meta);
+        }
+        // the page has been evicted since it was resolved
+        return (GroovyPageTemplate) createTemplate(resolved.resource);
     }
 
     /**
      * Creates a Template using the given text for the Template and the given name. The name
-     * of the template is required
+     * of the template is required. Templates are cached by their text, so the same text is only compiled once,
+     * using the name given when it is first compiled
      *
      * @param txt The URI of the page to create the template for
      * @param pageName The name of the page being parsed
@@ -283,17 +436,7 @@ public class GroovyPagesTemplateEngine  extends ResourceAwareTemplateEngine impl
         if(StringUtils.isBlank(txt)) throw new IllegalArgumentException("Argument [txt] cannot be null or blank");
         if(StringUtils.isBlank(pageName)) throw new IllegalArgumentException("Argument [pageName] cannot be null or blank");
         
-        return createTemplate(new ByteArrayResource(txt.getBytes(), pageName), pageName);
-    }
-
-    private Template createTemplate(Resource resource, String pageName) throws IOException {
-        InputStream in = resource.getInputStream();
-        try {
-            return createTemplate(in, resource, pageName);
-        }
-        finally {
-           in.close();
-        }
+        return new GroovyPageTemplate(getPageMetaInfoForSource(txt.getBytes(), pageName));
     }
 
     /**
@@ -338,15 +481,39 @@ public class GroovyPagesTemplateEngine  extends ResourceAwareTemplateEngine impl
     }
 
     /**
-     * Create a Template for the given InputStream
+     * Create a Template for the given InputStream. Templates are cached by their source, so the same source
+     * is only compiled once
+     *
      * @param inputStream The InputStream to create the Template for
      * @return The Template instance
      */
     public Template createTemplate(InputStream inputStream) {
+        byte[] source;
+        try {
+            source = IOUtils.toByteArray(inputStream);
+        }
+        catch (IOException e) {
+            throw new GroovyPagesException("I/O reading Groovy page source: " + e.getMessage(), e);
+        }
+        return new GroovyPageTemplate(getPageMetaInfoForSource(source, null));
+    }
 
-        GroovyPageMetaInfo metaInfo = buildPageMetaInfo(inputStream, null, null);
-
-        return new GroovyPageTemplate(metaInfo);
+    /**
+     * Retrieves the GroovyPageMetaInfo for the given source from the page cache, where it is keyed by a hash of
+     * the source, compiling the source if it isn't cached
+     *
+     * @param source The source of the page
+     * @param pageName The name of the page, can be null in which case a name is generated
+     * @return The GroovyPageMetaInfo instance
+     */
+    private GroovyPageMetaInfo getPageMetaInfoForSource(byte[] source, String pageName) {
+        String cacheKey = SOURCE_CACHE_KEY_PREFIX + DigestUtils.shaHex(source);
+        GroovyPageMetaInfo metaInfo = pageCache.get(cacheKey);
+        if(metaInfo == null) {
+            if(pageName == null) pageName = generateTemplateName();
+            metaInfo = buildPageMetaInfo(new ByteArrayInputStream(source), new ByteArrayResource(source, pageName), pageName, cacheKey);
+        }
+        return metaInfo;
     }
 
     /**
@@ -380,14 +547,15 @@ public class GroovyPagesTemplateEngine  extends ResourceAwareTemplateEngine impl
     }
 
     /**
-     * Establishes whether a Groovy page is reloadable. A GSP is only reloadable in the development environment.
+     * Establishes whether a Groovy page is reloadable. A GSP is only reloadable in the development environment,
+     * once the change monitor has found that its resource has been modified.
      *
-     * @param resource The Resource to check.
-     * @param meta The current GroovyPageMetaInfo instance
+     * @param name The name of the page
      * @return True if it is reloadable
      */
-    private boolean isGroovyPageReloadable(Resource resource, GroovyPageMetaInfo meta) {
-        return isReloadEnabled() && (establishLastModified(resource) > meta.getLastModified());
+    private boolean isGroovyPageReloadable(String name) {
+        GroovyPageChangeMonitor monitor = changeMonitor;
+        return isReloadEnabled() && monitor != null && monitor.isChanged(name);
     }
 
     /**
@@ -408,6 +576,51 @@ public class GroovyPagesTemplateEngine  extends ResourceAwareTemplateEngine impl
         this.reloadEnabled = b;
     }
 
+    /**
+     * Sets the number of milliseconds between two checks for modified GSPs when reloading is enabled
+     *
+     * @param reloadInterval The interval in milliseconds
+     */
+    public void setReloadInterval(long reloadInterval) {
+        this.reloadInterval = reloadInterval;
+    }
+
+    /**
+     * @return The number of milliseconds between two checks for modified GSPs when reloading is enabled
+     */
+    public long getReloadInterval() {
+        return reloadInterval;
+    }
+
+    /**
+     * @return The monitor that watches the compiled GSPs for modifications, or null if no GSP has been compiled
+     * with reloading enabled
+     */
+    public GroovyPageChangeMonitor getChangeMonitor() {
+        return changeMonitor;
+    }
+
+    private synchronized GroovyPageChangeMonitor establishChangeMonitor() {
+        if(changeMonitor == null) {
+            changeMonitor = new GroovyPageChangeMonitor(reloadInterval);
+        }
+        return changeMonitor;
+    }
+
+    /**
+     * Stops the monitor that watches the compiled GSPs for modifications and unregisters the statistics MBeans
+     * of the page caches
+     */
+    public void destroy() {
+        GroovyPageChangeMonitor monitor = changeMonitor;
+        if(monitor != null) {
+            monitor.stop();
+        }
+        synchronized (mbeanNames) {
+            JmxSupport.unregisterMBeans(mbeanNames);
+        }
+    }
+
     /**
      * Attempts to retrieve a reference to a GSP as a Spring Resource instance for the given URI.
      *
@@ -442,48 +655,6 @@ public class GroovyPagesTemplateEngine  extends ResourceAwareTemplateEngine impl
     }
 
 
-    /**
-     * Attempts to establish what the last modified date of the given resource is. If the last modified date cannot
-     * be etablished -1 is returned
-     *
-     * @param resource The Resource to evaluate
-     * @return The last modified date or -1
-     */
-    private long establishLastModified(Resource resource) {
-        if(resource ==null)return -1;
-        long lastModified;
-        URLConnection urlc = null;
-
-        try {
-            urlc = resource.getURL().openConnection();
-
-            urlc.setDoInput(false);
-            urlc.setDoOutput(false);
-
-            lastModified = urlc.getLastModified();
-        } catch (FileNotFoundException fnfe) {
-            lastModified = -1;
-        } catch (IOException e) {
-            lastModified = -1;
-        }
-        finally {
-            if (urlc != null) 			{
-                try {
-                    InputStream is = urlc.getInputStream();
-                    if (is != null) {
-                        is.close();
-                    }
-                }
-                catch (IOException e) {
-                    // ignore
-                }
-            }
-        }
-        
-        return lastModified;
-    }
-
-
     /**
      * Constructs a GroovyPageMetaInfo instance which holds the script class, modified date and so on
      *
@@ -493,9 +664,13 @@ public class GroovyPagesTemplateEngine  extends ResourceAwareTemplateEngine impl
      * @return The GroovyPageMetaInfo instance
      */
     protected GroovyPageMetaInfo buildPageMetaInfo(InputStream inputStream, Resource res, String pageName) {
+        return buildPageMetaInfo(inputStream, res, pageName, null);
+    }
+
+    private GroovyPageMetaInfo buildPageMetaInfo(InputStream inputStream, Resource res, String pageName, String cacheKey) {
         String name = establishPageName(res, pageName);
 
-        long lastModified = establishLastModified(res);
+        long lastModified = GroovyPageChangeMonitor.getLastModified(res);
 
         GroovyPageParser parser;
         String path = getPathForResource(res);
@@ -509,18 +684,46 @@ public class GroovyPagesTemplateEngine  extends ResourceAwareTemplateEngine impl
         // Make a new metaInfo
         GroovyPageMetaInfo metaInfo = createPageMetaInfo(parser, lastModified, in);
         try {
-            metaInfo.setPageClass( compileGroovyPage(in, name, path, metaInfo) );
+            metaInfo.setPageClass( compileGroovyPage(in, name, path, metaInfo, getPageClassName(parser)) );
             metaInfo.setHtmlParts(parser.getHtmlPartsArray());
         }
         catch (GroovyPagesException e) {
             metaInfo.setCompilationException(e);
         }
 
-        pageCache.put(name, metaInfo);
+        int weight = getCacheWeight(metaInfo);
+        pageCache.put(cacheKey != null ? cacheKey : name, metaInfo, weight);
+        if(isReloadEnabled() && cacheKey == null && res != null) {
+            if(weight <= pageCache.getMaxWeight()) {
+                establishChangeMonitor().watch(name, res, lastModified);
+            }
+            else if(changeMonitor != null) {
+                // too heavy to be cached, so the page is compiled again on each request anyway
+                changeMonitor.unwatch(name);
+            }
+        }
 
         return metaInfo;
     }
 
+    /**
+     * The weight of a page in the page caches is the length of its static html parts
+     */
+    private int getCacheWeight(GroovyPageMetaInfo metaInfo) {
+        int weight = 1;
+        String[] htmlParts = metaInfo.getHtmlParts();
+        if(htmlParts != null) {
+            for (String htmlPart : htmlParts) {
+                weight += htmlPart.length();
+            }
+        }
+        return weight;
+    }
+
+    private String getPageClassName(GroovyPageParser parser) {
+        return parser.getPackageName() != null ? parser.getPackageName() + "." + parser.getClassName() : parser.getClassName();
+    }
+
     private String getPathForResource(Resource res) {
         String path = null;
         try {
@@ -539,14 +742,24 @@ public class GroovyPagesTemplateEngine  extends ResourceAwareTemplateEngine impl
      * @param name The name of the class to use
      * @param pageName The page name
      * @param metaInfo
+     * @param className The name of the class declared by the Groovy code
      * @return The compiled java.lang.Class, which is an instance of groovy.lang.Script
      */
-    private Class compileGroovyPage(InputStream in, String name, String pageName, GroovyPageMetaInfo metaInfo) {
+    private Class compileGroovyPage(InputStream in, String name, String pageName, GroovyPageMetaInfo metaInfo, String className) {
         // Compile the script into an object
         Class scriptClass;
         try {
-            scriptClass =
-                this.classLoader.parseClass(in, name);
+            if(compiledPageCache != null) {
+                scriptClass = compiledPageCache.loadPageClass(IOUtils.toByteArray(in), className, name, this.classLoader);
+            }
+            else {
+                // each page has a class loader of its own, so that its classes can be unloaded once the page
+                // has been evicted from the page cache
+                scriptClass =
+                    new GroovyClassLoader(this.classLoader).parseClass(in, name);
+            }
+        } catch (IOException e) {
+            throw new GroovyPagesException("I/O reading Groovy source of page [" + name + "]: " + e.getMessage(), e);
         } catch (CompilationFailedException e) {
         	LOG.error("Compilation error compiling GSP ["+name+"]:" + e.getMessage(), e);
 
@@ -575,6 +788,7 @@ public class GroovyPagesTemplateEngine  extends ResourceAwareTemplateEngine impl
         pageMeta.setJspTagLibraryResolver(jspTagLibraryResolver);
         pageMeta.setTagLibraryLookup(tagLibraryLookup);
         pageMeta.setContentType(parse.getContentType());
+        pageMeta.setLayout(parse.getLayout());
         pageMeta.setLineNumbers(parse.getLineNumberMatrix());
         pageMeta.setLastModified(lastModified);
         pageMeta.setJspTags(parse.getJspTags());
@@ -626,7 +840,7 @@ public class GroovyPagesTemplateEngine  extends ResourceAwareTemplateEngine impl
      * @return The template name
      */
     private String generateTemplateName() {
-        return "gsp_script_"+ ++scriptNameCount;
+        return "gsp_script_"+ scriptNameCount.incrementAndGet();
     }
 
     /**
@@ -692,11 +906,84 @@ public class GroovyPagesTemplateEngine  extends ResourceAwareTemplateEngine impl
     }
 
     /**
-     * Clears the page cache. Views will be re-compiled.
+     * Compiles the views of the application and its plugins, so that they don't have to be compiled when they
+     * are first requested. Views that fail to compile are logged and compiled again on request. Nothing is
+     * compiled if the views have been precompiled into the WAR.
+     *
+     * @param threads The number of threads to compile views with
+     * @return The number of views compiled
+     */
+    public int precompileViews(int threads) {
+        if(!isReloadEnabled() && precompiledGspMap != null && !precompiledGspMap.isEmpty()) {
+            LOG.debug("Views have been precompiled, skipping compilation of views at startup");
+            return 0;
+        }
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        for (final Resource view : findViews()) {
+            tasks.add(new Callable<Object>() {
+                public Object call() {
+                    try {
+                        Template t = createTemplate(view);
+                        GroovyPagesException e = ((GroovyPageTemplate) t).getMetaInfo().getCompilationException();
+                        if(e != null) {
+                            LOG.warn("Error compiling view [" + view.getDescription() + "] at startup: " + e.getMessage());
+                        }
+                    }
+                    catch (Exception e) {
+                        LOG.warn("Error compiling view [" + view.getDescription() + "] at startup: " + e.getMessage(), e);
+                    }
+                    return null;
+                }
+            });
+        }
+        if(tasks.isEmpty()) return 0;
+
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, tasks.size())));
+        try {
+            executor.invokeAll(tasks);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        if(LOG.isInfoEnabled()) {
+            LOG.info("Compiled " + tasks.size() + " views in " + (System.currentTimeMillis() - start) + "ms");
+        }
+        return tasks.size();
+    }
+
+    private List<Resource> findViews() {
+        if(resourceLoader == null) throw new IllegalStateException("TemplateEngine not initialised correctly, no [resourceLoader] specified!");
+        ResourcePatternResolver resolver = resourceLoader instanceof ResourcePatternResolver ?
+                (ResourcePatternResolver) resourceLoader : new PathMatchingResourcePatternResolver(resourceLoader);
+        List<Resource> views = new ArrayList<Resource>();
+        for (String pattern : VIEW_LOCATION_PATTERNS) {
+            try {
+                for (Resource r : resolver.getResources(pattern)) {
+                    views.add(r);
+                }
+            }
+            catch (IOException e) {
+                LOG.debug("Cannot resolve views for pattern [" + pattern + "]: " + e.getMessage());
+            }
+        }
+        return views;
+    }
+
+    /**
+     * Clears the page cache. Views will be re-compiled, and watched for modifications again once they have been.
      */
     public void clearPageCache() {
         pageCache.clear();
         precompiledCache.clear();
+        templateCache.clear();
+        GroovyPageChangeMonitor monitor = changeMonitor;
+        if(monitor != null) {
+            monitor.clear();
+        }
     }
 
 	public Map<String, String> getPrecompiledGspMap() {
@@ -707,4 +994,17 @@ public class GroovyPagesTemplateEngine  extends ResourceAwareTemplateEngine impl
 		this.precompiledGspMap = precompiledGspMap;
 	}
 
+    /**
+     * The location of the page resolved for the URIs of a template: the resource of the page and its key in the
+     * page cache, or the URI of a precompiled page and a null resource
+     */
+    private static class ResolvedTemplate {
+        final Resource resource;
+        final String name;
+
+        ResolvedTemplate(Resource resource, String name) {
+            this.resource = resource;
+            this.name = name;
+        }
+    }
 }
@@ -0,0 +1,102 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.pages;
+
+import groovy.lang.Closure;
+import groovy.lang.GroovyObject;
+import org.codehaus.groovy.grails.web.taglib.exceptions.GrailsTagException;
+
+import java.util.Map;
+
+/**
+ * <p>Invokes a single tag of a tag library. The tag closure and its number of parameters are resolved from the
+ * tag library once, on first use, so that invoking a tag from a GSP doesn't need a property lookup through the
+ * meta class of the tag library.</p>
+ *
+ * <p>The closure is cloned for each invocation unless the tag library declares the tag thread-safe using the
+ * <code>static threadSafeTags = ['tagName']</code> property.</p>
+ *
+ * @since 1.2
+ */
+public class TagInvoker {
+
+    private final GroovyObject tagLib;
+    private final String tagName;
+    private final boolean threadSafe;
+    private volatile Closure tag;
+    private volatile int parameterCount;
+
+    /**
+     * @param tagLib The tag library instance
+     * @param tagName The name of the tag
+     * @param threadSafe Whether the tag closure may be invoked concurrently without cloning it
+     */
+    public TagInvoker(GroovyObject tagLib, String tagName, boolean threadSafe) {
+        this.tagLib = tagLib;
+        this.tagName = tagName;
+        this.threadSafe = threadSafe;
+    }
+
+    /**
+     * @return The tag library instance
+     */
+    public GroovyObject getTagLib() {
+        return tagLib;
+    }
+
+    /**
+     * @return Whether the tag closure is invoked without cloning it
+     */
+    public boolean isThreadSafe() {
+        return threadSafe;
+    }
+
+    /**
+     * Invokes the tag. Tags that take only attributes are invoked before their body is called.
+     *
+     * @param attrs The attributes of the tag
+     * @param body The body of the tag, never null
+     */
+    public void invoke(Map attrs, Closure body) {
+        Closure closure = getTagClosure();
+        if (!threadSafe) {
+            closure = (Closure) closure.clone();
+        }
+
+        switch (parameterCount) {
+            case 1:
+                closure.call(new Object[]{attrs});
+                body.call();
+                break;
+            case 2:
+                closure.call(new Object[]{attrs, body});
+                break;
+        }
+    }
+
+    private Closure getTagClosure() {
+        Closure closure = this.tag;
+        if (closure == null) {
+            Object tagLibProp = tagLib.getProperty(tagName);
+            if (!(tagLibProp instanceof Closure)) {
+                throw new GrailsTagException("Tag [" + tagName + "] does not exist in tag library [" + tagLib.getClass().getName() + "]");
+            }
+            closure = (Closure) tagLibProp;
+            this.parameterCount = closure.getParameterTypes().length;
+            this.tag = closure;
+        }
+        return closure;
+    }
+}
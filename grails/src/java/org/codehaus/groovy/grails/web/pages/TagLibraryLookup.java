@@ -29,6 +29,7 @@ import org.springframework.context.ApplicationContextAware;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A class that is look-up tag library instances
@@ -43,6 +44,7 @@ public class TagLibraryLookup implements ApplicationContextAware, GrailsApplicat
     private GrailsApplication grailsApplication;
     private Map<String, GroovyObject> tagLibraries = new HashMap<String, GroovyObject>();
     private Map<String, NamespacedTagDispatcher> namespaceDispatchers = new HashMap<String, NamespacedTagDispatcher>();
+    private Map<String, Map<String, TagInvoker>> tagInvokers = new ConcurrentHashMap<String, Map<String, TagInvoker>>();
 
     public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
         this.applicationContext = applicationContext;
@@ -91,8 +93,15 @@ public class TagLibraryLookup implements ApplicationContextAware, GrailsApplicat
     public void registerTagLib(GrailsTagLibClass taglib) {
         String namespace = taglib.getNamespace();
         namespaceDispatchers.put(namespace, new NamespacedTagDispatcher(namespace, GroovyPage.class, grailsApplication, applicationContext));
+        Map<String, TagInvoker> invokers = tagInvokers.get(namespace);
+        if (invokers == null) {
+            invokers = new ConcurrentHashMap<String, TagInvoker>();
+            tagInvokers.put(namespace, invokers);
+        }
         for(String tagName : taglib.getTagNames()) {
-            tagLibraries.put(namespace+':'+tagName, (GroovyObject) applicationContext.getBean(taglib.getFullName()));
+            GroovyObject tagLibInstance = (GroovyObject) applicationContext.getBean(taglib.getFullName());
+            tagLibraries.put(namespace+':'+tagName, tagLibInstance);
+            invokers.put(tagName, new TagInvoker(tagLibInstance, tagName, taglib.isThreadSafeTag(tagName)));
         }
     }
 
@@ -107,6 +116,18 @@ public class TagLibraryLookup implements ApplicationContextAware, GrailsApplicat
         return tagLibraries.get(namespace+':'+tagName);
     }
 
+    /**
+     * Looks up the invoker of the tag with the given namespace and tag name
+     *
+     * @param namespace The tag library namespace
+     * @param tagName The tag name
+     * @return The TagInvoker or null if the tag wasn't found
+     */
+    public TagInvoker lookupTagInvoker(String namespace, String tagName) {
+        Map<String, TagInvoker> invokers = tagInvokers.get(namespace);
+        return invokers != null ? invokers.get(tagName) : null;
+    }
+
     /**
      * Looks up a namespace dispatcher for the given namespace
      * @param namespace The namespace
@@ -15,12 +15,19 @@
  */
 package org.codehaus.groovy.grails.web.servlet.mvc;
 
+import org.codehaus.groovy.grails.commons.ConfigurationHolder;
+import org.codehaus.groovy.grails.web.mapping.UriExclusionMatcher;
+import org.codehaus.groovy.grails.web.mapping.UrlMappingsHolder;
 import org.codehaus.groovy.grails.web.servlet.FlashScope;
+import org.codehaus.groovy.grails.web.util.ETagSupport;
+import org.codehaus.groovy.grails.web.util.StatusTrackingResponseWrapper;
 import org.codehaus.groovy.grails.web.util.WebUtils;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.context.support.WebApplicationContextUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -29,7 +36,11 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
 /**
- * A filter that binds a GrailsWebRequest to the currently executing thread
+ * A filter that binds a GrailsWebRequest to the currently executing thread.
+ *
+ * <p>When <code>grails.urlmapping.excluded.skipWebRequest</code> is true, the URIs that are excluded from URL mapping,
+ * such as static resources, are passed down the filter chain without a GrailsWebRequest. The URL mappings are
+ * resolved when the filter is initialized, so changes to their exclude patterns apply after a restart.</p>
  *
  * @author Graeme Rocher
  * @since 0.4
@@ -37,6 +48,22 @@ import java.io.IOException;
  */
 public class GrailsWebRequestFilter extends OncePerRequestFilter {
 
+    public static final String CONFIG_OPTION_SKIP_EXCLUDED = "grails.urlmapping.excluded.skipWebRequest";
+    private static final String GSP_SUFFIX = ".gsp";
+    private UrlPathHelper urlHelper = new UrlPathHelper();
+    private UrlMappingsHolder urlMappingsHolder;
+
+    protected void initFilterBean() throws ServletException {
+        super.initFilterBean();
+        urlHelper.setUrlDecode(false);
+        if (Boolean.TRUE.equals(ConfigurationHolder.getFlatConfig().get(CONFIG_OPTION_SKIP_EXCLUDED))) {
+            WebApplicationContext ctx = WebApplicationContextUtils.getWebApplicationContext(getServletContext());
+            if (ctx != null && ctx.containsBean(UrlMappingsHolder.BEAN_ID)) {
+                urlMappingsHolder = (UrlMappingsHolder) ctx.getBean(UrlMappingsHolder.BEAN_ID);
+            }
+        }
+    }
+
 	/* (non-Javadoc)
 	 * @see org.springframework.web.filter.OncePerRequestFilter#doFilterInternal(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse, javax.servlet.FilterChain)
 	 */
@@ -44,6 +71,17 @@ public class GrailsWebRequestFilter extends OncePerRequestFilter {
 			HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
 			throws ServletException, IOException {
 
+        if (isExcludedFromMapping(request)) {
+            // static resources don't need a request context
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (ETagSupport.isETagRequest(request)) {
+            // only the views of 2xx responses get an ETag
+            response = new StatusTrackingResponseWrapper(request, response);
+        }
+
 		LocaleContextHolder.setLocale(request.getLocale());
 		GrailsWebRequest webRequest = new GrailsWebRequest(request, response, getServletContext());
         configureParameterCreationListeners(webRequest);
@@ -74,6 +112,14 @@ public class GrailsWebRequestFilter extends OncePerRequestFilter {
 		}
 	}
 
+    private boolean isExcludedFromMapping(HttpServletRequest request) {
+        if (urlMappingsHolder == null) return false;
+
+        String uri = urlHelper.getPathWithinApplication(request);
+        // GSPs are rendered by the GroovyPagesServlet, which requires the GrailsWebRequest
+        return !uri.endsWith(GSP_SUFFIX) && UriExclusionMatcher.isExcluded(urlMappingsHolder, uri);
+    }
+
     private void configureParameterCreationListeners(GrailsWebRequest webRequest) {
         ApplicationContext appCtx = WebApplicationContextUtils.getRequiredWebApplicationContext(getServletContext());
         String[] paramListenerBeans = appCtx.getBeanNamesForType(ParameterCreationListener.class);
@@ -0,0 +1,107 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.servlet.mvc;
+
+import groovy.lang.Closure;
+import org.codehaus.groovy.grails.commons.GrailsControllerClass;
+import org.codehaus.groovy.grails.exceptions.GrailsConfigurationException;
+import org.springframework.beans.factory.BeanFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Checks that a controller can be a singleton. A singleton controller is shared by concurrent requests, so it
+ * takes the request state from the {@link GrailsWebRequest} through its dynamic properties and can't hold any
+ * state of its own.</p>
+ *
+ * <p>The instance fields of the controller and its super classes must be final, hold an action or an interceptor
+ * closure, or hold a singleton bean that is injected by name. Beans of other scopes, such as session scoped
+ * services, are rejected too. Static, synthetic and Groovy internal fields are ignored.</p>
+ *
+ * @see GrailsControllerClass#SCOPE_SINGLETON
+ * @since 1.2
+ */
+public class SingletonControllerValidator {
+
+    private static final String META_CLASS_FIELD = "metaClass";
+    private static final String GROOVY_INTERNAL_PREFIX = "__";
+
+    /**
+     * Validates that the given controller can be a singleton
+     *
+     * @param controllerClass The controller class
+     * @param beanFactory The bean factory the controller is injected from
+     * @throws GrailsConfigurationException If the controller declares mutable instance fields
+     */
+    public static void validate(GrailsControllerClass controllerClass, BeanFactory beanFactory) {
+        List fields = findMutableFields(controllerClass, beanFactory);
+        if (!fields.isEmpty()) {
+            throw new GrailsConfigurationException("Controller [" + controllerClass.getFullName() +
+                    "] is a singleton shared by all requests but declares the mutable instance fields " + fields +
+                    ". Make the fields final, take the request state from the request, params, flash or session, " +
+                    "or declare the controller with static scope = \"" + GrailsControllerClass.SCOPE_PROTOTYPE + "\"");
+        }
+    }
+
+    /**
+     * Finds the instance fields that would hold state in a singleton controller
+     *
+     * @param controllerClass The controller class
+     * @param beanFactory The bean factory the controller is injected from, or null if no field is injected
+     * @return The names of the mutable instance fields, empty if there are none
+     */
+    public static List findMutableFields(GrailsControllerClass controllerClass, BeanFactory beanFactory) {
+        List mutableFields = new ArrayList();
+        Object reference = controllerClass.getReference().getWrappedInstance();
+        for (Class c = controllerClass.getClazz(); c != null && c != Object.class; c = c.getSuperclass()) {
+            Field[] fields = c.getDeclaredFields();
+            for (int i = 0; i < fields.length; i++) {
+                Field field = fields[i];
+                if (!isMutableState(field, reference)) continue;
+                if (isSingletonBean(field.getName(), beanFactory)) continue;
+                mutableFields.add(field.getName());
+            }
+        }
+        return mutableFields;
+    }
+
+    // a bean of a narrower scope, such as a session scoped service, would be shared by all requests
+    private static boolean isSingletonBean(String name, BeanFactory beanFactory) {
+        return beanFactory != null && beanFactory.containsBean(name) && beanFactory.isSingleton(name);
+    }
+
+    private static boolean isMutableState(Field field, Object reference) {
+        int modifiers = field.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || field.isSynthetic()) return false;
+
+        String name = field.getName();
+        if (META_CLASS_FIELD.equals(name) || name.startsWith(GROOVY_INTERNAL_PREFIX) || name.indexOf('$') > -1) {
+            return false;
+        }
+        if (Closure.class.isAssignableFrom(field.getType())) return false;
+
+        // actions and interceptors are usually declared with def
+        try {
+            field.setAccessible(true);
+            return !(field.get(reference) instanceof Closure);
+        }
+        catch (Exception e) {
+            return true;
+        }
+    }
+}
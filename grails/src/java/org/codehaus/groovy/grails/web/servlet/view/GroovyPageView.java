@@ -14,24 +14,36 @@
  */
 package org.codehaus.groovy.grails.web.servlet.view;
 
+import com.opensymphony.module.sitemesh.Decorator;
+import com.opensymphony.module.sitemesh.RequestConstants;
 import grails.util.GrailsUtil;
+import groovy.lang.GroovyObject;
 import groovy.lang.Writable;
 import groovy.text.Template;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.codehaus.groovy.grails.commons.GrailsClassUtils;
+import org.codehaus.groovy.grails.web.metaclass.ControllerDynamicMethods;
 import org.codehaus.groovy.grails.web.pages.GSPResponseWriter;
 import org.codehaus.groovy.grails.web.pages.GroovyPage;
+import org.codehaus.groovy.grails.web.pages.GroovyPageTemplate;
 import org.codehaus.groovy.grails.web.pages.GroovyPagesTemplateEngine;
 import org.codehaus.groovy.grails.web.pages.exceptions.GroovyPagesException;
 import org.codehaus.groovy.grails.web.servlet.GrailsApplicationAttributes;
 import org.codehaus.groovy.grails.web.servlet.mvc.GrailsWebRequest;
+import org.codehaus.groovy.grails.web.sitemesh.FactoryHolder;
+import org.codehaus.groovy.grails.web.sitemesh.GrailsPageResponseWrapper;
+import org.codehaus.groovy.grails.web.sitemesh.StreamingLayoutPage;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.servlet.view.AbstractUrlBasedView;
 
+import javax.servlet.ServletResponse;
+import javax.servlet.ServletResponseWrapper;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.Collection;
 import java.util.Map;
 
 /**
@@ -64,6 +76,14 @@ public class GroovyPageView extends AbstractUrlBasedView  {
     private static final int BUFFER_SIZE = 8024;
     private static final String ERRORS_VIEW = GrailsApplicationAttributes.PATH_TO_VIEWS+"/error"+ GroovyPage.EXTENSION;
     public static final String EXCEPTION_MODEL_KEY = "exception";
+    public static final String STREAMING_LAYOUT_PROPERTY = "streamingLayout";
+    private static final String LAYOUT_META_PROPERTY = "meta.layout";
+
+    private static final Writable EMPTY_BODY = new Writable() {
+        public Writer writeTo(Writer out) {
+            return out;
+        }
+    };
 
 
 
@@ -100,11 +120,17 @@ public class GroovyPageView extends AbstractUrlBasedView  {
                                             HttpServletResponse response, HttpServletRequest request) throws IOException {
         Writer out = null;
         try {
-            out = createResponseWriter(response);
             Template t = templateEngine.createTemplate(getUrl());
+            Decorator layout = findStreamingLayout(t, request, response);
+            out = createResponseWriter(response);
             Writable w = t.make(model);
 
-            w.writeTo(out);
+            if(layout != null) {
+                renderWithStreamingLayout(templateEngine, layout, w, out, request);
+            }
+            else {
+                w.writeTo(out);
+            }
         }
         catch(Exception e) {
             // create fresh response writer
@@ -116,6 +142,86 @@ public class GroovyPageView extends AbstractUrlBasedView  {
         }
     }
 
+    /**
+     * Renders the layout of the view to the response, with the view as the body of the layout. The head and the
+     * top of the body of the layout are flushed to the client before the view is rendered into the layout
+     *
+     * @param templateEngine The TemplateEngine to use
+     * @param layout The layout
+     * @param view The view
+     * @param out The response Writer
+     * @param request The HttpServletRequest
+     * @throws IOException Thrown when an error occurs writing the response
+     */
+    protected void renderWithStreamingLayout(GroovyPagesTemplateEngine templateEngine, Decorator layout, Writable view,
+                                             Writer out, HttpServletRequest request) throws IOException {
+        Object oldPage = request.getAttribute(RequestConstants.PAGE);
+        request.setAttribute(RequestConstants.PAGE, new StreamingLayoutPage(view));
+        try {
+            templateEngine.createTemplate(layout.getPage()).make().writeTo(out);
+        }
+        finally {
+            request.setAttribute(RequestConstants.PAGE, oldPage);
+        }
+    }
+
+    /**
+     * Looks up the layout of the view when the controller renders its views with a streaming layout, by
+     * declaring <code>static streamingLayout = true</code> or a list of action names. When a layout is found,
+     * SiteMesh stops buffering the response, as the layout is applied by the view itself.
+     *
+     * The view isn't rendered before its layout, so a layout it declares with
+     * <code>&lt;meta name="layout" content="..."&gt;</code> is read from the compiled page. Views that choose
+     * their layout with an expression are left to SiteMesh.
+     *
+     * @param template The template of the view
+     * @param request The HttpServletRequest
+     * @param response The HttpServletResponse
+     * @return The layout or null if the view is decorated by SiteMesh, if at all
+     */
+    protected Decorator findStreamingLayout(Template template, HttpServletRequest request, HttpServletResponse response) {
+        GroovyObject controller = (GroovyObject) request.getAttribute(GrailsApplicationAttributes.CONTROLLER);
+        if(controller == null || !isStreamingLayoutAction(controller)) return null;
+
+        GrailsPageResponseWrapper pageResponse = findPageResponseWrapper(response);
+        if(pageResponse == null || pageResponse.isCommitted()) return null;
+
+        StreamingLayoutPage page = new StreamingLayoutPage(EMPTY_BODY);
+        String declaredLayout = template instanceof GroovyPageTemplate ? ((GroovyPageTemplate) template).getDeclaredLayout() : null;
+        if(declaredLayout != null) {
+            if(declaredLayout.length() == 0) return null;
+            page.addProperty(LAYOUT_META_PROPERTY, declaredLayout);
+        }
+
+        Decorator layout = FactoryHolder.getFactory().getDecoratorMapper().getDecorator(request, page);
+        if(layout == null || layout.getPage() == null) return null;
+
+        pageResponse.disableDecoration();
+        return layout;
+    }
+
+    private boolean isStreamingLayoutAction(GroovyObject controller) {
+        Object streamingLayout = GrailsClassUtils.getStaticPropertyValue(controller.getClass(), STREAMING_LAYOUT_PROPERTY);
+        if(streamingLayout instanceof Boolean) {
+            return (Boolean) streamingLayout;
+        }
+        else if(streamingLayout instanceof Collection) {
+            Object actionName = controller.getProperty(ControllerDynamicMethods.ACTION_NAME_PROPERTY);
+            return ((Collection) streamingLayout).contains(actionName);
+        }
+        return false;
+    }
+
+    private GrailsPageResponseWrapper findPageResponseWrapper(ServletResponse response) {
+        while(response instanceof ServletResponseWrapper) {
+            if(response instanceof GrailsPageResponseWrapper) {
+                return (GrailsPageResponseWrapper) response;
+            }
+            response = ((ServletResponseWrapper) response).getResponse();
+        }
+        return null;
+    }
+
     /**
      * Performs exception handling by attempting to render the Errors view
      *
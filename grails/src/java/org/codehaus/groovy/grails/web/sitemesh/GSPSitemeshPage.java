@@ -0,0 +1,142 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.sitemesh;
+
+import com.opensymphony.module.sitemesh.parser.AbstractHTMLPage;
+import com.opensymphony.sitemesh.Content;
+import org.codehaus.groovy.grails.web.util.StreamCharBuffer;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * <p>The SiteMesh page of a GSP whose head, body, title and meta properties are captured as the GSP is rendered,
+ * by the tags that {@link SitemeshPreprocessor} wraps the elements of the page in. The layout writes the
+ * captured head and body from their buffers, so the rendered page isn't parsed by SiteMesh.</p>
+ *
+ * <p>The properties are those that SiteMesh extracts: <code>title</code>, <code>meta.[name]</code>,
+ * <code>meta.http-equiv.[http-equiv]</code>, <code>body.[attribute]</code> and <code>page.[tag]</code> for
+ * <code>&lt;content tag="..."&gt;</code> blocks. As with a parsed page, the head doesn't include the title.</p>
+ *
+ * @see GrailsPageFilter#GSP_SITEMESH_PAGE
+ * @since 1.2
+ */
+public class GSPSitemeshPage extends AbstractHTMLPage implements Content {
+    private static final String CONTENT_BLOCK_PREFIX = "page.";
+
+    private StreamCharBuffer headBuffer;
+    private StreamCharBuffer bodyBuffer;
+    private String titleTag;
+    private boolean capturingHead;
+
+    public GSPSitemeshPage() {
+        pageData = new char[0];
+    }
+
+    /**
+     * @return True if the body of the page has been captured, otherwise the page is parsed by SiteMesh
+     */
+    public boolean isUsed() {
+        return bodyBuffer != null;
+    }
+
+    public void setHeadBuffer(StreamCharBuffer headBuffer) {
+        this.headBuffer = headBuffer;
+    }
+
+    public void setBodyBuffer(StreamCharBuffer bodyBuffer) {
+        this.bodyBuffer = bodyBuffer;
+    }
+
+    /**
+     * @return The title element captured in the head, which the captured head doesn't include
+     */
+    public String getTitleTag() {
+        return titleTag;
+    }
+
+    public void setTitleTag(String titleTag) {
+        this.titleTag = titleTag;
+    }
+
+    /**
+     * @return True while the head of the page is rendered
+     */
+    public boolean isCapturingHead() {
+        return capturingHead;
+    }
+
+    public void setCapturingHead(boolean capturingHead) {
+        this.capturingHead = capturingHead;
+    }
+
+    /**
+     * @param pageData The rendered page, which is written when the page isn't decorated
+     */
+    public void setPageData(char[] pageData) {
+        this.pageData = pageData;
+    }
+
+    public void writeHead(Writer out) throws IOException {
+        if (headBuffer != null) {
+            headBuffer.copyTo(out);
+        }
+    }
+
+    public String getHead() {
+        return headBuffer != null ? headBuffer.toString() : "";
+    }
+
+    public void writeBody(Writer out) throws IOException {
+        if (bodyBuffer != null) {
+            bodyBuffer.copyTo(out);
+        }
+    }
+
+    public void writeOriginal(Writer out) throws IOException {
+        writePage(out);
+    }
+
+    public int originalLength() {
+        return pageData.length;
+    }
+
+    /**
+     * Content blocks aren't written to the output, so when the body of the page isn't captured and SiteMesh
+     * parses the page instead, their properties are added to the parsed page
+     *
+     * @param content The page parsed by SiteMesh
+     */
+    public void copyContentBlocksTo(Content content) {
+        String[] keys = getPropertyKeys();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].startsWith(CONTENT_BLOCK_PREFIX)) {
+                content.addProperty(keys[i], getProperty(keys[i]));
+            }
+        }
+    }
+
+    /**
+     * Returns the chunks of the captured buffers to the chunk pool once the page has been written
+     */
+    public void recycle() {
+        if (headBuffer != null) {
+            headBuffer.recycle();
+        }
+        if (bodyBuffer != null) {
+            bodyBuffer.recycle();
+        }
+    }
+}
@@ -48,9 +48,26 @@ public class GrailsContentBufferingResponse extends HttpServletResponseWrapper {
     }
 
     public Content getContent() throws IOException {
+        return getContent(null);
+    }
+
+    /**
+     * @param gspSitemeshPage The page that the regions of a preprocessed GSP were captured into, can be null
+     * @return The captured page if the body of the view was captured, otherwise the page parsed by SiteMesh
+     * @throws IOException When the content can't be parsed
+     */
+    public Content getContent(GSPSitemeshPage gspSitemeshPage) throws IOException {
         char[] data = pageResponseWrapper.getContents();
         if (data != null) {
-            return contentProcessor.build(data, webAppContext);
+            if (gspSitemeshPage != null && gspSitemeshPage.isUsed()) {
+                gspSitemeshPage.setPageData(data);
+                return gspSitemeshPage;
+            }
+            Content content = contentProcessor.build(data, webAppContext);
+            if (gspSitemeshPage != null) {
+                gspSitemeshPage.copyContentBlocksTo(content);
+            }
+            return content;
         } else {
             return null;
         }
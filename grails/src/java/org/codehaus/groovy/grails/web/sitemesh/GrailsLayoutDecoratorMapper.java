@@ -26,15 +26,24 @@ import groovy.lang.GroovyObject;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.codehaus.groovy.grails.commons.ConfigurationHolder;
 import org.codehaus.groovy.grails.commons.GrailsApplication;
 import org.codehaus.groovy.grails.commons.GrailsClassUtils;
 import org.codehaus.groovy.grails.commons.GrailsResourceUtils;
 import org.codehaus.groovy.grails.plugins.PluginMetaManager;
 import org.codehaus.groovy.grails.web.metaclass.ControllerDynamicMethods;
+import org.codehaus.groovy.grails.web.pages.GroovyPageChangeMonitor;
 import org.codehaus.groovy.grails.web.pages.GroovyPageResourceLoader;
+import org.codehaus.groovy.grails.web.pages.GroovyPagesTemplateEngine;
 import org.codehaus.groovy.grails.web.servlet.GrailsApplicationAttributes;
 import org.codehaus.groovy.grails.web.servlet.mvc.GrailsWebRequest;
+import org.codehaus.groovy.grails.web.util.BoundedCache;
+import org.codehaus.groovy.grails.web.util.BoundedCacheMBean;
+import org.codehaus.groovy.grails.web.util.JmxSupport;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
@@ -42,31 +51,43 @@ import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.context.support.WebApplicationContextUtils;
 
+import javax.management.ObjectName;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 
 /**
- * Implements the SiteMesh decorator mapper interface and allows grails views to map to grails layouts
+ * Implements the SiteMesh decorator mapper interface and allows grails views to map to grails layouts.
+ *
+ * <p>Resolved decorators, and the lookups that found no layout, are cached by the explicit layout name or the
+ * action, and the controller class, which also determines the plugin the layout is looked up in. When GSP
+ * reloading is enabled the cached lookups expire after the reload interval of the GSP template engine so that
+ * new and removed layouts are seen. The size of the cache is set with <code>grails.gsp.cache.layouts.maxSize</code>
+ * and its statistics are exported over JMX unless <code>grails.gsp.cache.jmx</code> is false.</p>
  *
  * @author Graeme Rocher
  * @since Oct 10, 2005
  */
 public class GrailsLayoutDecoratorMapper extends AbstractDecoratorMapper implements DecoratorMapper {
 
+    public static final String CONFIG_OPTION_CACHE_MAX_SIZE = "grails.gsp.cache.layouts.maxSize";
+    public static final String CONFIG_OPTION_CACHE_JMX = "grails.gsp.cache.jmx";
+    public static final int DEFAULT_CACHE_MAX_SIZE = 1000;
+
 	private static final String DEFAULT_DECORATOR_PATH = GrailsApplicationAttributes.PATH_TO_VIEWS+"/layouts";
 	private static final String DEFAULT_VIEW_TYPE = ".gsp";
 
 	private static final Log LOG = LogFactory.getLog( GrailsLayoutDecoratorMapper.class );
 
 
-	private Map decoratorMap = new HashMap();
+	private BoundedCache<DecoratorCacheKey, CachedDecorator> decoratorCache;
 	private ServletContext servletContext;
     private WebApplicationContext applicationContext;
     private PluginMetaManager pluginMetaManager;
+    private boolean reloadEnabled;
+    private long reloadInterval = GroovyPageChangeMonitor.DEFAULT_INTERVAL;
 
     public void init(Config config, Properties properties, DecoratorMapper parent) throws InstantiationException {
 		super.init(config,properties,parent);
@@ -74,6 +95,51 @@ public class GrailsLayoutDecoratorMapper extends AbstractDecoratorMapper impleme
         this.applicationContext = WebApplicationContextUtils.getRequiredWebApplicationContext(servletContext);
         this.pluginMetaManager = (PluginMetaManager)applicationContext.getBean(PluginMetaManager.BEAN_ID);
 
+        if(applicationContext.containsBean(GroovyPagesTemplateEngine.BEAN_ID)) {
+            GroovyPagesTemplateEngine templateEngine = (GroovyPagesTemplateEngine)applicationContext.getBean(GroovyPagesTemplateEngine.BEAN_ID);
+            this.reloadEnabled = templateEngine.isReloadEnabled();
+            this.reloadInterval = templateEngine.getReloadInterval();
+        }
+        else {
+            this.reloadEnabled = Environment.getCurrent() == Environment.DEVELOPMENT;
+        }
+
+        Map flatConfig = ConfigurationHolder.getFlatConfig();
+        Object maxSize = flatConfig.get(CONFIG_OPTION_CACHE_MAX_SIZE);
+        this.decoratorCache = new BoundedCache<DecoratorCacheKey, CachedDecorator>(
+                maxSize instanceof Number ? ((Number)maxSize).intValue() : DEFAULT_CACHE_MAX_SIZE);
+        if(!Boolean.FALSE.equals(flatConfig.get(CONFIG_OPTION_CACHE_JMX))) {
+            registerMBean();
+        }
+    }
+
+    /**
+     * Registers the statistics MBean of the cache. SiteMesh doesn't destroy its decorator mappers, so the MBean
+     * is unregistered when the application context is closed.
+     */
+    private void registerMBean() {
+        ObjectName mbeanName = BoundedCache.registerMBean(decoratorCache, GroovyPagesTemplateEngine.CACHE_MBEAN_TYPE, "layouts");
+        if(mbeanName == null) return;
+        if(applicationContext instanceof ConfigurableApplicationContext) {
+            ((ConfigurableApplicationContext)applicationContext).addApplicationListener(new MBeanUnregisteringListener(mbeanName));
+        }
+        else {
+            LOG.warn("Unable to unregister MBean [" + mbeanName + "] on shutdown, the application context isn't configurable");
+        }
+    }
+
+    /**
+     * @return The cache of resolved decorators, which holds the hit ratio of the layout lookups
+     */
+    public BoundedCacheMBean getDecoratorCache() {
+        return decoratorCache;
+    }
+
+    /**
+     * Clears the resolved decorators, layouts are looked up again on the next request
+     */
+    public void clearCache() {
+        decoratorCache.clear();
     }
 
 	public Decorator getDecorator(HttpServletRequest request, Page page) {
@@ -92,39 +158,22 @@ public class GrailsLayoutDecoratorMapper extends AbstractDecoratorMapper impleme
                 if(LOG.isDebugEnabled())
                     LOG.debug("Found controller in request, location layout for controller ["+controllerName+"] and action ["+actionUri+"]");
 
-
-                Decorator d = null;
-
-                Object layoutProperty = GrailsClassUtils.getStaticPropertyValue(controller.getClass(), "layout");
-                if(layoutProperty instanceof String) {
-                    LOG.debug("layout property found in controller, looking for template named " + layoutProperty);
-                    d = getNamedDecorator(request, (String) layoutProperty);
+                DecoratorCacheKey key = new DecoratorCacheKey(null, controller.getClass().getName(), actionUri);
+                CachedDecorator cached = getCachedDecorator(key);
+                Decorator d;
+                if(cached != null) {
+                    d = cached.decorator;
                 }
-
-                if(d == null) {
-                    d = getNamedDecorator(request, actionUri.substring(1));
+                else {
+                    d = resolveControllerDecorator(request, controller, controllerName, actionUri);
+                    decoratorCache.put(key, new CachedDecorator(d));
                 }
 
-			    if(d!=null) {
-			    	return d;
-			    } else if(!StringUtils.isBlank(controllerName)) {
-					if(LOG.isDebugEnabled())
-						LOG.debug("Action layout not found, trying controller");
-
-					d = getNamedDecorator(request, controllerName);
-					if(d != null) {
-						return d;
-					}
-					else {
-						return parent != null ? super.getDecorator(request, page) : null;
-					}
-
-			    }
-
-			}
-			else {
-				return parent != null ? super.getDecorator(request, page) : null;
+                if(d != null) {
+                    return d;
+                }
 			}
+			return parent != null ? super.getDecorator(request, page) : null;
 		}
 
 		if(LOG.isDebugEnabled()) {
@@ -139,46 +188,87 @@ public class GrailsLayoutDecoratorMapper extends AbstractDecoratorMapper impleme
 		}
 	}
 
+    private Decorator resolveControllerDecorator(HttpServletRequest request, GroovyObject controller, String controllerName, String actionUri) {
+        Decorator d = null;
+
+        Object layoutProperty = GrailsClassUtils.getStaticPropertyValue(controller.getClass(), "layout");
+        if(layoutProperty instanceof String) {
+            LOG.debug("layout property found in controller, looking for template named " + layoutProperty);
+            d = resolveNamedDecorator(request, (String) layoutProperty);
+        }
+
+        if(d == null) {
+            d = resolveNamedDecorator(request, actionUri.substring(1));
+        }
+
+        if(d == null && !StringUtils.isBlank(controllerName)) {
+            if(LOG.isDebugEnabled())
+                LOG.debug("Action layout not found, trying controller");
+
+            d = resolveNamedDecorator(request, controllerName);
+        }
+        return d;
+    }
+
 	public Decorator getNamedDecorator(HttpServletRequest request, String name) {
 		if(StringUtils.isBlank(name))return null;
 
-		if(Environment.getCurrent()!= Environment.DEVELOPMENT && decoratorMap.containsKey(name)) {
-			return (Decorator)decoratorMap.get(name);
-		}
-		else {
-			String decoratorName = name;
-			if(!name.matches("(.+)(\\.)(\\w{2}|\\w{3})")) {
-				name += DEFAULT_VIEW_TYPE;
-			}
-			String decoratorPage = DEFAULT_DECORATOR_PATH + '/' + name;
-
-            ResourceLoader resourceLoader = establishResourceLoader();
-
-            // lookup something like /WEB-INF/grails-app/views/layouts/[NAME].gsp
-            Resource res = resourceLoader.getResource(decoratorPage);
-            Decorator d = null;
-            if(!res.exists()) {
-                // lookup something like /WEB-INF/plugins/myplugin/grails-app/views/layouts/[NAME].gsp
-                String pathToView = lookupPathToControllerView(request, name);
-                res = pathToView != null ? resourceLoader.getResource(pathToView) : null;
-                if(res != null && res.exists()) {
-                    decoratorPage = pathToView;
+        GroovyObject controller = (GroovyObject)request.getAttribute(GrailsApplicationAttributes.CONTROLLER);
+        DecoratorCacheKey key = new DecoratorCacheKey(name, controller != null ? controller.getClass().getName() : null, null);
+        CachedDecorator cached = getCachedDecorator(key);
+        if(cached != null) {
+            return cached.decorator;
+        }
+
+        Decorator d = resolveNamedDecorator(request, name);
+        decoratorCache.put(key, new CachedDecorator(d));
+        return d;
+    }
+
+    private CachedDecorator getCachedDecorator(DecoratorCacheKey key) {
+        CachedDecorator cached = decoratorCache.get(key);
+        if(cached != null && reloadEnabled && System.currentTimeMillis() - cached.resolvedAt >= reloadInterval) {
+            decoratorCache.remove(key);
+            return null;
+        }
+        return cached;
+    }
+
+    private Decorator resolveNamedDecorator(HttpServletRequest request, String name) {
+        if(StringUtils.isBlank(name))return null;
+
+        String decoratorName = name;
+        if(!name.matches("(.+)(\\.)(\\w{2}|\\w{3})")) {
+            name += DEFAULT_VIEW_TYPE;
+        }
+        String decoratorPage = DEFAULT_DECORATOR_PATH + '/' + name;
+
+        ResourceLoader resourceLoader = establishResourceLoader();
+
+        // lookup something like /WEB-INF/grails-app/views/layouts/[NAME].gsp
+        Resource res = resourceLoader.getResource(decoratorPage);
+        Decorator d = null;
+        if(!res.exists()) {
+            // lookup something like /WEB-INF/plugins/myplugin/grails-app/views/layouts/[NAME].gsp
+            String pathToView = lookupPathToControllerView(request, name);
+            res = pathToView != null ? resourceLoader.getResource(pathToView) : null;
+            if(res != null && res.exists()) {
+                decoratorPage = pathToView;
+                d = useExistingDecorator(request, decoratorName, decoratorPage);
+            }
+            else {
+                // scan /WEB-INF/plugins/*/grails-app/views/layouts/[NAME].gsp for first matching
+                final String pluginViewLocation = searchPluginViews(name, resourceLoader);
+                if(pluginViewLocation!= null) {
+                    decoratorPage = pluginViewLocation;
                     d = useExistingDecorator(request, decoratorName, decoratorPage);
                 }
-                else {
-                    // scan /WEB-INF/plugins/*/grails-app/views/layouts/[NAME].gsp for first matching
-                    final String pluginViewLocation = searchPluginViews(name, resourceLoader);
-                    if(pluginViewLocation!= null) {
-                        decoratorPage = pluginViewLocation;
-                        d = useExistingDecorator(request, decoratorName, decoratorPage);
-                    }
-                }
-            }else {
-                d = useExistingDecorator(request, decoratorName, decoratorPage);
-
             }
-            return d;
-		}
+        }else {
+            d = useExistingDecorator(request, decoratorName, decoratorPage);
+
+        }
+        return d;
 	}
 
     private String searchPluginViews(String name, ResourceLoader resourceLoader) {
@@ -220,7 +310,6 @@ public class GrailsLayoutDecoratorMapper extends AbstractDecoratorMapper impleme
                     LOG.debug("Using decorator " + decoratorPage);
 
         d =  new DefaultDecorator(decoratorName,decoratorPage,request.getRequestURI(), Collections.EMPTY_MAP);
-        decoratorMap.put(decoratorName,d);
         return d;
     }
 
@@ -243,4 +332,65 @@ public class GrailsLayoutDecoratorMapper extends AbstractDecoratorMapper impleme
         return resourceLoader;
     }
 
+    /**
+     * The lookup a decorator is cached for: an explicit layout name or the URI of an action, and the controller,
+     * whose plugin the layout may come from
+     */
+    private static class DecoratorCacheKey {
+        private final String layoutName;
+        private final String controllerClassName;
+        private final String actionUri;
+
+        DecoratorCacheKey(String layoutName, String controllerClassName, String actionUri) {
+            this.layoutName = layoutName;
+            this.controllerClassName = controllerClassName;
+            this.actionUri = actionUri;
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof DecoratorCacheKey)) return false;
+            DecoratorCacheKey other = (DecoratorCacheKey) o;
+            return equal(layoutName, other.layoutName) && equal(controllerClassName, other.controllerClassName)
+                    && equal(actionUri, other.actionUri);
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
+        public int hashCode() {
+            int result = layoutName != null ? layoutName.hashCode() : 0;
+            result = 31 * result + (controllerClassName != null ? controllerClassName.hashCode() : 0);
+            result = 31 * result + (actionUri != null ? actionUri.hashCode() : 0);
+            return result;
+        }
+    }
+
+    /**
+     * Unregisters the statistics MBean of the cache when the application context is closed
+     */
+    private static class MBeanUnregisteringListener implements ApplicationListener<ContextClosedEvent> {
+        private final ObjectName mbeanName;
+
+        MBeanUnregisteringListener(ObjectName mbeanName) {
+            this.mbeanName = mbeanName;
+        }
+
+        public void onApplicationEvent(ContextClosedEvent event) {
+            JmxSupport.unregisterMBean(mbeanName);
+        }
+    }
+
+    /**
+     * A resolved decorator, which is null if no layout was found
+     */
+    private static class CachedDecorator {
+        final Decorator decorator;
+        final long resolvedAt = System.currentTimeMillis();
+
+        CachedDecorator(Decorator decorator) {
+            this.decorator = decorator;
+        }
+    }
 }
@@ -31,6 +31,9 @@ import org.apache.commons.logging.LogFactory;
 import org.codehaus.groovy.grails.commons.ConfigurationHolder;
 import org.codehaus.groovy.grails.support.NullPersistentContextInterceptor;
 import org.codehaus.groovy.grails.support.PersistenceContextInterceptor;
+import org.codehaus.groovy.grails.web.pages.GSPResponseWriter;
+import org.codehaus.groovy.grails.web.util.CompressionSupport;
+import org.codehaus.groovy.grails.web.util.ETagSupport;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.context.support.WebApplicationContextUtils;
 import org.springframework.web.util.UrlPathHelper;
@@ -56,6 +59,13 @@ public class GrailsPageFilter extends SiteMeshFilter {
     private static final String HTML_EXT = ".html";
     private static final String UTF_8_ENCODING = "UTF-8";
     private static final String CONFIG_OPTION_GSP_ENCODING = "grails.views.gsp.encoding";
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The request attribute that holds the {@link GSPSitemeshPage} that a preprocessed GSP captures its regions
+     * into while the view is rendered
+     */
+    public static final String GSP_SITEMESH_PAGE = GrailsPageFilter.class.getName() + ".GSP_SITEMESH_PAGE";
 
 
     private FilterConfig filterConfig;
@@ -121,9 +131,10 @@ public class GrailsPageFilter extends SiteMeshFilter {
         }
 
 
+        Content content = null;
         try {
 
-             Content content = obtainContent(contentProcessor, webAppContext, request, response, chain);
+             content = obtainContent(contentProcessor, webAppContext, request, response, chain);
 
              if (content == null) {
                  return;
@@ -154,6 +165,9 @@ public class GrailsPageFilter extends SiteMeshFilter {
             if(persistenceInterceptor.isOpen()) {
                 persistenceInterceptor.destroy();
             }
+            if(content instanceof GSPSitemeshPage) {
+                ((GSPSitemeshPage) content).recycle();
+            }
          }
 
     }
@@ -170,7 +184,7 @@ public class GrailsPageFilter extends SiteMeshFilter {
                 final com.opensymphony.module.sitemesh.Decorator decorator =
                         factory.getDecoratorMapper().getDecorator(webAppContext.getRequest(), new Content2HTMLPage(content));
                 if (decorator == null || decorator.getPage() == null) {
-                    return new NoDecorator();
+                    return new GrailsNoDecorator();
                 } else {
                     return new OldDecorator2NewDecorator(decorator) {
 
@@ -206,6 +220,25 @@ public class GrailsPageFilter extends SiteMeshFilter {
         };
     }
 
+    /**
+     * Writes an undecorated page through the Grails output pipeline when the response is compressed or gets an
+     * ETag, like decorated pages are when their layout is rendered
+     */
+    private static class GrailsNoDecorator extends NoDecorator {
+        protected void render(Content content, HttpServletRequest request, HttpServletResponse response,
+                              ServletContext servletContext, SiteMeshWebAppContext webAppContext)
+                throws IOException, ServletException {
+            if (response.isCommitted() ||
+                    !(CompressionSupport.isCompressionRequest(request) || ETagSupport.isETagRequest(request))) {
+                super.render(content, request, response, servletContext, webAppContext);
+                return;
+            }
+            GSPResponseWriter out = GSPResponseWriter.getInstance(request, response, BUFFER_SIZE);
+            content.writeOriginal(out);
+            out.close();
+        }
+    }
+
     /**
       * Continue in filter-chain, writing all content to buffer and parsing
       * into returned {@link com.opensymphony.module.sitemesh.Page} object. If
@@ -218,7 +251,20 @@ public class GrailsPageFilter extends SiteMeshFilter {
          GrailsContentBufferingResponse contentBufferingResponse = new GrailsContentBufferingResponse(response, contentProcessor, webAppContext);
 
          setDefaultConfiguredEncoding(request, contentBufferingResponse);
-         chain.doFilter(request, contentBufferingResponse);
+         GSPSitemeshPage gspSitemeshPage = null;
+         if (SitemeshPreprocessor.isEnabled()) {
+             gspSitemeshPage = new GSPSitemeshPage();
+             request.setAttribute(GSP_SITEMESH_PAGE, gspSitemeshPage);
+         }
+         try {
+             chain.doFilter(request, contentBufferingResponse);
+         }
+         finally {
+             // the layout is rendered by the same request, it mustn't capture into the page
+             if (gspSitemeshPage != null) {
+                 request.removeAttribute(GSP_SITEMESH_PAGE);
+             }
+         }
          // TODO: check if another servlet or filter put a page object in the request
          //            Content result = request.getAttribute(PAGE);
          //            if (result == null) {
@@ -226,7 +272,11 @@ public class GrailsPageFilter extends SiteMeshFilter {
          //                result = pageResponse.getPage();
          //            }
          webAppContext.setUsingStream(contentBufferingResponse.isUsingStream());
-         return contentBufferingResponse.getContent();
+         Content content = contentBufferingResponse.getContent(gspSitemeshPage);
+         if (gspSitemeshPage != null && content != gspSitemeshPage) {
+             gspSitemeshPage.recycle();
+         }
+         return content;
      }
 
     private void setDefaultConfiguredEncoding(HttpServletRequest request, GrailsContentBufferingResponse contentBufferingResponse) {
@@ -47,6 +47,7 @@ public class GrailsPageResponseWrapper extends HttpServletResponseWrapper{
     private GrailsBuffer buffer;
     private boolean aborted = false;
     private boolean parseablePage = false;
+    private boolean decorationDisabled = false;
 
     public GrailsPageResponseWrapper(final HttpServletResponse response, PageParserSelector parserSelector) {
         super(response);
@@ -107,7 +108,7 @@ public class GrailsPageResponseWrapper extends HttpServletResponseWrapper{
     }
 
     public void activateSiteMesh(String contentType, String encoding) {
-        if (parseablePage) {
+        if (parseablePage || decorationDisabled) {
             return; // already activated
         }
         buffer = new GrailsBuffer(parserSelector.getPageParser(contentType), encoding);
@@ -124,6 +125,19 @@ public class GrailsPageResponseWrapper extends HttpServletResponseWrapper{
         parseablePage = true;
     }
 
+    /**
+     * Routes the content straight to the response instead of buffering it for decoration, for views that apply
+     * their layout themselves. Must be called before any content is written.
+     */
+    public void disableDecoration() {
+        decorationDisabled = true;
+        deactivateSiteMesh();
+    }
+
+    public boolean isDecorationDisabled() {
+        return decorationDisabled;
+    }
+
     private void deactivateSiteMesh() {
         parseablePage = false;
         buffer = null;
@@ -246,7 +260,10 @@ public class GrailsPageResponseWrapper extends HttpServletResponseWrapper{
 
         public char[] getContents() throws IOException {
             if (bufferedWriter != null) {
-                return streamBuffer.toCharArray();
+                char[] contents = streamBuffer.toCharArray();
+                // the contents are a copy cached by the buffer, its chunks aren't needed anymore
+                streamBuffer.recycle();
+                return contents;
             } else if (bufferedStream != null) {
                 return TEXT_ENCODER.encode(bufferedStream.toByteArray(), encoding);
             } else {
@@ -0,0 +1,196 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.sitemesh;
+
+import org.codehaus.groovy.grails.commons.ConfigurationHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Wraps the <code>&lt;head&gt;</code>, <code>&lt;title&gt;</code>, <code>&lt;body&gt;</code>,
+ * <code>&lt;meta&gt;</code> and <code>&lt;content&gt;</code> elements of a GSP in the tags of the
+ * <code>sitemesh</code> namespace before the GSP is parsed. When the page is rendered these tags capture the
+ * regions of the page into a {@link GSPSitemeshPage}, so that its layout is applied without SiteMesh parsing the
+ * rendered HTML again. Preprocessing is enabled with <code>grails.views.gsp.sitemesh.preprocess = true</code>.</p>
+ *
+ * <p>The markup of the elements is kept as it is in the GSP, the tags are only placed around or next to it, so an
+ * undecorated page renders the same markup. Elements are only wrapped when each element is closed before it's
+ * opened again, the head, title and body occur once, and the attributes of the body, meta and content elements,
+ * which are passed to the tags, are quoted values without expressions. If any element doesn't qualify the whole
+ * page is left as it is and parsed by SiteMesh, since a page that is partly captured would lose the regions that
+ * aren't. A page can also opt out with the <code>&lt;%@ page sitemeshPreprocess="false" %&gt;</code>
+ * directive.</p>
+ *
+ * @see GSPSitemeshPage
+ * @since 1.2
+ */
+public class SitemeshPreprocessor {
+    public static final String CONFIG_OPTION_PREPROCESS = "grails.views.gsp.sitemesh.preprocess";
+
+    private static final String NAMESPACE = "sitemesh:";
+    private static final Pattern OPT_OUT_PATTERN = Pattern.compile(
+            "<%@\\s*page\\s[^>]*sitemeshPreprocess\\s*=\\s*\"false\"");
+    private static final Pattern META_PATTERN = Pattern.compile(
+            "<meta(\\s[^>]*?)?\\s*/?>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ATTRIBUTE_PATTERN = Pattern.compile(
+            "\\s+[\\w:.-]+\\s*=\\s*(\"([^\"]*)\"|'([^']*)')");
+
+    /**
+     * @return True if GSPs are preprocessed and the regions of pages captured as they are rendered
+     */
+    public static boolean isEnabled() {
+        Object o = ConfigurationHolder.getFlatConfig().get(CONFIG_OPTION_PREPROCESS);
+        return (o != null && o instanceof Boolean) ? ((Boolean) o).booleanValue() : false;
+    }
+
+    /**
+     * @param gspSource The source of a GSP
+     * @return The source with the elements that SiteMesh extracts wrapped in capturing tags, or the source as it
+     * is if an element doesn't qualify
+     */
+    public String process(String gspSource) {
+        if (OPT_OUT_PATTERN.matcher(gspSource).find()) {
+            return gspSource;
+        }
+        String source = gspSource;
+        // the head and body capture their content, the title and content blocks the whole element
+        source = wrapElement(source, "head", "captureHead", true, false, false);
+        if (source != null) source = wrapElement(source, "title", "captureTitle", true, true, false);
+        if (source != null) source = wrapElement(source, "body", "captureBody", true, false, true);
+        if (source != null) source = wrapElement(source, "content", "captureContent", false, true, true);
+        if (source != null) source = addMetaTags(source);
+        return source != null ? source : gspSource;
+    }
+
+    /**
+     * Wraps each occurrence of an element, or its content, in a tag. Each start tag must be followed by its end
+     * tag before the next start tag, and elements that are only allowed once in a page must occur once.
+     *
+     * @return The rewritten source, the source as it is if the element doesn't occur, or null if it doesn't
+     * qualify
+     */
+    private String wrapElement(String source, String element, String tagName, boolean single,
+                               boolean wholeElement, boolean passAttributes) {
+        Matcher start = Pattern.compile("<" + element + "(\\s[^>]*)?>", Pattern.CASE_INSENSITIVE).matcher(source);
+        Matcher end = Pattern.compile("</" + element + "\\s*>", Pattern.CASE_INSENSITIVE).matcher(source);
+        List<int[]> elements = new ArrayList<int[]>();
+        List<String> attributes = new ArrayList<String>();
+        int pos = 0;
+        while (start.find(pos)) {
+            if (!end.find(start.end()) || (passAttributes && !isStaticAttributes(start.group(1)))) {
+                return null;
+            }
+            elements.add(new int[] { start.start(), start.end(), end.start(), end.end() });
+            attributes.add(passAttributes ? start.group(1) : null);
+            pos = end.end();
+        }
+        if (elements.isEmpty() && !end.find(0)) {
+            return source;
+        }
+        // an element that is opened or closed again, say in the branches of a condition, can't be wrapped
+        if (elements.isEmpty() || (single && elements.size() > 1) ||
+                countMatches(start) != elements.size() || countMatches(end) != elements.size()) {
+            return null;
+        }
+        StringBuilder result = new StringBuilder(source.length() + 64 * elements.size());
+        pos = 0;
+        for (int i = 0; i < elements.size(); i++) {
+            int[] bounds = elements.get(i);
+            int tagStart = wholeElement ? bounds[0] : bounds[1];
+            int tagEnd = wholeElement ? bounds[3] : bounds[2];
+            result.append(source, pos, tagStart)
+                    .append('<').append(NAMESPACE).append(tagName);
+            if (attributes.get(i) != null) {
+                result.append(attributes.get(i));
+            }
+            result.append('>')
+                    .append(source, tagStart, tagEnd)
+                    .append("</").append(NAMESPACE).append(tagName).append('>');
+            pos = tagEnd;
+        }
+        result.append(source, pos, source.length());
+        return result.toString();
+    }
+
+    private int countMatches(Matcher matcher) {
+        matcher.reset();
+        int count = 0;
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Adds a tag after each meta element that captures its attributes
+     *
+     * @return The rewritten source, or null if a meta element doesn't qualify
+     */
+    private String addMetaTags(String source) {
+        Matcher meta = META_PATTERN.matcher(source);
+        StringBuilder result = null;
+        int pos = 0;
+        while (meta.find()) {
+            String attributes = meta.group(1);
+            if (attributes == null || attributes.trim().length() == 0) continue;
+            if (!isStaticAttributes(attributes)) return null;
+            if (result == null) {
+                result = new StringBuilder(source.length() + 256);
+            }
+            result.append(source, pos, meta.end())
+                    .append('<').append(NAMESPACE).append("captureMeta")
+                    .append(attributes)
+                    .append("/>");
+            pos = meta.end();
+        }
+        if (result == null) {
+            return source;
+        }
+        result.append(source, pos, source.length());
+        return result.toString();
+    }
+
+    /**
+     * Attributes become the attributes of a tag, whose values are Groovy strings or expressions. Only quoted
+     * values that are the same markup once evaluated qualify: no expressions, scriptlets, escapes or lists.
+     */
+    private boolean isStaticAttributes(String attributes) {
+        if (attributes == null) return true;
+        Matcher attribute = ATTRIBUTE_PATTERN.matcher(attributes);
+        int pos = 0;
+        while (attribute.find() && attribute.start() == pos) {
+            String value = attribute.group(2) != null ? attribute.group(2) : attribute.group(3);
+            if (!isStaticValue(value)) return false;
+            pos = attribute.end();
+        }
+        return attributes.substring(pos).trim().length() == 0;
+    }
+
+    private boolean isStaticValue(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            switch (value.charAt(i)) {
+                case '$':
+                case '\\':
+                case '"':
+                case '<':
+                    return false;
+            }
+        }
+        return !value.startsWith("[");
+    }
+}
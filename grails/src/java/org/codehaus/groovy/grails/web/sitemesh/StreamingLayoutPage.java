@@ -0,0 +1,77 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.sitemesh;
+
+import com.opensymphony.module.sitemesh.parser.AbstractHTMLPage;
+import groovy.lang.Writable;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * <p>The SiteMesh page of a view that is rendered into its layout as the layout is written to the response,
+ * instead of being buffered and parsed. When the layout reaches <code>&lt;g:layoutBody /&gt;</code> the content
+ * written so far, the head and the top of the body, is flushed to the client before the view is rendered.</p>
+ *
+ * <p>As the view isn't parsed it has no head, and its title and other properties are only those added with
+ * {@link #addProperty(String, String)}. Views rendered this way should therefore only contain the body.</p>
+ *
+ * @since 1.2
+ */
+public class StreamingLayoutPage extends AbstractHTMLPage {
+    private final Writable body;
+
+    /**
+     * @param body The view to render as the body of the layout
+     */
+    public StreamingLayoutPage(Writable body) {
+        if (body == null) throw new IllegalArgumentException("Argument [body] cannot be null");
+        this.body = body;
+    }
+
+    public void writeHead(Writer out) throws IOException {
+        // the view isn't parsed, so it doesn't contribute a head
+    }
+
+    public String getHead() {
+        return "";
+    }
+
+    public void writeBody(Writer out) throws IOException {
+        // send the head and the top of the body to the client before the view is rendered
+        out.flush();
+        body.writeTo(out);
+    }
+
+    public String getBody() {
+        StringWriter out = new StringWriter();
+        try {
+            body.writeTo(out);
+        }
+        catch (IOException e) {
+            // not thrown by StringWriter
+        }
+        return out.toString();
+    }
+
+    public void writePage(Writer out) throws IOException {
+        body.writeTo(out);
+    }
+
+    public String getPage() {
+        return getBody();
+    }
+}
@@ -21,6 +21,7 @@ import groovy.lang.GroovyObject;
 import org.codehaus.groovy.grails.commons.TagLibArtefactHandler;
 import org.codehaus.groovy.grails.web.pages.GroovyPage;
 import org.codehaus.groovy.grails.web.servlet.mvc.GrailsWebRequest;
+import org.codehaus.groovy.grails.web.util.StreamCharBuffer;
 
 import java.io.Writer;
 import java.util.HashMap;
@@ -72,57 +73,7 @@ public class GroovyPageTagBody extends Closure {
         try {
             final GroovyPageTagWriter capturedOut = createWriter();
 
-
-            Object bodyResult;
-
-            if(args!=null) {
-                if(args instanceof Map) {
-                    // The body can be passed a set of variables as a map that
-                    // are then made available in the binding. This allows the
-                    // contents of the body to reference any of these variables
-                    // directly.
-                    //
-                    // For example, body(foo: 1, bar: 'test') would allow this
-                    // GSP fragment to work:
-                    //
-                    //   <td>Foo: ${foo} and bar: ${bar}</td>
-                    //
-                    // Note that any variables with the same name as one of the
-                    // new ones will be overridden for the scope of the host
-                    // tag's body.
-
-                    // GRAILS-2675: Copy the current binding so that we can restore
-                    // it to its original state.
-                    Map currentBinding = null;
-                    Map originalBinding = null;
-
-                    if(binding!=null) {
-                        currentBinding = binding.getVariables();
-                        originalBinding = new HashMap(currentBinding);
-                        // Add the extra variables passed into the body to the
-                        // current binding.
-                        currentBinding.putAll((Map) args);
-                    }
-
-
-                    try {
-                        bodyResult = bodyClosure.call(args);
-                    }
-                    finally {
-                        if(binding!=null) {
-                            // GRAILS-2675: Restore the original binding.
-                            currentBinding.clear();
-                            currentBinding.putAll(originalBinding);
-                        }
-                    }
-                }
-                else {
-                    bodyResult = bodyClosure.call(args);
-                }
-            }
-            else {
-                bodyResult = bodyClosure.call();
-            }
+            Object bodyResult = callBodyClosure(args);
             String output = capturedOut.getValue();
             if(org.apache.commons.lang.StringUtils.isBlank(output)) {
                 if(bodyResult instanceof String) {
@@ -138,11 +89,92 @@ public class GroovyPageTagBody extends Closure {
 
             return output;
         } finally {
-            if(binding!=null) {
-                binding.setVariable(GroovyPage.OUT, originalOut);
+            restoreOut(originalOut);
+        }
+    }
+
+    /**
+     * Renders the body into a buffer instead of a String, so that a tag that keeps the output of its body, such
+     * as a region of a page captured for its layout, doesn't copy it
+     *
+     * @return The buffer that holds the output of the body
+     */
+    public StreamCharBuffer captureBuffer() {
+        Writer originalOut = webRequest.getOut();
+
+        try {
+            final GroovyPageTagWriter capturedOut = createWriter();
+
+            Object bodyResult = callBodyClosure(null);
+            StreamCharBuffer buffer = capturedOut.getBuffer();
+            if(buffer.size() == 0 && (bodyResult instanceof String || bodyResult instanceof GString)) {
+                capturedOut.print(bodyResult.toString());
             }
-            webRequest.setOut(originalOut);
+            return buffer;
+        } finally {
+            restoreOut(originalOut);
+        }
+    }
+
+    private void restoreOut(Writer originalOut) {
+        if(binding!=null) {
+            binding.setVariable(GroovyPage.OUT, originalOut);
+        }
+        webRequest.setOut(originalOut);
+    }
+
+    private Object callBodyClosure(Object args) {
+        Object bodyResult;
+
+        if(args!=null) {
+            if(args instanceof Map) {
+                // The body can be passed a set of variables as a map that
+                // are then made available in the binding. This allows the
+                // contents of the body to reference any of these variables
+                // directly.
+                //
+                // For example, body(foo: 1, bar: 'test') would allow this
+                // GSP fragment to work:
+                //
+                //   <td>Foo: ${foo} and bar: ${bar}</td>
+                //
+                // Note that any variables with the same name as one of the
+                // new ones will be overridden for the scope of the host
+                // tag's body.
+
+                // GRAILS-2675: Copy the current binding so that we can restore
+                // it to its original state.
+                Map currentBinding = null;
+                Map originalBinding = null;
+
+                if(binding!=null) {
+                    currentBinding = binding.getVariables();
+                    originalBinding = new HashMap(currentBinding);
+                    // Add the extra variables passed into the body to the
+                    // current binding.
+                    currentBinding.putAll((Map) args);
+                }
+
+
+                try {
+                    bodyResult = bodyClosure.call(args);
+                }
+                finally {
+                    if(binding!=null) {
+                        // GRAILS-2675: Restore the original binding.
+                        currentBinding.clear();
+                        currentBinding.putAll(originalBinding);
+                    }
+                }
+            }
+            else {
+                bodyResult = bodyClosure.call(args);
+            }
+        }
+        else {
+            bodyResult = bodyClosure.call();
         }
+        return bodyResult;
     }
 
     private GroovyPageTagWriter createWriter() {
@@ -33,6 +33,9 @@ public class GroovyPageTagWriter extends FastStringWriter {
     }
 
     public String getValue() {
-        return super.toString();
+        String value = super.toString();
+        // the value is a copy cached by the buffer, the chunks of the captured output can be reused
+        recycle();
+        return value;
     }
 }
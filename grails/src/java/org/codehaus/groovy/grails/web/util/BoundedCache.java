@@ -0,0 +1,356 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.util;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A concurrent cache that holds at most a fixed number of entries, and optionally entries of at most a fixed
+ * total weight, where the weight of an entry is given when it is stored. When the cache is full, entries are
+ * evicted using a frequency aware variant of the CLOCK algorithm: every hit increments a small per entry counter
+ * and the eviction hand gives entries with a non zero counter another chance (halving the counter) before
+ * removing them, so frequently used entries survive bursts of one-off keys.</p>
+ *
+ * <p>Hit, miss and eviction counters are kept and can be exported over JMX with
+ * {@link #registerMBean(BoundedCacheMBean, String, String)}.</p>
+ *
+ * @since 1.2
+ */
+public class BoundedCache<K, V> implements BoundedCacheMBean {
+    private static final Log LOG = LogFactory.getLog(BoundedCache.class);
+    private static final int MAX_FREQUENCY = 15;
+    private static final int PURGE_THRESHOLD = 64;
+
+    private final ConcurrentMap<K, Entry<K, V>> entries = new ConcurrentHashMap<K, Entry<K, V>>();
+    // removed and replaced entries are left in the clock and skipped when the hand reaches them
+    private final ConcurrentLinkedQueue<Entry<K, V>> clock = new ConcurrentLinkedQueue<Entry<K, V>>();
+    private final AtomicInteger clockLength = new AtomicInteger();
+    private final AtomicBoolean purging = new AtomicBoolean();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong weight = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final int maxSize;
+    private final long maxWeight;
+
+    /**
+     * Creates a cache that holds at most maxSize entries
+     *
+     * @param maxSize The maximum number of entries, must be greater than 0
+     */
+    public BoundedCache(int maxSize) {
+        this(maxSize, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a cache that holds at most maxSize entries with a total weight of at most maxWeight
+     *
+     * @param maxSize The maximum number of entries, must be greater than 0
+     * @param maxWeight The maximum total weight of the entries, must be greater than 0
+     */
+    public BoundedCache(int maxSize, long maxWeight) {
+        if (maxSize < 1) throw new IllegalArgumentException("Argument [maxSize] must be greater than 0");
+        if (maxWeight < 1) throw new IllegalArgumentException("Argument [maxWeight] must be greater than 0");
+        this.maxSize = maxSize;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Retrieves the value for the given key, recording a hit or a miss
+     *
+     * @param key The key
+     * @return The cached value or null
+     */
+    public V get(K key) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        entry.touch();
+        return entry.value;
+    }
+
+    /**
+     * Stores a value, evicting other entries if the cache grows beyond its maximum size
+     *
+     * @param key The key
+     * @param value The value, which cannot be null
+     * @return The previous value or null
+     */
+    public V put(K key, V value) {
+        return put(key, value, 1);
+    }
+
+    /**
+     * Stores a value of the given weight, evicting other entries if the cache grows beyond its maximum size
+     * or weight. A value heavier than the maximum weight isn't stored and the previous value of the key is removed,
+     * rather than evicting all other entries.
+     *
+     * @param key The key
+     * @param value The value, which cannot be null
+     * @param weight The weight of the value
+     * @return The previous value or null
+     */
+    public V put(K key, V value, int weight) {
+        if (weight > maxWeight) return remove(key);
+        Entry<K, V> entry = new Entry<K, V>(key, value, weight);
+        Entry<K, V> previous = entries.put(key, entry);
+        enqueue(entry);
+        if (previous == null) {
+            added(weight);
+            return null;
+        }
+        entry.frequency = previous.frequency;
+        replaced(previous.weight, weight);
+        return previous.value;
+    }
+
+    /**
+     * Stores a value unless an entry for the key already exists
+     *
+     * @param key The key
+     * @param value The value, which cannot be null
+     * @return The existing value or null if the given value was stored
+     */
+    public V putIfAbsent(K key, V value) {
+        return putIfAbsent(key, value, 1);
+    }
+
+    /**
+     * Stores a value of the given weight unless an entry for the key already exists. A value heavier than the
+     * maximum weight isn't stored.
+     *
+     * @param key The key
+     * @param value The value, which cannot be null
+     * @param weight The weight of the value
+     * @return The existing value, or null if there was none
+     */
+    public V putIfAbsent(K key, V value, int weight) {
+        if (weight > maxWeight) {
+            Entry<K, V> existing = entries.get(key);
+            return existing != null ? existing.value : null;
+        }
+        Entry<K, V> entry = new Entry<K, V>(key, value, weight);
+        Entry<K, V> existing = entries.putIfAbsent(key, entry);
+        if (existing == null) {
+            enqueue(entry);
+            added(weight);
+            return null;
+        }
+        return existing.value;
+    }
+
+    /**
+     * Removes the entry for the given key
+     *
+     * @param key The key
+     * @return The removed value or null
+     */
+    public V remove(K key) {
+        Entry<K, V> entry = entries.remove(key);
+        if (entry == null) return null;
+        size.decrementAndGet();
+        weight.addAndGet(-entry.weight);
+        return entry.value;
+    }
+
+    /**
+     * @return A snapshot of the keys of the cache
+     */
+    public Set<K> keys() {
+        return new HashSet<K>(entries.keySet());
+    }
+
+    public void clear() {
+        for (K key : entries.keySet()) {
+            remove(key);
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public int getSize() {
+        return size.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getWeight() {
+        return weight.get();
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    private void added(int entryWeight) {
+        long totalWeight = weight.addAndGet(entryWeight);
+        if (size.incrementAndGet() > maxSize || totalWeight > maxWeight) {
+            evict();
+        }
+    }
+
+    private void replaced(int previousWeight, int entryWeight) {
+        if (weight.addAndGet(entryWeight - previousWeight) > maxWeight) {
+            evict();
+        }
+    }
+
+    private void evict() {
+        while (size.get() > maxSize || weight.get() > maxWeight) {
+            Entry<K, V> entry = clock.poll();
+            if (entry == null) return;
+
+            if (!isLive(entry)) {
+                clockLength.decrementAndGet();
+                continue;
+            }
+            if (entry.frequency > 0) {
+                entry.frequency >>= 1;
+                clock.offer(entry);
+            }
+            else {
+                clockLength.decrementAndGet();
+                if (entries.remove(entry.key, entry)) {
+                    size.decrementAndGet();
+                    weight.addAndGet(-entry.weight);
+                    evictions.incrementAndGet();
+                    evicted(entry.key, entry.value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Called when an entry has been evicted to make room for other entries, but not when it's removed or replaced.
+     * Does nothing by default.
+     *
+     * @param key The key of the evicted entry
+     * @param value The value of the evicted entry
+     */
+    protected void evicted(K key, V value) {
+    }
+
+    private boolean isLive(Entry<K, V> entry) {
+        return entries.get(entry.key) == entry;
+    }
+
+    private void enqueue(Entry<K, V> entry) {
+        clock.offer(entry);
+        if (clockLength.incrementAndGet() > 2 * size.get() + PURGE_THRESHOLD) {
+            purge();
+        }
+    }
+
+    /**
+     * Drops the removed and replaced entries from the clock once they outnumber the live entries, so that
+     * removing keys without evicting doesn't grow the clock
+     */
+    private void purge() {
+        if (!purging.compareAndSet(false, true)) return;
+        try {
+            for (int i = clockLength.get(); i > 0; i--) {
+                Entry<K, V> entry = clock.poll();
+                if (entry == null) return;
+                if (isLive(entry)) {
+                    clock.offer(entry);
+                }
+                else {
+                    clockLength.decrementAndGet();
+                }
+            }
+        }
+        finally {
+            purging.set(false);
+        }
+    }
+
+    /**
+     * Registers the statistics of the given cache with the MBeanServer, see {@link JmxSupport}. Failures are
+     * logged rather than propagated.
+     *
+     * @param cache The cache
+     * @param type The type of the MBean, for example GroovyPagesCache
+     * @param name The name of the cache
+     * @return The name the cache is registered under, which is unregistered when the application is shut down,
+     * or null if the cache wasn't registered
+     */
+    public static ObjectName registerMBean(BoundedCacheMBean cache, String type, String name) {
+        try {
+            return JmxSupport.registerMBean(new StandardMBean(cache, BoundedCacheMBean.class), type, name);
+        }
+        catch (NotCompliantMBeanException e) {
+            LOG.warn("Unable to register cache statistics MBean [" + name + "]: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private static class Entry<K, V> {
+        final K key;
+        final V value;
+        final int weight;
+        volatile int frequency;
+
+        Entry(K key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+
+        void touch() {
+            if (frequency < MAX_FREQUENCY) frequency++;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.util;
+
+/**
+ * The JMX management interface of a {@link BoundedCache}
+ *
+ * @since 1.2
+ */
+public interface BoundedCacheMBean {
+
+    /**
+     * @return The number of lookups that found an entry
+     */
+    long getHitCount();
+
+    /**
+     * @return The number of lookups that didn't find an entry
+     */
+    long getMissCount();
+
+    /**
+     * @return The number of entries removed to keep the cache within its bounds
+     */
+    long getEvictionCount();
+
+    /**
+     * @return The ratio of hits to lookups, between 0 and 1
+     */
+    double getHitRatio();
+
+    /**
+     * @return The current number of entries
+     */
+    int getSize();
+
+    /**
+     * @return The maximum number of entries
+     */
+    int getMaxSize();
+
+    /**
+     * @return The total weight of the entries
+     */
+    long getWeight();
+
+    /**
+     * @return The maximum total weight of the entries
+     */
+    long getMaxWeight();
+
+    /**
+     * Removes all entries from the cache
+     */
+    void clear();
+
+    /**
+     * Resets the hit, miss and eviction counters
+     */
+    void resetStatistics();
+}
@@ -0,0 +1,231 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * <p>Compresses content in the gzip or deflate format and writes it to an OutputStream. Unlike a
+ * GZIPOutputStream, which allocates a Deflater and its native memory for each response, the Deflater and output
+ * buffer are reused by the responses of the same thread: they are taken from the thread when the output is created
+ * and given back by {@link #finish()} or {@link #release()}, one of which must be called once the response has been
+ * written.</p>
+ *
+ * <p>The threads only hold JDK classes, like the CharsetEncoder of the
+ * {@link org.codehaus.groovy.grails.web.pages.GSPByteOutputWriter}, so they don't keep the application loaded
+ * after it has been undeployed. A Deflater that isn't given back to the thread, because another one has been given
+ * back in the meantime, is ended.</p>
+ *
+ * <p>{@link #flush()} writes all the content that has been compressed so far, so that a streamed response reaches
+ * the client in pieces. This needs the sync flush mode of the Deflater of Java 7; on earlier JVMs the Deflater
+ * keeps the content of its window until more content comes in or the output is finished.</p>
+ *
+ * @see CompressionSupport
+ * @since 1.2
+ */
+public class CompressedOutput {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int SYNC_FLUSH = 2;
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+    private static final Method DEFLATE_WITH_FLUSH_MODE = findDeflateWithFlushMode();
+
+    // gzip and deflate need Deflaters with and without the zlib wrapper
+    private static final ThreadLocal<Deflater> GZIP_DEFLATER = new ThreadLocal<Deflater>();
+    private static final ThreadLocal<Deflater> DEFLATE_DEFLATER = new ThreadLocal<Deflater>();
+    private static final ThreadLocal<byte[]> BUFFER = new ThreadLocal<byte[]>();
+
+    private final OutputStream out;
+    private final boolean gzip;
+    private final CRC32 crc = new CRC32();
+    private byte[] buffer;
+    private Deflater deflater;
+    private boolean headerWritten;
+
+    /**
+     * @param out The stream to write the compressed content to
+     * @param contentEncoding {@link CompressionSupport#GZIP} or {@link CompressionSupport#DEFLATE}
+     * @param level The compression level
+     */
+    public CompressedOutput(OutputStream out, String contentEncoding, int level) {
+        this.out = out;
+        this.gzip = CompressionSupport.GZIP.equals(contentEncoding);
+        if (!gzip && !CompressionSupport.DEFLATE.equals(contentEncoding)) {
+            throw new IllegalArgumentException("Unsupported content encoding [" + contentEncoding + "]");
+        }
+        ThreadLocal<Deflater> threadDeflater = gzip ? GZIP_DEFLATER : DEFLATE_DEFLATER;
+        deflater = threadDeflater.get();
+        if (deflater != null) {
+            // taken from the thread, so that nested outputs never share a Deflater
+            threadDeflater.set(null);
+            deflater.reset();
+            deflater.setLevel(level);
+        }
+        else {
+            // the gzip header and trailer are written by this class, deflate has the zlib wrapper
+            deflater = new Deflater(level, gzip);
+        }
+        buffer = BUFFER.get();
+        if (buffer != null) {
+            BUFFER.set(null);
+        }
+        else {
+            buffer = new byte[BUFFER_SIZE];
+        }
+    }
+
+    private static Method findDeflateWithFlushMode() {
+        try {
+            return Deflater.class.getMethod("deflate", new Class[] { byte[].class, int.class, int.class, int.class });
+        }
+        catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return Whether {@link #flush()} writes all the content written so far on this JVM
+     */
+    public static boolean isSyncFlushSupported() {
+        return DEFLATE_WITH_FLUSH_MODE != null;
+    }
+
+    public void write(byte[] bytes, int off, int len) throws IOException {
+        if (deflater == null) throw new IllegalStateException("The compressed output has been finished");
+        if (len == 0) return;
+        writeHeader();
+        if (gzip) {
+            crc.update(bytes, off, len);
+        }
+        deflater.setInput(bytes, off, len);
+        while (!deflater.needsInput()) {
+            writeCompressed(deflater.deflate(buffer));
+        }
+    }
+
+    /**
+     * Compresses the remaining bytes of heap buffers, such as those of a {@link StreamByteBuffer}. The positions of
+     * the buffers aren't changed.
+     *
+     * @param buffers The content
+     * @throws IOException When the compressed content can't be written
+     */
+    public void write(ByteBuffer[] buffers) throws IOException {
+        for (ByteBuffer buffer : buffers) {
+            write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+    }
+
+    /**
+     * Writes the content that has been compressed so far, without ending the compressed stream
+     *
+     * @throws IOException When the compressed content can't be written
+     */
+    public void flush() throws IOException {
+        if (deflater == null || !headerWritten || DEFLATE_WITH_FLUSH_MODE == null) return;
+        int count;
+        do {
+            count = deflateWithSyncFlush();
+            writeCompressed(count);
+        } while (count == buffer.length);
+    }
+
+    private int deflateWithSyncFlush() throws IOException {
+        try {
+            return (Integer) DEFLATE_WITH_FLUSH_MODE.invoke(deflater, buffer, 0, buffer.length, SYNC_FLUSH);
+        }
+        catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to flush the Deflater", e);
+        }
+        catch (InvocationTargetException e) {
+            throw new IllegalStateException("Unable to flush the Deflater", e.getCause());
+        }
+    }
+
+    /**
+     * Ends the compressed stream and gives the Deflater back to the thread. The OutputStream isn't closed.
+     *
+     * @throws IOException When the compressed content can't be written
+     */
+    public void finish() throws IOException {
+        if (deflater == null) return;
+        try {
+            writeHeader();
+            deflater.finish();
+            while (!deflater.finished()) {
+                writeCompressed(deflater.deflate(buffer));
+            }
+            if (gzip) {
+                writeTrailer((int) crc.getValue(), (int) deflater.getBytesRead());
+            }
+        }
+        finally {
+            release();
+        }
+    }
+
+    /**
+     * Gives the Deflater back to the thread without ending the compressed stream, when the content won't be sent
+     */
+    public void release() {
+        if (deflater == null) return;
+        ThreadLocal<Deflater> threadDeflater = gzip ? GZIP_DEFLATER : DEFLATE_DEFLATER;
+        if (threadDeflater.get() == null) {
+            threadDeflater.set(deflater);
+        }
+        else {
+            // a nested output has given its Deflater back first
+            deflater.end();
+        }
+        deflater = null;
+        if (BUFFER.get() == null) {
+            BUFFER.set(buffer);
+        }
+        buffer = null;
+    }
+
+    private void writeHeader() throws IOException {
+        if (headerWritten) return;
+        headerWritten = true;
+        if (gzip) {
+            out.write(GZIP_HEADER);
+        }
+    }
+
+    private void writeTrailer(int crc, int size) throws IOException {
+        byte[] trailer = new byte[8];
+        writeIntLE(trailer, 0, crc);
+        writeIntLE(trailer, 4, size);
+        out.write(trailer);
+    }
+
+    private static void writeIntLE(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >> 8);
+        bytes[offset + 2] = (byte) (value >> 16);
+        bytes[offset + 3] = (byte) (value >> 24);
+    }
+
+    private void writeCompressed(int count) throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+        }
+    }
+}
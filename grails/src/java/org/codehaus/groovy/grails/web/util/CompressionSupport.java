@@ -0,0 +1,167 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.util;
+
+import org.codehaus.groovy.grails.web.servlet.HttpHeaders;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.zip.Deflater;
+
+/**
+ * <p>Support for the compression of responses by the Grails output pipeline. When enabled with
+ * <code>grails.web.compression.enabled = true</code>, the rendered views and converter output whose content type
+ * is textual are compressed with gzip or deflate if the Accept-Encoding header of the request allows it, see
+ * {@link CompressedOutput}. This takes the place of a compression filter that wraps the whole response.</p>
+ *
+ * <p>The compression level is set with <code>grails.web.compression.level</code> (the default level of
+ * {@link Deflater} if not set). Responses that are smaller than <code>grails.web.compression.minsize</code> bytes
+ * (1024 by default) and are written in one go aren't compressed, since the gzip framing would outweigh the
+ * savings.</p>
+ *
+ * @since 1.2
+ */
+public class CompressionSupport {
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    private static final String INCLUDE_REQUEST_URI_ATTRIBUTE = "javax.servlet.include.request_uri";
+    private static final String[] COMPRESSIBLE_TYPES = {
+            "text/", "application/json", "application/javascript", "application/x-javascript", "application/xml" };
+
+    private static volatile boolean enabled;
+    private static volatile int level = Deflater.DEFAULT_COMPRESSION;
+    private static volatile int minSize = 1024;
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        CompressionSupport.enabled = enabled;
+    }
+
+    /**
+     * @return The level of the Deflater, from 0 to 9 or -1 for the default level
+     */
+    public static int getLevel() {
+        return level;
+    }
+
+    public static void setLevel(int level) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level [" + level + "], must be between -1 and 9");
+        }
+        CompressionSupport.level = level;
+    }
+
+    /**
+     * @return The number of bytes below which a response that is written in one go isn't compressed
+     */
+    public static int getMinSize() {
+        return minSize;
+    }
+
+    public static void setMinSize(int minSize) {
+        CompressionSupport.minSize = minSize;
+    }
+
+    /**
+     * Whether the response to the request may be compressed: compression is enabled and the request isn't an
+     * include, whose output is part of another response. The response then varies by the Accept-Encoding header of
+     * the request, even if the request doesn't accept a compressed response.
+     *
+     * @param request The request, can be null
+     * @return True if the response may be compressed
+     */
+    public static boolean isCompressionRequest(HttpServletRequest request) {
+        return enabled && request != null && request.getAttribute(INCLUDE_REQUEST_URI_ATTRIBUTE) == null;
+    }
+
+    /**
+     * Chooses the content encoding of the response from the Accept-Encoding header of the request. gzip is
+     * preferred over deflate, which some browsers don't decode correctly.
+     *
+     * @param acceptEncoding The value of the header, can be null
+     * @return {@link #GZIP}, {@link #DEFLATE} or null if the request doesn't accept either
+     */
+    public static String getContentEncoding(String acceptEncoding) {
+        if (acceptEncoding == null) return null;
+        boolean deflate = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String name = coding;
+            int semicolon = coding.indexOf(';');
+            if (semicolon > -1) {
+                name = coding.substring(0, semicolon);
+                if (isRefused(coding.substring(semicolon + 1))) continue;
+            }
+            name = name.trim();
+            if (GZIP.equalsIgnoreCase(name) || "x-gzip".equalsIgnoreCase(name)) {
+                return GZIP;
+            }
+            if (DEFLATE.equalsIgnoreCase(name)) {
+                deflate = true;
+            }
+        }
+        return deflate ? DEFLATE : null;
+    }
+
+    /**
+     * @param request The request
+     * @return The content encoding that the response to the request is compressed with, or null if it isn't
+     */
+    public static String getContentEncoding(HttpServletRequest request) {
+        return isCompressionRequest(request) ? getContentEncoding(request.getHeader(HttpHeaders.ACCEPT_ENCODING)) : null;
+    }
+
+    private static boolean isRefused(String parameters) {
+        String q = parameters.trim();
+        if (!q.startsWith("q=")) return false;
+        try {
+            return Float.parseFloat(q.substring(2).trim()) == 0;
+        }
+        catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Textual content is worth compressing, images and archives already are compressed
+     *
+     * @param contentType The content type of the response, can be null
+     * @return True if content of the type is compressed
+     */
+    public static boolean isCompressible(String contentType) {
+        if (contentType == null) return false;
+        String type = contentType.toLowerCase();
+        int semicolon = type.indexOf(';');
+        if (semicolon > -1) type = type.substring(0, semicolon).trim();
+        for (String compressible : COMPRESSIBLE_TYPES) {
+            if (type.startsWith(compressible)) return true;
+        }
+        return type.endsWith("+xml");
+    }
+
+    /**
+     * The ETag of a compressed response must differ from the ETag of the same content sent uncompressed, since
+     * the bytes of the two responses differ
+     *
+     * @param etag The quoted ETag of the uncompressed content
+     * @param contentEncoding The content encoding of the response
+     * @return The quoted ETag of the compressed response
+     */
+    public static String getETag(String etag, String contentEncoding) {
+        return etag.substring(0, etag.length() - 1) + '-' + contentEncoding + '"';
+    }
+}
@@ -0,0 +1,55 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.util;
+
+import org.codehaus.groovy.grails.web.pages.GSPResponseWriter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.PrintWriter;
+
+/**
+ * Routes the output that is written to the writer of a response, such as the output of a converter, through a
+ * {@link GSPResponseWriter} that computes the ETag of the response. The output is written to the response when
+ * the wrapper is closed. The status that is set through the wrapper is tracked, so that only 2xx responses get
+ * an ETag.
+ *
+ * @see ETagSupport
+ * @since 1.2
+ */
+public class ETagResponseWrapper extends StatusTrackingResponseWrapper {
+    private static final int BUFFER_SIZE = 8192;
+    private GSPResponseWriter writer;
+
+    public ETagResponseWrapper(HttpServletRequest request, HttpServletResponse response) {
+        super(request, response);
+    }
+
+    public PrintWriter getWriter() {
+        if (writer == null) {
+            writer = GSPResponseWriter.getInstance(getResponse(), BUFFER_SIZE);
+        }
+        return writer;
+    }
+
+    /**
+     * Writes the buffered output to the response, or answers 304 Not Modified if the client has it already
+     */
+    public void close() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.util;
+
+import org.codehaus.groovy.grails.web.servlet.HttpHeaders;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * <p>Support for conditional GET requests. When enabled with <code>grails.web.etag.enabled = true</code>, a strong
+ * ETag is computed for the rendered views and converter output of GET and HEAD requests that fit in the response
+ * buffer (<code>grails.web.etag.maxsize</code>, 64K by default), and the body isn't sent when the If-None-Match
+ * header of the request matches it.</p>
+ *
+ * <p>The ETag is computed from the chunks of the buffer as they fill up, see
+ * {@link org.codehaus.groovy.grails.web.pages.GSPByteOutputWriter}. Responses that are larger than the buffer have
+ * been committed before their end, so they don't get an ETag.</p>
+ *
+ * <p>Only responses with a 2xx status get an ETag. The status is recorded by a
+ * {@link StatusTrackingResponseWrapper} that is installed for ETag requests before they reach the controllers.</p>
+ *
+ * @since 1.2
+ */
+public class ETagSupport {
+    private static final String INCLUDE_REQUEST_URI_ATTRIBUTE = "javax.servlet.include.request_uri";
+    private static final String ERROR_STATUS_CODE_ATTRIBUTE = "javax.servlet.error.status_code";
+    private static final String STATUS_ATTRIBUTE = ETagSupport.class.getName() + ".STATUS";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static volatile boolean enabled;
+    private static volatile int maxBufferSize = 64 * 1024;
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        ETagSupport.enabled = enabled;
+    }
+
+    /**
+     * @return The number of bytes of a response that are buffered to compute its ETag
+     */
+    public static int getMaxBufferSize() {
+        return maxBufferSize;
+    }
+
+    public static void setMaxBufferSize(int maxBufferSize) {
+        ETagSupport.maxBufferSize = maxBufferSize;
+    }
+
+    /**
+     * Whether an ETag is computed for the response to the request: ETags are enabled and the request is a GET or
+     * HEAD request that isn't an include or an error page
+     *
+     * @param request The request, can be null
+     * @return True if the ETag of the response should be computed
+     */
+    public static boolean isETagRequest(HttpServletRequest request) {
+        if (!enabled || request == null) return false;
+        String method = request.getMethod();
+        return ("GET".equals(method) || "HEAD".equals(method)) &&
+                request.getAttribute(INCLUDE_REQUEST_URI_ATTRIBUTE) == null &&
+                request.getAttribute(ERROR_STATUS_CODE_ATTRIBUTE) == null;
+    }
+
+    /**
+     * Records the status of the response to a request, see {@link StatusTrackingResponseWrapper}
+     *
+     * @param request The request
+     * @param status The status of the response
+     */
+    public static void setStatus(HttpServletRequest request, int status) {
+        request.setAttribute(STATUS_ATTRIBUTE, status);
+    }
+
+    /**
+     * Whether the response to a request has a 2xx status, so that it may get an ETag and be answered with 304 Not
+     * Modified. A response whose status hasn't been recorded has the default 200 OK.
+     *
+     * @param request The request
+     * @return True if the status of the response is 2xx
+     */
+    public static boolean isSuccessful(HttpServletRequest request) {
+        Integer status = (Integer) request.getAttribute(STATUS_ATTRIBUTE);
+        return status == null || (status >= 200 && status < 300);
+    }
+
+    /**
+     * @return A new MD5 digest to compute an ETag with, see {@link #createETag(MessageDigest)}
+     */
+    public static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 isn't supported by the JVM", e);
+        }
+    }
+
+    /**
+     * Computes a strong ETag from the MD5 digest of the content. The buffers are read without changing their
+     * position.
+     *
+     * @param buffers The content
+     * @return The quoted ETag
+     */
+    public static String createETag(ByteBuffer[] buffers) {
+        MessageDigest digest = createDigest();
+        for (ByteBuffer buffer : buffers) {
+            digest.update(buffer.duplicate());
+        }
+        return createETag(digest);
+    }
+
+    /**
+     * Completes a digest created by {@link #createDigest()} and formats it as a strong ETag
+     *
+     * @param digest The digest that has been updated with the content
+     * @return The quoted ETag
+     */
+    public static String createETag(MessageDigest digest) {
+        byte[] hash = digest.digest();
+        char[] etag = new char[hash.length * 2 + 2];
+        etag[0] = '"';
+        for (int i = 0; i < hash.length; i++) {
+            etag[i * 2 + 1] = HEX[(hash[i] >> 4) & 0xf];
+            etag[i * 2 + 2] = HEX[hash[i] & 0xf];
+        }
+        etag[etag.length - 1] = '"';
+        return new String(etag);
+    }
+
+    /**
+     * Compares an ETag with the value of an If-None-Match header, using the weak comparison that the header
+     * requires
+     *
+     * @param ifNoneMatch The value of the header, a list of ETags or *
+     * @param etag The ETag of the response
+     * @return True if the header contains the ETag
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) return false;
+        String opaqueTag = stripWeakIndicator(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if ("*".equals(candidate) || stripWeakIndicator(candidate).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeakIndicator(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * Evaluates the conditional headers of a request. If-None-Match takes precedence over If-Modified-Since.
+     *
+     * @param request The request
+     * @param etag The ETag of the response, can be null
+     * @param lastModified The last modification time of the response in milliseconds, or -1 if unknown
+     * @return True if the client already has the response and 304 Not Modified can be returned
+     */
+    public static boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matches(ifNoneMatch, etag);
+        }
+        if (lastModified >= 0) {
+            long ifModifiedSince;
+            try {
+                ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            }
+            catch (IllegalArgumentException e) {
+                return false;
+            }
+            // HTTP dates have a precision of a second
+            return ifModifiedSince != -1 && lastModified / 1000 * 1000 <= ifModifiedSince;
+        }
+        return false;
+    }
+}
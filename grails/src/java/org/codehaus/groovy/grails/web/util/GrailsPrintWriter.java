@@ -6,6 +6,7 @@ import java.io.Writer;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.codehaus.groovy.grails.plugins.codecs.HTMLCodec;
 import org.codehaus.groovy.runtime.InvokerHelper;
 
 /**
@@ -23,6 +24,7 @@ public class GrailsPrintWriter extends PrintWriter {
 	protected boolean trouble=false;
 	protected Writer out;
 	private boolean finalTargetHere=false;
+	protected long charsWritten;
 
 	public GrailsPrintWriter(Writer out) {
 		super(out);
@@ -33,6 +35,13 @@ public class GrailsPrintWriter extends PrintWriter {
 		return out;
 	}
 
+	/**
+	 * @return The number of characters written through this writer, used to measure the output of tags and pages
+	 */
+	public long getCharsWritten() {
+		return charsWritten;
+	}
+
 	public boolean isFinalTargetHere() {
 		return this.finalTargetHere;
 	}
@@ -118,7 +127,9 @@ public class GrailsPrintWriter extends PrintWriter {
 		} else {
 			if(obj instanceof CharSequence) {
 				try {
-					out.append((CharSequence) obj);
+					CharSequence csq = (CharSequence) obj;
+					charsWritten += csq.length();
+					out.append(csq);
 				} catch (IOException e) {
 					handleIOException(e);
 				}
@@ -128,6 +139,23 @@ public class GrailsPrintWriter extends PrintWriter {
 		}
 	}
 
+	/**
+	 * Prints an object HTML encoded, writing the escaped text straight to the underlying writer.
+	 * Nothing is printed for null.
+	 *
+	 * @param obj The object to print
+	 */
+	public void printHtmlEncoded(Object obj) {
+		if (trouble || obj == null) {
+			return;
+		}
+		try {
+			charsWritten += HTMLCodec.encodeTo(obj, out);
+		} catch (IOException e) {
+			handleIOException(e);
+		}
+	}
+
 	/**
 	 * Print a string.  If the argument is <code>null</code> then the string
 	 * <code>""</code> is printed.  Otherwise, the string's characters are
@@ -156,6 +184,7 @@ public class GrailsPrintWriter extends PrintWriter {
         	return;
         }
         try {
+        	charsWritten += s.length();
        		out.write(s);
 		} catch (IOException e) {
 			handleIOException(e);
@@ -170,6 +199,7 @@ public class GrailsPrintWriter extends PrintWriter {
 	public void write(int c) {
 		if (trouble) return;
 		try {
+			charsWritten++;
 			out.write(c);
 		} catch (IOException e) {
 			handleIOException(e);
@@ -186,6 +216,7 @@ public class GrailsPrintWriter extends PrintWriter {
 	public void write(char buf[], int off, int len) {
 		if (trouble || buf == null || len == 0) return;
 		try {
+			charsWritten += len;
 			out.write(buf, off, len);
 		} catch (IOException e) {
 			handleIOException(e);
@@ -202,6 +233,7 @@ public class GrailsPrintWriter extends PrintWriter {
 	public void write(String s, int off, int len) {
 		if (trouble || s == null || s.length() == 0) return;
 		try {
+			charsWritten += len;
 			out.write(s, off, len);
 		} catch (IOException e) {
 			handleIOException(e);
@@ -315,6 +347,7 @@ public class GrailsPrintWriter extends PrintWriter {
 	@Override
 	public PrintWriter append(char c) {
 		try {
+			charsWritten++;
 			out.append(c);
 		} catch (IOException e) {
 			handleIOException(e);
@@ -325,6 +358,7 @@ public class GrailsPrintWriter extends PrintWriter {
 	@Override
 	public PrintWriter append(CharSequence csq, int start, int end) {
 		try {
+			charsWritten += end - start;
 			out.append(csq, start, end);
 		} catch (IOException e) {
 			handleIOException(e);
@@ -335,6 +369,7 @@ public class GrailsPrintWriter extends PrintWriter {
 	@Override
 	public PrintWriter append(CharSequence csq) {
 		try {
+			if (csq != null) charsWritten += csq.length();
 			out.append(csq);
 		} catch (IOException e) {
 			handleIOException(e);
@@ -0,0 +1,133 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.util;
+
+import grails.util.Metadata;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.jmx.support.JmxUtils;
+
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * <p>Registers the statistics MBeans of the caches and the GSP profiler. The MBeans of an application are named
+ * <code>grails:type=[type],application=[application name],name=[name]</code> so that several applications can
+ * be deployed in the same container.</p>
+ *
+ * <p>An MBean that is already registered under the same name is left in place and a warning is logged. Whoever
+ * registers an MBean unregisters it when the application is shut down, so that the MBeanServer doesn't keep the
+ * classes of the application loaded after it is undeployed.</p>
+ *
+ * @since 1.2
+ */
+public class JmxSupport {
+    private static final Log LOG = LogFactory.getLog(JmxSupport.class);
+
+    public static final String DOMAIN = "grails";
+    private static final String DEFAULT_APPLICATION_NAME = "grails";
+
+    /**
+     * Creates the name of an MBean of the current application
+     *
+     * @param type The type of the MBean
+     * @param name The name of the MBean, or null if there is a single MBean of the type
+     * @return The ObjectName
+     * @throws MalformedObjectNameException If the type or the name contain characters that aren't allowed
+     */
+    public static ObjectName createObjectName(String type, String name) throws MalformedObjectNameException {
+        StringBuilder objectName = new StringBuilder(DOMAIN).append(":type=").append(type)
+                .append(",application=").append(quoteIfNecessary(getApplicationName()));
+        if (name != null) {
+            objectName.append(",name=").append(name);
+        }
+        return new ObjectName(objectName.toString());
+    }
+
+    /**
+     * Registers an MBean of the current application. Failures are logged rather than propagated.
+     *
+     * @param mbean The MBean
+     * @param type The type of the MBean
+     * @param name The name of the MBean, or null if there is a single MBean of the type
+     * @return The name the MBean is registered under, or null if it wasn't registered
+     */
+    public static ObjectName registerMBean(Object mbean, String type, String name) {
+        ObjectName objectName = null;
+        try {
+            objectName = createObjectName(type, name);
+            MBeanServer server = JmxUtils.locateMBeanServer();
+            if (server.isRegistered(objectName)) {
+                LOG.warn("Not registering MBean [" + objectName + "], another MBean is registered under that name");
+                return null;
+            }
+            server.registerMBean(mbean, objectName);
+            return objectName;
+        }
+        catch (Exception e) {
+            LOG.warn("Unable to register MBean [" + (objectName != null ? objectName.toString() : type) + "]: " +
+                    e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Unregisters an MBean. Failures are logged rather than propagated.
+     *
+     * @param objectName The name the MBean is registered under, can be null
+     */
+    public static void unregisterMBean(ObjectName objectName) {
+        if (objectName == null) return;
+        try {
+            MBeanServer server = JmxUtils.locateMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        }
+        catch (Exception e) {
+            LOG.warn("Unable to unregister MBean [" + objectName + "]: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Unregisters MBeans and clears the given collection of names
+     *
+     * @param objectNames The names the MBeans are registered under
+     */
+    public static void unregisterMBeans(Collection<ObjectName> objectNames) {
+        for (Iterator<ObjectName> i = objectNames.iterator(); i.hasNext();) {
+            unregisterMBean(i.next());
+        }
+        objectNames.clear();
+    }
+
+    private static String getApplicationName() {
+        Metadata metadata = Metadata.getCurrent();
+        String applicationName = metadata != null ? metadata.getApplicationName() : null;
+        return applicationName != null && applicationName.length() > 0 ? applicationName : DEFAULT_APPLICATION_NAME;
+    }
+
+    private static String quoteIfNecessary(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (",=:\"*?\n".indexOf(value.charAt(i)) > -1) {
+                return ObjectName.quote(value);
+            }
+        }
+        return value;
+    }
+}
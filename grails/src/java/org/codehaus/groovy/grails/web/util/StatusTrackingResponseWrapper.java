@@ -0,0 +1,67 @@
+/* Copyright 2004-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.util;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+
+/**
+ * Records the status of a response in an attribute of its request, since the Servlet 2.5 API can't read it back
+ * from the response. The status is kept in the request, so that the writers of the views and layouts that the
+ * request is forwarded to can see it through the other wrappers of the response.
+ *
+ * @see ETagSupport#isSuccessful(HttpServletRequest)
+ * @since 1.2
+ */
+public class StatusTrackingResponseWrapper extends HttpServletResponseWrapper {
+    private final HttpServletRequest request;
+
+    public StatusTrackingResponseWrapper(HttpServletRequest request, HttpServletResponse response) {
+        super(response);
+        this.request = request;
+    }
+
+    public void setStatus(int status) {
+        super.setStatus(status);
+        ETagSupport.setStatus(request, status);
+    }
+
+    public void setStatus(int status, String message) {
+        super.setStatus(status, message);
+        ETagSupport.setStatus(request, status);
+    }
+
+    public void sendError(int status) throws IOException {
+        super.sendError(status);
+        ETagSupport.setStatus(request, status);
+    }
+
+    public void sendError(int status, String message) throws IOException {
+        super.sendError(status, message);
+        ETagSupport.setStatus(request, status);
+    }
+
+    public void sendRedirect(String location) throws IOException {
+        super.sendRedirect(location);
+        ETagSupport.setStatus(request, SC_MOVED_TEMPORARILY);
+    }
+
+    public void reset() {
+        super.reset();
+        ETagSupport.setStatus(request, SC_OK);
+    }
+}
@@ -7,9 +7,14 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.*;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 
 /**
  *
@@ -37,6 +42,8 @@ public class StreamByteBuffer {
 	private int totalBytesUnreadInIterator = 0;
 	private ReadMode readMode;
 	private Iterator<StreamByteBufferChunk> readIterator;
+	private MessageDigest digest;
+	private int digestedInWriteChunk;
 	
 	public enum ReadMode {
 		REMOVE_AFTER_READING,
@@ -73,6 +80,134 @@ public class StreamByteBuffer {
 		}
 	}
 
+	/**
+	 * Writes the unread chunks to a channel without copying them, with a single gathering write if the channel
+	 * supports it
+	 *
+	 * @param channel The target channel, expected to be blocking
+	 * @throws IOException When writing to the channel fails
+	 */
+	public void writeTo(WritableByteChannel channel) throws IOException {
+		write(readAsNioBuffers(), channel);
+	}
+
+	/**
+	 * Writes buffers to a channel, with a single gathering write if the channel supports it
+	 *
+	 * @param buffers The buffers, for example returned by {@link #readAsNioBuffers()}
+	 * @param channel The target channel, expected to be blocking
+	 * @throws IOException When writing to the channel fails
+	 */
+	public static void write(ByteBuffer[] buffers, WritableByteChannel channel) throws IOException {
+		if (channel instanceof GatheringByteChannel) {
+			GatheringByteChannel gatheringChannel = (GatheringByteChannel) channel;
+			int first = 0;
+			while (first < buffers.length) {
+				gatheringChannel.write(buffers, first, buffers.length - first);
+				while (first < buffers.length && !buffers[first].hasRemaining()) {
+					first++;
+				}
+			}
+		} else {
+			for (ByteBuffer buffer : buffers) {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the unread chunks as ByteBuffers that wrap the chunks' arrays.
+	 *
+	 * @return The buffers in order, empty if there's nothing to read
+	 */
+	public ByteBuffer[] readAsNioBuffers() {
+		List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+		while (prepareRead() != -1) {
+			ByteBuffer buffer = currentReadChunk.readToNioBuffer();
+			if (buffer != null) {
+				buffers.add(buffer);
+			}
+		}
+		return buffers.toArray(new ByteBuffer[buffers.size()]);
+	}
+
+	/**
+	 * Digests the bytes held by this buffer and the bytes that are written to it from now on. The chunks are
+	 * digested as they fill up, the last one by {@link #completeDigest()}.
+	 *
+	 * @param digest The digest to update, or null to stop digesting
+	 */
+	public void setDigest(MessageDigest digest) {
+		this.digest = digest;
+		digestedInWriteChunk = 0;
+		if (digest != null) {
+			for (StreamByteBufferChunk chunk : chunks) {
+				digest.update(chunk.buffer, 0, chunk.used);
+			}
+			updateDigest();
+		}
+	}
+
+	/**
+	 * Digests the bytes of the chunk that is being written and stops digesting
+	 *
+	 * @return The digest of the bytes written since {@link #setDigest(MessageDigest)}, or null if no digest is set
+	 */
+	public MessageDigest completeDigest() {
+		MessageDigest result = digest;
+		if (result != null) {
+			updateDigest();
+			digest = null;
+		}
+		return result;
+	}
+
+	private void updateDigest() {
+		int used = currentWriteChunk.used;
+		if (used > digestedInWriteChunk) {
+			digest.update(currentWriteChunk.buffer, digestedInWriteChunk, used - digestedInWriteChunk);
+			digestedInWriteChunk = used;
+		}
+	}
+
+	/**
+	 * Encodes characters directly into the chunks of this buffer. When the input ends with the high surrogate of
+	 * a pair and endOfInput is false, the surrogate is left unread in the input.
+	 *
+	 * @param in The characters to encode
+	 * @param encoder The encoder, which the caller is responsible for resetting
+	 * @param endOfInput Whether no more characters will be encoded with the encoder
+	 * @return The result of the encoding, which is an underflow unless the encoder reports errors
+	 */
+	public CoderResult encode(CharBuffer in, CharsetEncoder encoder, boolean endOfInput) {
+		CoderResult result;
+		do {
+			allocateSpace();
+			ByteBuffer out = currentWriteChunk.writeToNioBuffer();
+			result = encoder.encode(in, out, endOfInput);
+			currentWriteChunk.used = out.position();
+			if (result.isOverflow()) {
+				// an encoded character may not fit in the space left in the chunk
+				startNewWriteChunk();
+			}
+		} while (result.isOverflow());
+
+		if (endOfInput && result.isUnderflow()) {
+			do {
+				allocateSpace();
+				ByteBuffer out = currentWriteChunk.writeToNioBuffer();
+				result = encoder.flush(out);
+				currentWriteChunk.used = out.position();
+				if (result.isOverflow()) {
+					startNewWriteChunk();
+				}
+			} while (result.isOverflow());
+		}
+		return result;
+	}
+
 	public byte[] readAsByteArray() {
 		byte[] buf = new byte[totalBytesUnread()];
 		input.readImpl(buf, 0, buf.length);
@@ -150,14 +285,25 @@ public class StreamByteBuffer {
 	protected int allocateSpace() {
 		int spaceLeft = currentWriteChunk.spaceLeft();
 		if (spaceLeft == 0) {
-			chunks.add(currentWriteChunk);
-			totalBytesUnreadInList += currentWriteChunk.bytesUnread();
-			currentWriteChunk = new StreamByteBufferChunk(chunkSize);
+			startNewWriteChunk();
 			spaceLeft = currentWriteChunk.spaceLeft();
 		}
 		return spaceLeft;
 	}
 
+	private void startNewWriteChunk() {
+		if (digest != null) {
+			updateDigest();
+			digestedInWriteChunk = 0;
+		}
+		// a chunk that is being read is already counted as the read chunk and mustn't be read again from the list
+		if (readMode == ReadMode.RETAIN_AFTER_READING || currentWriteChunk != currentReadChunk) {
+			chunks.add(currentWriteChunk);
+			totalBytesUnreadInList += currentWriteChunk.bytesUnread();
+		}
+		currentWriteChunk = new StreamByteBufferChunk(chunkSize);
+	}
+
 	protected int prepareRead() {
 		prepareRetainAfterReading();
 		int bytesUnread = (currentReadChunk != null) ? currentReadChunk
@@ -238,6 +384,10 @@ public class StreamByteBuffer {
 			}
 		}
 
+		public ByteBuffer writeToNioBuffer() {
+			return ByteBuffer.wrap(buffer, used, size - used);
+		}
+
 		public boolean write(byte b) {
 			if (used < size) {
 				buffer[used++] = b;
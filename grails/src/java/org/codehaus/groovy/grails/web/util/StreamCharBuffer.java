@@ -207,6 +207,7 @@ public class StreamCharBuffer {
 	 * @param resetChunkSize
 	 */
 	public void reset(boolean resetChunkSize) {
+		recycleChunks();
 		chunks = new LinkedList<StreamCharBufferChunk>();
 		totalCharsUnreadInList = 0;
 		totalCharsUnread = 0;
@@ -220,6 +221,37 @@ public class StreamCharBuffer {
 		cachedToCharArray = null;
 	}
 
+	/**
+	 * Returns the chunks of this buffer to the chunk pool, typically at the end of a request. Content that
+	 * hasn't been read yet is discarded, the values cached by {@link #toString()} and {@link #toCharArray()}
+	 * are kept. The buffer can still be written to afterwards.
+	 */
+	public void recycle() {
+		recycleChunks();
+		chunks = new LinkedList<StreamCharBufferChunk>();
+		totalCharsUnreadInList = 0;
+		totalCharsUnread = 0;
+		chunkSize = firstChunkSize;
+		totalChunkSize = 0;
+		// allocated from the pool on the next write
+		currentWriteChunk = new StreamCharBufferChunk(0);
+		currentReadChunk = null;
+	}
+
+	private void recycleChunks() {
+		if(chunks != null) {
+			for(StreamCharBufferChunk chunk : chunks) {
+				chunk.recycle();
+			}
+		}
+		if(currentReadChunk != null) {
+			currentReadChunk.recycle();
+		}
+		if(currentWriteChunk != null) {
+			currentWriteChunk.recycle();
+		}
+	}
+
 	/**
 	 * Writer interface for adding/writing data to the buffer.
 	 *
@@ -266,12 +298,35 @@ public class StreamCharBuffer {
 		}
 	}
 
+	/**
+	 * Writes the buffer content to a target java.io.Writer without reading it, so that the same content can be
+	 * written again, for example when a layout writes a captured region of a page more than once.
+	 *
+	 * Once the buffer has been read, its content is written from {@link #toString()}.
+	 *
+	 * @param target Writer
+	 * @throws IOException
+	 */
+	public void copyTo(Writer target) throws IOException {
+		if (currentReadChunk != null || cachedToString != null) {
+			target.write(toString());
+			return;
+		}
+		for (StreamCharBufferChunk chunk : chunks) {
+			chunk.copyTo(target);
+		}
+		if (currentWriteChunk != null) {
+			currentWriteChunk.copyTo(target);
+		}
+	}
+
 	/**
 	 * reads (and empties) the buffer to a char[]
 	 *
 	 * @return
 	 */
 	public char[] readAsCharArray() {
+		// never taken from the chunk pool: the array may be wrapped as a String or cached by toCharArray()
 		char[] buf = new char[calculateTotalCharsUnread()];
 		if(buf.length > 0) {
 			try {
@@ -373,10 +428,13 @@ public class StreamCharBuffer {
 
 	private int endCurrentWriteChunk() throws IOException {
 		int spaceLeft;
-		chunks.add(currentWriteChunk);
-		totalCharsUnreadInList += currentWriteChunk.charsUnread();
-		totalChunkSize += currentWriteChunk.chunkSize();
-		resizeChunkSizeAsProcentageOfTotalSize();
+		// the write chunk of a recycled buffer has no space, skip it unless strings have been appended to it
+		if(currentWriteChunk.chunkSize() > 0 || currentWriteChunk.charsUnread() > 0) {
+			chunks.add(currentWriteChunk);
+			totalCharsUnreadInList += currentWriteChunk.charsUnread();
+			totalChunkSize += currentWriteChunk.chunkSize();
+			resizeChunkSizeAsProcentageOfTotalSize();
+		}
 		currentWriteChunk = new StreamCharBufferChunk(chunkSize);
 		spaceLeft = currentWriteChunk.spaceLeft();
 		flushIfConnected(false,true);
@@ -406,9 +464,9 @@ public class StreamCharBuffer {
 		if(growProcent==0) {
 			return;
 		} else if (growProcent==100) {
-			chunkSize = Math.min(totalChunkSize, maxChunkSize);
+			chunkSize = Math.min(Math.max(totalChunkSize, firstChunkSize), maxChunkSize);
 		} else if(growProcent==200) {
-			chunkSize = Math.min(totalChunkSize << 1, maxChunkSize);
+			chunkSize = Math.min(Math.max(totalChunkSize << 1, firstChunkSize), maxChunkSize);
 		} else if (growProcent > 0) {
 			chunkSize = Math.max(Math.min((totalChunkSize * growProcent)/100, maxChunkSize), firstChunkSize);
 		}
@@ -423,10 +481,18 @@ public class StreamCharBuffer {
 				.charsUnread() : 0;
 		if (charsUnread == 0) {
 			if (!chunks.isEmpty()) {
+				StreamCharBufferChunk readChunk = currentReadChunk;
 				currentReadChunk = chunks.removeFirst();
+				// a chunk that was read while it was the write chunk is also the first one in the list
+				if (readChunk != null && readChunk != currentReadChunk && readChunk != currentWriteChunk) {
+					readChunk.recycle();
+				}
 				charsUnread = currentReadChunk.charsUnread();
 				totalCharsUnreadInList -= charsUnread;
 			} else if (readLast && currentReadChunk != currentWriteChunk) {
+				if (currentReadChunk != null) {
+					currentReadChunk.recycle();
+				}
 				currentReadChunk = currentWriteChunk;
 				charsUnread = currentReadChunk.charsUnread();
 				if(charsUnread==0) {
@@ -688,7 +754,18 @@ public class StreamCharBuffer {
 
 		public StreamCharBufferChunk(int size) {
 			this.size = size;
-			this.buffer = new char[size];
+			this.buffer = StreamCharBufferChunkPool.allocate(size);
+		}
+
+		/**
+		 * Returns the buffer of this chunk to the pool. The chunk is left empty and without space, so
+		 * recycling it again or writing to it by mistake can't reach the buffer once it has been reused.
+		 */
+		public void recycle() {
+			StreamCharBufferChunkPool.recycle(buffer);
+			buffer = StreamCharBufferChunkPool.EMPTY_BUFFER;
+			size = 0;
+			reuseBuffer();
 		}
 
 		public void reuseBuffer() {
@@ -710,7 +787,7 @@ public class StreamCharBuffer {
 		}
 
 		public int chunkSize() {
-			return buffer.length;
+			return size;
 		}
 
 		public void write(char[] ch, int off, int len) {
@@ -815,6 +892,26 @@ public class StreamCharBuffer {
 			return writtenCount;
 		}
 
+		/**
+		 * Writes the content of a chunk that hasn't been read, leaving it unread
+		 */
+		public void copyTo(Writer target) throws IOException {
+			int pos = 0;
+			if (StringChunkGroups != null) {
+				for (StringChunkGroup group : StringChunkGroups) {
+					int ownerIndex = group.getOwnerIndex();
+					if (ownerIndex > pos) {
+						target.write(buffer, pos, ownerIndex - pos);
+						pos = ownerIndex;
+					}
+					group.copyTo(target);
+				}
+			}
+			if (used > pos) {
+				target.write(buffer, pos, used - pos);
+			}
+		}
+
 		public int charsUnread() {
 			return used - pointer + unreadCharsInStringChunkGroups + ((readingStringChunkGroup!=null)?readingStringChunkGroup.getUnreadChars():0);
 		}
@@ -901,6 +998,12 @@ public class StreamCharBuffer {
 			return totalChars;
 		}
 
+		public void copyTo(Writer target) throws IOException {
+			for (StringChunk stringChunk : unreadStringChunks) {
+				stringChunk.copyTo(target);
+			}
+		}
+
 		public int writeTo(Writer target) throws IOException {
 			int writtenCount=0;
 			while(prepareReading()) {
@@ -944,6 +1047,10 @@ public class StreamCharBuffer {
 			return readCharsLen;
 		}
 
+		public void copyTo(Writer target) throws IOException {
+			target.write(str, readOffset, unreadChars);
+		}
+
 		public int writeTo(Writer target) throws IOException {
 			int len=unreadChars;
 			target.write(str, readOffset, len);
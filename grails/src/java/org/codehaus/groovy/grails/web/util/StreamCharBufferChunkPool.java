@@ -0,0 +1,168 @@
+/*
+ * Copyright 2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.grails.web.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Pool of the char[] buffers of {@link StreamCharBuffer} chunks. Buffers are returned to the pool when a chunk
+ * has been read completely, when a buffer is reset and when it's recycled at the end of a request, and are taken
+ * from the pool when a chunk of the same size is allocated.</p>
+ *
+ * <p>Each thread keeps a small pool of its own, bounded by its number of buffers and characters, so that a request
+ * thread reuses the buffers of its previous requests without synchronization. The pool of a thread is a plain
+ * char[][] held by a ThreadLocal that isn't subclassed, so the threads of the container, which outlive the
+ * application, don't keep its classes loaded once it's undeployed. Buffers that don't fit in the pool of the thread
+ * go to a shared pool bounded by its total number of characters. Buffers larger than <code>streamcharbuffer.pool.maxchunksize</code> aren't pooled.
+ * Pooling can be switched off with <code>-Dstreamcharbuffer.pool=false</code>.</p>
+ *
+ * <p>Only buffers allocated for chunks are pooled: the char[] and String values returned by
+ * {@link StreamCharBuffer#toCharArray()} and {@link StreamCharBuffer#toString()} are always copies, so a cached value
+ * never shares its characters with a recycled buffer.</p>
+ *
+ * @since 1.2
+ */
+final class StreamCharBufferChunkPool {
+    static final boolean ENABLED = !"false".equals(System.getProperty("streamcharbuffer.pool"));
+    private static final int MAX_POOLED_CHUNK_SIZE = Integer.getInteger("streamcharbuffer.pool.maxchunksize", 64 * 1024);
+    private static final int MAX_LOCAL_BUFFERS = Integer.getInteger("streamcharbuffer.pool.localsize", 16);
+    private static final int MAX_LOCAL_CHARS = Integer.getInteger("streamcharbuffer.pool.localchars", 64 * 1024);
+    private static final long MAX_SHARED_CHARS = Long.getLong("streamcharbuffer.pool.sharedchars", 4 * 1024 * 1024);
+    static final char[] EMPTY_BUFFER = new char[0];
+
+    private static final ThreadLocal<char[][]> LOCAL_POOL = new ThreadLocal<char[][]>();
+    private static final Map<Integer, ConcurrentLinkedQueue<char[]>> SHARED_POOL = new ConcurrentHashMap<Integer, ConcurrentLinkedQueue<char[]>>();
+    private static final AtomicLong SHARED_CHARS = new AtomicLong();
+
+    private static final AtomicLong ALLOCATED_CHARS = new AtomicLong();
+    private static final AtomicLong REUSED_CHARS = new AtomicLong();
+
+    private StreamCharBufferChunkPool() {
+    }
+
+    /**
+     * Returns a buffer of the given size, from the pool if one is available
+     *
+     * @param size The size of the buffer
+     * @return A char[] of exactly the given size
+     */
+    static char[] allocate(int size) {
+        if (size == 0) return EMPTY_BUFFER;
+        if (ENABLED && size <= MAX_POOLED_CHUNK_SIZE) {
+            char[] buffer = takeLocal(size);
+            if (buffer == null) {
+                ConcurrentLinkedQueue<char[]> queue = SHARED_POOL.get(size);
+                buffer = queue != null ? queue.poll() : null;
+                if (buffer != null) {
+                    SHARED_CHARS.addAndGet(-size);
+                }
+            }
+            if (buffer != null) {
+                REUSED_CHARS.addAndGet(size);
+                return buffer;
+            }
+        }
+        ALLOCATED_CHARS.addAndGet(size);
+        return new char[size];
+    }
+
+    /**
+     * Returns a buffer to the pool. The caller must not use the buffer afterwards.
+     *
+     * @param buffer The buffer of a chunk
+     */
+    static void recycle(char[] buffer) {
+        int size = buffer.length;
+        if (!ENABLED || size == 0 || size > MAX_POOLED_CHUNK_SIZE) return;
+        if (offerLocal(buffer)) return;
+
+        if (SHARED_CHARS.addAndGet(size) > MAX_SHARED_CHARS) {
+            SHARED_CHARS.addAndGet(-size);
+            return;
+        }
+        ConcurrentLinkedQueue<char[]> queue = SHARED_POOL.get(size);
+        if (queue == null) {
+            synchronized (SHARED_POOL) {
+                queue = SHARED_POOL.get(size);
+                if (queue == null) {
+                    queue = new ConcurrentLinkedQueue<char[]>();
+                    SHARED_POOL.put(size, queue);
+                }
+            }
+        }
+        queue.offer(buffer);
+    }
+
+    /**
+     * @return The number of characters of the buffers that had to be allocated
+     */
+    static long getAllocatedChars() {
+        return ALLOCATED_CHARS.get();
+    }
+
+    /**
+     * @return The number of characters of the buffers that were taken from the pool
+     */
+    static long getReusedChars() {
+        return REUSED_CHARS.get();
+    }
+
+    /**
+     * Empties the pool of the current thread and the shared pool
+     */
+    static void clear() {
+        LOCAL_POOL.remove();
+        SHARED_POOL.clear();
+        SHARED_CHARS.set(0);
+    }
+
+    private static char[] takeLocal(int size) {
+        char[][] buffers = LOCAL_POOL.get();
+        if (buffers == null) return null;
+        for (int i = 0; i < buffers.length; i++) {
+            char[] buffer = buffers[i];
+            if (buffer != null && buffer.length == size) {
+                buffers[i] = null;
+                return buffer;
+            }
+        }
+        return null;
+    }
+
+    private static boolean offerLocal(char[] buffer) {
+        char[][] buffers = LOCAL_POOL.get();
+        if (buffers == null) {
+            buffers = new char[MAX_LOCAL_BUFFERS][];
+            LOCAL_POOL.set(buffers);
+        }
+        int free = -1;
+        int chars = buffer.length;
+        for (int i = 0; i < buffers.length; i++) {
+            if (buffers[i] == null) {
+                if (free == -1) free = i;
+            }
+            else {
+                chars += buffers[i].length;
+            }
+        }
+        if (free == -1 || chars > MAX_LOCAL_CHARS) return false;
+        buffers[free] = buffer;
+        return true;
+    }
+}
@@ -72,4 +72,22 @@ class  ChildController extends ParentController {
         assertEquals "foo", child.getBeforeInterceptor(obj).call()
         assertEquals "bar", child.getAfterInterceptor(obj).call()
     }
+
+    void testScope() {
+        gcl.parseClass("""
+class SharedController {
+    static scope = "singleton"
+    def index = { }
+}
+class DefaultController {
+    def index = { }
+}
+        """)
+
+        def ga = new DefaultGrailsApplication(gcl.loadedClasses, gcl)
+        ga.initialise()
+
+        assertEquals GrailsControllerClass.SCOPE_SINGLETON, ga.getControllerClass("SharedController").scope
+        assertNull ga.getControllerClass("DefaultController").scope
+    }
 }
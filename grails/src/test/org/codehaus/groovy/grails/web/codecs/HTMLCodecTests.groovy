@@ -15,6 +15,25 @@ class HTMLCodecTests extends GroovyTestCase{
         assertEquals('&lt;tag&gt;', codec.encode('<tag>'))
         assertEquals('&quot;quoted&quot;', codec.encode('"quoted"'))
 	}
+	void testEncodeIsIdenticalToHtmlUtils() {
+        def chars = new StringBuilder()
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            chars.append((char) c).append('a')
+        }
+        def text = chars.toString()
+        assertEquals(org.springframework.web.util.HtmlUtils.htmlEscape(text), codec.encode(text))
+	}
+	void testEncodeCleanTextIsNotCopied() {
+        def text = 'no markup here'
+        assertSame(text, codec.encode(text))
+        assertNull(codec.encode(null))
+	}
+	void testEncodeTo() {
+        def writer = new StringWriter()
+        assertEquals(52, codec.encodeTo('<a href="x">\u00e4 & b</a>', writer))
+        assertEquals('&lt;a href=&quot;x&quot;&gt;&auml; &amp; b&lt;/a&gt;', writer.toString())
+        assertEquals(0, codec.encodeTo(null, writer))
+	}
 	void testDecode() {
         assertEquals('<tag>', codec.decode('&lt;tag&gt;'))
         assertEquals('"quoted"', codec.decode('&quot;quoted&quot;'))
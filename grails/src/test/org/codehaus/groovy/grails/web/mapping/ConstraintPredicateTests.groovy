@@ -0,0 +1,74 @@
+package org.codehaus.groovy.grails.web.mapping
+
+import org.codehaus.groovy.grails.validation.ConstrainedProperty
+
+/**
+ * Tests for the ConstraintPredicate class
+ *
+ * @since 1.2
+ */
+class ConstraintPredicateTests extends GroovyTestCase {
+
+    void testMatches() {
+        def cp = createProperty()
+        cp.matches = /\d{4}/
+        def predicate = ConstraintPredicate.compile(cp)
+
+        assertTrue predicate.accepts("2007")
+        assertFalse predicate.accepts("blah")
+        assertFalse predicate.accepts("20071")
+    }
+
+    void testInListAndSize() {
+        def cp = createProperty()
+        cp.inList = ["one", "two", "three"]
+        cp.size = 3..3
+        def predicate = ConstraintPredicate.compile(cp)
+
+        assertTrue predicate.accepts("one")
+        assertFalse predicate.accepts("three")
+        assertFalse predicate.accepts("six")
+    }
+
+    void testNullableAndBlank() {
+        def cp = createProperty()
+        cp.nullable = false
+        cp.applyConstraint(ConstrainedProperty.BLANK_CONSTRAINT, false)
+        cp.matches = /\d+/
+        def predicate = ConstraintPredicate.compile(cp)
+
+        assertFalse predicate.accepts(null)
+        assertFalse predicate.accepts(" ")
+        assertTrue predicate.accepts("1")
+
+        cp.nullable = true
+        cp.applyConstraint(ConstrainedProperty.BLANK_CONSTRAINT, true)
+        predicate = ConstraintPredicate.compile(cp)
+        assertTrue predicate.accepts(null)
+        assertTrue predicate.accepts(" ")
+    }
+
+    void testCustomValidatorIsNotCompiled() {
+        def cp = createProperty()
+        cp.applyConstraint(ConstrainedProperty.VALIDATOR_CONSTRAINT, { it == "foo" })
+
+        assertNull ConstraintPredicate.compile(cp)
+    }
+
+    void testAgreesWithValidation() {
+        def cp = createProperty()
+        cp.matches = /[a-z]+/
+        cp.size = 2..5
+        def predicate = ConstraintPredicate.compile(cp)
+
+        for (value in ["ab", "abcdef", "a", "AB", "abc", "", "12"]) {
+            def errors = new org.springframework.validation.MapBindingResult([:], "urlMapping")
+            cp.validate(this, value, errors)
+            assertEquals "Predicate disagrees with validation for [$value]", !errors.hasErrors(), predicate.accepts(value)
+        }
+    }
+
+    private ConstrainedProperty createProperty() {
+        new ConstrainedProperty(UrlMapping, "test", String)
+    }
+}
@@ -150,5 +150,29 @@ mappings  {
 
     }
 
-}
+    void testMatchAllResolvesActionForHttpMethod() {
+        def res = new ByteArrayResource(mappingScript.bytes)
+        def mappings = evaluator.evaluateMappings(res)
+
+        def holder = new DefaultUrlMappingsHolder(mappings)
+        webRequest.currentRequest.method = "GET"
+
+        def infos = holder.matchAll("/books", "PUT")
+        assertEquals 1, infos.size()
+        assertEquals "book", infos[0].controllerName
+        assertEquals "save", infos[0].actionName
 
+        infos = holder.matchAll("/authors", "DELETE")
+        assertEquals "author", infos[0].controllerName
+        assertEquals "delete", infos[0].actionName
+        assertTrue "should have been a request parsing mapping", infos[0].parsingRequest
+
+        infos = holder.matchAll("/books", "GET")
+        assertEquals "list", infos[0].actionName
+
+        // the cached infos must not have been changed by a method specific match
+        webRequest.currentRequest.method = "POST"
+        assertEquals "update", holder.matchAll("/books")[0].actionName
+    }
+
+}
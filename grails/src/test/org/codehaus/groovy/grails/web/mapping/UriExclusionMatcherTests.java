@@ -0,0 +1,91 @@
+package org.codehaus.groovy.grails.web.mapping;
+
+import junit.framework.TestCase;
+import org.springframework.aop.framework.ProxyFactoryBean;
+import org.springframework.aop.target.HotSwappableTargetSource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Tests for the UriExclusionMatcher class
+ *
+ * @since 1.2
+ */
+public class UriExclusionMatcherTests extends TestCase {
+
+    public void testExcludePatterns() {
+        UriExclusionMatcher matcher = new UriExclusionMatcher(Arrays.asList("/images/*", "/robots.txt", "/rest*"));
+
+        assertTrue(matcher.matches("/images/logo.png"));
+        assertTrue(matcher.matches("/images/"));
+        assertTrue(matcher.matches("/robots.txt"));
+        assertTrue(matcher.matches("/rest"));
+        assertTrue(matcher.matches("/restful/book"));
+
+        assertFalse(matcher.matches("/images"));
+        assertFalse(matcher.matches("/robots.txt/foo"));
+        assertFalse(matcher.matches("/book/list"));
+        assertFalse(matcher.matches("/"));
+    }
+
+    public void testStaticPrefixesAndExtensions() {
+        UriExclusionMatcher matcher = new UriExclusionMatcher(null, Arrays.asList("/js/"), Arrays.asList("css", ".ico"));
+
+        assertTrue(matcher.matches("/js/application.js"));
+        assertTrue(matcher.matches("/css/main.css"));
+        assertTrue(matcher.matches("/favicon.ico"));
+
+        assertFalse(matcher.matches("/book.css/show"));
+        assertFalse(matcher.matches("/book/show.json"));
+        assertFalse(matcher.matches("/jsbook"));
+    }
+
+    public void testWildcardExcludesEverything() {
+        UriExclusionMatcher matcher = new UriExclusionMatcher(Arrays.asList("*"));
+        assertTrue(matcher.matches("/"));
+        assertTrue(matcher.matches("/book/list"));
+    }
+
+    public void testEmpty() {
+        UriExclusionMatcher matcher = new UriExclusionMatcher(null);
+        assertTrue(matcher.isEmpty());
+        assertFalse(matcher.matches("/images/logo.png"));
+    }
+
+    public void testExcludePatternsOfOtherHolders() {
+        UrlMappingsHolder holder = (UrlMappingsHolder) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { UrlMappingsHolder.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return "getExcludePatterns".equals(method.getName()) ? Arrays.asList("/images/*", "/robots.txt") : null;
+                    }
+                });
+
+        assertTrue(UriExclusionMatcher.isExcluded(holder, "/images/logo.png"));
+        assertTrue(UriExclusionMatcher.isExcluded(holder, "/robots.txt"));
+        assertFalse(UriExclusionMatcher.isExcluded(holder, "/book/list"));
+    }
+
+    public void testHolderBehindHotSwappableProxy() throws Exception {
+        DefaultUrlMappingsHolder target = new DefaultUrlMappingsHolder(new ArrayList<UrlMapping>(), Arrays.asList("/robots.txt"));
+        target.setExclusionMatcher(new UriExclusionMatcher(target.getExcludePatterns(), Arrays.asList("/js/"), Arrays.asList("css")));
+        HotSwappableTargetSource targetSource = new HotSwappableTargetSource(target);
+        // the way the grailsUrlMappingsHolder bean is defined by the UrlMappings plugin
+        ProxyFactoryBean factoryBean = new ProxyFactoryBean();
+        factoryBean.setTargetSource(targetSource);
+        factoryBean.setProxyInterfaces(new Class[] { UrlMappingsHolder.class });
+        UrlMappingsHolder holder = (UrlMappingsHolder) factoryBean.getObject();
+
+        assertTrue(UriExclusionMatcher.isExcluded(holder, "/robots.txt"));
+        assertTrue(UriExclusionMatcher.isExcluded(holder, "/js/application.js"));
+        assertTrue(UriExclusionMatcher.isExcluded(holder, "/css/main.css"));
+        assertFalse(UriExclusionMatcher.isExcluded(holder, "/book/list"));
+
+        targetSource.swap(new DefaultUrlMappingsHolder(new ArrayList<UrlMapping>(), Arrays.asList("/robots.txt")));
+        assertTrue(UriExclusionMatcher.isExcluded(holder, "/robots.txt"));
+        assertFalse(UriExclusionMatcher.isExcluded(holder, "/css/main.css"));
+    }
+}
@@ -0,0 +1,99 @@
+package org.codehaus.groovy.grails.web.mapping;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.mock.web.MockServletContext;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Compares URL mapping lookups through the {@link UrlMappingTrie} against a linear scan of the mappings, for an
+ * application with many mappings. Not a test, run it with:
+ *
+ * <pre>
+ * java -cp ... org.codehaus.groovy.grails.web.mapping.UrlMappingTrieBenchmark
+ * </pre>
+ *
+ * The number of mappings and of measured iterations can be set with the urlmapping.benchmark.mappings and
+ * urlmapping.benchmark.iterations system properties.
+ *
+ * @since 1.2
+ */
+public class UrlMappingTrieBenchmark {
+    private static final int WARMUP_ITERATIONS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int mappingCount = Integer.getInteger("urlmapping.benchmark.mappings", 600).intValue();
+        int iterations = Integer.getInteger("urlmapping.benchmark.iterations", 20).intValue();
+
+        StringBuilder script = new StringBuilder("mappings {\n");
+        for (int i = 0; i < mappingCount; i++) {
+            script.append("    \"/section").append(i).append("/$id/$format?\" (controller: \"section").append(i)
+                    .append("\", action: \"show\")\n");
+        }
+        script.append("    \"/$controller/$action?/$id?\"()\n}\n");
+
+        DefaultUrlMappingEvaluator evaluator = new DefaultUrlMappingEvaluator(new MockServletContext());
+        List evaluated = evaluator.evaluateMappings(new ByteArrayResource(script.toString().getBytes()));
+        UrlMapping[] mappings = (UrlMapping[]) evaluated.toArray(new UrlMapping[evaluated.size()]);
+        UrlMappingTrie trie = new UrlMappingTrie(mappings);
+
+        List<String> uris = new ArrayList<String>();
+        for (int i = 0; i < mappingCount; i++) {
+            uris.add("/section" + i + "/" + i * 7);
+        }
+        for (int i = 0; i < 100; i++) {
+            uris.add("/book/show/" + i);
+        }
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            matchLinear(mappings, uris);
+            matchIndexed(mappings, trie, uris);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            matchLinear(mappings, uris);
+        }
+        long linearTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            matchIndexed(mappings, trie, uris);
+        }
+        long indexedTime = System.nanoTime() - start;
+
+        System.out.println("Matched " + uris.size() + " URIs against " + mappings.length + " mappings " +
+                iterations + " times");
+        System.out.println(String.format("linear scan %.1f us per lookup, trie %.1f us per lookup",
+                linearTime / 1000.0 / iterations / uris.size(), indexedTime / 1000.0 / iterations / uris.size()));
+    }
+
+    private static int matchLinear(UrlMapping[] mappings, List<String> uris) {
+        int matched = 0;
+        for (String uri : uris) {
+            for (UrlMapping mapping : mappings) {
+                if (mapping.match(uri) != null) {
+                    matched++;
+                    break;
+                }
+            }
+        }
+        return matched;
+    }
+
+    private static int matchIndexed(UrlMapping[] mappings, UrlMappingTrie trie, List<String> uris) {
+        int matched = 0;
+        for (String uri : uris) {
+            BitSet candidates = trie.getCandidates(uri);
+            for (int i = candidates.nextSetBit(0); i > -1; i = candidates.nextSetBit(i + 1)) {
+                if (mappings[i].match(uri) != null) {
+                    matched++;
+                    break;
+                }
+            }
+        }
+        return matched;
+    }
+}
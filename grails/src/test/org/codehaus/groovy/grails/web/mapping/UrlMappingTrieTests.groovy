@@ -0,0 +1,137 @@
+package org.codehaus.groovy.grails.web.mapping
+
+import org.springframework.core.io.ByteArrayResource
+
+/**
+ * Tests for the URL mapping trie. Lookups through the trie are compared against a linear scan of the mappings by
+ * {@link UrlMappingTrieBenchmark}.
+ *
+ * @since 1.2
+ */
+class UrlMappingTrieTests extends AbstractGrailsMappingTests {
+
+    def mappingScript = '''
+mappings {
+    "/$controller/$action?/$id?"()
+    "/blog/$entry/$year?/$month?/$day?" {
+        controller = "blog"
+        action = "show"
+    }
+    "/blog/archive/$year" {
+        controller = "blog"
+        action = "archive"
+        constraints {
+            year(matches:/\\d{4}/)
+        }
+    }
+    "/images/$image**.jpg" (controller: 'userImage', action: 'download')
+    "/files/$path**" (controller: 'file', action: 'serve')
+    "/" (controller: 'home')
+    "500"(view:'/error')
+}
+'''
+
+    void testTokenize() {
+        assertEquals([], UrlMappingTrie.tokenize("/") as List)
+        assertEquals([], UrlMappingTrie.tokenize("") as List)
+        assertEquals(["book"], UrlMappingTrie.tokenize("/book") as List)
+        assertEquals(["book"], UrlMappingTrie.tokenize("/book/") as List)
+        assertEquals(["book", "show", "1"], UrlMappingTrie.tokenize("/book/show/1") as List)
+        assertEquals(["book", "", "1"], UrlMappingTrie.tokenize("/book//1") as List)
+    }
+
+    void testCandidatesAreSupersetOfMatches() {
+        def holder = new DefaultUrlMappingsHolder(evaluator.evaluateMappings(new ByteArrayResource(mappingScript.bytes)))
+        def mappings = holder.urlMappings
+        def trie = new UrlMappingTrie(mappings)
+
+        def uris = ["/", "/book", "/book/list", "/book/show/1", "/book/show/1/", "/blog/grails", "/blog/grails/2008/10/1",
+                    "/blog/archive/2008", "/blog/archive/abc", "/images/a/b/c.jpg", "/images/c.png", "/files/a/b/c", "/a/b/c/d/e"]
+
+        for (uri in uris) {
+            def candidates = trie.getCandidates(uri)
+            mappings.eachWithIndex { m, i ->
+                if (m.match(uri)) {
+                    assertTrue "Mapping [$m] matches [$uri] but was not a candidate", candidates.get(i)
+                }
+            }
+        }
+
+        def candidates = trie.getCandidates("/blog/archive/2008")
+        assertTrue candidates.cardinality() < mappings.length
+    }
+
+    void testMatchedByShape() {
+        def holder = new DefaultUrlMappingsHolder(evaluator.evaluateMappings(new ByteArrayResource(mappingScript.bytes)))
+        def mappings = holder.urlMappings
+        def trie = new UrlMappingTrie(mappings)
+        def matchedByShape = { String pattern ->
+            trie.isMatchedByShape(mappings.findIndexOf { it.urlData.urlPattern == pattern })
+        }
+
+        assertTrue matchedByShape('/(*)/(*)?/(*)?')
+        assertTrue matchedByShape('/blog/(*)/(*)?/(*)?/(*)?')
+        assertTrue matchedByShape('/')
+        assertFalse "the year is constrained", matchedByShape('/blog/archive/(*)')
+        assertFalse matchedByShape('/images/(**).jpg')
+        assertFalse matchedByShape('/files/(**)')
+
+        assertEquals "/blog/*/*", trie.getShapeKey("/blog/show/1")
+        assertEquals "/blog//*", trie.getShapeKey("/blog//1")
+    }
+
+    void testMatchPrecedenceUnchanged() {
+        def holder = new DefaultUrlMappingsHolder(evaluator.evaluateMappings(new ByteArrayResource(mappingScript.bytes)))
+
+        def info = holder.match("/blog/archive/2008")
+        assertEquals "blog", info.controllerName
+        assertEquals "archive", info.actionName
+
+        info = holder.match("/blog/grails/2008/10/1")
+        assertEquals "blog", info.controllerName
+        assertEquals "show", info.actionName
+
+        info = holder.match("/images/a/b/c/bar.jpg")
+        assertEquals "userImage", info.controllerName
+
+        info = holder.match("/")
+        assertEquals "home", info.controllerName
+    }
+
+    void testLookupMatchesLinearScan() {
+        def script = new StringBuilder("mappings {\n")
+        600.times { i ->
+            script << '    "/section' << i << '/$id/$format?" (controller: "section' << i << '", action: "show")\n'
+        }
+        script << '    "/$controller/$action?/$id?"()\n}\n'
+
+        def holder = new DefaultUrlMappingsHolder(evaluator.evaluateMappings(new ByteArrayResource(script.toString().bytes)))
+        def mappings = holder.urlMappings
+        def trie = new UrlMappingTrie(mappings)
+
+        def uris = (0..<600).collect { "/section${it}/${it * 7}" } + (0..<100).collect { "/book/show/$it" }
+
+        def linear = { String uri ->
+            for (m in mappings) {
+                def info = m.match(uri)
+                if (info) return info
+            }
+            null
+        }
+        def indexed = { String uri ->
+            def candidates = trie.getCandidates(uri)
+            for (int i = candidates.nextSetBit(0); i > -1; i = candidates.nextSetBit(i + 1)) {
+                def info = mappings[i].match(uri)
+                if (info) return info
+            }
+            null
+        }
+
+        for (uri in uris) {
+            def expected = linear(uri)
+            def actual = indexed(uri)
+            assertEquals expected.controllerName, actual.controllerName
+            assertEquals expected.parameters, actual.parameters
+        }
+    }
+}
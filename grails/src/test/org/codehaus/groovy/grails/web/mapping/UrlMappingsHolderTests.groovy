@@ -183,5 +183,96 @@ mappings {
 
 
 
+    void testMatchCachesAreBounded() {
+        runTest {
+            def res = new ByteArrayResource(mappingScript.bytes)
+            def mappings = new DefaultUrlMappingEvaluator().evaluateMappings(res)
+            def holder = new DefaultUrlMappingsHolder(mappings, null, 10)
+
+            100.times { holder.match("/book/grails/rocks/$it") }
+
+            assertEquals 0, holder.matchCache.size
+            assertEquals 1, holder.shapeMatchCache.size
+            assertEquals 99, holder.shapeMatchCache.hitCount
+            assertEquals 1, holder.candidateCache.size
+
+            100.times { holder.matchAll("/blog/entry$it") }
+            assertEquals 0, holder.listMatchCache.size
+            assertEquals 1, holder.shapeListMatchCache.size
+        }
+    }
+
+    void testMatchesWithVariablesAreCachedPerShape() {
+        runTest {
+            def res = new ByteArrayResource(mappingScript.bytes)
+            def mappings = new DefaultUrlMappingEvaluator().evaluateMappings(res)
+            def holder = new DefaultUrlMappingsHolder(mappings)
+
+            def info = holder.match("/book/grails/rocks/1")
+            assertNotNull info
+            info = holder.match("/book/groovy/rocks/2")
+            assertEquals 1, holder.shapeMatchCache.hitCount
+            assertEquals "book", info.controllerName
+            assertEquals "groovy", info.parameters.author
+            assertEquals "2", info.parameters.test
+
+            def infos = holder.matchAll("/blog/grails/2008")
+            assertEquals 2, infos.length
+            infos = holder.matchAll("/blog/groovy/2009")
+            assertEquals 1, holder.shapeListMatchCache.hitCount
+            def blogInfo = infos.find { it.parameters.entry }
+            assertEquals "groovy", blogInfo.parameters.entry
+            assertEquals "2009", blogInfo.parameters.year
+        }
+    }
+
+    void testMatchesWithConstraintsAreNotCachedPerShape() {
+        runTest {
+            def res = new ByteArrayResource(mappingScript2.bytes)
+            def mappings = new DefaultUrlMappingEvaluator().evaluateMappings(res)
+            def holder = new DefaultUrlMappingsHolder(mappings)
+
+            assertNotNull holder.match("/admin/book/show/1")
+            assertNull holder.match("/admin/book/show/abc")
+            assertEquals 0, holder.shapeMatchCache.size
+            assertEquals 0, holder.matchCache.size
+        }
+    }
+
+    void testMissesAreNotCachedPerUri() {
+        runTest {
+            def res = new ByteArrayResource(mappingScript.bytes)
+            def mappings = new DefaultUrlMappingEvaluator().evaluateMappings(res)
+            def holder = new DefaultUrlMappingsHolder(mappings)
+
+            100.times { assertEquals 0, holder.matchAll("/crawler/a/b/c/d/e/page$it").length }
+            assertEquals 0, holder.listMatchCache.size
+            assertEquals 1, holder.shapeListMatchCache.size
+
+            res = new ByteArrayResource(mappingScript2.bytes)
+            holder = new DefaultUrlMappingsHolder(new DefaultUrlMappingEvaluator().evaluateMappings(res))
+
+            10.times { assertEquals 0, holder.matchAll("/admin/book/show/page$it").length }
+            assertEquals 0, holder.listMatchCache.size
+            assertEquals 0, holder.shapeListMatchCache.size
+        }
+    }
+
+    void testReverseMappingsAreCachedByParameterNames() {
+        def res = new ByteArrayResource(mappingScript.bytes)
+        def mappings = new DefaultUrlMappingEvaluator().evaluateMappings(res)
+        def holder = new DefaultUrlMappingsHolder(mappings)
+
+        def m1 = holder.getReverseMapping("blog", "show", [entry:"foo", year:2007])
+        def m2 = holder.getReverseMapping("blog", "show", [entry:"bar", year:2008])
+        assertSame m1, m2
+        assertEquals 1, holder.reverseMappingCache.hitCount
+        assertEquals "/blog/bar/2008", m2.createURL([entry:"bar", year:2008], "utf-8")
+
+        def m3 = holder.getReverseMapping("blog", "show", [entry:"foo", year:2007, month:3])
+        assertEquals 2, holder.reverseMappingCache.size
+        assertEquals "/blog/foo/2007/3", m3.createURL([entry:"foo", year:2007, month:3], "utf-8")
+    }
+
 }
 
@@ -0,0 +1,90 @@
+package org.codehaus.groovy.grails.web.mapping;
+
+import junit.framework.TestCase;
+import org.codehaus.groovy.grails.validation.ConstrainedProperty;
+import org.codehaus.groovy.grails.web.mapping.exceptions.UrlMappingException;
+
+import java.net.URLEncoder;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests for the UrlTemplate class
+ *
+ * @since 1.2
+ */
+public class UrlTemplateTests extends TestCase {
+
+    public void testAppendEncodedMatchesURLEncoder() throws Exception {
+        String[] values = {"", "simple", "with space", "a+b=c&d", "/path/to", "öäå", "😀 smile",
+                "*.-_", "100%", "tab\tand\nnewline", "mixed € and ascii"};
+        for (String value : values) {
+            for (String encoding : new String[]{"UTF-8", "ISO-8859-1"}) {
+                StringBuilder buf = new StringBuilder();
+                UrlTemplate.appendEncoded(buf, value, encoding);
+                assertEquals(URLEncoder.encode(value, encoding), buf.toString());
+            }
+        }
+    }
+
+    public void testAppendPath() throws Exception {
+        UrlTemplate template = new UrlTemplate(new DefaultUrlMappingData("/blog/(*)/(*)?/(*)?"));
+        ConstrainedProperty[] constraints = createConstraints("entry", "year", "month");
+        constraints[1].setNullable(true);
+        constraints[2].setNullable(true);
+
+        Map params = new HashMap();
+        params.put("entry", "my entry");
+        params.put("year", 2009);
+
+        StringBuilder buf = new StringBuilder();
+        assertEquals(3, template.appendPath(buf, constraints, params, "UTF-8"));
+        assertEquals("/blog/my+entry/2009", buf.toString());
+    }
+
+    public void testAppendPathWithDoubleWildcard() throws Exception {
+        UrlTemplate template = new UrlTemplate(new DefaultUrlMappingData("/files/(**)"));
+        ConstrainedProperty[] constraints = createConstraints("path");
+        constraints[0].setNullable(true);
+
+        Map params = new HashMap();
+        params.put("path", "/some dir/file.txt");
+
+        StringBuilder buf = new StringBuilder();
+        template.appendPath(buf, constraints, params, "UTF-8");
+        assertEquals("/files/some+dir/file.txt", buf.toString());
+    }
+
+    public void testAppendPathWithMixedToken() throws Exception {
+        UrlTemplate template = new UrlTemplate(new DefaultUrlMappingData("/feed/(*).(*)"));
+        ConstrainedProperty[] constraints = createConstraints("id", "format");
+
+        Map params = new HashMap();
+        params.put("id", "10");
+        params.put("format", "rss");
+
+        StringBuilder buf = new StringBuilder();
+        assertEquals(2, template.appendPath(buf, constraints, params, "UTF-8"));
+        assertEquals("/feed/10.rss", buf.toString());
+    }
+
+    public void testAppendPathWithMissingRequiredParameter() throws Exception {
+        UrlTemplate template = new UrlTemplate(new DefaultUrlMappingData("/blog/(*)"));
+        try {
+            template.appendPath(new StringBuilder(), createConstraints("entry"), new HashMap(), "UTF-8");
+            fail("Should have thrown an exception for the missing parameter");
+        }
+        catch (UrlMappingException e) {
+            // expected
+        }
+    }
+
+    private ConstrainedProperty[] createConstraints(String... names) {
+        ConstrainedProperty[] constraints = new ConstrainedProperty[names.length];
+        for (int i = 0; i < names.length; i++) {
+            constraints[i] = new ConstrainedProperty(UrlMapping.class, names[i], String.class);
+            constraints[i].setNullable(false);
+        }
+        return constraints;
+    }
+}
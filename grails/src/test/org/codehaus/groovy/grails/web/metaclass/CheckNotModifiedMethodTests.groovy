@@ -0,0 +1,74 @@
+package org.codehaus.groovy.grails.web.metaclass
+
+import org.codehaus.groovy.grails.web.servlet.mvc.GrailsWebRequest
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import org.springframework.mock.web.MockServletContext
+import org.springframework.web.context.request.RequestContextHolder
+
+/**
+ * Tests for the checkNotModified method of controllers
+ *
+ * @since 1.2
+ */
+class CheckNotModifiedMethodTests extends GroovyTestCase {
+    def request
+    def response
+    def webRequest
+
+    protected void setUp() {
+        request = new MockHttpServletRequest("GET", "/book/show/1")
+        response = new MockHttpServletResponse()
+        webRequest = new GrailsWebRequest(request, response, new MockServletContext())
+        RequestContextHolder.setRequestAttributes(webRequest)
+    }
+
+    protected void tearDown() {
+        RequestContextHolder.setRequestAttributes(null)
+    }
+
+    void testHeadersAreSet() {
+        def lastModified = new Date(1234567890000)
+        assertFalse new CheckNotModifiedMethod().checkNotModified(request, response, [lastModified: lastModified, etag: 3])
+
+        assertEquals '"3"', response.getHeader("ETag")
+        assertEquals lastModified.time, response.getHeader("Last-Modified")
+        assertEquals 200, response.status
+        assertTrue webRequest.renderView
+    }
+
+    void testMatchingETag() {
+        request.addHeader("If-None-Match", '"2", "3"')
+        assertTrue new CheckNotModifiedMethod().checkNotModified(request, response, [etag: '"3"'])
+
+        assertEquals 304, response.status
+        assertFalse webRequest.renderView
+    }
+
+    void testIfModifiedSince() {
+        request.addHeader("If-Modified-Since", 1234567890000)
+        def method = new CheckNotModifiedMethod()
+
+        assertTrue method.checkNotModified(request, response, [lastModified: 1234567890123])
+        assertEquals 304, response.status
+
+        response = new MockHttpServletResponse()
+        assertFalse method.checkNotModified(request, response, [lastModified: 1234567891000])
+        assertEquals 200, response.status
+    }
+
+    void testIfNoneMatchTakesPrecedence() {
+        request.addHeader("If-None-Match", '"2"')
+        request.addHeader("If-Modified-Since", 1234567890000)
+
+        assertFalse new CheckNotModifiedMethod().checkNotModified(request, response, [lastModified: 1234567890000, etag: 3])
+    }
+
+    void testPostIsNeverNotModified() {
+        request.method = "POST"
+        request.addHeader("If-None-Match", '"3"')
+
+        assertFalse new CheckNotModifiedMethod().checkNotModified(request, response, [etag: 3])
+        assertEquals '"3"', response.getHeader("ETag")
+    }
+}
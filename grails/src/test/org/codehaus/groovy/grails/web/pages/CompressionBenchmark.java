@@ -0,0 +1,118 @@
+package org.codehaus.groovy.grails.web.pages;
+
+import org.codehaus.groovy.grails.web.util.CompressionSupport;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares the CPU cost of compressing GSP output in the output pipeline with the cost of a compression filter
+ * that wraps the response in a GZIPOutputStream. Both render the same page, made of static markup that is written
+ * as encoded bytes and dynamic text. Not a test, run it with:
+ *
+ * <pre>
+ * java -cp ... org.codehaus.groovy.grails.web.pages.CompressionBenchmark
+ * </pre>
+ *
+ * The number of requests can be set with the compression.benchmark.requests system property, the number of
+ * table rows of the page with compression.benchmark.rows.
+ *
+ * @since 1.2
+ */
+public class CompressionBenchmark {
+    private static final int WARMUP_REQUESTS = 2000;
+    private static final int BUFFER_SIZE = 8192;
+    private static final String ROW_START = "<tr class=\"odd\">\n  <td><a href=\"/book/show/";
+    private static final String ROW_MIDDLE = "\">";
+    private static final String ROW_END = "</a></td>\n  <td class=\"author\">Graeme Rocher, Jeff Brown</td>\n</tr>\n";
+
+    private static long bytesWritten;
+
+    public static void main(String[] args) throws Exception {
+        int requests = Integer.getInteger("compression.benchmark.requests", 20000).intValue();
+        int rows = Integer.getInteger("compression.benchmark.rows", 200).intValue();
+        CompressionSupport.setEnabled(true);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/book/list");
+        request.addHeader("Accept-Encoding", "gzip, deflate");
+
+        byte[][] encoded = { ROW_START.getBytes("UTF-8"), ROW_MIDDLE.getBytes("UTF-8"), ROW_END.getBytes("UTF-8") };
+        run("uncompressed", requests, rows, encoded, null, false);
+        run("compression filter", requests, rows, encoded, null, true);
+        run("output pipeline", requests, rows, encoded, request, false);
+    }
+
+    private static void run(String name, int requests, int rows, byte[][] encoded, MockHttpServletRequest request,
+                            boolean filter) throws IOException {
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            render(new CountingResponse(), rows, encoded, request, filter);
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        bytesWritten = 0;
+        long cpu = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < requests; i++) {
+            render(new CountingResponse(), rows, encoded, request, filter);
+        }
+        cpu = threads.getCurrentThreadCpuTime() - cpu;
+        System.out.println(String.format("%-20s %6.1f us of CPU per request, %6d bytes per response",
+                name, cpu / 1000.0 / requests, bytesWritten / requests));
+    }
+
+    private static void render(CountingResponse response, int rows, byte[][] encoded, MockHttpServletRequest request,
+                               boolean filter) throws IOException {
+        if (filter) {
+            // what a filter does: a GZIPOutputStream and a Writer over it for each response
+            GZIPOutputStream gzip = new GZIPOutputStream(response.getOutputStream(), BUFFER_SIZE);
+            Writer out = new OutputStreamWriter(gzip, "UTF-8");
+            for (int i = 0; i < rows; i++) {
+                out.write(ROW_START);
+                out.write(String.valueOf(i));
+                out.write(ROW_MIDDLE);
+                out.write("The Definitive Guide to Grails, volume " + i);
+                out.write(ROW_END);
+            }
+            out.flush();
+            gzip.finish();
+            return;
+        }
+        response.setContentType("text/html;charset=UTF-8");
+        GSPByteOutputWriter out = new GSPByteOutputWriter(response, BUFFER_SIZE);
+        if (request != null) {
+            out.enableCompression(request);
+        }
+        for (int i = 0; i < rows; i++) {
+            out.writeEncoded(encoded[0]);
+            out.write(String.valueOf(i));
+            out.writeEncoded(encoded[1]);
+            out.write("The Definitive Guide to Grails, volume " + i);
+            out.writeEncoded(encoded[2]);
+        }
+        out.close();
+    }
+
+    /**
+     * A response that counts the bytes written to it instead of keeping them
+     */
+    private static class CountingResponse extends MockHttpServletResponse {
+        private final ServletOutputStream out = new ServletOutputStream() {
+            public void write(int b) {
+                bytesWritten++;
+            }
+
+            public void write(byte[] b, int off, int len) {
+                bytesWritten += len;
+            }
+        };
+
+        public ServletOutputStream getOutputStream() {
+            return out;
+        }
+    }
+}
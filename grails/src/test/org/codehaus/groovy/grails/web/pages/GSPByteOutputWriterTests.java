@@ -0,0 +1,377 @@
+package org.codehaus.groovy.grails.web.pages;
+
+import junit.framework.TestCase;
+import org.codehaus.groovy.grails.web.util.CompressionSupport;
+import org.codehaus.groovy.grails.web.util.ETagSupport;
+import org.codehaus.groovy.grails.web.util.StatusTrackingResponseWrapper;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Tests for the GSPByteOutputWriter class
+ *
+ * @since 1.2
+ */
+public class GSPByteOutputWriterTests extends TestCase {
+    private static final String ROW = "<tr><td>The Definitive Guide to Grails</td></tr>\n";
+
+    protected void tearDown() throws Exception {
+        CompressionSupport.setEnabled(false);
+    }
+
+    public void testCharactersAndEncodedBytesKeepTheirOrder() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCharacterEncoding("UTF-8");
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 8192);
+
+        writer.write("<p>");
+        writer.writeEncoded("äöå static ".getBytes("UTF-8"));
+        writer.write("dynamic €</p>");
+        assertEquals(0, response.getContentAsByteArray().length);
+
+        writer.flush();
+        assertEquals("<p>äöå static dynamic €</p>", new String(response.getContentAsByteArray(), "UTF-8"));
+    }
+
+    public void testEncodingIsResolvedOnFirstUse() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 8192);
+        response.setCharacterEncoding("UTF-8");
+
+        assertEquals("UTF-8", writer.getEncoding());
+        writer.write("€");
+        writer.close();
+        assertEquals("€", new String(response.getContentAsByteArray(), "UTF-8"));
+    }
+
+    public void testNothingIsWrittenBeforeThePageCompletes() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 16);
+
+        writer.writeEncoded("0123456789".getBytes("ISO-8859-1"));
+        writer.write("0123456789");
+        assertFalse(writer.isWritten());
+        assertEquals(0, response.getContentAsByteArray().length);
+
+        writer.close();
+        assertEquals(20, response.getContentAsByteArray().length);
+    }
+
+    public void testBytesAreWrittenToResponseAfterThresholdOncePageFlushes() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 16);
+
+        writer.write("<head/>");
+        writer.flush();
+        assertEquals(7, response.getContentAsByteArray().length);
+
+        writer.writeEncoded("0123456789".getBytes("ISO-8859-1"));
+        assertEquals(7, response.getContentAsByteArray().length);
+        writer.writeEncoded("0123456789".getBytes("ISO-8859-1"));
+        assertEquals(27, response.getContentAsByteArray().length);
+    }
+
+    public void testSingleCharactersAreWrittenAfterThreshold() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 16);
+        writer.flush();
+
+        for (int i = 0; i < 15; i++) {
+            writer.write('x');
+        }
+        assertEquals(0, response.getContentAsByteArray().length);
+        writer.write('x');
+        assertEquals(16, response.getContentAsByteArray().length);
+    }
+
+    public void testSurrogatePairSplitAcrossWrites() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCharacterEncoding("UTF-8");
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 8192);
+        String clef = "\uD834\uDD1E";
+
+        writer.write("a" + clef.charAt(0));
+        writer.write(clef.charAt(1) + "b");
+        writer.close();
+        assertEquals("a" + clef + "b", new String(response.getContentAsByteArray(), "UTF-8"));
+    }
+
+    public void testExactContentLength() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCharacterEncoding("UTF-8");
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 8192);
+
+        writer.write("\u20ac uro");
+        writer.close(true);
+        assertEquals(7, response.getContentLength());
+        assertEquals(7, response.getContentAsByteArray().length);
+    }
+
+    public void testNoContentLengthOnceWritten() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 16);
+
+        writer.write("01234567890123456789");
+        writer.flush();
+        assertTrue(writer.isWritten());
+        writer.write("more");
+        writer.close(true);
+        assertEquals(0, response.getContentLength());
+        assertEquals(24, response.getContentAsByteArray().length);
+    }
+
+    public void testEncoderIsReusedAfterClose() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            response.setCharacterEncoding(i == 1 ? "ISO-8859-1" : "UTF-8");
+            GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 8192);
+            writer.write("\u00e4");
+            writer.close();
+            assertEquals("\u00e4", new String(response.getContentAsByteArray(), response.getCharacterEncoding()));
+        }
+    }
+
+    public void testETag() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/book/list");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 8192);
+        writer.enableETag(request);
+
+        writer.writeEncoded("<p>".getBytes("ISO-8859-1"));
+        writer.write("hello</p>");
+        writer.close();
+        String etag = ETagSupport.createETag(new ByteBuffer[] { ByteBuffer.wrap("<p>hello</p>".getBytes("ISO-8859-1")) });
+        assertEquals(etag, response.getHeader("ETag"));
+        assertEquals(200, response.getStatus());
+        assertEquals("<p>hello</p>", response.getContentAsString());
+    }
+
+    public void testNotModified() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/book/list");
+        String etag = ETagSupport.createETag(new ByteBuffer[] { ByteBuffer.wrap("<p>hello</p>".getBytes("ISO-8859-1")) });
+        request.addHeader("If-None-Match", etag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 8192);
+        writer.enableETag(request);
+
+        writer.write("<p>hello</p>");
+        writer.close(true);
+        assertEquals(304, response.getStatus());
+        assertEquals(etag, response.getHeader("ETag"));
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(0, response.getContentLength());
+    }
+
+    public void testErrorViewIsNotAnsweredWithNotModified() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/book/show/1");
+        String etag = ETagSupport.createETag(new ByteBuffer[] { ByteBuffer.wrap("<p>not found</p>".getBytes("ISO-8859-1")) });
+        request.addHeader("If-None-Match", etag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        // the controller sets the status before its view is rendered
+        HttpServletResponse trackingResponse = new StatusTrackingResponseWrapper(request, response);
+        trackingResponse.setStatus(404);
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(trackingResponse, 8192);
+        writer.enableETag(request);
+
+        writer.write("<p>not found</p>");
+        writer.close();
+        assertEquals(404, response.getStatus());
+        assertNull(response.getHeader("ETag"));
+        assertEquals("<p>not found</p>", response.getContentAsString());
+    }
+
+    public void testErrorViewIsNotAnsweredWithNotModifiedForAnyETag() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/book/save");
+        request.addHeader("If-None-Match", "*");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        HttpServletResponse trackingResponse = new StatusTrackingResponseWrapper(request, response);
+        trackingResponse.sendError(500);
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(trackingResponse, 8192);
+        writer.enableETag(request);
+
+        writer.write("<p>error</p>");
+        writer.close();
+        assertEquals(500, response.getStatus());
+        assertNull(response.getHeader("ETag"));
+    }
+
+    public void testNoETagWhenResponseWasStreamed() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/book/list");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 16);
+        writer.enableETag(request);
+
+        writer.write("01234567890123456789");
+        writer.flush();
+        writer.write("more");
+        writer.close();
+        assertNull(response.getHeader("ETag"));
+        assertEquals(24, response.getContentAsByteArray().length);
+    }
+
+    public void testDeclaredETagIsKept() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/book/show/1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setHeader("ETag", "\"3\"");
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 8192);
+        writer.enableETag(request);
+
+        writer.write("book");
+        writer.close();
+        assertEquals("\"3\"", response.getHeader("ETag"));
+        assertEquals("book", response.getContentAsString());
+    }
+
+    public void testCompressedResponse() throws Exception {
+        CompressionSupport.setEnabled(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setContentType("text/html;charset=UTF-8");
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 8192);
+        writer.enableCompression(gzipRequest());
+
+        String content = repeat(ROW, 40);
+        writer.write(content);
+        writer.close(true);
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals(0, response.getContentLength());
+        assertEquals(content, gunzip(response.getContentAsByteArray()));
+    }
+
+    public void testSmallResponseIsNotCompressed() throws Exception {
+        CompressionSupport.setEnabled(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setContentType("text/html;charset=UTF-8");
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 8192);
+        writer.enableCompression(gzipRequest());
+
+        writer.write(ROW);
+        writer.close(true);
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals(ROW, response.getContentAsString());
+        assertEquals(ROW.length(), response.getContentLength());
+    }
+
+    public void testStreamedResponseIsCompressed() throws Exception {
+        CompressionSupport.setEnabled(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setContentType("text/html;charset=UTF-8");
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 16);
+        writer.enableCompression(gzipRequest());
+
+        writer.write(ROW);
+        writer.flush();
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        writer.write(ROW);
+        writer.close();
+        assertEquals(ROW + ROW, gunzip(response.getContentAsByteArray()));
+    }
+
+    public void testBinaryContentIsNotCompressed() throws Exception {
+        CompressionSupport.setEnabled(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setContentType("image/png");
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 8192);
+        writer.enableCompression(gzipRequest());
+
+        writer.write(repeat(ROW, 40));
+        writer.close();
+        assertNull(response.getHeader("Content-Encoding"));
+        assertNull(response.getHeader("Vary"));
+    }
+
+    public void testETagOfCompressedResponse() throws Exception {
+        CompressionSupport.setEnabled(true);
+        String content = repeat(ROW, 40);
+        String etag = ETagSupport.createETag(new ByteBuffer[] { ByteBuffer.wrap(content.getBytes("UTF-8")) });
+        String gzipETag = CompressionSupport.getETag(etag, "gzip");
+        MockHttpServletRequest request = gzipRequest();
+        request.addHeader("If-None-Match", gzipETag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setContentType("text/html;charset=UTF-8");
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 8192);
+        writer.enableETag(request);
+        writer.enableCompression(request);
+
+        writer.write(content);
+        writer.close();
+        assertEquals(gzipETag, response.getHeader("ETag"));
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertNull(response.getHeader("Content-Encoding"));
+    }
+
+    public void testNothingWrittenLeavesOutputStreamAlone() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse() {
+            public ServletOutputStream getOutputStream() {
+                throw new IllegalStateException("getWriter() has already been called");
+            }
+        };
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 8192);
+        response.getWriter().write("markup");
+
+        writer.flush();
+        writer.close();
+        assertEquals("markup", response.getContentAsString());
+    }
+
+    public void testOutputIsWrittenToWriterObtainedBefore() throws Exception {
+        CompressionSupport.setEnabled(true);
+        MockHttpServletResponse response = new MockHttpServletResponse() {
+            public ServletOutputStream getOutputStream() {
+                throw new IllegalStateException("getWriter() has already been called");
+            }
+        };
+        response.setContentType("text/html;charset=UTF-8");
+        GSPByteOutputWriter writer = new GSPByteOutputWriter(response, 8192);
+        writer.enableETag(new MockHttpServletRequest("GET", "/book/list"));
+        writer.enableCompression(gzipRequest());
+        response.getWriter().write("<html>");
+
+        String content = repeat(ROW, 40);
+        writer.write(content);
+        writer.writeEncoded("€".getBytes("UTF-8"));
+        writer.write("\uD834");
+        writer.flush();
+        writer.write("\uDD1E</html>");
+        writer.close(true);
+        assertEquals("<html>" + content + "€\uD834\uDD1E</html>", response.getContentAsString());
+        assertNull(response.getHeader("Content-Encoding"));
+        assertNull(response.getHeader("ETag"));
+        assertEquals(0, response.getContentLength());
+    }
+
+    private static MockHttpServletRequest gzipRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/book/list");
+        request.addHeader("Accept-Encoding", "gzip, deflate");
+        return request;
+    }
+
+    private static String repeat(String s, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+
+    private static String gunzip(byte[] bytes) throws Exception {
+        InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        return out.toString("UTF-8");
+    }
+}
@@ -0,0 +1,74 @@
+package org.codehaus.groovy.grails.web.pages;
+
+import junit.framework.TestCase;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.File;
+
+/**
+ * Tests for the GroovyPageChangeMonitor class
+ *
+ * @since 1.2
+ */
+public class GroovyPageChangeMonitorTests extends TestCase {
+
+    private File file;
+    private GroovyPageChangeMonitor monitor;
+
+    protected void setUp() throws Exception {
+        file = File.createTempFile("change-monitor-test", ".gsp");
+        monitor = new GroovyPageChangeMonitor(60000);
+    }
+
+    protected void tearDown() throws Exception {
+        monitor.stop();
+        file.delete();
+    }
+
+    public void testModifiedResourceIsMarkedAsChanged() {
+        FileSystemResource resource = new FileSystemResource(file);
+        long lastModified = GroovyPageChangeMonitor.getLastModified(resource);
+        monitor.watch("test", resource, lastModified);
+
+        monitor.checkForChanges();
+        assertFalse(monitor.isChanged("test"));
+
+        assertTrue(file.setLastModified(lastModified + 10000));
+        assertFalse("changes are only detected by checkForChanges", monitor.isChanged("test"));
+        monitor.checkForChanges();
+        assertTrue(monitor.isChanged("test"));
+
+        monitor.watch("test", resource, GroovyPageChangeMonitor.getLastModified(resource));
+        assertFalse(monitor.isChanged("test"));
+        assertEquals(1, monitor.getWatchedCount());
+    }
+
+    public void testDeletedResourceIsNotMarkedAsChanged() {
+        FileSystemResource resource = new FileSystemResource(file);
+        monitor.watch("test", resource, GroovyPageChangeMonitor.getLastModified(resource));
+
+        file.delete();
+        monitor.checkForChanges();
+        assertFalse(monitor.isChanged("test"));
+    }
+
+    public void testUnwatch() {
+        monitor.watch("test", new FileSystemResource(file), 0);
+        monitor.checkForChanges();
+        assertTrue(monitor.isChanged("test"));
+
+        monitor.unwatch("test");
+        assertFalse(monitor.isChanged("test"));
+        assertEquals(0, monitor.getWatchedCount());
+    }
+
+    public void testClear() {
+        monitor.watch("test", new FileSystemResource(file), 0);
+        monitor.checkForChanges();
+        assertTrue(monitor.isChanged("test"));
+
+        monitor.clear();
+        assertFalse(monitor.isChanged("test"));
+        assertEquals(0, monitor.getWatchedCount());
+    }
+}
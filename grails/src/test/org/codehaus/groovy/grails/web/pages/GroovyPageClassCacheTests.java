@@ -0,0 +1,108 @@
+package org.codehaus.groovy.grails.web.pages;
+
+import groovy.lang.GroovyClassLoader;
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * Tests for the GroovyPageClassCache class
+ *
+ * @since 1.2
+ */
+public class GroovyPageClassCacheTests extends TestCase {
+
+    private static final String SOURCE = "class cache_test_page { def run() { [1, 2].collect { it * 2 } } }";
+
+    private File cacheDir;
+
+    protected void setUp() throws Exception {
+        cacheDir = new File(System.getProperty("java.io.tmpdir"), "gspcache-test-" + System.nanoTime());
+    }
+
+    protected void tearDown() throws Exception {
+        FileUtils.deleteQuietly(cacheDir);
+    }
+
+    public void testCompiledClassesAreStoredByContentHash() throws Exception {
+        GroovyPageClassCache cache = new GroovyPageClassCache(cacheDir, "1.2");
+        byte[] source = SOURCE.getBytes("UTF-8");
+
+        Class pageClass = cache.loadPageClass(source, "cache_test_page", "cache_test_page", new GroovyClassLoader());
+        assertEquals("cache_test_page", pageClass.getName());
+        assertEquals("[2, 4]", pageClass.getMethod("run").invoke(pageClass.newInstance()).toString());
+
+        File classesDir = getClassesDir(cache, source);
+        assertTrue(new File(classesDir, "cache_test_page.class").exists());
+        // the closure class is stored with the page class
+        assertTrue(classesDir.list().length > 1);
+        assertEquals(1, classesDir.getParentFile().list().length);
+    }
+
+    public void testUnchangedSourceIsLoadedFromDisk() throws Exception {
+        byte[] source = SOURCE.getBytes("UTF-8");
+        new GroovyPageClassCache(cacheDir, "1.2").loadPageClass(source, "cache_test_page", "cache_test_page", new GroovyClassLoader());
+
+        GroovyPageClassCache cache = new GroovyPageClassCache(cacheDir, "1.2");
+        File classFile = new File(getClassesDir(cache, source), "cache_test_page.class");
+        // a compilation would write the class file with the current time
+        long lastModified = 1000000000000L;
+        assertTrue(classFile.setLastModified(lastModified));
+
+        Class pageClass = cache.loadPageClass(source, "cache_test_page", "cache_test_page", new GroovyClassLoader());
+        assertEquals("cache_test_page", pageClass.getName());
+        assertEquals(lastModified, classFile.lastModified());
+        assertEquals(1, classFile.getParentFile().getParentFile().list().length);
+    }
+
+    public void testSupersededClassesArePruned() throws Exception {
+        byte[] oldSource = SOURCE.getBytes("UTF-8");
+        byte[] source = (SOURCE + " ").getBytes("UTF-8");
+        GroovyPageClassCache oldCache = new GroovyPageClassCache(cacheDir, "1.2");
+        oldCache.loadPageClass(oldSource, "cache_test_page", "cache_test_page", new GroovyClassLoader());
+        File oldClassesDir = getClassesDir(oldCache, oldSource);
+        assertTrue(oldClassesDir.isDirectory());
+
+        // the page has been modified before a restart
+        GroovyPageClassCache cache = new GroovyPageClassCache(cacheDir, "1.2");
+        cache.loadPageClass(source, "cache_test_page", "cache_test_page", new GroovyClassLoader());
+
+        assertFalse(oldClassesDir.exists());
+        File pageDir = getClassesDir(cache, source).getParentFile();
+        assertEquals(1, pageDir.list().length);
+    }
+
+    public void testKeyDependsOnSourceVersionAndFingerprint() throws Exception {
+        byte[] source = SOURCE.getBytes("UTF-8");
+        GroovyPageClassCache cache = new GroovyPageClassCache(cacheDir, "1.2");
+
+        assertEquals(cache.createKey(source, "a"), new GroovyPageClassCache(cacheDir, "1.2").createKey(source, "a"));
+        assertFalse(cache.createKey(source, "a").equals(new GroovyPageClassCache(cacheDir, "1.3").createKey(source, "a")));
+        assertFalse(cache.createKey(source, "a").equals(cache.createKey(source, "b")));
+        assertFalse(cache.createKey(source, "a").equals(cache.createKey((SOURCE + " ").getBytes("UTF-8"), "a")));
+    }
+
+    public void testFingerprintChangesWithClasspath() throws Exception {
+        File classesDir = new File(cacheDir, "classes");
+        File classFile = new File(classesDir, "Book.class");
+        FileUtils.writeStringToFile(classFile, "book");
+        classFile.setLastModified(1000000000000L);
+        URL[] urls = new URL[] { classesDir.toURI().toURL() };
+
+        GroovyPageClassCache cache = new GroovyPageClassCache(cacheDir, "1.2");
+        String fingerprint = cache.getFingerprint(new URLClassLoader(urls));
+        assertEquals(fingerprint, new GroovyPageClassCache(cacheDir, "1.2").getFingerprint(new URLClassLoader(urls)));
+
+        // the application has been rebuilt
+        classFile.setLastModified(1000000001000L);
+        assertFalse(fingerprint.equals(new GroovyPageClassCache(cacheDir, "1.2").getFingerprint(new URLClassLoader(urls))));
+    }
+
+    private File getClassesDir(GroovyPageClassCache cache, byte[] source) {
+        String key = cache.createKey(source, cache.getFingerprint(new GroovyClassLoader()));
+        return new File(new File(cacheDir, "cache_test_page"), key);
+    }
+}
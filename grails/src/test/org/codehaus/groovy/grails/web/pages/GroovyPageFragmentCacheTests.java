@@ -0,0 +1,55 @@
+package org.codehaus.groovy.grails.web.pages;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the GroovyPageFragmentCache class
+ *
+ * @since 1.2
+ */
+public class GroovyPageFragmentCacheTests extends TestCase {
+
+    public void testGetAndPut() {
+        GroovyPageFragmentCache cache = new GroovyPageFragmentCache();
+        assertNull(cache.get("menu", null));
+
+        cache.put("menu", null, "<ul></ul>", 0);
+        assertEquals("<ul></ul>", cache.get("menu", null));
+        assertNull(cache.get("menu", "en"));
+
+        cache.put("menu", "en", "<ul><li>Home</li></ul>", 0);
+        assertEquals("<ul><li>Home</li></ul>", cache.get("menu", "en"));
+        assertEquals("<ul></ul>", cache.get("menu", null));
+    }
+
+    public void testExpiry() throws Exception {
+        GroovyPageFragmentCache cache = new GroovyPageFragmentCache();
+        cache.put("news", null, "news", 50);
+        assertEquals("news", cache.get("news", null));
+
+        Thread.sleep(100);
+        assertNull(cache.get("news", null));
+        assertEquals(0, cache.getCache().getSize());
+    }
+
+    public void testInvalidateRemovesAllVariations() {
+        GroovyPageFragmentCache cache = new GroovyPageFragmentCache();
+        cache.put("menu", "en", "Home", 0);
+        cache.put("menu", "de", "Startseite", 0);
+        cache.put("footer", "en", "Footer", 0);
+
+        cache.invalidate("menu");
+        assertNull(cache.get("menu", "en"));
+        assertNull(cache.get("menu", "de"));
+        assertEquals("Footer", cache.get("footer", "en"));
+    }
+
+    public void testWeightIsBounded() {
+        GroovyPageFragmentCache cache = new GroovyPageFragmentCache(100, 1000);
+        for (int i = 0; i < 100; i++) {
+            cache.put("fragment" + i, null, new String(new char[99]), 0);
+        }
+        assertEquals(10, cache.getCache().getSize());
+        assertTrue(cache.getCache().getWeight() <= 1000);
+    }
+}
@@ -0,0 +1,84 @@
+package org.codehaus.groovy.grails.web.pages;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Measures the throughput of the GroovyPageParser over the views of the sample applications, or of the
+ * directories given as arguments. Not a test, run it with:
+ *
+ * <pre>
+ * java -cp ... org.codehaus.groovy.grails.web.pages.GroovyPageParserBenchmark [dir...]
+ * </pre>
+ *
+ * The number of measured iterations can be set with the gsp.benchmark.iterations system property.
+ *
+ * @since 1.2
+ */
+public class GroovyPageParserBenchmark {
+    private static final String[] DEFAULT_DIRS = { "samples", "../grails-samples" };
+    private static final int WARMUP_ITERATIONS = 5;
+
+    public static void main(String[] args) throws Exception {
+        String[] dirs = args.length > 0 ? args : DEFAULT_DIRS;
+        int iterations = Integer.getInteger("gsp.benchmark.iterations", 50).intValue();
+
+        List<File> views = new ArrayList<File>();
+        List<byte[]> sources = new ArrayList<byte[]>();
+        long totalBytes = 0;
+        for (String dir : dirs) {
+            File baseDir = new File(dir);
+            if (!baseDir.isDirectory()) continue;
+            Collection files = FileUtils.listFiles(baseDir, new String[] { "gsp" }, true);
+            for (Object o : files) {
+                File file = (File) o;
+                byte[] source = FileUtils.readFileToByteArray(file);
+                views.add(file);
+                sources.add(source);
+                totalBytes += source.length;
+            }
+        }
+        if (views.isEmpty()) {
+            System.err.println("No views found in " + java.util.Arrays.asList(dirs));
+            return;
+        }
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            parseAll(views, sources);
+        }
+
+        long start = System.nanoTime();
+        int parsed = 0;
+        for (int i = 0; i < iterations; i++) {
+            parsed += parseAll(views, sources);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println("Parsed " + views.size() + " views (" + totalBytes / 1024 + " KB) " + iterations + " times");
+        System.out.println(String.format("%.1f ms per iteration, %.0f views/s, %.2f MB/s",
+                seconds * 1000 / iterations, parsed / seconds, totalBytes * iterations / seconds / (1024 * 1024)));
+    }
+
+    private static int parseAll(List<File> views, List<byte[]> sources) throws IOException {
+        int parsed = 0;
+        for (int i = 0; i < views.size(); i++) {
+            File view = views.get(i);
+            try {
+                GroovyPageParser parser = new GroovyPageParser(view.getName(), view.getPath(), new ByteArrayInputStream(sources.get(i)));
+                IOUtils.toByteArray(parser.parse());
+                parsed++;
+            }
+            catch (RuntimeException e) {
+                // views that don't parse, for example because of unclosed tags, are skipped
+            }
+        }
+        return parsed;
+    }
+}
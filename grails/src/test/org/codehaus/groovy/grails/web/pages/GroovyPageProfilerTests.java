@@ -0,0 +1,86 @@
+package org.codehaus.groovy.grails.web.pages;
+
+import junit.framework.TestCase;
+import org.codehaus.groovy.grails.web.util.CompressionSupport;
+import org.codehaus.groovy.grails.web.util.GrailsPrintWriter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.StringWriter;
+
+/**
+ * Tests for the GroovyPageProfiler class
+ *
+ * @since 1.2
+ */
+public class GroovyPageProfilerTests extends TestCase {
+
+    public void testRecordStatistics() {
+        GroovyPageProfiler profiler = new GroovyPageProfiler();
+        long start = System.nanoTime();
+        profiler.recordTag("g:link", start, 10, null);
+        profiler.recordTag("g:link", start, 5, null);
+        profiler.recordTemplate("/book/_info", start, 100, null);
+
+        GroovyPageProfiler.Statistics link = profiler.getTags().get("g:link");
+        assertEquals(2, link.getCount());
+        assertEquals(15, link.getChars());
+        assertTrue(link.getTotalTime() >= 0);
+        assertEquals(1, profiler.getTemplates().get("/book/_info").getCount());
+        assertEquals(0, profiler.getPages().size());
+
+        assertEquals(1, profiler.getTagStatistics().length);
+        assertTrue(profiler.getTagStatistics()[0].startsWith("g:link: 2 invocations"));
+
+        profiler.reset();
+        assertEquals(0, profiler.getTags().size());
+        assertEquals(0, profiler.getTemplates().size());
+    }
+
+    public void testRequestReport() {
+        GroovyPageProfiler profiler = new GroovyPageProfiler();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        profiler.recordTag("g:link", System.nanoTime(), 10, request);
+        assertNull("statistics are only kept for the request when the report is enabled",
+                profiler.createRequestReport(request));
+
+        profiler.setReportEnabled(true);
+        profiler.recordTag("g:link", System.nanoTime(), 10, request);
+        profiler.recordTemplate("/book/_a--b", System.nanoTime(), 20, request);
+        String report = profiler.createRequestReport(request);
+        assertTrue(report.startsWith("\n<!-- GSP profile\n"));
+        assertTrue(report.indexOf("tag g:link: 1 invocations") > -1);
+        assertTrue(report.indexOf("template /book/_a- -b: 1 invocations") > -1);
+        assertTrue(report.endsWith("-->\n"));
+        assertNull("the statistics are discarded once reported", profiler.createRequestReport(request));
+    }
+
+    public void testCharsWritten() {
+        GrailsPrintWriter out = new GrailsPrintWriter(new StringWriter());
+        out.print("hello");
+        out.write('!');
+        out.println();
+        assertEquals(8, GroovyPageProfiler.getCharsWritten(out));
+        assertEquals(0, GroovyPageProfiler.getCharsWritten(new StringWriter()));
+    }
+
+    public void testEncodedCharsWritten() throws Exception {
+        CompressionSupport.setEnabled(true);
+        try {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/book/list");
+            request.addHeader("Accept-Encoding", "gzip");
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            response.setCharacterEncoding("UTF-8");
+            GSPResponseWriter out = GSPResponseWriter.getInstance(request, response, 8192);
+            assertEquals("UTF-8", out.getByteOutputEncoding());
+
+            out.writeEncoded("\u00e4\u00f6\u00e5 ".getBytes("UTF-8"), 4);
+            out.print("\u20ac");
+            assertEquals(5, GroovyPageProfiler.getCharsWritten(out));
+            out.close();
+        }
+        finally {
+            CompressionSupport.setEnabled(false);
+        }
+    }
+}
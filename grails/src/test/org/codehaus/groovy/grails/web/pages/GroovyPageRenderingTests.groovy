@@ -22,6 +22,32 @@ public class GroovyPageRenderingTests extends AbstractGrailsTagTests{
         
     }
 
+    void testGroovyPageExpressionExceptionInsideTagBody() {
+        def template = '<g:each in="${[1]}">\n${it.foo.bar}</g:each>'
+
+        try {
+            applyTemplate(template)
+            fail "Should have thrown a GroovyPagesException"
+        }
+        catch (GroovyPagesException e) {
+            assertEquals 2, e.lineNumber
+            assertTrue e.message.contains("on line [2]")
+        }
+    }
+
+    void testGroovyPageExpressionExceptionInsideNestedTagBodies() {
+        def template = '<g:form controller="book" action="save">\n<g:link controller="book" action="list">\n\n${foo.bar.next}</g:link>\n</g:form>'
+
+        try {
+            applyTemplate(template)
+            fail "Should have thrown a GroovyPagesException"
+        }
+        catch (GroovyPagesException e) {
+            assertEquals 4, e.lineNumber
+            assertTrue e.message.contains("on line [4]")
+        }
+    }
+
     void testGroovyPageExpressionExceptionInOtherEnvironments() {
         def template = '${foo.bar.next}'
 
@@ -185,6 +185,216 @@ class GroovyPagesTemplateEngineTests extends GroovyTestCase {
         assertEquals "/WEB-INF/grails-app/views/mydir/myview.gsp", gpte.getUriWithinGrailsViews("/mydir/myview")
     }
 
+    void testIdenticalSourceIsCompiledOnce() {
+        def gpte = new GroovyPagesTemplateEngine(new MockServletContext())
+
+        def t1 = gpte.createTemplate("<%='hello'%>", "hello_one")
+        def t2 = gpte.createTemplate("<%='hello'%>", "hello_two")
+        assertSame t1.metaInfo.pageClass, t2.metaInfo.pageClass
+        assertEquals 1, gpte.pageCache.size
+
+        gpte.createTemplate("<%='goodbye'%>", "goodbye")
+        assertEquals 2, gpte.pageCache.size
+    }
+
+    void testPageCacheIsBounded() {
+        def gpte = new GroovyPagesTemplateEngine(new MockServletContext())
+        gpte.maxCacheSize = 2
+
+        (1..3).each { gpte.createTemplate("<%='page $it'%>", "page_$it") }
+        assertEquals 2, gpte.pageCache.size
+        assertEquals 1, gpte.pageCache.evictionCount
+
+        def t = gpte.createTemplate("<%='page 1'%>", "page_1")
+        def sw = new StringWriter()
+        t.make().writeTo(new PrintWriter(sw))
+        assertEquals "page 1", sw.toString()
+    }
+
+    void testPrecompileViews() {
+        def webAppDir = new File(System.getProperty("java.io.tmpdir"), "precompile-views-test-${System.nanoTime()}")
+        def viewsDir = new File(webAppDir, "WEB-INF/grails-app/views/book")
+        viewsDir.mkdirs()
+        new File(viewsDir, "list.gsp").text = "<%='list'%>"
+        def pluginViewsDir = new File(webAppDir, "WEB-INF/plugins/foo-0.1/grails-app/views/foo")
+        pluginViewsDir.mkdirs()
+        new File(pluginViewsDir, "show.gsp").text = "<%='show'%>"
+
+        try {
+            def gpte = new GroovyPagesTemplateEngine(new MockServletContext("file:${webAppDir.absolutePath}", new FileSystemResourceLoader()))
+            gpte.compiledPageCache = new GroovyPageClassCache(new File(webAppDir, "gspcache"), "test")
+
+            assertEquals 2, gpte.precompileViews(2)
+            assertEquals 2, gpte.pageCache.size
+            assertEquals 2, new File(webAppDir, "gspcache").list().length
+
+            def t = gpte.createTemplate("/WEB-INF/grails-app/views/book/list.gsp")
+            def sw = new StringWriter()
+            t.make().writeTo(new PrintWriter(sw))
+
+            assertEquals "list", sw.toString()
+            assertEquals "the precompiled view should have been used", 2, gpte.pageCache.size
+        }
+        finally {
+            webAppDir.deleteDir()
+        }
+    }
+
+    void testReloadWhenChangeIsDetected() {
+        GrailsWebUtil.bindMockWebRequest()
+        def file = File.createTempFile("reload-test", ".gsp")
+        file.text = "<%='before'%>"
+        def gpte = new GroovyPagesTemplateEngine(new MockServletContext())
+        gpte.reloadEnabled = true
+        gpte.reloadInterval = 60000
+
+        try {
+            def resource = new FileSystemResource(file)
+            def meta = gpte.createTemplate(resource).metaInfo
+            assertEquals 1, gpte.changeMonitor.watchedCount
+
+            file.text = "<%='after'%>"
+            file.lastModified = meta.lastModified + 10000
+            assertSame "the file system is only checked by the change monitor", meta, gpte.createTemplate(resource).metaInfo
+
+            gpte.changeMonitor.checkForChanges()
+            def t = gpte.createTemplate(resource)
+            assertNotSame meta, t.metaInfo
+            def sw = new StringWriter()
+            t.make().writeTo(new PrintWriter(sw))
+            assertEquals "after", sw.toString()
+            assertFalse gpte.changeMonitor.isChanged(gpte.establishPageName(resource, null))
+        }
+        finally {
+            gpte.destroy()
+            file.delete()
+        }
+    }
+
+    void testDroppedPagesAreNoLongerWatched() {
+        GrailsWebUtil.bindMockWebRequest()
+        def files = (1..2).collect {
+            def file = File.createTempFile("unwatch-test", ".gsp")
+            file.text = "<%='page $it'%>"
+            file
+        }
+        def gpte = new GroovyPagesTemplateEngine(new MockServletContext())
+        gpte.reloadEnabled = true
+        gpte.reloadInterval = 60000
+        gpte.maxCacheSize = 1
+
+        try {
+            files.each { gpte.createTemplate(new FileSystemResource(it)) }
+            assertEquals 1, gpte.pageCache.evictionCount
+            assertEquals "the evicted page should no longer be watched", 1, gpte.changeMonitor.watchedCount
+
+            gpte.clearPageCache()
+            assertEquals 0, gpte.changeMonitor.watchedCount
+        }
+        finally {
+            gpte.destroy()
+            files*.delete()
+        }
+    }
+
+    void testTemplateResolutionIsCached() {
+        GrailsWebUtil.bindMockWebRequest()
+
+        def rl = new MockStringResourceLoader()
+        rl.registerMockResource("/WEB-INF/grails-app/views/book/_info.gsp", "<%='info'%>")
+        def gpte = new GroovyPagesTemplateEngine(new MockServletContext(rl))
+        def uris = ["/book/_info.gsp", "/grails-app/views/book/_info.gsp"] as String[]
+
+        def t1 = gpte.createTemplateForUri(uris)
+        assertEquals 1, gpte.templateCache.size
+        assertEquals 0, gpte.templateCache.hitCount
+
+        def t2 = gpte.createTemplateForUri(uris)
+        assertSame t1.metaInfo, t2.metaInfo
+        assertEquals 1, gpte.templateCache.hitCount
+
+        def sw = new StringWriter()
+        t2.make().writeTo(new PrintWriter(sw))
+        assertEquals "info", sw.toString()
+
+        gpte.clearPageCache()
+        assertEquals 0, gpte.templateCache.size
+    }
+
+    void testEvictedTemplateIsCompiledFromResolvedLocation() {
+        GrailsWebUtil.bindMockWebRequest()
+
+        def rl = new MockStringResourceLoader()
+        rl.registerMockResource("/WEB-INF/grails-app/views/book/_info.gsp", "<%='info'%>")
+        def gpte = new GroovyPagesTemplateEngine(new MockServletContext(rl))
+        def uris = ["/book/_info.gsp", "/grails-app/views/book/_info.gsp"] as String[]
+
+        def t1 = gpte.createTemplateForUri(uris)
+        // the compiled page is only held by the page cache
+        gpte.pageCache.clear()
+
+        def t2 = gpte.createTemplateForUri(uris)
+        assertNotSame t1.metaInfo, t2.metaInfo
+        assertEquals 1, gpte.templateCache.hitCount
+        assertEquals 1, gpte.pageCache.size
+
+        def sw = new StringWriter()
+        t2.make().writeTo(new PrintWriter(sw))
+        assertEquals "info", sw.toString()
+    }
+
+    void testAddedTemplateIsResolvedWhenReloadIsEnabled() {
+        withViewsDir { gpte, viewsDir ->
+            new File(viewsDir, "_info.gsp").text = "<%='shared'%>"
+            def uris = ["/book/_info.gsp", "/_info.gsp"] as String[]
+            assertEquals "shared", render(gpte.createTemplateForUri(uris))
+
+            new File(viewsDir, "book").mkdirs()
+            new File(viewsDir, "book/_info.gsp").text = "<%='book'%>"
+            assertEquals "book", render(gpte.createTemplateForUri(uris))
+            assertEquals 0, gpte.templateCache.size
+        }
+    }
+
+    void testDeletedTemplateIsNotServedWhenReloadIsEnabled() {
+        withViewsDir { gpte, viewsDir ->
+            new File(viewsDir, "_info.gsp").text = "<%='shared'%>"
+            new File(viewsDir, "book").mkdirs()
+            def bookInfo = new File(viewsDir, "book/_info.gsp")
+            bookInfo.text = "<%='book'%>"
+            def uris = ["/book/_info.gsp", "/_info.gsp"] as String[]
+            assertEquals "book", render(gpte.createTemplateForUri(uris))
+
+            assertTrue bookInfo.delete()
+            assertEquals "shared", render(gpte.createTemplateForUri(uris))
+
+            assertTrue new File(viewsDir, "_info.gsp").delete()
+            assertNull gpte.createTemplateForUri(uris)
+        }
+    }
+
+    private withViewsDir(Closure test) {
+        GrailsWebUtil.bindMockWebRequest()
+        def webAppDir = new File(System.getProperty("java.io.tmpdir"), "reload-views-test-${System.nanoTime()}")
+        def viewsDir = new File(webAppDir, "WEB-INF/grails-app/views")
+        viewsDir.mkdirs()
+        def gpte = new GroovyPagesTemplateEngine(new MockServletContext("file:${webAppDir.absolutePath}", new FileSystemResourceLoader()))
+        gpte.reloadEnabled = true
+        try {
+            test(gpte, viewsDir)
+        }
+        finally {
+            gpte.destroy()
+            webAppDir.deleteDir()
+        }
+    }
+
+    private String render(template) {
+        def sw = new StringWriter()
+        template.make().writeTo(new PrintWriter(sw))
+        sw.toString()
+    }
+
     void tearDown() {
         RequestContextHolder.setRequestAttributes(null)
     }
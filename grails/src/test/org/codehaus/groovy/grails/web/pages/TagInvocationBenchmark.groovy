@@ -0,0 +1,37 @@
+package org.codehaus.groovy.grails.web.pages
+
+/**
+ * Measures the rendering of a page with 4000 tag invocations, with the tag libraries and the application context
+ * of {@link TagInvocationTests}. Not a test, run it with:
+ *
+ * <pre>
+ * java -cp ... org.codehaus.groovy.grails.web.pages.TagInvocationBenchmark
+ * </pre>
+ *
+ * The number of measured iterations can be set with the gsp.benchmark.iterations system property.
+ *
+ * @since 1.2
+ */
+class TagInvocationBenchmark {
+    static final int WARMUP_ITERATIONS = 5
+
+    static void main(String[] args) {
+        int iterations = Integer.getInteger("gsp.benchmark.iterations", 50)
+
+        def tests = new TagInvocationTests()
+        tests.setUp()
+        try {
+            WARMUP_ITERATIONS.times { tests.applyTemplate(TagInvocationTests.TAG_HEAVY_PAGE) }
+
+            long start = System.nanoTime()
+            iterations.times { tests.applyTemplate(TagInvocationTests.TAG_HEAVY_PAGE) }
+            double millis = (System.nanoTime() - start) / 1e6
+
+            println "Rendered a page with 4000 tag invocations ${iterations} times"
+            println String.format("%.1f ms per page", millis / iterations)
+        }
+        finally {
+            tests.tearDown()
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.codehaus.groovy.grails.web.pages
+
+import org.codehaus.groovy.grails.web.taglib.AbstractGrailsTagTests
+
+/**
+ * Tests for the invocation of tags through TagInvoker instances
+ *
+ * @since 1.2
+ */
+class TagInvocationTests extends AbstractGrailsTagTests {
+    static final String TAG_HEAVY_PAGE = '<g:each in="${1..2000}"><inv:safe value="${it}"><inv:unsafe value="x" /></inv:safe></g:each>'
+
+    void onSetUp() {
+        gcl.parseClass('''
+class InvocationTagLib {
+    static namespace = "inv"
+    static threadSafeTags = ['safe']
+
+    def safe = { attrs, body ->
+        out << "[" << attrs.value << body() << "]"
+    }
+
+    def unsafe = { attrs ->
+        out << "(" << attrs.value << ")"
+    }
+}
+''')
+    }
+
+    void testTagInvokers() {
+        def lookup = appCtx.getBean("gspTagLibraryLookup")
+
+        assertTrue lookup.lookupTagInvoker("inv", "safe").threadSafe
+        assertFalse lookup.lookupTagInvoker("inv", "unsafe").threadSafe
+        assertTrue lookup.lookupTagInvoker("g", "link").threadSafe
+        assertNull lookup.lookupTagInvoker("inv", "missing")
+        assertNull lookup.lookupTagInvoker("missing", "safe")
+    }
+
+    void testInvokeTags() {
+        assertOutputEquals "[1body](2)", '<inv:safe value="1">body</inv:safe><inv:unsafe value="2">ignored</inv:unsafe>'
+        assertOutputEquals "[1]", '<inv:safe value="1" />'
+    }
+
+    void testTagHeavyPage() {
+        def expected = new StringBuilder()
+        for (i in 1..2000) expected << "[${i}(x)]"
+        assertOutputEquals expected.toString(), TAG_HEAVY_PAGE
+    }
+}
@@ -0,0 +1,107 @@
+package org.codehaus.groovy.grails.web.servlet.mvc;
+
+import groovy.lang.Closure;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyObject;
+import org.codehaus.groovy.grails.commons.GrailsControllerClass;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the request throughput of a prototype controller, which the bean factory creates and autowires by name
+ * for every request as SimpleGrailsControllerHelper#getControllerInstance does, with a singleton controller that
+ * is created once. Each request looks up the controller and calls an action. Not a test, run it with:
+ *
+ * <pre>
+ * java -cp ... org.codehaus.groovy.grails.web.servlet.mvc.ControllerScopeBenchmark
+ * </pre>
+ *
+ * The number of requests per thread can be set with the controller.benchmark.requests system property, the number
+ * of threads with controller.benchmark.threads.
+ *
+ * @since 1.2
+ */
+public class ControllerScopeBenchmark {
+    private static final int WARMUP_REQUESTS = 20000;
+    private static final String CONTROLLER = "class BookController {\n" +
+            "    def bookService\n" +
+            "    def authorService\n" +
+            "    def publisherService\n" +
+            "    def beforeInterceptor = { }\n" +
+            "    def list = { [books: bookService] }\n" +
+            "    def show = { [book: bookService, author: authorService] }\n" +
+            "    def edit = { [book: bookService, publisher: publisherService] }\n" +
+            "    def save = { }\n" +
+            "    def update = { }\n" +
+            "    def delete = { }\n" +
+            "}";
+
+    private static final AtomicLong models = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        int requests = Integer.getInteger("controller.benchmark.requests", 200000).intValue();
+        int threads = Integer.getInteger("controller.benchmark.threads", Runtime.getRuntime().availableProcessors()).intValue();
+        Class controllerClass = new GroovyClassLoader().parseClass(CONTROLLER);
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("bookService", new Object());
+        beanFactory.registerSingleton("authorService", new Object());
+        beanFactory.registerSingleton("publisherService", new Object());
+        beanFactory.registerBeanDefinition("prototypeController",
+                definition(controllerClass, GrailsControllerClass.SCOPE_PROTOTYPE));
+        beanFactory.registerBeanDefinition("singletonController",
+                definition(controllerClass, GrailsControllerClass.SCOPE_SINGLETON));
+
+        run("prototype", beanFactory, "prototypeController", WARMUP_REQUESTS, threads, false);
+        run("singleton", beanFactory, "singletonController", WARMUP_REQUESTS, threads, false);
+        run("prototype", beanFactory, "prototypeController", requests, threads, true);
+        run("singleton", beanFactory, "singletonController", requests, threads, true);
+    }
+
+    private static RootBeanDefinition definition(Class controllerClass, String scope) {
+        RootBeanDefinition definition = new RootBeanDefinition(controllerClass);
+        definition.setScope(scope);
+        definition.setAutowireMode(AutowireCapableBeanFactory.AUTOWIRE_BY_NAME);
+        return definition;
+    }
+
+    private static void run(String name, final DefaultListableBeanFactory beanFactory, final String beanName,
+                            final int requests, int threads, boolean report) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < requests; j++) {
+                            GroovyObject controller = (GroovyObject) beanFactory.getBean(beanName);
+                            Object model = ((Closure) controller.getProperty("list")).call();
+                            if (model != null) models.incrementAndGet();
+                        }
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        long time = System.nanoTime();
+        start.countDown();
+        done.await();
+        time = System.nanoTime() - time;
+        if (report) {
+            long total = (long) requests * threads;
+            System.out.println(String.format("%-10s %2d threads %10.0f requests per second %6.2f us per request",
+                    name, threads, total * 1e9 / time, time / 1000.0 / total));
+        }
+    }
+}
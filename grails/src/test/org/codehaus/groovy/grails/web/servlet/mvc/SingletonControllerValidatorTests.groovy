@@ -0,0 +1,81 @@
+package org.codehaus.groovy.grails.web.servlet.mvc
+
+import org.codehaus.groovy.grails.commons.DefaultGrailsControllerClass
+import org.codehaus.groovy.grails.exceptions.GrailsConfigurationException
+import org.springframework.beans.factory.support.DefaultListableBeanFactory
+import org.springframework.beans.factory.support.RootBeanDefinition
+import org.springframework.beans.factory.support.StaticListableBeanFactory
+
+class SingletonControllerValidatorTests extends GroovyTestCase {
+
+    def gcl = new GroovyClassLoader()
+
+    void testStatelessControllerIsValid() {
+        def controllerClass = new DefaultGrailsControllerClass(gcl.parseClass('''
+class StatelessController {
+    static scope = "singleton"
+    static allowedMethods = [save: 'POST']
+    final int pageSize = 10
+    def bookService
+    def beforeInterceptor = { }
+    Closure list = { [books: bookService.list(max: pageSize)] }
+    def save = { redirect(action: 'list') }
+}
+'''))
+        def beanFactory = new StaticListableBeanFactory()
+        beanFactory.addBean('bookService', new Object())
+
+        assertEquals([], SingletonControllerValidator.findMutableFields(controllerClass, beanFactory))
+        SingletonControllerValidator.validate(controllerClass, beanFactory)
+    }
+
+    void testMutableFieldsAreRejected() {
+        gcl.parseClass('''
+class BaseStatefulController {
+    def lastSearch
+}
+class StatefulController extends BaseStatefulController {
+    static scope = "singleton"
+    int count
+    def bookService
+    def list = { count++ }
+}
+''')
+        def controllerClass = new DefaultGrailsControllerClass(gcl.loadClass('StatefulController'))
+
+        assertEquals(['bookService', 'count', 'lastSearch'],
+                SingletonControllerValidator.findMutableFields(controllerClass, null).sort())
+
+        def beanFactory = new StaticListableBeanFactory()
+        beanFactory.addBean('bookService', new Object())
+        def message = shouldFail(GrailsConfigurationException) {
+            SingletonControllerValidator.validate(controllerClass, beanFactory)
+        }
+        assertTrue message.contains('[count, lastSearch]')
+        assertTrue message.contains('StatefulController')
+    }
+
+    void testBeansOfNarrowerScopesAreRejected() {
+        def controllerClass = new DefaultGrailsControllerClass(gcl.parseClass('''
+class ScopedServiceController {
+    static scope = "singleton"
+    def bookService
+    def cartService
+    def searchService
+    def list = { }
+}
+'''))
+        def beanFactory = new DefaultListableBeanFactory()
+        ['bookService': 'singleton', 'cartService': 'session', 'searchService': 'prototype'].each { name, scope ->
+            def definition = new RootBeanDefinition(Object)
+            definition.scope = scope
+            beanFactory.registerBeanDefinition(name, definition)
+        }
+
+        assertEquals(['cartService', 'searchService'],
+                SingletonControllerValidator.findMutableFields(controllerClass, beanFactory).sort())
+        shouldFail(GrailsConfigurationException) {
+            SingletonControllerValidator.validate(controllerClass, beanFactory)
+        }
+    }
+}
@@ -9,6 +9,10 @@ import org.codehaus.groovy.grails.web.servlet.mvc.*
 import org.codehaus.groovy.grails.web.errors.*
 import org.codehaus.groovy.grails.web.pages.*
 import org.codehaus.groovy.grails.support.*
+import org.codehaus.groovy.grails.web.servlet.GrailsApplicationAttributes
+import org.codehaus.groovy.grails.web.sitemesh.*
+import com.opensymphony.module.sitemesh.*
+import com.opensymphony.module.sitemesh.mapper.DefaultDecorator
 
 
 class GroovyPageViewTests extends GroovyTestCase {
@@ -39,7 +43,86 @@ class GroovyPageViewTests extends GroovyTestCase {
         assertEquals "successbar", webRequest.currentResponse.contentAsString
     }
 
+    void testStreamingLayout() {
+        def webRequest = GrailsWebUtil.bindMockWebRequest()
+
+        def rl = new MockStringResourceLoader()
+        def url = "/WEB-INF/grails-apps/views/test.gsp"
+        def layoutUrl = "/WEB-INF/grails-apps/views/layouts/main.gsp"
+        rl.registerMockResource(url, "<p>committed: <%=response.committed%></p>")
+        rl.registerMockResource(layoutUrl, "<html><body><% request.getAttribute('${RequestConstants.PAGE}').writeBody(out) %></body></html>")
+
+        def gpte = new GroovyPagesTemplateEngine(new MockServletContext(rl))
+        def ctx = new MockApplicationContext()
+        ctx.registerMockBean(GroovyPagesTemplateEngine.BEAN_ID, gpte)
+
+        def decoratorMapper = [getDecorator: { request, page -> new DefaultDecorator("main", layoutUrl, [:]) }] as DecoratorMapper
+        FactoryHolder.setFactory([getDecoratorMapper: { decoratorMapper }] as Factory)
+
+        def request = webRequest.currentRequest
+        request.setAttribute(GrailsApplicationAttributes.CONTROLLER, new StreamingLayoutTestController())
+        def pageResponse = new GrailsPageResponseWrapper(webRequest.currentResponse, [shouldParsePage: { true }, getPageParser: { null }] as PageParserSelector)
+
+        def view = new GroovyPageView()
+        view.url = url
+        view.applicationContext = ctx
+        view.render([:], request, pageResponse)
+
+        assertTrue pageResponse.decorationDisabled
+        assertFalse pageResponse.sitemeshActive
+        assertEquals "<html><body><p>committed: true</p></body></html>", webRequest.currentResponse.contentAsString
+    }
+
+    void testStreamingLayoutDeclaredWithMeta() {
+        def webRequest = GrailsWebUtil.bindMockWebRequest()
+
+        def rl = new MockStringResourceLoader()
+        def url = "/WEB-INF/grails-apps/views/test.gsp"
+        def dynamicUrl = "/WEB-INF/grails-apps/views/dynamic.gsp"
+        def layoutUrl = "/WEB-INF/grails-apps/views/layouts/other.gsp"
+        rl.registerMockResource(url, '<meta name="layout" content="other"/><p>body</p>')
+        rl.registerMockResource(dynamicUrl, '<meta name="layout" content="${layoutName}"/><p>body</p>')
+        rl.registerMockResource(layoutUrl, "<html><body><% request.getAttribute('${RequestConstants.PAGE}').writeBody(out) %></body></html>")
+
+        def gpte = new GroovyPagesTemplateEngine(new MockServletContext(rl))
+        def ctx = new MockApplicationContext()
+        ctx.registerMockBean(GroovyPagesTemplateEngine.BEAN_ID, gpte)
+
+        def layoutNames = []
+        def decoratorMapper = [getDecorator: { request, page ->
+            layoutNames << page.getProperty("meta.layout")
+            new DefaultDecorator("other", layoutUrl, [:])
+        }] as DecoratorMapper
+        FactoryHolder.setFactory([getDecoratorMapper: { decoratorMapper }] as Factory)
+
+        def request = webRequest.currentRequest
+        request.setAttribute(GrailsApplicationAttributes.CONTROLLER, new StreamingLayoutTestController())
+        def pageResponse = new GrailsPageResponseWrapper(webRequest.currentResponse, [shouldParsePage: { true }, getPageParser: { null }] as PageParserSelector)
+
+        def view = new GroovyPageView()
+        view.url = url
+        view.applicationContext = ctx
+        view.render([:], request, pageResponse)
+
+        assertEquals(["other"], layoutNames)
+        assertTrue pageResponse.decorationDisabled
+
+        // a layout chosen with an expression is only known once the view is rendered, so SiteMesh applies it
+        view = new GroovyPageView()
+        view.url = dynamicUrl
+        view.applicationContext = ctx
+        pageResponse = new GrailsPageResponseWrapper(webRequest.currentResponse, [shouldParsePage: { true }, getPageParser: { null }] as PageParserSelector)
+        assertNull view.findStreamingLayout(gpte.createTemplate(dynamicUrl), request, pageResponse)
+        assertEquals(["other"], layoutNames)
+        assertFalse pageResponse.decorationDisabled
+    }
+
     void tearDown() {
          RequestContextHolder.setRequestAttributes(null)
+         FactoryHolder.setFactory(null)
     }
+}
+
+class StreamingLayoutTestController {
+    static streamingLayout = true
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package org.codehaus.groovy.grails.web.sitemesh;
+
+import com.opensymphony.module.sitemesh.parser.TokenizedHTMLPage;
+import com.opensymphony.module.sitemesh.html.util.CharArray;
+import com.opensymphony.sitemesh.compatability.HTMLPage2Content;
+import junit.framework.TestCase;
+import org.codehaus.groovy.grails.web.util.StreamCharBuffer;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+public class GSPSitemeshPageTests extends TestCase {
+
+    public void testCapturedRegionsCanBeWrittenMoreThanOnce() throws IOException {
+        GSPSitemeshPage page = new GSPSitemeshPage();
+        assertFalse(page.isUsed());
+        page.setHeadBuffer(buffer("<script src=\"app.js\"></script>"));
+        page.setBodyBuffer(buffer("<p>Hello</p>"));
+        page.setPageData("<html>...</html>".toCharArray());
+        page.addProperty("title", "Hello");
+        assertTrue(page.isUsed());
+
+        StringWriter out = new StringWriter();
+        page.writeHead(out);
+        page.writeBody(out);
+        page.writeBody(out);
+        assertEquals("<script src=\"app.js\"></script><p>Hello</p><p>Hello</p>", out.toString());
+        assertEquals("<script src=\"app.js\"></script>", page.getHead());
+        assertEquals("<p>Hello</p>", page.getBody());
+        assertEquals("Hello", page.getTitle());
+
+        out = new StringWriter();
+        page.writeOriginal(out);
+        assertEquals("<html>...</html>", out.toString());
+        assertEquals(16, page.originalLength());
+    }
+
+    public void testContentBlocksAreCopiedToParsedPage() {
+        GSPSitemeshPage page = new GSPSitemeshPage();
+        page.addProperty("page.nav", "<a href=\"/\">Home</a>");
+        page.addProperty("meta.layout", "main");
+        HTMLPage2Content parsed = new HTMLPage2Content(
+                new TokenizedHTMLPage(new char[0], new CharArray(0), new CharArray(0)));
+        page.copyContentBlocksTo(parsed);
+        assertEquals("<a href=\"/\">Home</a>", parsed.getProperty("page.nav"));
+        assertNull(parsed.getProperty("meta.layout"));
+    }
+
+    private StreamCharBuffer buffer(String content) throws IOException {
+        StreamCharBuffer buffer = new StreamCharBuffer();
+        buffer.getWriter().write(content);
+        return buffer;
+    }
+}
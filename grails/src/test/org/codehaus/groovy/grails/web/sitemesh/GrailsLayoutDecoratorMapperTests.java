@@ -9,6 +9,7 @@ import groovy.lang.GroovyClassLoader;
 import groovy.lang.GroovyObject;
 import junit.framework.TestCase;
 import org.codehaus.groovy.grails.support.MockApplicationContext;
+import org.codehaus.groovy.grails.web.pages.GroovyPagesTemplateEngine;
 import org.codehaus.groovy.grails.web.servlet.GrailsApplicationAttributes;
 import org.codehaus.groovy.grails.web.servlet.mvc.GrailsWebRequest;
 import org.codehaus.groovy.grails.plugins.PluginMetaManager;
@@ -169,6 +170,83 @@ public class GrailsLayoutDecoratorMapperTests extends TestCase {
     }
 
 
+    public void testResolvedDecoratorIsCached() throws Exception {
+        MockApplicationContext appCtx = bindApplicationContext(false, 0);
+        appCtx.registerMockResource("WEB-INF/grails-app/views/layouts/test.gsp", "<html><body><g:layoutBody /></body></html>");
+
+        GrailsLayoutDecoratorMapper m = createMapper();
+        Page page = new HTMLPageParser().parse("<html><head><meta name=\"layout\" content=\"test\"></meta></head><body>here is the body</body></html>".toCharArray());
+        Decorator d = m.getDecorator(new MockHttpServletRequest("GET", "orders/list"), page);
+        assertNotNull(d);
+        assertSame(d, m.getDecorator(new MockHttpServletRequest("GET", "orders/show"), page));
+
+        assertEquals(1, m.getDecoratorCache().getHitCount());
+        assertEquals(1, m.getDecoratorCache().getMissCount());
+        assertEquals(0.5, m.getDecoratorCache().getHitRatio(), 0.001);
+    }
+
+    public void testMissingLayoutIsCached() throws Exception {
+        MockApplicationContext appCtx = bindApplicationContext(false, 0);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "orders/list");
+        request.setAttribute(GrailsApplicationAttributes.CONTROLLER, createController());
+        GrailsLayoutDecoratorMapper m = createMapper();
+        Page page = new HTMLPageParser().parse("<html><head><title>Test title</title></head><body>here is the body</body></html>".toCharArray());
+        assertNull(m.getDecorator(request, page));
+
+        appCtx.registerMockResource("WEB-INF/grails-app/views/layouts/test3.gsp", "<html><body><g:layoutBody /></body></html>");
+        assertNull(m.getDecorator(request, page));
+        assertEquals(1, m.getDecoratorCache().getHitCount());
+
+        m.clearCache();
+        Decorator d = m.getDecorator(request, page);
+        assertNotNull(d);
+        assertEquals("/WEB-INF/grails-app/views/layouts/test3.gsp", d.getPage());
+    }
+
+    public void testCachedLookupExpiresWhenReloadIsEnabled() throws Exception {
+        MockApplicationContext appCtx = bindApplicationContext(true, 0);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "orders/list");
+        request.setAttribute(GrailsApplicationAttributes.CONTROLLER, createController());
+        GrailsLayoutDecoratorMapper m = createMapper();
+        Page page = new HTMLPageParser().parse("<html><head><title>Test title</title></head><body>here is the body</body></html>".toCharArray());
+        assertNull(m.getDecorator(request, page));
+
+        appCtx.registerMockResource("WEB-INF/grails-app/views/layouts/test3/testAction.gsp", "<html><body><g:layoutBody /></body></html>");
+        Decorator d = m.getDecorator(request, page);
+        assertNotNull(d);
+        assertEquals("test3/testAction", d.getName());
+    }
+
+    private MockApplicationContext bindApplicationContext(boolean reloadEnabled, long reloadInterval) {
+        GrailsWebRequest webRequest = GrailsWebUtil.bindMockWebRequest();
+
+        MockApplicationContext appCtx = new MockApplicationContext();
+        appCtx.registerMockBean(PluginMetaManager.BEAN_ID, new DefaultPluginMetaManager());
+        GroovyPagesTemplateEngine templateEngine = new GroovyPagesTemplateEngine();
+        templateEngine.setReloadEnabled(reloadEnabled);
+        templateEngine.setReloadInterval(reloadInterval);
+        appCtx.registerMockBean(GroovyPagesTemplateEngine.BEAN_ID, templateEngine);
+        webRequest.getServletContext().setAttribute(GrailsApplicationAttributes.APPLICATION_CONTEXT, appCtx);
+        webRequest.getServletContext().setAttribute(WebApplicationContext.ROOT_WEB_APPLICATION_CONTEXT_ATTRIBUTE, appCtx);
+        return appCtx;
+    }
+
+    private GrailsLayoutDecoratorMapper createMapper() throws InstantiationException {
+        ServletContext context = ((GrailsWebRequest)RequestContextHolder.currentRequestAttributes()).getServletContext();
+        GrailsLayoutDecoratorMapper m = new GrailsLayoutDecoratorMapper();
+        m.init(new Config(new MockServletConfig(context)), null, null);
+        return m;
+    }
+
+    private GroovyObject createController() throws Exception {
+        return (GroovyObject)new GroovyClassLoader().parseClass("class Test3Controller {\n" +
+                "def controllerName = 'test3'\n" +
+                "def actionUri = '/test3/testAction'\n" +
+        "}").newInstance();
+    }
+
     protected void tearDown() throws Exception {
         RequestContextHolder.setRequestAttributes(null);
     }
@@ -0,0 +1,68 @@
+package org.codehaus.groovy.grails.web.sitemesh;
+
+import junit.framework.TestCase;
+
+public class SitemeshPreprocessorTests extends TestCase {
+    private SitemeshPreprocessor preprocessor = new SitemeshPreprocessor();
+
+    public void testElementsAreRewritten() {
+        String gsp = "<html><head class=\"h\"><title>Hello</title><meta name=\"layout\" content=\"main\"/>" +
+                "<META http-equiv=\"Content-Type\" content='text/html'></head>" +
+                "<body onload=\"init()\">${foo}<content tag=\"nav\">a</content><content tag=\"footer\">b</content>" +
+                "</body></html>";
+        assertEquals("<html><head class=\"h\"><sitemesh:captureHead>" +
+                "<sitemesh:captureTitle><title>Hello</title></sitemesh:captureTitle>" +
+                "<meta name=\"layout\" content=\"main\"/><sitemesh:captureMeta name=\"layout\" content=\"main\"/>" +
+                "<META http-equiv=\"Content-Type\" content='text/html'>" +
+                "<sitemesh:captureMeta http-equiv=\"Content-Type\" content='text/html'/>" +
+                "</sitemesh:captureHead></head><body onload=\"init()\"><sitemesh:captureBody onload=\"init()\">${foo}" +
+                "<sitemesh:captureContent tag=\"nav\"><content tag=\"nav\">a</content></sitemesh:captureContent>" +
+                "<sitemesh:captureContent tag=\"footer\"><content tag=\"footer\">b</content></sitemesh:captureContent>" +
+                "</sitemesh:captureBody></body></html>",
+                preprocessor.process(gsp));
+    }
+
+    public void testMarkupOfElementsIsKept() {
+        String gsp = "<HEAD>\n<Title class='t'>${title}</Title >\n<meta name='layout'\n content=\"main\" />\n</HEAD >" +
+                "<BODY  class='main'>text</BODY>";
+        assertEquals("<HEAD><sitemesh:captureHead>\n" +
+                "<sitemesh:captureTitle><Title class='t'>${title}</Title ></sitemesh:captureTitle>\n" +
+                "<meta name='layout'\n content=\"main\" /><sitemesh:captureMeta name='layout'\n content=\"main\"/>\n" +
+                "</sitemesh:captureHead></HEAD ><BODY  class='main'><sitemesh:captureBody  class='main'>text" +
+                "</sitemesh:captureBody></BODY>", preprocessor.process(gsp));
+    }
+
+    public void testElementsWithExpressionsInAttributesAreLeftAlone() {
+        String gsp = "<body class=\"${cssClass}\">text</body><meta name=\"description\" content=\"${book.title}\">";
+        assertEquals(gsp, preprocessor.process(gsp));
+    }
+
+    public void testPageIsLeftAloneIfAnyElementDoesNotQualify() {
+        String gsp = "<head><meta name=\"description\" content=\"${book.title}\"></head><body>text</body>";
+        assertEquals(gsp, preprocessor.process(gsp));
+    }
+
+    public void testElementsWithUnquotedAttributesAreLeftAlone() {
+        String gsp = "<body class=main>text</body><meta name=keywords content=\"a,b\">";
+        assertEquals(gsp, preprocessor.process(gsp));
+    }
+
+    public void testElementsThatOccurTwiceAreLeftAlone() {
+        String gsp = "<g:if test=\"${admin}\"><body class=\"admin\"></g:if><g:else><body></g:else>text</body>";
+        assertEquals(gsp, preprocessor.process(gsp));
+
+        // the head isn't captured, so the rest of the page isn't either
+        gsp = "<head><title>One</title></head><body>text</body></head>";
+        assertEquals(gsp, preprocessor.process(gsp));
+    }
+
+    public void testSimilarElementsAreLeftAlone() {
+        String gsp = "<header>top</header><g:layoutHead /><bodyguard></bodyguard>";
+        assertEquals(gsp, preprocessor.process(gsp));
+    }
+
+    public void testPageCanOptOut() {
+        String gsp = "<%@ page contentType=\"text/html\" sitemeshPreprocess=\"false\" %><body>text</body>";
+        assertEquals(gsp, preprocessor.process(gsp));
+    }
+}
@@ -19,11 +19,11 @@ def request = binding.request
 def flash = binding.flash
 def response = binding.response
 
-out.print(htmlParts[0])
-evaluate('"blah"', 2, it) { return "blah" }.each { t ->
-out.print(htmlParts[0])
+printHtmlPart(0)
+("blah").each { t ->
+printHtmlPart(0)
 }
-out.print(htmlParts[0])
+printHtmlPart(0)
 }""" + GSP_FOOTER 
 ),trimAndRemoveCR(output.toString()) )
 		assertEquals("\n", output.htmlParts[0])
@@ -42,8 +42,8 @@ def request = binding.request
 def flash = binding.flash
 def response = binding.response
 
-out.print(htmlParts[0])
-evaluate('"blah"', 1, it) { return "blah" }.each { t ->
+printHtmlPart(0)
+("blah").each { t ->
 }
 }""" + GSP_FOOTER
 ),trimAndRemoveCR(output.toString()) )
@@ -66,11 +66,11 @@ def request = binding.request
 def flash = binding.flash
 def response = binding.response
 
-out.print(htmlParts[0])
-evaluate('"blah"', 2, it) { return "blah" }.eachWithIndex { t,i ->
-out.print(htmlParts[0])
+printHtmlPart(0)
+("blah").eachWithIndex { t,i ->
+printHtmlPart(0)
 }
-out.print(htmlParts[0])
+printHtmlPart(0)
 }""" + GSP_FOOTER
 ),trimAndRemoveCR(output.toString()) )
 		  assertEquals("\n", output.htmlParts[0])
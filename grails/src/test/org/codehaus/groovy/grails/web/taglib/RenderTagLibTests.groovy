@@ -99,6 +99,43 @@ class RenderTagLibTests extends AbstractGrailsTagTests {
 
     }
 
+    void testCacheTag() {
+        appCtx.groovyPageFragmentCache.clear()
+        def template = '<g:cache key="counter">count: ${count}</g:cache>'
+
+        assertOutputEquals 'count: 1', template, [count:1]
+        assertOutputEquals 'count: 1', template, [count:2]
+
+        appCtx.groovyPageFragmentCache.invalidate("counter")
+        assertOutputEquals 'count: 3', template, [count:3]
+    }
+
+    void testCacheTagVariations() {
+        appCtx.groovyPageFragmentCache.clear()
+        def template = '<g:cache key="greeting" vary="${lang}">${greeting}</g:cache>'
+
+        assertOutputEquals 'hello', template, [lang:'en', greeting:'hello']
+        assertOutputEquals 'hallo', template, [lang:'de', greeting:'hallo']
+        assertOutputEquals 'hello', template, [lang:'en', greeting:'hi']
+
+        template = '<g:cache key="localized" varyBy="locale">${greeting}</g:cache>'
+        request.addPreferredLocale(Locale.GERMAN)
+        assertOutputEquals 'hallo', template, [greeting:'hallo']
+        assertOutputEquals 'hallo', template, [greeting:'hello']
+    }
+
+    void testCacheTagWithoutKey() {
+        shouldFail(org.codehaus.groovy.grails.web.taglib.exceptions.GrailsTagException) {
+            applyTemplate('<g:cache>foo</g:cache>')
+        }
+    }
+
+    void testCacheTagWithInvalidTtl() {
+        shouldFail(org.codehaus.groovy.grails.web.taglib.exceptions.GrailsTagException) {
+            applyTemplate('<g:cache key="menu" ttl="10m">foo</g:cache>')
+        }
+    }
+
     void testSortableColumnTag() {
     	final StringWriter sw = new StringWriter();
     	final PrintWriter pw = new PrintWriter(sw);
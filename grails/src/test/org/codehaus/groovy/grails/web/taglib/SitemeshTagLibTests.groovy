@@ -0,0 +1,48 @@
+package org.codehaus.groovy.grails.web.taglib
+
+import org.codehaus.groovy.grails.web.sitemesh.GSPSitemeshPage
+import org.codehaus.groovy.grails.web.sitemesh.GrailsPageFilter
+
+/**
+ * Tests for the tags that capture the regions of a preprocessed GSP
+ */
+class SitemeshTagLibTests extends AbstractGrailsTagTests {
+
+    void testRegionsAreCapturedIntoPage() {
+        def page = new GSPSitemeshPage()
+        request.setAttribute(GrailsPageFilter.GSP_SITEMESH_PAGE, page)
+
+        def template = '<HEAD><sitemesh:captureHead><meta name="layout" content="main"/><sitemesh:captureMeta name="layout" content="main"/>' +
+                '<sitemesh:captureTitle><Title>Hello</Title></sitemesh:captureTitle><link rel="icon"></sitemesh:captureHead></HEAD>' +
+                '<body onload=\'init()\'><sitemesh:captureBody onload=\'init()\'>${foo}' +
+                '<sitemesh:captureContent tag="nav"><content tag="nav"><a href="/">Home</a></content></sitemesh:captureContent>' +
+                '</sitemesh:captureBody></body>'
+
+        assertOutputEquals '<HEAD><meta name="layout" content="main"/><Title>Hello</Title><link rel="icon"></HEAD>' +
+                '<body onload=\'init()\'>bar</body>', template, [foo: 'bar']
+
+        assertTrue page.used
+        assertEquals 'Hello', page.title
+        assertEquals 'main', page.getProperty('meta.layout')
+        assertEquals 'init()', page.getProperty('body.onload')
+        assertEquals '<a href="/">Home</a>', page.getProperty('page.nav')
+
+        def head = new StringWriter()
+        page.writeHead(head)
+        assertEquals '<meta name="layout" content="main"/><link rel="icon">', head.toString()
+        def body = new StringWriter()
+        page.writeBody(body)
+        page.writeBody(body)
+        assertEquals 'barbar', body.toString()
+    }
+
+    void testElementsAreWrittenWithoutPage() {
+        def template = '<head><sitemesh:captureHead><sitemesh:captureTitle><title>Hello</title></sitemesh:captureTitle>' +
+                '<META http-equiv="Content-Type" content="text/html"><sitemesh:captureMeta http-equiv="Content-Type" content="text/html"/>' +
+                '</sitemesh:captureHead></head><body class="main"><sitemesh:captureBody class="main">' +
+                '<sitemesh:captureContent tag="nav"><content tag="nav">nav</content></sitemesh:captureContent></sitemesh:captureBody></body>'
+
+        assertOutputEquals '<head><title>Hello</title><META http-equiv="Content-Type" content="text/html"></head>' +
+                '<body class="main"><content tag="nav">nav</content></body>', template
+    }
+}
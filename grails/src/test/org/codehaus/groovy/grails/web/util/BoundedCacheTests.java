@@ -0,0 +1,193 @@
+package org.codehaus.groovy.grails.web.util;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for BoundedCache
+ *
+ * @since 1.2
+ */
+public class BoundedCacheTests extends TestCase {
+
+    public void testGetAndPut() {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(10);
+        assertNull(cache.get("foo"));
+        assertNull(cache.put("foo", "bar"));
+        assertEquals("bar", cache.get("foo"));
+        assertEquals("bar", cache.put("foo", "baz"));
+        assertEquals("baz", cache.get("foo"));
+        assertEquals(1, cache.getSize());
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    public void testPutIfAbsent() {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(10);
+        assertNull(cache.putIfAbsent("foo", "bar"));
+        assertEquals("bar", cache.putIfAbsent("foo", "baz"));
+        assertEquals("bar", cache.get("foo"));
+    }
+
+    public void testSizeIsBounded() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<Integer, Integer>(100);
+        for (int i = 0; i < 10000; i++) {
+            cache.put(i, i);
+        }
+        assertEquals(100, cache.getSize());
+        assertEquals(9900, cache.getEvictionCount());
+    }
+
+    public void testEvictedEntriesAreReported() {
+        final List<Integer> evicted = new ArrayList<Integer>();
+        BoundedCache<Integer, Integer> cache = new BoundedCache<Integer, Integer>(2) {
+            protected void evicted(Integer key, Integer value) {
+                evicted.add(key);
+            }
+        };
+        cache.put(1, 1);
+        cache.put(2, 2);
+        cache.remove(2);
+        cache.put(3, 3);
+        cache.put(3, 4);
+        assertTrue("removed and replaced entries aren't evicted", evicted.isEmpty());
+
+        cache.put(4, 4);
+        assertEquals(1, evicted.size());
+        assertNull(cache.get(evicted.get(0)));
+    }
+
+    public void testFrequentlyUsedEntriesSurvive() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<Integer, Integer>(100);
+        cache.put(-1, -1);
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(Integer.valueOf(-1), cache.get(-1));
+            cache.put(i, i);
+        }
+        assertEquals(Integer.valueOf(-1), cache.get(-1));
+    }
+
+    public void testWeightIsBounded() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<Integer, Integer>(100, 1000);
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, i, 100);
+        }
+        assertEquals(10, cache.getSize());
+        assertEquals(1000, cache.getWeight());
+        assertEquals(40, cache.getEvictionCount());
+
+        cache.put(49, 49, 500);
+        assertTrue(cache.getWeight() <= 1000);
+        assertEquals(Integer.valueOf(49), cache.get(49));
+
+        cache.remove(49);
+        cache.clear();
+        assertEquals(0, cache.getWeight());
+    }
+
+    public void testEntriesHeavierThanMaxWeightAreNotStored() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<Integer, Integer>(100, 1000);
+        for (int i = 0; i < 5; i++) {
+            cache.put(i, i, 100);
+        }
+
+        assertNull(cache.put(5, 5, 1001));
+        assertNull(cache.putIfAbsent(6, 6, 1001));
+        assertNull(cache.get(5));
+        assertNull(cache.get(6));
+        assertEquals(5, cache.getSize());
+        assertEquals(500, cache.getWeight());
+        assertEquals(0, cache.getEvictionCount());
+
+        // the previous value of the key is stale
+        assertEquals(Integer.valueOf(0), cache.put(0, 10, 1001));
+        assertNull(cache.get(0));
+        assertEquals(Integer.valueOf(1), cache.putIfAbsent(1, 11, 1001));
+        assertEquals(4, cache.getSize());
+        assertEquals(400, cache.getWeight());
+    }
+
+    public void testRemoveAndClear() {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(10);
+        cache.put("one", "1");
+        cache.put("two", "2");
+        assertEquals("1", cache.remove("one"));
+        assertNull(cache.remove("one"));
+        assertEquals(1, cache.getSize());
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertNull(cache.get("two"));
+    }
+
+    public void testRemovedAndReplacedEntriesAreSkippedByEviction() {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(3);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        cache.remove("a");
+        cache.put("b", "two");
+        cache.put("d", "4");
+        assertEquals(3, cache.getSize());
+        assertEquals(0, cache.getEvictionCount());
+
+        cache.put("e", "5");
+        assertEquals(3, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get("c"));
+        assertEquals("two", cache.get("b"));
+    }
+
+    public void testRemovingKeysKeepsCacheConsistent() throws InterruptedException {
+        final BoundedCache<Integer, Integer> cache = new BoundedCache<Integer, Integer>(100, 10000);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < 20000; i++) {
+                        Integer key = Integer.valueOf(i % 150);
+                        if (i % 3 == 0) {
+                            cache.remove(key);
+                        }
+                        else {
+                            cache.put(key, key, 10);
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+        }
+        assertEquals(cache.keys().size(), cache.getSize());
+        assertTrue(cache.getSize() <= 100);
+        assertEquals(cache.getSize() * 10, cache.getWeight());
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getWeight());
+        long evictions = cache.getEvictionCount();
+        for (int i = 0; i < 101; i++) {
+            cache.put(Integer.valueOf(i), Integer.valueOf(i), 10);
+        }
+        assertEquals(100, cache.getSize());
+        assertEquals(evictions + 1, cache.getEvictionCount());
+    }
+
+    public void testHitRatio() {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(10);
+        assertEquals(0d, cache.getHitRatio());
+        cache.put("foo", "bar");
+        cache.get("foo");
+        cache.get("bar");
+        assertEquals(0.5d, cache.getHitRatio());
+
+        cache.resetStatistics();
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+}
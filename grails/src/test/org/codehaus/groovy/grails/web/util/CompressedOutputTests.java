@@ -0,0 +1,146 @@
+package org.codehaus.groovy.grails.web.util;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Tests for the CompressedOutput class
+ *
+ * @since 1.2
+ */
+public class CompressedOutputTests extends TestCase {
+    private static final String CONTENT = "<tr><td>The Definitive Guide to Grails</td></tr>\n";
+
+    public void testGzip() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressedOutput output = new CompressedOutput(out, "gzip", Deflater.DEFAULT_COMPRESSION);
+        byte[] bytes = repeat(CONTENT, 100).getBytes("UTF-8");
+        output.write(bytes, 0, 1000);
+        output.write(new ByteBuffer[] { ByteBuffer.wrap(bytes, 1000, bytes.length - 1000) });
+        output.finish();
+
+        assertTrue(out.size() < bytes.length / 10);
+        assertEquals(repeat(CONTENT, 100), read(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))));
+    }
+
+    public void testDeflate() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressedOutput output = new CompressedOutput(out, "deflate", Deflater.BEST_SPEED);
+        byte[] bytes = repeat(CONTENT, 10).getBytes("UTF-8");
+        output.write(bytes, 0, bytes.length);
+        output.finish();
+
+        assertEquals(repeat(CONTENT, 10), read(new InflaterInputStream(new ByteArrayInputStream(out.toByteArray()))));
+    }
+
+    public void testFlushWritesCompressedContent() throws Exception {
+        if (!CompressedOutput.isSyncFlushSupported()) return;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressedOutput output = new CompressedOutput(out, "gzip", Deflater.DEFAULT_COMPRESSION);
+        byte[] bytes = CONTENT.getBytes("UTF-8");
+        output.write(bytes, 0, bytes.length);
+        output.flush();
+        int flushed = out.size();
+        assertTrue(flushed > 10);
+
+        output.write(bytes, 0, bytes.length);
+        output.finish();
+        assertTrue("the second row refers to the first", out.size() - flushed < bytes.length);
+        assertEquals(CONTENT + CONTENT, read(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))));
+    }
+
+    public void testNestedOutputs() throws Exception {
+        ByteArrayOutputStream outer = new ByteArrayOutputStream();
+        CompressedOutput outerOutput = new CompressedOutput(outer, "gzip", Deflater.DEFAULT_COMPRESSION);
+        byte[] bytes = CONTENT.getBytes("UTF-8");
+        outerOutput.write(bytes, 0, bytes.length);
+
+        // an include on the same thread while the outer output is in use
+        ByteArrayOutputStream inner = new ByteArrayOutputStream();
+        CompressedOutput innerOutput = new CompressedOutput(inner, "gzip", Deflater.BEST_SPEED);
+        innerOutput.write(bytes, 0, 10);
+        innerOutput.finish();
+
+        outerOutput.write(bytes, 0, bytes.length);
+        outerOutput.finish();
+        assertEquals(CONTENT.substring(0, 10), read(new GZIPInputStream(new ByteArrayInputStream(inner.toByteArray()))));
+        assertEquals(CONTENT + CONTENT, read(new GZIPInputStream(new ByteArrayInputStream(outer.toByteArray()))));
+    }
+
+    public void testDeflaterIsReusedAfterRelease() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressedOutput output = new CompressedOutput(out, "deflate", Deflater.DEFAULT_COMPRESSION);
+        byte[] bytes = CONTENT.getBytes("UTF-8");
+        // the content of a response that won't be sent is left in the Deflater
+        output.write(bytes, 0, bytes.length);
+        output.release();
+
+        out.reset();
+        output = new CompressedOutput(out, "deflate", Deflater.DEFAULT_COMPRESSION);
+        output.write(bytes, 0, 10);
+        output.finish();
+        assertEquals(CONTENT.substring(0, 10), read(new InflaterInputStream(new ByteArrayInputStream(out.toByteArray()))));
+    }
+
+    public void testSuccessiveOutputs() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            CompressedOutput output = new CompressedOutput(out, "gzip", Deflater.DEFAULT_COMPRESSION);
+            byte[] bytes = (CONTENT + i).getBytes("UTF-8");
+            output.write(bytes, 0, bytes.length);
+            output.finish();
+            assertEquals(CONTENT + i, read(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))));
+        }
+    }
+
+    public void testReleasedOutputWritesNothing() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressedOutput output = new CompressedOutput(out, "gzip", Deflater.DEFAULT_COMPRESSION);
+        output.release();
+        output.finish();
+        assertEquals(0, out.size());
+    }
+
+    public void testFinishedOutputCannotBeWritten() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressedOutput output = new CompressedOutput(out, "deflate", Deflater.DEFAULT_COMPRESSION);
+        byte[] bytes = CONTENT.getBytes("UTF-8");
+        output.write(bytes, 0, bytes.length);
+        output.finish();
+        output.release();
+        try {
+            output.write(bytes, 0, bytes.length);
+            fail("Should have thrown an IllegalStateException");
+        }
+        catch (IllegalStateException e) {
+            // the Deflater has been given back to the thread
+        }
+        assertEquals(CONTENT, read(new InflaterInputStream(new ByteArrayInputStream(out.toByteArray()))));
+    }
+
+    private static String repeat(String s, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        return out.toString("UTF-8");
+    }
+}
@@ -0,0 +1,61 @@
+package org.codehaus.groovy.grails.web.util;
+
+import junit.framework.TestCase;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Tests for the CompressionSupport class
+ *
+ * @since 1.2
+ */
+public class CompressionSupportTests extends TestCase {
+
+    protected void tearDown() throws Exception {
+        CompressionSupport.setEnabled(false);
+    }
+
+    public void testGetContentEncoding() {
+        assertEquals("gzip", CompressionSupport.getContentEncoding("gzip, deflate"));
+        assertEquals("gzip", CompressionSupport.getContentEncoding("deflate, gzip;q=0.5"));
+        assertEquals("gzip", CompressionSupport.getContentEncoding("x-gzip"));
+        assertEquals("deflate", CompressionSupport.getContentEncoding("deflate, gzip;q=0"));
+        assertNull(CompressionSupport.getContentEncoding("identity"));
+        assertNull(CompressionSupport.getContentEncoding("gzip; q=0.0"));
+        assertNull(CompressionSupport.getContentEncoding((String) null));
+    }
+
+    public void testGetContentEncodingOfRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/book/list");
+        request.addHeader("Accept-Encoding", "gzip,deflate");
+        assertNull(CompressionSupport.getContentEncoding(request));
+
+        CompressionSupport.setEnabled(true);
+        assertEquals("gzip", CompressionSupport.getContentEncoding(request));
+
+        request.setAttribute("javax.servlet.include.request_uri", "/book/_list");
+        assertFalse(CompressionSupport.isCompressionRequest(request));
+        assertNull(CompressionSupport.getContentEncoding(request));
+    }
+
+    public void testIsCompressible() {
+        assertTrue(CompressionSupport.isCompressible("text/html;charset=UTF-8"));
+        assertTrue(CompressionSupport.isCompressible("application/json"));
+        assertTrue(CompressionSupport.isCompressible("application/atom+xml; charset=utf-8"));
+        assertFalse(CompressionSupport.isCompressible("image/png"));
+        assertFalse(CompressionSupport.isCompressible(null));
+    }
+
+    public void testGetETag() {
+        assertEquals("\"abc-gzip\"", CompressionSupport.getETag("\"abc\"", "gzip"));
+    }
+
+    public void testInvalidLevel() {
+        try {
+            CompressionSupport.setLevel(10);
+            fail("should have thrown IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
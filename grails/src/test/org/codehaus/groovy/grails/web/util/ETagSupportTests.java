@@ -0,0 +1,60 @@
+package org.codehaus.groovy.grails.web.util;
+
+import junit.framework.TestCase;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Tests for the ETagSupport class
+ *
+ * @since 1.2
+ */
+public class ETagSupportTests extends TestCase {
+
+    protected void tearDown() throws Exception {
+        ETagSupport.setEnabled(false);
+    }
+
+    public void testCreateETag() throws Exception {
+        ByteBuffer hello = ByteBuffer.wrap("hello ".getBytes("UTF-8"));
+        ByteBuffer world = ByteBuffer.wrap("world".getBytes("UTF-8"));
+        String etag = ETagSupport.createETag(new ByteBuffer[] { hello, world });
+
+        assertEquals("\"5eb63bbbe01eeed093cb22bb8f5acdc3\"", etag);
+        assertEquals("the buffers aren't consumed", 6, hello.remaining());
+        assertEquals(etag, ETagSupport.createETag(new ByteBuffer[] { ByteBuffer.wrap("hello world".getBytes("UTF-8")) }));
+    }
+
+    public void testMatches() {
+        assertTrue(ETagSupport.matches("\"a\"", "\"a\""));
+        assertTrue(ETagSupport.matches("\"b\", W/\"a\"", "\"a\""));
+        assertTrue(ETagSupport.matches("*", "\"a\""));
+        assertFalse(ETagSupport.matches("\"b\"", "\"a\""));
+        assertFalse(ETagSupport.matches(null, "\"a\""));
+        assertFalse(ETagSupport.matches("\"a\"", null));
+    }
+
+    public void testIsETagRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/book/list");
+        assertFalse(ETagSupport.isETagRequest(request));
+
+        ETagSupport.setEnabled(true);
+        assertTrue(ETagSupport.isETagRequest(request));
+        assertTrue(ETagSupport.isETagRequest(new MockHttpServletRequest("HEAD", "/book/list")));
+        assertFalse(ETagSupport.isETagRequest(new MockHttpServletRequest("POST", "/book/save")));
+
+        request.setAttribute("javax.servlet.include.request_uri", "/book/_list");
+        assertFalse(ETagSupport.isETagRequest(request));
+    }
+
+    public void testIsNotModified() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/book/list");
+        assertFalse(ETagSupport.isNotModified(request, "\"a\"", 1000));
+
+        request.addHeader("If-Modified-Since", new Long(1000));
+        assertTrue(ETagSupport.isNotModified(request, null, 1999));
+        assertFalse(ETagSupport.isNotModified(request, null, 2000));
+        assertFalse(ETagSupport.isNotModified(request, null, -1));
+    }
+}
@@ -0,0 +1,60 @@
+package org.codehaus.groovy.grails.web.util;
+
+import junit.framework.TestCase;
+import org.springframework.jmx.support.JmxUtils;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for JmxSupport
+ *
+ * @since 1.2
+ */
+public class JmxSupportTests extends TestCase {
+
+    public void testObjectNameIncludesApplication() throws Exception {
+        ObjectName name = JmxSupport.createObjectName("GroovyPagesCache", "pages");
+        assertEquals(JmxSupport.DOMAIN, name.getDomain());
+        assertEquals("GroovyPagesCache", name.getKeyProperty("type"));
+        assertEquals("pages", name.getKeyProperty("name"));
+        assertNotNull(name.getKeyProperty("application"));
+
+        assertNull(JmxSupport.createObjectName("GroovyPagesProfiler", null).getKeyProperty("name"));
+    }
+
+    public void testRegisteredMBeanIsNotReplaced() throws Exception {
+        MBeanServer server = JmxUtils.locateMBeanServer();
+        BoundedCache<String, String> first = new BoundedCache<String, String>(10);
+        BoundedCache<String, String> second = new BoundedCache<String, String>(10);
+        first.put("foo", "bar");
+
+        ObjectName name = BoundedCache.registerMBean(first, "TestCache", "replaced");
+        try {
+            assertNotNull(name);
+            assertNull(BoundedCache.registerMBean(second, "TestCache", "replaced"));
+            assertEquals(new Integer(1), server.getAttribute(name, "Size"));
+        }
+        finally {
+            JmxSupport.unregisterMBean(name);
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    public void testUnregisterMBeans() throws Exception {
+        List<ObjectName> names = new ArrayList<ObjectName>();
+        names.add(BoundedCache.registerMBean(new BoundedCache<String, String>(10), "TestCache", "first"));
+        names.add(BoundedCache.registerMBean(new BoundedCache<String, String>(10), "TestCache", "second"));
+        List<ObjectName> registered = new ArrayList<ObjectName>(names);
+
+        JmxSupport.unregisterMBeans(names);
+
+        assertTrue(names.isEmpty());
+        MBeanServer server = JmxUtils.locateMBeanServer();
+        for (ObjectName name : registered) {
+            assertFalse(server.isRegistered(name));
+        }
+    }
+}
@@ -6,6 +6,11 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.CoderResult;
+import java.security.MessageDigest;
 import java.util.Arrays;
 
 import junit.framework.TestCase;
@@ -172,6 +177,61 @@ public class StreamByteBufferTest extends TestCase {
 		assertTrue(Arrays.equals(testbuffer, result));
 	}
 
+	public void testWriteToChannel() throws IOException {
+		StreamByteBuffer byteBuffer = createTestInstance();
+		ByteArrayOutputStream bytesOut = new ByteArrayOutputStream(byteBuffer
+				.totalBytesUnread());
+		byteBuffer.writeTo(Channels.newChannel(bytesOut));
+		assertTrue(Arrays.equals(testbuffer, bytesOut.toByteArray()));
+		assertEquals(0, byteBuffer.totalBytesUnread());
+	}
+
+	public void testEncode() throws IOException {
+		// a chunk size that forces multibyte characters to cross chunk boundaries
+		StreamByteBuffer byteBuffer = new StreamByteBuffer(7);
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			expected.append("a\u00e4\u20ac");
+		}
+		CoderResult result = byteBuffer.encode(CharBuffer.wrap(expected), Charset.forName("UTF-8").newEncoder(), true);
+		assertTrue(result.isUnderflow());
+		assertEquals(600, byteBuffer.totalBytesUnread());
+		assertEquals(expected.toString(), byteBuffer.readAsString("UTF-8"));
+	}
+
+	public void testWritingAfterReadingPartOfTheWriteChunk() throws IOException {
+		StreamByteBuffer byteBuffer = new StreamByteBuffer(10);
+		OutputStream output = byteBuffer.getOutputStream();
+		output.write(testbuffer, 0, 4);
+		assertEquals(4, byteBuffer.readAsNioBuffers()[0].remaining());
+
+		// fills the chunk that has been read from and continues in a new one
+		output.write(testbuffer, 4, 12);
+		assertEquals(12, byteBuffer.totalBytesUnread());
+		ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+		byteBuffer.writeTo(Channels.newChannel(bytesOut));
+		byte[] expected = new byte[12];
+		System.arraycopy(testbuffer, 4, expected, 0, 12);
+		assertTrue(Arrays.equals(expected, bytesOut.toByteArray()));
+		assertEquals(0, byteBuffer.totalBytesUnread());
+	}
+
+	public void testDigest() throws Exception {
+		StreamByteBuffer byteBuffer = new StreamByteBuffer(7);
+		OutputStream output = byteBuffer.getOutputStream();
+		output.write("<p>".getBytes("UTF-8"));
+		byteBuffer.setDigest(MessageDigest.getInstance("MD5"));
+		byteBuffer.encode(CharBuffer.wrap("a\u00e4\u20ac b\u00e4\u20ac"), Charset.forName("UTF-8").newEncoder(), true);
+		output.write("</p>".getBytes("UTF-8"));
+		output.write('\n');
+
+		byte[] content = "<p>a\u00e4\u20ac b\u00e4\u20ac</p>\n".getBytes("UTF-8");
+		byte[] expected = MessageDigest.getInstance("MD5").digest(content);
+		assertTrue(Arrays.equals(expected, byteBuffer.completeDigest().digest()));
+		assertNull(byteBuffer.completeDigest());
+		assertEquals(new String(content, "UTF-8"), byteBuffer.readAsString("UTF-8"));
+	}
+
 	private int copy(InputStream input, OutputStream output, int bufSize)
 			throws IOException {
 		byte[] buffer = new byte[bufSize];
@@ -0,0 +1,66 @@
+package org.codehaus.groovy.grails.web.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Measures the chunk allocation of StreamCharBuffer over simulated GSP requests: a page buffer that receives
+ * the whole response and a number of tag body captures read with toString(). Not a test, run it with:
+ *
+ * <pre>
+ * java -cp ... org.codehaus.groovy.grails.web.util.StreamCharBufferBenchmark
+ * java -Dstreamcharbuffer.pool=false -cp ... org.codehaus.groovy.grails.web.util.StreamCharBufferBenchmark
+ * </pre>
+ *
+ * The number of requests can be set with the streamcharbuffer.benchmark.requests system property, the number of
+ * tag bodies per request with streamcharbuffer.benchmark.tags.
+ *
+ * @since 1.2
+ */
+public class StreamCharBufferBenchmark {
+    private static final int WARMUP_REQUESTS = 1000;
+    private static final String MARKUP = "<tr class=\"odd\"><td><a href=\"/book/show/1\">The Definitive Guide to Grails</a></td></tr>\n";
+
+    public static void main(String[] args) throws Exception {
+        int requests = Integer.getInteger("streamcharbuffer.benchmark.requests", 20000).intValue();
+        int tags = Integer.getInteger("streamcharbuffer.benchmark.tags", 50).intValue();
+
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            request(tags);
+        }
+
+        long allocated = StreamCharBufferChunkPool.getAllocatedChars();
+        long reused = StreamCharBufferChunkPool.getReusedChars();
+        long start = System.nanoTime();
+        long written = 0;
+        for (int i = 0; i < requests; i++) {
+            written += request(tags);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        allocated = StreamCharBufferChunkPool.getAllocatedChars() - allocated;
+        reused = StreamCharBufferChunkPool.getReusedChars() - reused;
+
+        System.out.println("Rendered " + requests + " requests of " + written / requests / 1024 + " KB with " + tags +
+                " tag bodies each, chunk pool " + (StreamCharBufferChunkPool.ENABLED ? "enabled" : "disabled"));
+        System.out.println(String.format("%.1f requests/s, %d KB of chunks allocated per request, %d KB reused per request",
+                requests / seconds, allocated * 2 / requests / 1024, reused * 2 / requests / 1024));
+    }
+
+    private static long request(int tags) throws IOException {
+        StreamCharBuffer page = new StreamCharBuffer();
+        Writer out = page.getWriter();
+        for (int i = 0; i < tags; i++) {
+            out.write(MARKUP);
+            StreamCharBuffer body = new StreamCharBuffer();
+            Writer bodyOut = body.getWriter();
+            for (int j = 0; j < 5; j++) {
+                bodyOut.write(MARKUP);
+            }
+            out.write(body.toString());
+            body.recycle();
+        }
+        String content = page.toString();
+        page.recycle();
+        return content.length();
+    }
+}
@@ -198,6 +198,36 @@ public class StreamCharBufferTest extends TestCase {
 		assertEquals(0, charBuffer.size());
 	}
 
+	public void testCopyToLeavesContentUnread() throws IOException {
+		StreamCharBuffer charBuffer = new StreamCharBuffer(10);
+		charBuffer.setStringChunkMinSize(0);
+		Writer writer=charBuffer.getWriter();
+		writer.write("ABCDE");
+		writer.write("12345".toCharArray());
+		writer.write("ABCDE");
+		writer.write("ABCDE");
+		writer.write("67890abcdefghij".toCharArray());
+		writer.close();
+		StringWriter sw=new StringWriter();
+		charBuffer.copyTo(sw);
+		charBuffer.copyTo(sw);
+		assertEquals("ABCDE12345ABCDEABCDE67890abcdefghijABCDE12345ABCDEABCDE67890abcdefghij", sw.toString());
+		assertEquals(35, charBuffer.size());
+		assertEquals("ABCDE12345ABCDEABCDE67890abcdefghij", charBuffer.toString());
+	}
+
+	public void testCopyToAfterReading() throws IOException {
+		StreamCharBuffer charBuffer = new StreamCharBuffer();
+		Writer writer=charBuffer.getWriter();
+		writer.write("Hello ");
+		assertEquals("Hello ", charBuffer.toString());
+		writer.write("world!");
+		StringWriter sw=new StringWriter();
+		charBuffer.copyTo(sw);
+		charBuffer.copyTo(sw);
+		assertEquals("Hello world!Hello world!", sw.toString());
+	}
+
 	public void testToString() throws IOException {
 		StreamCharBuffer charBuffer = new StreamCharBuffer();
 		Writer writer=charBuffer.getWriter();
@@ -253,6 +283,91 @@ public class StreamCharBufferTest extends TestCase {
 		assertEquals(0, charBuffer.size());
 	}
 
+	public void testRecycledChunksAreReused() throws IOException {
+		StreamCharBufferChunkPool.clear();
+		StreamCharBuffer charBuffer = new StreamCharBuffer(10, 0, 10);
+		charBuffer.getWriter().write("0123456789abcdefghij");
+		assertEquals("0123456789abcdefghij", charBuffer.toString());
+		charBuffer.recycle();
+
+		long allocated = StreamCharBufferChunkPool.getAllocatedChars();
+		long reused = StreamCharBufferChunkPool.getReusedChars();
+		StreamCharBuffer charBuffer2 = new StreamCharBuffer(10, 0, 10);
+		charBuffer2.getWriter().write("klmnopqrst");
+		assertEquals("klmnopqrst", charBuffer2.toString());
+		if (StreamCharBufferChunkPool.ENABLED) {
+			assertEquals(allocated, StreamCharBufferChunkPool.getAllocatedChars());
+			assertTrue(StreamCharBufferChunkPool.getReusedChars() > reused);
+		}
+	}
+
+	public void testRecycleKeepsCachedValues() throws IOException {
+		StreamCharBuffer charBuffer = new StreamCharBuffer(10, 0, 10);
+		charBuffer.getWriter().write("0123456789abcdefghij");
+		String value = charBuffer.toString();
+		charBuffer.recycle();
+
+		// reuse the recycled chunks
+		StreamCharBuffer charBuffer2 = new StreamCharBuffer(10, 0, 10);
+		charBuffer2.getWriter().write("xxxxxxxxxxxxxxxxxxxx");
+		assertEquals("xxxxxxxxxxxxxxxxxxxx", charBuffer2.toString());
+
+		assertEquals("0123456789abcdefghij", value);
+		assertSame(value, charBuffer.toString());
+
+		StreamCharBuffer charBuffer3 = new StreamCharBuffer(10, 0, 10);
+		charBuffer3.getWriter().write("0123456789abcdefghij");
+		char[] chars = charBuffer3.toCharArray();
+		charBuffer3.recycle();
+		charBuffer2.getWriter().write("xxxxxxxxxxxxxxxxxxxx");
+		assertEquals("0123456789abcdefghij", new String(chars));
+		assertSame(chars, charBuffer3.toCharArray());
+	}
+
+	public void testWriteAfterRecycle() throws IOException {
+		StreamCharBuffer charBuffer = new StreamCharBuffer(10, 0, 10);
+		Writer writer = charBuffer.getWriter();
+		writer.write("0123456789abc");
+		charBuffer.recycle();
+		assertEquals(0, charBuffer.size());
+
+		writer.write("def");
+		writer.write("ghijklmnopq");
+		assertEquals("defghijklmnopq", charBuffer.readAsString());
+
+		charBuffer.recycle();
+		charBuffer.recycle();
+		writer.write("rst");
+		assertEquals("rst", charBuffer.readAsString());
+	}
+
+	public void testResetRecyclesChunks() throws IOException {
+		StreamCharBuffer charBuffer = new StreamCharBuffer(10, 0, 10);
+		charBuffer.getWriter().write("0123456789abc");
+		charBuffer.reset();
+		assertEquals(0, charBuffer.size());
+		charBuffer.getWriter().write("def");
+		assertEquals("def", charBuffer.toString());
+	}
+
+	public void testReadChunksAreRecycled() throws IOException {
+		StreamCharBuffer charBuffer = new StreamCharBuffer(10, 0, 10);
+		Writer writer = charBuffer.getWriter();
+		Reader reader = charBuffer.getReader();
+		StringBuilder result = new StringBuilder();
+		char[] buf = new char[7];
+		for (int i = 0; i < 100; i++) {
+			writer.write("0123456789abcdefghij", i % 10, 10);
+			while (charBuffer.size() > 0) {
+				int n = reader.read(buf, 0, Math.min(buf.length, charBuffer.size()));
+				result.append(buf, 0, n);
+			}
+		}
+		assertEquals(1000, result.length());
+		assertTrue(result.toString().startsWith("0123456789123456789a"));
+		assertTrue(result.toString().endsWith("9abcdefghi"));
+	}
+
 	private int copy(Reader input, Writer output, int bufSize)
 			throws IOException {
 		char[] buffer = new char[bufSize];